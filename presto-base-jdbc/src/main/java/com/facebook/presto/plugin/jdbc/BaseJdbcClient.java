@@ -20,6 +20,7 @@ import com.facebook.presto.common.type.DecimalType;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.UuidType;
 import com.facebook.presto.common.type.VarcharType;
+import com.facebook.presto.plugin.jdbc.optimization.JdbcExpression;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.ConnectorSession;
@@ -29,6 +30,7 @@ import com.facebook.presto.spi.FixedSplitSource;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.TableNotFoundException;
+import com.facebook.presto.spi.relation.ConstantExpression;
 import com.facebook.presto.spi.statistics.TableStatistics;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
@@ -43,6 +45,7 @@ import javax.annotation.PreDestroy;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -78,6 +81,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
@@ -94,6 +98,8 @@ public class BaseJdbcClient
 {
     private static final Logger log = Logger.get(BaseJdbcClient.class);
 
+    private static final Set<Type> SPLIT_COLUMN_TYPES = ImmutableSet.of(BIGINT, INTEGER, SMALLINT, TINYINT, DATE);
+
     private static final Map<Type, String> SQL_TYPES = ImmutableMap.<Type, String>builder()
             .put(BOOLEAN, "boolean")
             .put(BIGINT, "bigint")
@@ -115,6 +121,7 @@ public class BaseJdbcClient
     protected final ConnectionFactory connectionFactory;
     protected final String identifierQuote;
     protected final boolean caseInsensitiveNameMatching;
+    protected final int partitionedSplitCount;
     protected final Cache<JdbcIdentity, Map<String, String>> remoteSchemaNames;
     protected final Cache<RemoteTableNameCacheKey, Map<String, String>> remoteTableNames;
 
@@ -126,6 +133,7 @@ public class BaseJdbcClient
         this.connectionFactory = requireNonNull(connectionFactory, "connectionFactory is null");
 
         this.caseInsensitiveNameMatching = config.isCaseInsensitiveNameMatching();
+        this.partitionedSplitCount = config.getPartitionedSplitCount();
         CacheBuilder<Object, Object> remoteNamesCacheBuilder = CacheBuilder.newBuilder()
                 .expireAfterWrite(config.getCaseInsensitiveNameMatchingCacheTtl().toMillis(), MILLISECONDS);
         this.remoteSchemaNames = remoteNamesCacheBuilder.build();
@@ -276,6 +284,23 @@ public class BaseJdbcClient
     public ConnectorSplitSource getSplits(ConnectorSession session, JdbcIdentity identity, JdbcTableLayoutHandle layoutHandle)
     {
         JdbcTableHandle tableHandle = layoutHandle.getTable();
+        if (partitionedSplitCount > 1) {
+            List<JdbcExpression> splitPredicates = getSplitPredicates(session, identity, tableHandle, partitionedSplitCount);
+            if (!splitPredicates.isEmpty()) {
+                return new FixedSplitSource(splitPredicates.stream()
+                        .map(splitPredicate -> new JdbcSplit(
+                                connectorId,
+                                tableHandle.getCatalogName(),
+                                tableHandle.getSchemaName(),
+                                tableHandle.getTableName(),
+                                layoutHandle.getTupleDomain(),
+                                Optional.of(layoutHandle.getAdditionalPredicate()
+                                        .map(additionalPredicate -> and(additionalPredicate, splitPredicate))
+                                        .orElse(splitPredicate))))
+                        .collect(toImmutableList()));
+            }
+        }
+
         JdbcSplit jdbcSplit = new JdbcSplit(
                 connectorId,
                 tableHandle.getCatalogName(),
@@ -286,6 +311,121 @@ public class BaseJdbcClient
         return new FixedSplitSource(ImmutableList.of(jdbcSplit));
     }
 
+    /**
+     * Returns disjoint predicates that together cover every row of the table, or an empty list
+     * if the table has no primary key on a column of an integral or date type.
+     * The first and last ranges are unbounded so rows outside the sampled min/max are not lost.
+     */
+    protected List<JdbcExpression> getSplitPredicates(ConnectorSession session, JdbcIdentity identity, JdbcTableHandle tableHandle, int splitCount)
+    {
+        Optional<JdbcColumnHandle> splitColumn = getSplitColumn(session, identity, tableHandle);
+        if (!splitColumn.isPresent()) {
+            return ImmutableList.of();
+        }
+
+        JdbcColumnHandle column = splitColumn.get();
+        String columnName = quoted(column.getColumnName());
+        String sql = format(
+                "SELECT min(%s), max(%s) FROM %s",
+                columnName,
+                columnName,
+                quoted(tableHandle.getCatalogName(), tableHandle.getSchemaName(), tableHandle.getTableName()));
+        long min;
+        long max;
+        try (Connection connection = connectionFactory.openConnection(identity);
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            if (!resultSet.next()) {
+                return ImmutableList.of();
+            }
+            if (column.getColumnType().equals(DATE)) {
+                Date minDate = resultSet.getDate(1);
+                Date maxDate = resultSet.getDate(2);
+                if (minDate == null || maxDate == null) {
+                    return ImmutableList.of();
+                }
+                min = minDate.toLocalDate().toEpochDay();
+                max = maxDate.toLocalDate().toEpochDay();
+            }
+            else {
+                min = resultSet.getLong(1);
+                if (resultSet.wasNull()) {
+                    return ImmutableList.of();
+                }
+                max = resultSet.getLong(2);
+            }
+        }
+        catch (SQLException e) {
+            throw new PrestoException(JDBC_ERROR, e);
+        }
+
+        // the span is computed as an unsigned value, so it does not overflow for the full long range
+        long span = max - min;
+        long step = Long.divideUnsigned(span, splitCount) + 1;
+        ImmutableList.Builder<Long> boundaries = ImmutableList.builder();
+        for (int i = 1; i < splitCount; i++) {
+            long offset = step * i;
+            if (Long.compareUnsigned(offset, span) > 0) {
+                break;
+            }
+            boundaries.add(min + offset);
+        }
+        List<Long> splitBoundaries = boundaries.build();
+        if (splitBoundaries.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        Type type = column.getColumnType();
+        ImmutableList.Builder<JdbcExpression> predicates = ImmutableList.builder();
+        predicates.add(new JdbcExpression(
+                format("(%s < ? OR %s IS NULL)", columnName, columnName),
+                ImmutableList.of(new ConstantExpression(splitBoundaries.get(0), type))));
+        for (int i = 1; i < splitBoundaries.size(); i++) {
+            predicates.add(new JdbcExpression(
+                    format("(%s >= ? AND %s < ?)", columnName, columnName),
+                    ImmutableList.of(new ConstantExpression(splitBoundaries.get(i - 1), type), new ConstantExpression(splitBoundaries.get(i), type))));
+        }
+        predicates.add(new JdbcExpression(
+                format("(%s >= ?)", columnName),
+                ImmutableList.of(new ConstantExpression(splitBoundaries.get(splitBoundaries.size() - 1), type))));
+        return predicates.build();
+    }
+
+    protected Optional<JdbcColumnHandle> getSplitColumn(ConnectorSession session, JdbcIdentity identity, JdbcTableHandle tableHandle)
+    {
+        Optional<String> primaryKeyColumn = Optional.empty();
+        try (Connection connection = connectionFactory.openConnection(identity);
+                ResultSet resultSet = connection.getMetaData().getPrimaryKeys(tableHandle.getCatalogName(), tableHandle.getSchemaName(), tableHandle.getTableName())) {
+            while (resultSet.next()) {
+                if (resultSet.getInt("KEY_SEQ") == 1) {
+                    primaryKeyColumn = Optional.of(resultSet.getString("COLUMN_NAME"));
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw new PrestoException(JDBC_ERROR, e);
+        }
+
+        if (!primaryKeyColumn.isPresent()) {
+            return Optional.empty();
+        }
+        String columnName = primaryKeyColumn.get();
+        return getColumns(session, tableHandle).stream()
+                .filter(column -> column.getColumnName().equals(columnName))
+                .filter(column -> SPLIT_COLUMN_TYPES.contains(column.getColumnType()))
+                .findFirst();
+    }
+
+    private static JdbcExpression and(JdbcExpression left, JdbcExpression right)
+    {
+        return new JdbcExpression(
+                format("(%s) AND %s", left.getExpression(), right.getExpression()),
+                ImmutableList.<ConstantExpression>builder()
+                        .addAll(left.getBoundConstantValues())
+                        .addAll(right.getBoundConstantValues())
+                        .build());
+    }
+
     @Override
     public Connection getConnection(ConnectorSession session, JdbcIdentity identity, JdbcSplit split)
             throws SQLException
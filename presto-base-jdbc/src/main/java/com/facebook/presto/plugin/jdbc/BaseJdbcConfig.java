@@ -14,11 +14,13 @@
 package com.facebook.presto.plugin.jdbc;
 
 import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.configuration.ConfigSecuritySensitive;
 import io.airlift.units.Duration;
 import io.airlift.units.MinDuration;
 
 import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -32,6 +34,7 @@ public class BaseJdbcConfig
     private String passwordCredentialName;
     private boolean caseInsensitiveNameMatching;
     private Duration caseInsensitiveNameMatchingCacheTtl = new Duration(1, MINUTES);
+    private int partitionedSplitCount = 1;
 
     @NotNull
     public String getConnectionUrl()
@@ -124,4 +127,18 @@ public class BaseJdbcConfig
         this.caseInsensitiveNameMatchingCacheTtl = caseInsensitiveNameMatchingCacheTtl;
         return this;
     }
+
+    @Min(1)
+    public int getPartitionedSplitCount()
+    {
+        return partitionedSplitCount;
+    }
+
+    @Config("partitioned-split-count")
+    @ConfigDescription("Number of splits a table scan is range partitioned into on the first primary key column")
+    public BaseJdbcConfig setPartitionedSplitCount(int partitionedSplitCount)
+    {
+        this.partitionedSplitCount = partitionedSplitCount;
+        return this;
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.jdbc;
+
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.RecordCursor;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestJdbcPartitionedSplits
+{
+    private static final ConnectorSession session = testSessionBuilder().build().toConnectorSession();
+
+    private TestingDatabase database;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        database = new TestingDatabase(new BaseJdbcConfig().setPartitionedSplitCount(4));
+        try (Statement statement = database.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE example.partitioned(id bigint primary key, value varchar)");
+            for (int i = -50; i < 50; i++) {
+                statement.execute("INSERT INTO example.partitioned VALUES (" + i + ", 'value" + i + "')");
+            }
+            statement.execute("CREATE TABLE example.empty(id bigint primary key)");
+        }
+        database.getConnection().commit();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        database.close();
+    }
+
+    @Test
+    public void testSplitsCoverTable()
+    {
+        List<JdbcSplit> splits = database.getSplits("example", "partitioned");
+        assertEquals(splits.size(), 4);
+
+        Map<String, JdbcColumnHandle> columnHandles = database.getColumnHandles("example", "partitioned");
+        Set<Long> ids = new HashSet<>();
+        for (JdbcSplit split : splits) {
+            JdbcRecordSet recordSet = new JdbcRecordSet(database.getJdbcClient(), session, split, ImmutableList.of(columnHandles.get("value")));
+            try (RecordCursor cursor = recordSet.cursor()) {
+                while (cursor.advanceNextPosition()) {
+                    long id = Long.parseLong(cursor.getSlice(0).toStringUtf8().substring("value".length()));
+                    assertTrue(ids.add(id), "row returned by more than one split: " + id);
+                }
+            }
+        }
+        assertEquals(ids.size(), 100);
+    }
+
+    @Test
+    public void testSingleSplitWithoutNumericPrimaryKey()
+    {
+        assertEquals(database.getSplits("example", "numbers").size(), 1);
+        assertEquals(database.getSplits("example", "empty").size(), 1);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.operator.exchange.LocalExchange;
+import com.facebook.presto.operator.exchange.LocalExchange.LocalExchangeSinkFactory;
+import com.facebook.presto.operator.exchange.LocalExchange.LocalExchangeSinkFactoryId;
+import com.facebook.presto.operator.exchange.LocalExchangeSink;
+import com.facebook.presto.operator.exchange.LocalExchangeSource;
+import com.facebook.presto.sql.planner.PartitioningProviderManager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Measures the throughput of a partitioned local exchange with the same number of
+ * producer and consumer drivers, each running on its own thread.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkLocalExchange
+{
+    private static final int POSITIONS_PER_PAGE = 1024;
+    private static final int PAGES_PER_PRODUCER = 1000;
+    private static final DataSize MAX_BUFFERED_BYTES = new DataSize(32, MEGABYTE);
+
+    @State(Thread)
+    public static class Context
+    {
+        @Param({"1", "4", "16", "32", "64"})
+        private int driverCount = 4;
+
+        private ExecutorService executor;
+        private PartitioningProviderManager partitioningProviderManager;
+        private Page page;
+
+        @Setup
+        public void setUp()
+        {
+            executor = newCachedThreadPool(daemonThreadsNamed("local-exchange-benchmark-%s"));
+            partitioningProviderManager = new PartitioningProviderManager();
+
+            PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(BIGINT));
+            for (int i = 0; i < POSITIONS_PER_PAGE; i++) {
+                pageBuilder.declarePosition();
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(0), i);
+            }
+            page = pageBuilder.build();
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            executor.shutdownNow();
+        }
+
+        public LocalExchange createLocalExchange()
+        {
+            return new LocalExchange(
+                    partitioningProviderManager,
+                    testSessionBuilder().build(),
+                    1,
+                    driverCount,
+                    FIXED_HASH_DISTRIBUTION,
+                    ImmutableList.of(0),
+                    ImmutableList.of(BIGINT),
+                    Optional.empty(),
+                    MAX_BUFFERED_BYTES);
+        }
+    }
+
+    @Benchmark
+    public long partitionedExchange(Context context)
+            throws ExecutionException, InterruptedException
+    {
+        LocalExchange exchange = context.createLocalExchange();
+        LocalExchangeSinkFactory sinkFactory = exchange.getSinkFactory(new LocalExchangeSinkFactoryId(0));
+
+        List<Future<?>> producers = new ArrayList<>();
+        for (int i = 0; i < context.driverCount; i++) {
+            LocalExchangeSink sink = sinkFactory.createSink();
+            producers.add(context.executor.submit(() -> produce(sink, context.page)));
+        }
+        sinkFactory.close();
+
+        List<Future<Long>> consumers = new ArrayList<>();
+        for (int i = 0; i < context.driverCount; i++) {
+            LocalExchangeSource source = exchange.getSource(i);
+            consumers.add(context.executor.submit(() -> consume(source)));
+        }
+
+        for (Future<?> producer : producers) {
+            producer.get();
+        }
+        long positions = 0;
+        for (Future<Long> consumer : consumers) {
+            positions += consumer.get();
+        }
+        return positions;
+    }
+
+    private static void produce(LocalExchangeSink sink, Page page)
+    {
+        try {
+            for (int i = 0; i < PAGES_PER_PRODUCER; i++) {
+                ListenableFuture<?> blocked = sink.waitForWriting();
+                if (!blocked.isDone()) {
+                    blocked.get();
+                }
+                sink.addPage(page);
+            }
+            sink.finish();
+        }
+        catch (InterruptedException e) {
+            java.lang.Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long consume(LocalExchangeSource source)
+    {
+        long positions = 0;
+        try {
+            while (!source.isFinished()) {
+                Page page = source.removePage();
+                if (page != null) {
+                    positions += page.getPositionCount();
+                    continue;
+                }
+                ListenableFuture<?> blocked = source.waitForReading();
+                if (!blocked.isDone()) {
+                    blocked.get();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            java.lang.Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        return positions;
+    }
+
+    @Test
+    public void verifyPartitionedExchange()
+            throws ExecutionException, InterruptedException
+    {
+        Context context = new Context();
+        try {
+            context.setUp();
+            assertEquals(partitionedExchange(context), (long) context.driverCount * PAGES_PER_PRODUCER * POSITIONS_PER_PAGE);
+        }
+        finally {
+            context.tearDown();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkLocalExchange.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
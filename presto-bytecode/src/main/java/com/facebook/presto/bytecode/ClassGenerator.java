@@ -121,6 +121,33 @@ public class ClassGenerator
     }
 
     public Map<String, Class<?>> defineClasses(List<ClassDefinition> classDefinitions)
+    {
+        return defineClasses(generateBytecode(classDefinitions));
+    }
+
+    /**
+     * Defines and initializes classes from previously generated bytecode, keyed by Java class name.
+     */
+    public Map<String, Class<?>> defineClasses(Map<String, byte[]> bytecodes)
+    {
+        Map<String, Class<?>> classes = classLoader.defineClasses(bytecodes);
+
+        try {
+            for (Class<?> clazz : classes.values()) {
+                Reflection.initialize(clazz);
+            }
+        }
+        catch (VerifyError e) {
+            throw new RuntimeException(e);
+        }
+
+        return classes;
+    }
+
+    /**
+     * Generates the bytecode of the classes, keyed by Java class name, without defining them.
+     */
+    public Map<String, byte[]> generateBytecode(List<ClassDefinition> classDefinitions)
     {
         ClassInfoLoader classInfoLoader = createClassInfoLoader(classDefinitions, classLoader);
         Map<String, byte[]> bytecodes = new LinkedHashMap<>();
@@ -190,17 +217,6 @@ public class ClassGenerator
             }
         }
 
-        Map<String, Class<?>> classes = classLoader.defineClasses(bytecodes);
-
-        try {
-            for (Class<?> clazz : classes.values()) {
-                Reflection.initialize(clazz);
-            }
-        }
-        catch (VerifyError e) {
-            throw new RuntimeException(e);
-        }
-
-        return classes;
+        return bytecodes;
     }
 }
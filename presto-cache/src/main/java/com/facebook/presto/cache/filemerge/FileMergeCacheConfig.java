@@ -29,6 +29,8 @@ public class FileMergeCacheConfig
     private int maxCachedEntries = 1_000;
     private Duration cacheTtl = new Duration(2, DAYS);
     private DataSize maxInMemoryCacheSize = new DataSize(2, GIGABYTE);
+    private boolean persistenceEnabled;
+    private int maxOpenCacheFiles;
 
     @Min(1)
     public int getMaxCachedEntries()
@@ -70,4 +72,31 @@ public class FileMergeCacheConfig
         this.cacheTtl = cacheTtl;
         return this;
     }
+
+    public boolean isPersistenceEnabled()
+    {
+        return persistenceEnabled;
+    }
+
+    @Config("cache.persistence-enabled")
+    @ConfigDescription("Keep cached files and their index across restarts instead of wiping the cache directory")
+    public FileMergeCacheConfig setPersistenceEnabled(boolean persistenceEnabled)
+    {
+        this.persistenceEnabled = persistenceEnabled;
+        return this;
+    }
+
+    @Min(0)
+    public int getMaxOpenCacheFiles()
+    {
+        return maxOpenCacheFiles;
+    }
+
+    @Config("cache.max-open-cache-files")
+    @ConfigDescription("Number of cache files kept open for reads; 0 opens the file on every read")
+    public FileMergeCacheConfig setMaxOpenCacheFiles(int maxOpenCacheFiles)
+    {
+        this.maxOpenCacheFiles = maxOpenCacheFiles;
+        return this;
+    }
 }
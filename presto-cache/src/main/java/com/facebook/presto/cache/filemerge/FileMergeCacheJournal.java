@@ -0,0 +1,299 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cache.filemerge;
+
+import com.facebook.airlift.log.Logger;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only log of the local cache files owned by a {@link FileMergeCacheManager}.
+ * Every published cache file is recorded with the remote file and range it holds, and every
+ * deleted cache file is recorded with its name, so the range index can be rebuilt on restart.
+ * The log is rewritten with the live entries only once it is dominated by stale records.
+ * <p>
+ * A torn record at the end of the log (e.g. after a crash) ends the log; everything before it is kept.
+ */
+@ThreadSafe
+class FileMergeCacheJournal
+        implements Closeable
+{
+    private static final Logger log = Logger.get(FileMergeCacheJournal.class);
+
+    private static final int MAGIC = 0x464d434a;
+    private static final int VERSION = 1;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    private static final int MIN_RECORDS_TO_COMPACT = 10_000;
+
+    private final File file;
+
+    @GuardedBy("this")
+    private final Map<String, CacheEntry> liveEntries = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private DataOutputStream output;
+    @GuardedBy("this")
+    private long records;
+
+    /**
+     * Reads the live entries of the journal at {@code file} in the order they were added.
+     */
+    public static List<CacheEntry> readEntries(File file)
+            throws IOException
+    {
+        Map<String, CacheEntry> entries = new LinkedHashMap<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                log.warn("Ignoring cache journal %s with unknown format", file);
+                return ImmutableList.of();
+            }
+            while (true) {
+                byte type = input.readByte();
+                if (type == ADD) {
+                    CacheEntry entry = new CacheEntry(input.readUTF(), input.readLong(), input.readLong(), input.readLong(), input.readUTF());
+                    entries.put(entry.getCacheFileName(), entry);
+                }
+                else if (type == REMOVE) {
+                    entries.remove(input.readUTF());
+                }
+                else {
+                    log.warn("Cache journal %s is corrupted; ignoring records after %s entries", file, entries.size());
+                    break;
+                }
+            }
+        }
+        catch (EOFException e) {
+            // end of the journal or a torn record
+        }
+        return ImmutableList.copyOf(entries.values());
+    }
+
+    public FileMergeCacheJournal(File file)
+    {
+        this.file = requireNonNull(file, "file is null");
+    }
+
+    /**
+     * Replaces the journal file with one containing {@code entries} and starts recording.
+     * Changes reported before the journal is opened are ignored.
+     */
+    public synchronized void open(List<CacheEntry> entries)
+            throws IOException
+    {
+        rewrite(entries);
+    }
+
+    public synchronized void recordAdded(CacheEntry entry)
+    {
+        if (output == null) {
+            return;
+        }
+        liveEntries.put(entry.getCacheFileName(), entry);
+        try {
+            writeAdd(output, entry);
+            output.flush();
+            records++;
+            compactIfNecessary();
+        }
+        catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    public synchronized void recordRemoved(String cacheFileName)
+    {
+        if (output == null || liveEntries.remove(cacheFileName) == null) {
+            return;
+        }
+        try {
+            output.writeByte(REMOVE);
+            output.writeUTF(cacheFileName);
+            output.flush();
+            records++;
+            compactIfNecessary();
+        }
+        catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to close cache journal %s", file);
+        }
+        output = null;
+    }
+
+    private void compactIfNecessary()
+            throws IOException
+    {
+        if (records >= MIN_RECORDS_TO_COMPACT && records > 2L * liveEntries.size()) {
+            rewrite(new ArrayList<>(liveEntries.values()));
+        }
+    }
+
+    private void rewrite(List<CacheEntry> entries)
+            throws IOException
+    {
+        if (output != null) {
+            output.close();
+        }
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream temporaryOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            temporaryOutput.writeInt(MAGIC);
+            temporaryOutput.writeInt(VERSION);
+            for (CacheEntry entry : entries) {
+                writeAdd(temporaryOutput, entry);
+            }
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+
+        liveEntries.clear();
+        entries.forEach(entry -> liveEntries.put(entry.getCacheFileName(), entry));
+        records = entries.size();
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void disable(IOException e)
+    {
+        // the cache keeps working; files cached from now on are just not restored after a restart
+        log.error(e, "Failed to write cache journal %s; cache persistence is disabled until restart", file);
+        close();
+    }
+
+    private static void writeAdd(DataOutputStream output, CacheEntry entry)
+            throws IOException
+    {
+        output.writeByte(ADD);
+        output.writeUTF(entry.getRemotePath());
+        output.writeLong(entry.getCacheScopeIdentifier());
+        output.writeLong(entry.getOffset());
+        output.writeLong(entry.getLength());
+        output.writeUTF(entry.getCacheFileName());
+    }
+
+    public static class CacheEntry
+    {
+        private final String remotePath;
+        private final long cacheScopeIdentifier;
+        private final long offset;
+        private final long length;
+        private final String cacheFileName;
+
+        public CacheEntry(String remotePath, long cacheScopeIdentifier, long offset, long length, String cacheFileName)
+        {
+            this.remotePath = requireNonNull(remotePath, "remotePath is null");
+            this.cacheScopeIdentifier = cacheScopeIdentifier;
+            this.offset = offset;
+            this.length = length;
+            this.cacheFileName = requireNonNull(cacheFileName, "cacheFileName is null");
+            checkArgument(offset >= 0 && length > 0, "invalid range [%s, %s) for %s", offset, offset + length, remotePath);
+        }
+
+        public String getRemotePath()
+        {
+            return remotePath;
+        }
+
+        public long getCacheScopeIdentifier()
+        {
+            return cacheScopeIdentifier;
+        }
+
+        public long getOffset()
+        {
+            return offset;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+
+        public String getCacheFileName()
+        {
+            return cacheFileName;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheEntry that = (CacheEntry) o;
+            return cacheScopeIdentifier == that.cacheScopeIdentifier &&
+                    offset == that.offset &&
+                    length == that.length &&
+                    Objects.equals(remotePath, that.remotePath) &&
+                    Objects.equals(cacheFileName, that.cacheFileName);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(remotePath, cacheScopeIdentifier, offset, length, cacheFileName);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("remotePath", remotePath)
+                    .add("cacheScopeIdentifier", cacheScopeIdentifier)
+                    .add("offset", offset)
+                    .add("length", length)
+                    .add("cacheFileName", cacheFileName)
+                    .toString();
+        }
+    }
+}
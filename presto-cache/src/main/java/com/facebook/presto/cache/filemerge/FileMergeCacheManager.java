@@ -20,16 +20,20 @@ import com.facebook.presto.cache.CacheManager;
 import com.facebook.presto.cache.CacheResult;
 import com.facebook.presto.cache.CacheStats;
 import com.facebook.presto.cache.FileReadRequest;
+import com.facebook.presto.cache.filemerge.FileMergeCacheJournal.CacheEntry;
 import com.facebook.presto.hive.CacheQuota;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
 import com.google.common.collect.TreeRangeMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.airlift.slice.Slice;
 import io.airlift.units.DataSize;
 import org.apache.hadoop.fs.Path;
@@ -41,13 +45,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -66,11 +75,11 @@ import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.StrictMath.toIntExact;
 import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.util.Objects.requireNonNull;
 import static java.util.UUID.randomUUID;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-// TODO: Make cache state persistent on disk so we do not need to wipe out cache every time we reboot a server.
 @SuppressWarnings("UnstableApiUsage")
 public class FileMergeCacheManager
         implements CacheManager
@@ -78,6 +87,7 @@ public class FileMergeCacheManager
     private static final Logger log = Logger.get(FileMergeCacheManager.class);
 
     private static final String EXTENSION = ".cache";
+    private static final String JOURNAL_FILE_NAME = "cache.journal";
 
     private static final int FILE_MERGE_BUFFER_SIZE = toIntExact(new DataSize(8, MEGABYTE).toBytes());
 
@@ -95,6 +105,10 @@ public class FileMergeCacheManager
     // CacheScope identifier to its cached files mapping
     private final Map<Long, Set<Path>> cacheScopeFiles = new ConcurrentHashMap<>();
     private final Map<Long, Long> cacheScopeSizeInBytes = new ConcurrentHashMap<>();
+    // records the cached files so that they survive a restart; empty if persistence is disabled
+    private final Optional<FileMergeCacheJournal> journal;
+    // cache files kept open for reads; empty if every read opens the file
+    private final Optional<Cache<Path, FileChannel>> openCacheFiles;
 
     // stats
     private final CacheStats stats;
@@ -126,6 +140,15 @@ public class FileMergeCacheManager
         this.baseDirectory = new Path(cacheConfig.getBaseDirectory());
         checkArgument(fileMergeCacheConfig.getMaxInMemoryCacheSize().toBytes() >= 0, "maxInflightBytes is negative");
         this.maxInflightBytes = fileMergeCacheConfig.getMaxInMemoryCacheSize().toBytes();
+        if (fileMergeCacheConfig.getMaxOpenCacheFiles() > 0) {
+            this.openCacheFiles = Optional.of(CacheBuilder.newBuilder()
+                    .maximumSize(fileMergeCacheConfig.getMaxOpenCacheFiles())
+                    .removalListener((RemovalListener<Path, FileChannel>) notification -> closeQuietly(notification.getValue()))
+                    .build());
+        }
+        else {
+            this.openCacheFiles = Optional.empty();
+        }
 
         File target = new File(baseDirectory.toUri());
         if (!target.exists()) {
@@ -136,7 +159,19 @@ public class FileMergeCacheManager
                 throw new PrestoException(GENERIC_INTERNAL_ERROR, "cannot create cache directory " + target, e);
             }
         }
+
+        if (fileMergeCacheConfig.isPersistenceEnabled()) {
+            File journalFile = new File(target, JOURNAL_FILE_NAME);
+            this.journal = Optional.of(new FileMergeCacheJournal(journalFile));
+            try {
+                journal.get().open(restore(target, journalFile));
+            }
+            catch (IOException e) {
+                throw new PrestoException(GENERIC_INTERNAL_ERROR, "cannot create cache journal " + journalFile, e);
+            }
+        }
         else {
+            this.journal = Optional.empty();
             File[] files = target.listFiles();
             if (files == null) {
                 return;
@@ -167,6 +202,59 @@ public class FileMergeCacheManager
                 TimeUnit.SECONDS);
     }
 
+    /**
+     * Rebuilds the range index from the journal. Only cache files that still exist with the
+     * recorded length are restored; when ranges of the same remote file overlap, the most
+     * recently written one wins. All other files in the directory are deleted.
+     */
+    private List<CacheEntry> restore(File directory, File journalFile)
+    {
+        List<CacheEntry> entries = ImmutableList.of();
+        if (journalFile.exists()) {
+            try {
+                entries = FileMergeCacheJournal.readEntries(journalFile);
+            }
+            catch (IOException | RuntimeException e) {
+                log.warn(e, "Failed to read cache journal %s; starting with an empty cache", journalFile);
+            }
+        }
+
+        List<CacheEntry> restoredEntries = new ArrayList<>();
+        Set<String> restoredFiles = new HashSet<>();
+        for (CacheEntry entry : Lists.reverse(entries)) {
+            File cacheFile = new File(directory, entry.getCacheFileName());
+            if (!cacheFile.isFile() || cacheFile.length() != entry.getLength()) {
+                continue;
+            }
+
+            Path remotePath = new Path(entry.getRemotePath());
+            RangeMap<Long, LocalCacheFile> ranges = persistedRanges.computeIfAbsent(remotePath, ignored -> new CacheRange()).getRange();
+            Range<Long> range = Range.closedOpen(entry.getOffset(), entry.getOffset() + entry.getLength());
+            if (!ranges.subRangeMap(range).asMapOfRanges().isEmpty()) {
+                // superseded by a newer cache file
+                continue;
+            }
+            ranges.put(range, new LocalCacheFile(entry.getOffset(), new Path(baseDirectory.toUri() + "/" + entry.getCacheFileName())));
+
+            cache.put(remotePath, entry.getCacheScopeIdentifier());
+            cacheScopeFiles.computeIfAbsent(entry.getCacheScopeIdentifier(), k -> new ConcurrentHashSet<>()).add(remotePath);
+            restoredEntries.add(entry);
+            restoredFiles.add(entry.getCacheFileName());
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().equals(JOURNAL_FILE_NAME) && !restoredFiles.contains(file.getName())) {
+                    tryDeleteFile(new Path(file.toURI()));
+                }
+            }
+        }
+
+        log.info("Restored %s cache files for %s remote files from %s", restoredEntries.size(), persistedRanges.size(), directory);
+        return Lists.reverse(restoredEntries);
+    }
+
     @PreDestroy
     public void destroy()
     {
@@ -174,6 +262,8 @@ public class FileMergeCacheManager
         cacheRemovalExecutor.shutdownNow();
         cacheSizeCalculateExecutor.shutdownNow();
         buffers.remove();
+        openCacheFiles.ifPresent(Cache::invalidateAll);
+        journal.ifPresent(FileMergeCacheJournal::close);
     }
 
     @Override
@@ -253,7 +343,7 @@ public class FileMergeCacheManager
 
         cacheFlushExecutor.submit(() -> {
             Path newFilePath = new Path(baseDirectory.toUri() + "/" + randomUUID() + EXTENSION);
-            if (!write(key, copy, newFilePath)) {
+            if (!write(key, copy, newFilePath, cacheQuota.getIdentifier())) {
                 log.warn("%s Fail to persist cache %s with length %s ", Thread.currentThread().getName(), newFilePath, key.getLength());
             }
             stats.addInMemoryRetainedBytes(-copy.length);
@@ -289,6 +379,10 @@ public class FileMergeCacheManager
             readLock.unlock();
         }
 
+        if (openCacheFiles.isPresent()) {
+            return readOpenFile(openCacheFiles.get(), cacheFile.getPath(), request.getOffset() - cacheFile.getOffset(), buffer, offset, request.getLength());
+        }
+
         try (RandomAccessFile file = new RandomAccessFile(new File(cacheFile.getPath().toUri()), "r")) {
             file.seek(request.getOffset() - cacheFile.getOffset());
             file.readFully(buffer, offset, request.getLength());
@@ -300,7 +394,31 @@ public class FileMergeCacheManager
         }
     }
 
-    private boolean write(FileReadRequest key, byte[] data, Path newFilePath)
+    private static boolean readOpenFile(Cache<Path, FileChannel> openCacheFiles, Path path, long position, byte[] buffer, int offset, int length)
+    {
+        try {
+            FileChannel channel = openCacheFiles.get(path, () -> FileChannel.open(new File(path.toUri()).toPath(), READ));
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, length);
+            while (byteBuffer.hasRemaining()) {
+                // positional reads do not change the channel position, so the channel can be shared between readers
+                if (channel.read(byteBuffer, position + byteBuffer.position() - offset) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            // there might be a chance the file has been deleted
+            return false;
+        }
+        catch (IOException e) {
+            // the channel has been closed by an eviction or an interrupted reader
+            openCacheFiles.invalidate(path);
+            return false;
+        }
+    }
+
+    private boolean write(FileReadRequest key, byte[] data, Path newFilePath, long cacheScopeIdentifier)
     {
         Path targetFile = key.getPath();
         persistedRanges.putIfAbsent(targetFile, new CacheRange());
@@ -410,6 +528,10 @@ public class FileMergeCacheManager
 
         // no lock is needed for the following operation
         if (updated) {
+            if (journal.isPresent()) {
+                journal.get().recordAdded(new CacheEntry(targetFile.toString(), cacheScopeIdentifier, newFileOffset, newFileLength, newFilePath.getName()));
+            }
+
             // remove the previous or following file as well
             if (previousCacheFile != null) {
                 cacheFilesToDelete.add(previousCacheFile.getPath());
@@ -422,7 +544,7 @@ public class FileMergeCacheManager
             cacheFilesToDelete = ImmutableSet.of(newFilePath);
         }
 
-        cacheFilesToDelete.forEach(FileMergeCacheManager::tryDeleteFile);
+        cacheFilesToDelete.forEach(this::tryDeleteFile);
         return true;
     }
 
@@ -455,8 +577,10 @@ public class FileMergeCacheManager
         return totalBytesRead;
     }
 
-    private static void tryDeleteFile(Path path)
+    private void tryDeleteFile(Path path)
     {
+        openCacheFiles.ifPresent(files -> files.invalidate(path));
+        journal.ifPresent(cacheJournal -> cacheJournal.recordRemoved(path.getName()));
         try {
             File file = new File(path.toUri());
             if (file.exists()) {
@@ -468,6 +592,16 @@ public class FileMergeCacheManager
         }
     }
 
+    private static void closeQuietly(FileChannel channel)
+    {
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            // ignore
+        }
+    }
+
     private static boolean cacheFileEquals(LocalCacheFile left, LocalCacheFile right)
     {
         if (left == null && right == null) {
@@ -574,12 +708,7 @@ public class FileMergeCacheManager
                 // There is a chance of the files to be deleted are being read.
                 // We may just fail the cache hit and do it in a simple way given the chance is low.
                 for (LocalCacheFile file : files) {
-                    try {
-                        Files.delete(new File(file.getPath().toUri()).toPath());
-                    }
-                    catch (IOException e) {
-                        // ignore
-                    }
+                    tryDeleteFile(file.getPath());
                 }
             });
         }
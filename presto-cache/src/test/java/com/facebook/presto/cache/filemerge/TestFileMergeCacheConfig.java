@@ -36,7 +36,9 @@ public class TestFileMergeCacheConfig
         assertRecordedDefaults(recordDefaults(FileMergeCacheConfig.class)
                 .setMaxCachedEntries(1_000)
                 .setMaxInMemoryCacheSize(new DataSize(2, GIGABYTE))
-                .setCacheTtl(new Duration(2, DAYS)));
+                .setCacheTtl(new Duration(2, DAYS))
+                .setPersistenceEnabled(false)
+                .setMaxOpenCacheFiles(0));
     }
 
     @Test
@@ -46,12 +48,16 @@ public class TestFileMergeCacheConfig
                 .put("cache.max-cached-entries", "5")
                 .put("cache.max-in-memory-cache-size", "42MB")
                 .put("cache.ttl", "10s")
+                .put("cache.persistence-enabled", "true")
+                .put("cache.max-open-cache-files", "100")
                 .build();
 
         FileMergeCacheConfig expected = new FileMergeCacheConfig()
                 .setMaxCachedEntries(5)
                 .setMaxInMemoryCacheSize(new DataSize(42, MEGABYTE))
-                .setCacheTtl(new Duration(10, SECONDS));
+                .setCacheTtl(new Duration(10, SECONDS))
+                .setPersistenceEnabled(true)
+                .setMaxOpenCacheFiles(100);
         assertFullMapping(properties, expected);
     }
 }
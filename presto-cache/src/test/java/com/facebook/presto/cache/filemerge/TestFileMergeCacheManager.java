@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.URI;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.ExecutionException;
@@ -203,6 +204,60 @@ public class TestFileMergeCacheManager
         validateBuffer(data, 47, buffer, 0, 90);
     }
 
+    @Test(timeOut = 30_000)
+    public void testPersistence()
+            throws InterruptedException, ExecutionException, IOException
+    {
+        URI persistentCacheDirectory = createTempDirectory("persistent-cache").toUri();
+        CacheConfig cacheConfig = new CacheConfig().setBaseDirectory(persistentCacheDirectory);
+        FileMergeCacheConfig fileMergeCacheConfig = new FileMergeCacheConfig()
+                .setPersistenceEnabled(true)
+                .setMaxOpenCacheFiles(10);
+        byte[] buffer = new byte[1024];
+
+        try {
+            TestingCacheStats stats = new TestingCacheStats();
+            CacheManager cacheManager = new FileMergeCacheManager(cacheConfig, fileMergeCacheConfig, stats, flushExecutor, removeExecutor, cacheSizeCalculator);
+            assertFalse(readFully(cacheManager, NO_CACHE_CONSTRAINTS, 42, buffer, 0, 100));
+            stats.trigger();
+            // merged with the previous range into a new cache file
+            assertFalse(readFully(cacheManager, NO_CACHE_CONSTRAINTS, 142, buffer, 100, 100));
+            stats.trigger();
+            assertTrue(readFully(cacheManager, NO_CACHE_CONSTRAINTS, 42, buffer, 0, 200));
+            validateBuffer(data, 42, buffer, 0, 200);
+
+            // a cache file that is not in the journal is dropped on restart
+            File orphanFile = new File(new File(persistentCacheDirectory), "orphan.cache");
+            Files.write(orphanFile.toPath(), data, CREATE_NEW);
+
+            // restart with the same cache directory
+            TestingCacheStats restartedStats = new TestingCacheStats();
+            CacheManager restartedCacheManager = new FileMergeCacheManager(cacheConfig, fileMergeCacheConfig, restartedStats, flushExecutor, removeExecutor, cacheSizeCalculator);
+            assertFalse(orphanFile.exists());
+
+            Arrays.fill(buffer, (byte) 0);
+            assertTrue(readFully(restartedCacheManager, NO_CACHE_CONSTRAINTS, 42, buffer, 0, 200));
+            assertEquals(restartedStats.getCacheHit(), 1);
+            assertEquals(restartedStats.getCacheMiss(), 0);
+            validateBuffer(data, 42, buffer, 0, 200);
+
+            assertTrue(readFully(restartedCacheManager, NO_CACHE_CONSTRAINTS, 100, buffer, 0, 50));
+            assertFalse(readFully(restartedCacheManager, NO_CACHE_CONSTRAINTS, 200, buffer, 0, 100));
+            restartedStats.trigger();
+            assertEquals(restartedStats.getCacheHit(), 2);
+            assertEquals(restartedStats.getCacheMiss(), 1);
+        }
+        finally {
+            File[] files = new File(persistentCacheDirectory).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(new File(persistentCacheDirectory).toPath());
+        }
+    }
+
     private CacheManager fileMergeCacheManager(CacheConfig cacheConfig, FileMergeCacheConfig fileMergeCacheConfig)
     {
         return new FileMergeCacheManager(cacheConfig, fileMergeCacheConfig, new CacheStats(), flushExecutor, removeExecutor, cacheSizeCalculator);
@@ -186,4 +186,12 @@ public class TestClientOptions
         assertTrue(console.clientOptions.validateNextUriSource);
         assertTrue(console.clientOptions.toClientSession().validateNextUriSource());
     }
+
+    @Test
+    public void testBinaryResults()
+    {
+        Console console = singleCommand(Console.class).parse("--binary-results");
+        assertTrue(console.clientOptions.binaryResults);
+        assertTrue(console.clientOptions.toClientSession().isBinaryResults());
+    }
 }
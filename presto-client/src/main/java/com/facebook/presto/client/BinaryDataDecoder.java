@@ -0,0 +1,304 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.common.type.Decimals;
+import com.facebook.presto.common.type.NamedTypeSignature;
+import com.facebook.presto.common.type.ParameterKind;
+import com.facebook.presto.common.type.SqlDate;
+import com.facebook.presto.common.type.SqlTime;
+import com.facebook.presto.common.type.SqlTimeWithTimeZone;
+import com.facebook.presto.common.type.SqlTimestamp;
+import com.facebook.presto.common.type.SqlTimestampWithTimeZone;
+import com.facebook.presto.common.type.TimeZoneKey;
+import com.facebook.presto.common.type.TypeSignature;
+import com.facebook.presto.common.type.TypeSignatureParameter;
+import com.facebook.presto.spi.page.PageDecompressor;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.google.common.collect.ImmutableList;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.facebook.presto.common.type.Decimals.MAX_SHORT_PRECISION;
+import static com.facebook.presto.common.type.StandardTypes.ARRAY;
+import static com.facebook.presto.common.type.StandardTypes.BIGINT;
+import static com.facebook.presto.common.type.StandardTypes.BOOLEAN;
+import static com.facebook.presto.common.type.StandardTypes.CHAR;
+import static com.facebook.presto.common.type.StandardTypes.DATE;
+import static com.facebook.presto.common.type.StandardTypes.DECIMAL;
+import static com.facebook.presto.common.type.StandardTypes.DOUBLE;
+import static com.facebook.presto.common.type.StandardTypes.GEOMETRY;
+import static com.facebook.presto.common.type.StandardTypes.INTEGER;
+import static com.facebook.presto.common.type.StandardTypes.INTERVAL_DAY_TO_SECOND;
+import static com.facebook.presto.common.type.StandardTypes.INTERVAL_YEAR_TO_MONTH;
+import static com.facebook.presto.common.type.StandardTypes.IPADDRESS;
+import static com.facebook.presto.common.type.StandardTypes.IPPREFIX;
+import static com.facebook.presto.common.type.StandardTypes.JSON;
+import static com.facebook.presto.common.type.StandardTypes.MAP;
+import static com.facebook.presto.common.type.StandardTypes.REAL;
+import static com.facebook.presto.common.type.StandardTypes.ROW;
+import static com.facebook.presto.common.type.StandardTypes.SMALLINT;
+import static com.facebook.presto.common.type.StandardTypes.TIME;
+import static com.facebook.presto.common.type.StandardTypes.TIMESTAMP;
+import static com.facebook.presto.common.type.StandardTypes.TIMESTAMP_MICROSECONDS;
+import static com.facebook.presto.common.type.StandardTypes.TIMESTAMP_WITH_TIME_ZONE;
+import static com.facebook.presto.common.type.StandardTypes.TIME_WITH_TIME_ZONE;
+import static com.facebook.presto.common.type.StandardTypes.TINYINT;
+import static com.facebook.presto.common.type.StandardTypes.UUID;
+import static com.facebook.presto.common.type.StandardTypes.VARCHAR;
+import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.page.PageCodecMarker.SNAPPY;
+import static com.facebook.presto.spi.page.PageCodecMarker.ZSTD;
+import static com.facebook.presto.spi.page.PageCodecMarker.toSummaryString;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPage;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Decodes the {@code binaryData} of a {@link QueryResults} into rows. The binary data is a list of
+ * base64 encoded serialized pages. Values are converted to the same Java objects that
+ * {@link FixJsonDataUtils} produces for the JSON encoded {@code data}, so consumers of
+ * {@link QueryData#getData()} do not need to know which encoding the server used.
+ */
+final class BinaryDataDecoder
+{
+    private final PagesSerde pagesSerde = new PagesSerde(
+            new BlockEncodingManager(),
+            Optional.empty(),
+            Optional.of(new Lz4PageDecompressor()),
+            Optional.empty());
+    private final TimeZoneKey timeZoneKey;
+    private final boolean legacyTimestamp;
+
+    public BinaryDataDecoder(TimeZoneKey timeZoneKey, boolean legacyTimestamp)
+    {
+        this.timeZoneKey = requireNonNull(timeZoneKey, "timeZoneKey is null");
+        this.legacyTimestamp = legacyTimestamp;
+    }
+
+    public Iterable<List<Object>> decode(List<Column> columns, Iterable<String> binaryData)
+    {
+        if (binaryData == null) {
+            return null;
+        }
+        requireNonNull(columns, "columns is null");
+        List<TypeSignature> signatures = columns.stream()
+                .map(column -> parseTypeSignature(column.getType()))
+                .collect(toList());
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        for (String encodedPage : binaryData) {
+            Slice slice = Slices.wrappedBuffer(Base64.getDecoder().decode(encodedPage));
+            Page page = pagesSerde.deserialize(readSerializedPage(slice.getInput()));
+            checkArgument(page.getChannelCount() == columns.size(), "page/column size mismatch");
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                List<Object> row = new ArrayList<>(columns.size());
+                for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                    row.add(getValue(signatures.get(channel), page.getBlock(channel), position));
+                }
+                rows.add(unmodifiableList(row)); // allow nulls in list
+            }
+        }
+        return rows.build();
+    }
+
+    /**
+     * Read a value from the block with the object type {@link FixJsonDataUtils} produces for the type.
+     */
+    private Object getValue(TypeSignature signature, Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return null;
+        }
+        if (signature.isDistinctType()) {
+            return getValue(signature.getDistinctTypeInfo().getBaseType(), block, position);
+        }
+        if (signature.getTypeSignatureBase().hasTypeName() && signature.getTypeSignatureBase().hasStandardType()) {
+            return getValue(signature.getStandardTypeSignature(), block, position);
+        }
+        if (signature.getBase().equals(ARRAY)) {
+            TypeSignature elementSignature = signature.getTypeParametersAsTypeSignatures().get(0);
+            Block arrayBlock = block.getBlock(position);
+            List<Object> value = new ArrayList<>(arrayBlock.getPositionCount());
+            for (int i = 0; i < arrayBlock.getPositionCount(); i++) {
+                value.add(getValue(elementSignature, arrayBlock, i));
+            }
+            return value;
+        }
+        if (signature.getBase().equals(MAP)) {
+            TypeSignature keySignature = signature.getTypeParametersAsTypeSignatures().get(0);
+            TypeSignature valueSignature = signature.getTypeParametersAsTypeSignatures().get(1);
+            // keys and values are interleaved in the single map block
+            Block mapBlock = block.getBlock(position);
+            Map<Object, Object> value = new HashMap<>();
+            for (int i = 0; i < mapBlock.getPositionCount(); i += 2) {
+                value.put(getValue(keySignature, mapBlock, i), getValue(valueSignature, mapBlock, i + 1));
+            }
+            return value;
+        }
+        if (signature.getBase().equals(ROW)) {
+            Block rowBlock = block.getBlock(position);
+            checkArgument(rowBlock.getPositionCount() == signature.getParameters().size(), "Mismatched data values and row type");
+            Map<String, Object> value = new LinkedHashMap<>();
+            for (int i = 0; i < rowBlock.getPositionCount(); i++) {
+                TypeSignatureParameter parameter = signature.getParameters().get(i);
+                checkArgument(
+                        parameter.getKind() == ParameterKind.NAMED_TYPE,
+                        "Unexpected parameter [%s] for row type",
+                        parameter);
+                NamedTypeSignature namedTypeSignature = parameter.getNamedTypeSignature();
+                String key = namedTypeSignature.getName().orElse("field" + i);
+                value.put(key, getValue(namedTypeSignature.getTypeSignature(), rowBlock, i));
+            }
+            return value;
+        }
+        if (signature.isVarcharEnum()) {
+            return getString(block, position);
+        }
+        if (signature.isBigintEnum()) {
+            return block.getLong(position);
+        }
+        switch (signature.getBase()) {
+            case BIGINT:
+                return block.getLong(position);
+            case INTEGER:
+                return block.getInt(position);
+            case SMALLINT:
+                return block.getShort(position);
+            case TINYINT:
+                return block.getByte(position);
+            case DOUBLE:
+                return Double.longBitsToDouble(block.getLong(position));
+            case REAL:
+                return intBitsToFloat(block.getInt(position));
+            case BOOLEAN:
+                return block.getByte(position) != 0;
+            case VARCHAR:
+            case JSON:
+                return getString(block, position);
+            case CHAR:
+                return padSpaces(getString(block, position), signature.getParameters().get(0).getLongLiteral().intValue());
+            case DATE:
+                return new SqlDate(block.getInt(position)).toString();
+            case TIME:
+                if (legacyTimestamp) {
+                    return new SqlTime(block.getLong(position), timeZoneKey).toString();
+                }
+                return new SqlTime(block.getLong(position)).toString();
+            case TIME_WITH_TIME_ZONE:
+                return new SqlTimeWithTimeZone(block.getLong(position)).toString();
+            case TIMESTAMP:
+                if (legacyTimestamp) {
+                    return new SqlTimestamp(block.getLong(position), timeZoneKey, MILLISECONDS).toString();
+                }
+                return new SqlTimestamp(block.getLong(position), MILLISECONDS).toString();
+            case TIMESTAMP_MICROSECONDS:
+                if (legacyTimestamp) {
+                    return new SqlTimestamp(block.getLong(position), timeZoneKey, MICROSECONDS).toString();
+                }
+                return new SqlTimestamp(block.getLong(position), MICROSECONDS).toString();
+            case TIMESTAMP_WITH_TIME_ZONE:
+                return new SqlTimestampWithTimeZone(block.getLong(position)).toString();
+            case INTERVAL_YEAR_TO_MONTH:
+                return IntervalYearMonth.formatMonths(block.getInt(position));
+            case INTERVAL_DAY_TO_SECOND:
+                return IntervalDayTime.formatMillis(block.getLong(position));
+            case DECIMAL:
+                return getDecimal(signature, block, position);
+            case UUID:
+                return new UUID(block.getLong(position, 0), block.getLong(position, Long.BYTES)).toString();
+            case IPADDRESS:
+            case IPPREFIX:
+            case GEOMETRY:
+                // the text form of these types is produced by the server side type implementation
+                throw new ClientException(format("Type %s is not supported with binary results", signature));
+            default:
+                // everything else is transferred as binary in the JSON encoding as well
+                return block.getSlice(position, 0, block.getSliceLength(position)).getBytes();
+        }
+    }
+
+    private static String getString(Block block, int position)
+    {
+        return block.getSlice(position, 0, block.getSliceLength(position)).toStringUtf8();
+    }
+
+    private static String padSpaces(String value, int length)
+    {
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(value);
+        for (int i = value.length(); i < length; i++) {
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    private static String getDecimal(TypeSignature signature, Block block, int position)
+    {
+        int precision = signature.getParameters().get(0).getLongLiteral().intValue();
+        int scale = signature.getParameters().get(1).getLongLiteral().intValue();
+        if (precision <= MAX_SHORT_PRECISION) {
+            return Decimals.toString(block.getLong(position), scale);
+        }
+        return Decimals.toString(block.getSlice(position, 0, 2 * Long.BYTES), scale);
+    }
+
+    private static class Lz4PageDecompressor
+            implements PageDecompressor
+    {
+        private final Decompressor decompressor = new Lz4Decompressor();
+
+        @Override
+        public int decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+        {
+            return decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+        }
+
+        @Override
+        public void decompress(ByteBuffer input, ByteBuffer output)
+        {
+            decompressor.decompress(input, output);
+        }
+
+        @Override
+        public void decompress(byte pageCodecMarkers, ByteBuffer input, ByteBuffer output)
+        {
+            // compressed pages without a codec marker are LZ4 compressed
+            if (ZSTD.isSet(pageCodecMarkers) || SNAPPY.isSet(pageCodecMarkers)) {
+                throw new ClientException(format("Unsupported page codec markers %s, only LZ4 compressed pages can be decoded", toSummaryString(pageCodecMarkers)));
+            }
+            decompress(input, output);
+        }
+    }
+}
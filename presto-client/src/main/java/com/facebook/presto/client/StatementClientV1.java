@@ -56,6 +56,7 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLIENT_TAGS;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_DEALLOCATED_PREPARE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_EXTRA_CREDENTIAL;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_LANGUAGE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_LEGACY_TIMESTAMP;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PREPARED_STATEMENT;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_REMOVED_SESSION_FUNCTION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_RESOURCE_ESTIMATE;
@@ -92,6 +93,8 @@ class StatementClientV1
     private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
 
     private static final Splitter SESSION_HEADER_SPLITTER = Splitter.on('=').limit(2).trimResults();
+    private static final String LEGACY_TIMESTAMP = "legacy_timestamp";
+
     private static final String USER_AGENT_VALUE = StatementClientV1.class.getSimpleName() +
             "/" +
             firstNonNull(StatementClientV1.class.getPackage().getImplementationVersion(), "unknown");
@@ -115,6 +118,9 @@ class StatementClientV1
     private final Map<String, String> addedSessionFunctions = new ConcurrentHashMap<>();
     private final Set<String> removedSessionFunctions = newConcurrentHashSet();
     private final boolean validateNextUriSource;
+    private final boolean binaryResults;
+    private final Optional<Boolean> legacyTimestamp;
+    private final AtomicReference<QueryData> currentData = new AtomicReference<>();
 
     private final AtomicReference<State> state = new AtomicReference<>(State.RUNNING);
 
@@ -131,6 +137,8 @@ class StatementClientV1
         this.user = session.getUser();
         this.compressionDisabled = session.isCompressionDisabled();
         this.validateNextUriSource = session.validateNextUriSource();
+        this.binaryResults = session.isBinaryResults();
+        this.legacyTimestamp = Optional.ofNullable(session.getProperties().get(LEGACY_TIMESTAMP)).map(Boolean::parseBoolean);
 
         Request request = buildQueryRequest(session, query);
 
@@ -149,7 +157,11 @@ class StatementClientV1
         if (url == null) {
             throw new ClientException("Invalid server URL: " + session.getServer());
         }
-        url = url.newBuilder().encodedPath("/v1/statement").build();
+        HttpUrl.Builder urlBuilder = url.newBuilder().encodedPath("/v1/statement");
+        if (binaryResults) {
+            urlBuilder.addQueryParameter("binaryResults", "true");
+        }
+        url = urlBuilder.build();
 
         Request.Builder builder = prepareRequest(url)
                 .post(RequestBody.create(MEDIA_TYPE_TEXT, query));
@@ -266,7 +278,7 @@ class StatementClientV1
     public QueryData currentData()
     {
         checkState(isRunning(), "current position is not valid (cursor past end)");
-        return currentResults.get();
+        return currentData.get();
     }
 
     @Override
@@ -492,6 +504,26 @@ class StatementClientV1
         }
 
         currentResults.set(results);
+        if (results.getBinaryData() != null) {
+            BinaryDataDecoder binaryDataDecoder = new BinaryDataDecoder(timeZone, isLegacyTimestamp(headers));
+            Iterable<List<Object>> data = binaryDataDecoder.decode(results.getColumns(), results.getBinaryData());
+            currentData.set(() -> data);
+        }
+        else {
+            currentData.set(results);
+        }
+    }
+
+    private boolean isLegacyTimestamp(Headers headers)
+    {
+        // time and timestamp values in binary results depend on the legacy_timestamp value the server used for the query
+        String legacyTimestampHeader = headers.get(PRESTO_LEGACY_TIMESTAMP);
+        if (legacyTimestampHeader != null) {
+            return Boolean.parseBoolean(legacyTimestampHeader);
+        }
+        // servers that do not report it still honor the value set by the client
+        return legacyTimestamp.orElseThrow(() -> new ClientException(format(
+                "Server did not report %s for binary results, set the %s session property to decode them", LEGACY_TIMESTAMP, LEGACY_TIMESTAMP)));
     }
 
     private RuntimeException requestFailedException(String task, Request request, JsonResponse<QueryResults> response)
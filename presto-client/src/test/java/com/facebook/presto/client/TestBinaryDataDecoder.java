@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.common.type.ArrayType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.TimeZoneKey.UTC_KEY;
+import static com.facebook.presto.common.type.TypeUtils.writeNativeValue;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
+import static com.facebook.presto.spi.page.PageCodecMarker.ZSTD;
+import static com.facebook.presto.spi.page.PageCodecMarker.none;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestBinaryDataDecoder
+{
+    private static final ArrayType BIGINT_ARRAY = new ArrayType(BIGINT);
+
+    @Test
+    public void testDecode()
+    {
+        List<Column> columns = ImmutableList.of(
+                new Column("a", BIGINT),
+                new Column("b", VARCHAR),
+                new Column("c", DOUBLE),
+                new Column("d", BOOLEAN),
+                new Column("e", DATE),
+                new Column("f", BIGINT_ARRAY));
+
+        Page page = new Page(
+                createBlock(BIGINT, 1L, null),
+                createBlock(VARCHAR, utf8Slice("abc"), utf8Slice("")),
+                createBlock(DOUBLE, 1.5, null),
+                createBlock(BOOLEAN, true, false),
+                createBlock(DATE, 17348L, null),
+                createBlock(BIGINT_ARRAY, createBlock(BIGINT, 1L, 2L), null));
+
+        BinaryDataDecoder decoder = new BinaryDataDecoder(UTC_KEY, true);
+        List<List<Object>> rows = ImmutableList.copyOf(decoder.decode(columns, ImmutableList.of(encode(page), encode(page))));
+
+        assertEquals(rows.size(), 4);
+        assertEquals(rows.get(0), ImmutableList.of(1L, "abc", 1.5, true, "2017-07-01", ImmutableList.of(1L, 2L)));
+        assertEquals(rows.get(1), Arrays.asList(null, "", null, false, null, null));
+        assertEquals(rows.get(2), rows.get(0));
+        assertEquals(rows.get(3), rows.get(1));
+    }
+
+    @Test
+    public void testNoData()
+    {
+        assertNull(new BinaryDataDecoder(UTC_KEY, true).decode(ImmutableList.of(new Column("a", BIGINT)), null));
+    }
+
+    @Test(expectedExceptions = ClientException.class, expectedExceptionsMessageRegExp = "Unsupported page codec markers COMPRESSED, ZSTD, only LZ4 compressed pages can be decoded")
+    public void testUnsupportedCodec()
+    {
+        SerializedPage page = new SerializedPage(Slices.wrappedBuffer(new byte[8]), ZSTD.set(COMPRESSED.set(none())), 1, 64, 0);
+        DynamicSliceOutput output = new DynamicSliceOutput(1024);
+        writeSerializedPage(output, page);
+        new BinaryDataDecoder(UTC_KEY, true).decode(ImmutableList.of(new Column("a", BIGINT)), ImmutableList.of(Base64.getEncoder().encodeToString(output.slice().getBytes())));
+    }
+
+    private static Block createBlock(Type type, Object... values)
+    {
+        BlockBuilder blockBuilder = type.createBlockBuilder(null, values.length);
+        for (Object value : values) {
+            writeNativeValue(type, blockBuilder, value);
+        }
+        return blockBuilder.build();
+    }
+
+    private static String encode(Page page)
+    {
+        PagesSerde serde = new PagesSerde(new BlockEncodingManager(), Optional.empty(), Optional.empty(), Optional.empty());
+        DynamicSliceOutput output = new DynamicSliceOutput(1024);
+        writeSerializedPage(output, serde.serialize(page));
+        return Base64.getEncoder().encodeToString(output.slice().getBytes());
+    }
+}
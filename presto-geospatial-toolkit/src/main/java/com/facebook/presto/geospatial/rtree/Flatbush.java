@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.slice.SizeOf.sizeOf;
@@ -65,6 +66,12 @@ import static java.util.Objects.requireNonNull;
  * matter.  This could be done with quicksort, stopping once all items at index
  * `n * degree` are correctly placed.
  * <p>
+ * Alternatively, items can be packed with the sort-tile-recursive (STR)
+ * algorithm: items are sorted by x into vertical slices, and each slice is
+ * sorted by y, so that every run of `degree` items forms a compact tile.
+ * STR tiles overlap less than Hilbert runs for skewed data such as large
+ * polygon layers, and the slices are sorted in parallel.
+ * <p>
  * Original implementation in JavaScript: https://github.com/mourner/flatbush
  */
 public class Flatbush<T extends HasExtent>
@@ -74,8 +81,16 @@ public class Flatbush<T extends HasExtent>
     static final int ENVELOPE_SIZE = 4;
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(Flatbush.class).instanceSize();
     private static final int DEFAULT_DEGREE = 16;
+
+    public enum Packing
+    {
+        HILBERT,
+        SORT_TILE_RECURSIVE,
+    }
+
     // Number of children per node
     private final int degree;
+    private final Packing packing;
     // Offsets in tree for each level
     private final int[] levelOffsets;
     // Each node has four doubles: xMin, yMin, xMax, yMax
@@ -89,9 +104,22 @@ public class Flatbush<T extends HasExtent>
      * @param degree Number of children for each intermediate node.
      */
     public Flatbush(T[] items, int degree)
+    {
+        this(items, degree, Packing.HILBERT);
+    }
+
+    /**
+     * Build Flatbush RTree for `items`.
+     *
+     * @param items Items to index.
+     * @param degree Number of children for each intermediate node.
+     * @param packing How to group items into leaf nodes.
+     */
+    public Flatbush(T[] items, int degree, Packing packing)
     {
         checkArgument(degree > 0, "degree must be positive");
         this.degree = degree;
+        this.packing = requireNonNull(packing, "packing is null");
         this.items = requireNonNull(items, "items is null");
         this.levelOffsets = calculateLevelOffsets(items.length, degree);
         this.tree = buildTree();
@@ -109,6 +137,17 @@ public class Flatbush<T extends HasExtent>
         this(items, DEFAULT_DEGREE);
     }
 
+    /**
+     * Build Flatbush RTree for `items` with default number of children per node.
+     *
+     * @param items Items to index.
+     * @param packing How to group items into leaf nodes.
+     */
+    public Flatbush(T[] items, Packing packing)
+    {
+        this(items, DEFAULT_DEGREE, packing);
+    }
+
     /**
      * Calculate the indices for each level.
      *
@@ -146,7 +185,16 @@ public class Flatbush<T extends HasExtent>
         tree.ensureCapacity(levelOffsets[levelOffsets.length - 1] + ENVELOPE_SIZE);
 
         if (items.length > degree) {
-            sortByHilbertIndex(items);
+            switch (packing) {
+                case HILBERT:
+                    sortByHilbertIndex(items);
+                    break;
+                case SORT_TILE_RECURSIVE:
+                    sortTileRecursive(items);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported packing: " + packing);
+            }
         }
 
         int writeOffset = 0;
@@ -290,6 +338,28 @@ public class Flatbush<T extends HasExtent>
                         (item.getExtent().getYMin() + item.getExtent().getYMax()) / 2)));
     }
 
+    /*
+     * Sorts items in-place into sort-tile-recursive order. Items are sorted by the x
+     * coordinate of the envelope center and cut into sqrt(leaf count) vertical slices,
+     * each holding a multiple of `degree` items so that no leaf spans two slices.
+     * Every slice is then sorted by the y coordinate of the envelope center.
+     */
+    private void sortTileRecursive(T[] items)
+    {
+        int leafCount = (int) Math.ceil(1.0 * items.length / degree);
+        int sliceCount = (int) Math.ceil(Math.sqrt(leafCount));
+        int sliceSize = (int) Math.ceil(1.0 * leafCount / sliceCount) * degree;
+
+        Arrays.parallelSort(items, Comparator.comparingDouble(item -> item.getExtent().getXMin() + item.getExtent().getXMax()));
+        IntStream.range(0, (int) Math.ceil(1.0 * items.length / sliceSize))
+                .parallel()
+                .forEach(slice -> Arrays.sort(
+                        items,
+                        slice * sliceSize,
+                        min(items.length, (slice + 1) * sliceSize),
+                        Comparator.comparingDouble(item -> item.getExtent().getYMin() + item.getExtent().getYMax())));
+    }
+
     public boolean isEmpty()
     {
         return items.length == 0;
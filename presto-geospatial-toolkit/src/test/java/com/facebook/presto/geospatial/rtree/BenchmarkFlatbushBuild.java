@@ -54,7 +54,8 @@ public class BenchmarkFlatbushBuild
     {
         blackhole.consume(new Flatbush<>(
                 data.getBuildRectangles().toArray(new Rectangle[] {}),
-                data.getRtreeDegree()));
+                data.getRtreeDegree(),
+                data.getPacking()));
     }
 
     @State(Scope.Thread)
@@ -64,6 +65,8 @@ public class BenchmarkFlatbushBuild
         private int rtreeDegree;
         @Param({"1000", "3000", "10000", "30000", "100000", "300000", "1000000"})
         private int numBuildRectangles;
+        @Param({"HILBERT", "SORT_TILE_RECURSIVE"})
+        private Flatbush.Packing packing;
 
         private List<Rectangle> buildRectangles;
 
@@ -79,6 +82,11 @@ public class BenchmarkFlatbushBuild
             return rtreeDegree;
         }
 
+        public Flatbush.Packing getPacking()
+        {
+            return packing;
+        }
+
         public List<Rectangle> getBuildRectangles()
         {
             return buildRectangles;
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Random;
 
 import static com.facebook.presto.geospatial.rtree.Flatbush.ENVELOPE_SIZE;
+import static com.facebook.presto.geospatial.rtree.Flatbush.Packing.SORT_TILE_RECURSIVE;
 import static com.facebook.presto.geospatial.rtree.RtreeTestUtils.makeRectangles;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.lang.Double.NEGATIVE_INFINITY;
@@ -204,6 +205,32 @@ public class TestFlatbush
         }
     }
 
+    @Test(dataProvider = "rectangle-counts")
+    public void testRectangleCollectionSortTileRecursive(int numBuildRectangles, int numProbeRectangles, int seed)
+    {
+        Random random = new Random(seed);
+        List<Rectangle> buildRectangles = makeRectangles(random, numBuildRectangles);
+        List<Rectangle> probeRectangles = makeRectangles(random, numProbeRectangles);
+
+        Flatbush<Rectangle> rtree = new Flatbush<>(buildRectangles.toArray(new Rectangle[] {}), SORT_TILE_RECURSIVE);
+        for (Rectangle query : probeRectangles) {
+            List<Rectangle> actual = findIntersections(rtree, query);
+            List<Rectangle> expected = buildRectangles.stream()
+                    .filter(rect -> rect.intersects(query))
+                    .collect(toList());
+            assertEqualsSorted(actual, expected, RECTANGLE_COMPARATOR);
+        }
+    }
+
+    @Test
+    public void testSortTileRecursiveSmallDegree()
+    {
+        // slices are not full and the last leaf is padded
+        List<Rectangle> rectangles = makeRectangles(new Random(7), 37);
+        Flatbush<Rectangle> rtree = new Flatbush<>(rectangles.toArray(new Rectangle[] {}), 3, SORT_TILE_RECURSIVE);
+        assertEqualsSorted(findIntersections(rtree, EVERYTHING), rectangles, RECTANGLE_COMPARATOR);
+    }
+
     @Test
     public void testChildrenOffsets()
     {
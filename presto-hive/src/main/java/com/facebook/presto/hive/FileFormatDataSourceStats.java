@@ -13,8 +13,10 @@
  */
 package com.facebook.presto.hive;
 
+import com.facebook.airlift.stats.CounterStat;
 import com.facebook.airlift.stats.DistributionStat;
 import com.facebook.airlift.stats.TimeStat;
+import com.facebook.presto.orc.StripeReadAheadStats;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
@@ -22,6 +24,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class FileFormatDataSourceStats
+        implements StripeReadAheadStats
 {
     private final DistributionStat readBytes = new DistributionStat();
     private final DistributionStat maxCombinedBytesPerRow = new DistributionStat();
@@ -29,6 +32,10 @@ public class FileFormatDataSourceStats
     private final TimeStat time100KBto1MB = new TimeStat(MILLISECONDS);
     private final TimeStat time1MBto10MB = new TimeStat(MILLISECONDS);
     private final TimeStat time10MBPlus = new TimeStat(MILLISECONDS);
+    private final CounterStat stripeReadAheadHits = new CounterStat();
+    private final CounterStat stripeReadAheadMisses = new CounterStat();
+    private final CounterStat stripeReadAheadHitBytes = new CounterStat();
+    private final CounterStat stripeReadAheadWastedBytes = new CounterStat();
 
     @Managed
     @Nested
@@ -72,6 +79,61 @@ public class FileFormatDataSourceStats
         return time10MBPlus;
     }
 
+    @Managed
+    @Nested
+    public CounterStat getStripeReadAheadHits()
+    {
+        return stripeReadAheadHits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStripeReadAheadMisses()
+    {
+        return stripeReadAheadMisses;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStripeReadAheadHitBytes()
+    {
+        return stripeReadAheadHitBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStripeReadAheadWastedBytes()
+    {
+        return stripeReadAheadWastedBytes;
+    }
+
+    @Managed
+    public double getStripeReadAheadHitRate()
+    {
+        long hits = stripeReadAheadHits.getTotalCount();
+        long total = hits + stripeReadAheadMisses.getTotalCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public void recordReadAheadHit(long bytes)
+    {
+        stripeReadAheadHits.update(1);
+        stripeReadAheadHitBytes.update(bytes);
+    }
+
+    @Override
+    public void recordReadAheadMiss()
+    {
+        stripeReadAheadMisses.update(1);
+    }
+
+    @Override
+    public void recordReadAheadWasted(long bytes)
+    {
+        stripeReadAheadWastedBytes.update(bytes);
+    }
+
     public void readDataBytesPerSecond(long bytes, long nanos)
     {
         readBytes.add(bytes);
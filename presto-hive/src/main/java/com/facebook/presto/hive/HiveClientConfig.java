@@ -110,6 +110,9 @@ public class HiveClientConfig
     private boolean assumeCanonicalPartitionKeys;
     private boolean useOrcColumnNames;
     private double orcDefaultBloomFilterFpp = 0.05;
+    private boolean orcStripeReadAheadEnabled;
+    private DataSize orcMaxStripeReadAheadSize = new DataSize(32, MEGABYTE);
+    private int orcStripeReadAheadThreads = 32;
     private boolean rcfileOptimizedWriterEnabled = true;
     private boolean rcfileWriterValidate;
     private HdfsAuthenticationType hdfsAuthenticationType = HdfsAuthenticationType.NONE;
@@ -769,6 +772,48 @@ public class HiveClientConfig
         return this;
     }
 
+    public boolean isOrcStripeReadAheadEnabled()
+    {
+        return orcStripeReadAheadEnabled;
+    }
+
+    @Config("hive.orc.stripe-read-ahead-enabled")
+    @ConfigDescription("Read the next ORC stripe in the background while the current stripe is decoded")
+    public HiveClientConfig setOrcStripeReadAheadEnabled(boolean orcStripeReadAheadEnabled)
+    {
+        this.orcStripeReadAheadEnabled = orcStripeReadAheadEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1B")
+    public DataSize getOrcMaxStripeReadAheadSize()
+    {
+        return orcMaxStripeReadAheadSize;
+    }
+
+    @Config("hive.orc.max-stripe-read-ahead-size")
+    @ConfigDescription("Maximum amount of ORC stripe data a reader buffers ahead of the current stripe")
+    public HiveClientConfig setOrcMaxStripeReadAheadSize(DataSize orcMaxStripeReadAheadSize)
+    {
+        this.orcMaxStripeReadAheadSize = orcMaxStripeReadAheadSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getOrcStripeReadAheadThreads()
+    {
+        return orcStripeReadAheadThreads;
+    }
+
+    @Config("hive.orc.stripe-read-ahead-threads")
+    @ConfigDescription("Number of threads used to read ORC stripes ahead")
+    public HiveClientConfig setOrcStripeReadAheadThreads(int orcStripeReadAheadThreads)
+    {
+        this.orcStripeReadAheadThreads = orcStripeReadAheadThreads;
+        return this;
+    }
+
     @Deprecated
     public boolean isRcfileOptimizedWriterEnabled()
     {
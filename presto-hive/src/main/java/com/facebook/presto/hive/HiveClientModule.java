@@ -57,6 +57,7 @@ import com.facebook.presto.orc.StripeReader.StripeId;
 import com.facebook.presto.orc.StripeReader.StripeStreamId;
 import com.facebook.presto.orc.UnsupportedEncryptionLibrary;
 import com.facebook.presto.orc.cache.CachingOrcFileTailSource;
+import com.facebook.presto.orc.cache.DecompressedStreamCache;
 import com.facebook.presto.orc.cache.OrcCacheConfig;
 import com.facebook.presto.orc.cache.OrcFileTailSource;
 import com.facebook.presto.orc.cache.StorageOrcFileTailSource;
@@ -292,6 +293,28 @@ public class HiveClientModule
                                 hiveClientConfig.getMaxConcurrentZeroRowFileCreations())));
     }
 
+    @ForOrcStripeReadAhead
+    @Singleton
+    @Provides
+    public ExecutorService createOrcStripeReadAheadExecutor(HiveConnectorId hiveClientId, HiveClientConfig hiveClientConfig)
+    {
+        return new ExecutorServiceAdapter(
+                new BoundedExecutor(
+                        newCachedThreadPool(daemonThreadsNamed("hive-orc-read-ahead-" + hiveClientId + "-%s")),
+                        hiveClientConfig.getOrcStripeReadAheadThreads()));
+    }
+
+    @ForOrcColumnEncoding
+    @Singleton
+    @Provides
+    public ExecutorService createOrcColumnEncodingExecutor(HiveConnectorId hiveClientId, OrcFileWriterConfig orcFileWriterConfig)
+    {
+        return new ExecutorServiceAdapter(
+                new BoundedExecutor(
+                        newCachedThreadPool(daemonThreadsNamed("hive-orc-column-encoding-" + hiveClientId + "-%s")),
+                        orcFileWriterConfig.getColumnEncodingThreads()));
+    }
+
     @Singleton
     @Provides
     public OrcFileTailSource createOrcFileTailSource(OrcCacheConfig orcCacheConfig, MBeanExporter exporter)
@@ -313,6 +336,18 @@ public class HiveClientModule
         return orcFileTailSource;
     }
 
+    @Singleton
+    @Provides
+    public Optional<DecompressedStreamCache> createDecompressedStreamCache(OrcCacheConfig orcCacheConfig, MBeanExporter exporter)
+    {
+        if (!orcCacheConfig.isDecompressedStreamCacheEnabled()) {
+            return Optional.empty();
+        }
+        DecompressedStreamCache cache = new DecompressedStreamCache(orcCacheConfig.getDecompressedStreamCacheSize());
+        exporter.export(generatedNameOf(DecompressedStreamCache.class, connectorId), cache);
+        return Optional.of(cache);
+    }
+
     @Singleton
     @Provides
     public StripeMetadataSourceFactory createStripeMetadataSourceFactory(OrcCacheConfig orcCacheConfig, MBeanExporter exporter)
@@ -58,10 +58,13 @@ public final class HiveSessionProperties
     private static final String ORC_OPTIMIZED_WRITER_STRING_DICTIONARY_SORTING_ENABLED = "orc_optimized_writer_string_dictionary_sorting_enabled";
     private static final String ORC_OPTIMIZED_WRITER_FLAT_MAP_WRITER_ENABLED = "orc_optimized_writer_flat_map_writer_enabled";
     private static final String ORC_OPTIMIZED_WRITER_COMPRESSION_LEVEL = "orc_optimized_writer_compression_level";
+    private static final String ORC_OPTIMIZED_WRITER_PARALLEL_COLUMN_ENCODING_ENABLED = "orc_optimized_writer_parallel_column_encoding_enabled";
     private static final String PAGEFILE_WRITER_MAX_STRIPE_SIZE = "pagefile_writer_max_stripe_size";
     public static final String HIVE_STORAGE_FORMAT = "hive_storage_format";
     private static final String COMPRESSION_CODEC = "compression_codec";
     private static final String ORC_COMPRESSION_CODEC = "orc_compression_codec";
+    private static final String ORC_STRIPE_READ_AHEAD_ENABLED = "orc_stripe_read_ahead_enabled";
+    private static final String ORC_MAX_STRIPE_READ_AHEAD_SIZE = "orc_max_stripe_read_ahead_size";
     public static final String RESPECT_TABLE_FORMAT = "respect_table_format";
     private static final String CREATE_EMPTY_BUCKET_FILES = "create_empty_bucket_files";
     private static final String PARQUET_WRITER_BLOCK_SIZE = "parquet_writer_block_size";
@@ -211,6 +214,21 @@ public final class HiveSessionProperties
                         "Experimental: ORC: Compression level, works only for ZSTD and ZLIB compression kinds",
                         orcFileWriterConfig.getCompressionLevel(),
                         false),
+                booleanProperty(
+                        ORC_OPTIMIZED_WRITER_PARALLEL_COLUMN_ENCODING_ENABLED,
+                        "ORC: Encode and compress the columns of a stripe in parallel when the stripe is flushed",
+                        orcFileWriterConfig.isParallelColumnEncodingEnabled(),
+                        false),
+                booleanProperty(
+                        ORC_STRIPE_READ_AHEAD_ENABLED,
+                        "ORC: Read the next stripe in the background while the current stripe is decoded",
+                        hiveClientConfig.isOrcStripeReadAheadEnabled(),
+                        false),
+                dataSizeSessionProperty(
+                        ORC_MAX_STRIPE_READ_AHEAD_SIZE,
+                        "ORC: Maximum amount of stripe data a reader buffers ahead of the current stripe",
+                        hiveClientConfig.getOrcMaxStripeReadAheadSize(),
+                        false),
                 dataSizeSessionProperty(
                         PAGEFILE_WRITER_MAX_STRIPE_SIZE,
                         "PAGEFILE: Max stripe size",
@@ -677,6 +695,21 @@ public final class HiveSessionProperties
         return session.getProperty(ORC_OPTIMIZED_WRITER_MAX_STRIPE_SIZE, DataSize.class);
     }
 
+    public static boolean isOrcOptimizedWriterParallelColumnEncodingEnabled(ConnectorSession session)
+    {
+        return session.getProperty(ORC_OPTIMIZED_WRITER_PARALLEL_COLUMN_ENCODING_ENABLED, Boolean.class);
+    }
+
+    public static boolean isOrcStripeReadAheadEnabled(ConnectorSession session)
+    {
+        return session.getProperty(ORC_STRIPE_READ_AHEAD_ENABLED, Boolean.class);
+    }
+
+    public static DataSize getOrcMaxStripeReadAheadSize(ConnectorSession session)
+    {
+        return session.getProperty(ORC_MAX_STRIPE_READ_AHEAD_SIZE, DataSize.class);
+    }
+
     public static int getOrcOptimizedWriterMaxStripeRows(ConnectorSession session)
     {
         return session.getProperty(ORC_OPTIMIZED_WRITER_MAX_STRIPE_ROWS, Integer.class);
@@ -21,6 +21,7 @@ import com.facebook.presto.orc.metadata.DwrfStripeCacheMode;
 import com.facebook.presto.orc.writer.StreamLayoutFactory;
 import io.airlift.units.DataSize;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import java.util.OptionalInt;
@@ -56,6 +57,8 @@ public class OrcFileWriterConfig
     private boolean isStringDictionarySortingEnabled = OrcWriterOptions.DEFAULT_STRING_DICTIONARY_SORTING_ENABLED;
     private boolean isFlatMapWriterEnabled = DEFAULT_FLAT_MAP_WRITER_ENABLED;
     private boolean addHostnameToFileMetadataEnabled = true;
+    private boolean parallelColumnEncodingEnabled;
+    private int columnEncodingThreads = Runtime.getRuntime().availableProcessors();
 
     public OrcWriterOptions.Builder toOrcWriterOptionsBuilder()
     {
@@ -297,6 +300,33 @@ public class OrcFileWriterConfig
         return this;
     }
 
+    public boolean isParallelColumnEncodingEnabled()
+    {
+        return parallelColumnEncodingEnabled;
+    }
+
+    @Config("hive.orc.writer.parallel-column-encoding-enabled")
+    @ConfigDescription("Encode and compress the columns of a stripe in parallel when the stripe is flushed")
+    public OrcFileWriterConfig setParallelColumnEncodingEnabled(boolean parallelColumnEncodingEnabled)
+    {
+        this.parallelColumnEncodingEnabled = parallelColumnEncodingEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getColumnEncodingThreads()
+    {
+        return columnEncodingThreads;
+    }
+
+    @Config("hive.orc.writer.column-encoding-threads")
+    @ConfigDescription("Number of threads shared by all writers to encode and compress columns in parallel")
+    public OrcFileWriterConfig setColumnEncodingThreads(int columnEncodingThreads)
+    {
+        this.columnEncodingThreads = columnEncodingThreads;
+        return this;
+    }
+
     private static StreamLayoutFactory getStreamLayoutFactory(StreamLayoutType type)
     {
         switch (type) {
@@ -60,6 +60,8 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
@@ -73,6 +75,8 @@ import static com.facebook.presto.hive.HiveErrorCode.HIVE_INVALID_METADATA;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_UNSUPPORTED_FORMAT;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_WRITER_OPEN_ERROR;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_WRITE_VALIDATION_FAILED;
+import static com.facebook.presto.hive.HiveMetadata.ORC_BLOOM_FILTER_COLUMNS_KEY;
+import static com.facebook.presto.hive.HiveMetadata.ORC_BLOOM_FILTER_FPP_KEY;
 import static com.facebook.presto.hive.HiveSessionProperties.getCompressionLevel;
 import static com.facebook.presto.hive.HiveSessionProperties.getDwrfWriterStripeCacheMaxSize;
 import static com.facebook.presto.hive.HiveSessionProperties.getOrcOptimizedWriterMaxDictionaryMemory;
@@ -84,11 +88,13 @@ import static com.facebook.presto.hive.HiveSessionProperties.isDwrfWriterStripeC
 import static com.facebook.presto.hive.HiveSessionProperties.isExecutionBasedMemoryAccountingEnabled;
 import static com.facebook.presto.hive.HiveSessionProperties.isFlatMapWriterEnabled;
 import static com.facebook.presto.hive.HiveSessionProperties.isIntegerDictionaryEncodingEnabled;
+import static com.facebook.presto.hive.HiveSessionProperties.isOrcOptimizedWriterParallelColumnEncodingEnabled;
 import static com.facebook.presto.hive.HiveSessionProperties.isStringDictionaryEncodingEnabled;
 import static com.facebook.presto.hive.HiveSessionProperties.isStringDictionarySortingEnabled;
 import static com.facebook.presto.hive.HiveType.toHiveTypes;
 import static com.facebook.presto.orc.OrcEncoding.DWRF;
 import static com.facebook.presto.orc.OrcEncoding.ORC;
+import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_BLOOM_FILTER_FPP;
 import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_MAX_FLATTENED_MAP_KEY_COUNT;
 import static com.facebook.presto.orc.metadata.KeyProvider.CRYPTO_SERVICE;
 import static com.facebook.presto.orc.metadata.KeyProvider.UNKNOWN;
@@ -134,6 +140,7 @@ public class OrcFileWriterFactory
     private static final String HOSTNAME_METADATA_KEY = "orc.writer.host";
     private static final Supplier<Optional<String>> HOSTNAME = Suppliers.memoize(OrcFileWriterFactory::getHostname);
     private static final Splitter FLAT_MAP_COLUMN_NUMBERS_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
+    private static final Splitter COLUMN_NAMES_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
 
     private final DateTimeZone hiveStorageTimeZone;
     private final HdfsEnvironment hdfsEnvironment;
@@ -144,6 +151,7 @@ public class OrcFileWriterFactory
     private final OrcWriterStats stats = new OrcWriterStats();
     private final OrcFileWriterConfig orcFileWriterConfig;
     private final DwrfEncryptionProvider dwrfEncryptionProvider;
+    private final Optional<Executor> columnEncodingExecutor;
 
     @Inject
     public OrcFileWriterFactory(
@@ -154,7 +162,8 @@ public class OrcFileWriterFactory
             HiveClientConfig hiveClientConfig,
             FileFormatDataSourceStats readStats,
             OrcFileWriterConfig orcFileWriterConfig,
-            HiveDwrfEncryptionProvider dwrfEncryptionProvider)
+            HiveDwrfEncryptionProvider dwrfEncryptionProvider,
+            @ForOrcColumnEncoding ExecutorService columnEncodingExecutor)
     {
         this(
                 hdfsEnvironment,
@@ -164,7 +173,8 @@ public class OrcFileWriterFactory
                 requireNonNull(hiveClientConfig, "hiveClientConfig is null").getDateTimeZone(),
                 readStats,
                 orcFileWriterConfig,
-                dwrfEncryptionProvider);
+                dwrfEncryptionProvider,
+                Optional.of(columnEncodingExecutor));
     }
 
     public OrcFileWriterFactory(
@@ -176,6 +186,20 @@ public class OrcFileWriterFactory
             FileFormatDataSourceStats readStats,
             OrcFileWriterConfig orcFileWriterConfig,
             HiveDwrfEncryptionProvider dwrfEncryptionProvider)
+    {
+        this(hdfsEnvironment, dataSinkFactory, typeManager, nodeVersion, hiveStorageTimeZone, readStats, orcFileWriterConfig, dwrfEncryptionProvider, Optional.empty());
+    }
+
+    public OrcFileWriterFactory(
+            HdfsEnvironment hdfsEnvironment,
+            DataSinkFactory dataSinkFactory,
+            TypeManager typeManager,
+            NodeVersion nodeVersion,
+            DateTimeZone hiveStorageTimeZone,
+            FileFormatDataSourceStats readStats,
+            OrcFileWriterConfig orcFileWriterConfig,
+            HiveDwrfEncryptionProvider dwrfEncryptionProvider,
+            Optional<Executor> columnEncodingExecutor)
     {
         this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
         this.dataSinkFactory = requireNonNull(dataSinkFactory, "dataSinkFactory is null");
@@ -185,6 +209,7 @@ public class OrcFileWriterFactory
         this.readStats = requireNonNull(readStats, "stats is null");
         this.orcFileWriterConfig = requireNonNull(orcFileWriterConfig, "orcFileWriterConfig is null");
         this.dwrfEncryptionProvider = requireNonNull(dwrfEncryptionProvider, "DwrfEncryptionProvider is null").toDwrfEncryptionProvider();
+        this.columnEncodingExecutor = requireNonNull(columnEncodingExecutor, "columnEncodingExecutor is null");
     }
 
     @Managed
@@ -272,7 +297,7 @@ public class OrcFileWriterFactory
                 metadata.put(HOSTNAME_METADATA_KEY, HOSTNAME.get().get());
             }
 
-            OrcWriterOptions orcWriterOptions = buildOrcWriterOptions(session, schema);
+            OrcWriterOptions orcWriterOptions = buildOrcWriterOptions(session, schema, orcEncoding);
 
             return Optional.of(new OrcFileWriter(
                     dataSink,
@@ -297,14 +322,19 @@ public class OrcFileWriterFactory
     }
 
     @VisibleForTesting
-    OrcWriterOptions buildOrcWriterOptions(ConnectorSession session, Properties schema)
+    OrcWriterOptions buildOrcWriterOptions(ConnectorSession session, Properties schema, OrcEncoding orcEncoding)
     {
         boolean mapStatisticsEnabled = isMapStatisticsEnabled(schema);
         int flatMapKeyLimit = getFlatMapKeyLimit(schema);
         Set<Integer> flattenedColumns = getFlattenedColumns(schema, session);
+        // DWRF does not support bloom filters, so the table property only applies to ORC files
+        Set<Integer> bloomFilterColumns = orcEncoding == ORC ? getBloomFilterColumns(schema) : ImmutableSet.of();
 
-        return orcFileWriterConfig
-                .toOrcWriterOptionsBuilder()
+        OrcWriterOptions.Builder builder = orcFileWriterConfig.toOrcWriterOptionsBuilder();
+        if (isOrcOptimizedWriterParallelColumnEncodingEnabled(session)) {
+            columnEncodingExecutor.ifPresent(executor -> builder.withColumnEncodingExecutor(executor, orcFileWriterConfig.getColumnEncodingThreads()));
+        }
+        return builder
                 .withFlushPolicy(DefaultOrcWriterFlushPolicy.builder()
                         .withStripeMinSize(getOrcOptimizedWriterMinStripeSize(session))
                         .withStripeMaxSize(getOrcOptimizedWriterMaxStripeSize(session))
@@ -322,6 +352,8 @@ public class OrcFileWriterFactory
                 .withMaxFlattenedMapKeyCount(flatMapKeyLimit)
                 .withMapStatisticsEnabled(mapStatisticsEnabled)
                 .withCompressionLevel(getCompressionLevel(session))
+                .withBloomFilterColumns(bloomFilterColumns)
+                .withBloomFilterFpp(getBloomFilterFpp(schema))
                 .build();
     }
 
@@ -413,6 +445,44 @@ public class OrcFileWriterFactory
         return flattenedColumns;
     }
 
+    private static Set<Integer> getBloomFilterColumns(Properties schema)
+    {
+        List<String> bloomFilterColumnNames = COLUMN_NAMES_SPLITTER.splitToList(schema.getProperty(ORC_BLOOM_FILTER_COLUMNS_KEY, ""));
+        if (bloomFilterColumnNames.isEmpty()) {
+            return ImmutableSet.of();
+        }
+
+        List<String> fileColumnNames = COLUMN_NAMES_SPLITTER.splitToList(schema.getProperty(META_TABLE_COLUMNS, ""));
+        ImmutableSet.Builder<Integer> bloomFilterColumns = ImmutableSet.builder();
+        for (String columnName : bloomFilterColumnNames) {
+            // columns that were dropped from the table are ignored
+            int columnIndex = fileColumnNames.indexOf(columnName.toLowerCase(ENGLISH));
+            if (columnIndex >= 0) {
+                bloomFilterColumns.add(columnIndex);
+            }
+        }
+        return bloomFilterColumns.build();
+    }
+
+    private static double getBloomFilterFpp(Properties schema)
+    {
+        String value = schema.getProperty(ORC_BLOOM_FILTER_FPP_KEY);
+        if (value == null) {
+            return DEFAULT_BLOOM_FILTER_FPP;
+        }
+        double fpp;
+        try {
+            fpp = Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new PrestoException(HIVE_INVALID_METADATA, format("Invalid value for %s table property: %s", ORC_BLOOM_FILTER_FPP_KEY, value));
+        }
+        if (!(fpp > 0.0 && fpp < 1.0)) {
+            throw new PrestoException(HIVE_INVALID_METADATA, format("Invalid value for %s table property, it must be between 0 and 1: %s", ORC_BLOOM_FILTER_FPP_KEY, value));
+        }
+        return fpp;
+    }
+
     private boolean isMapStatisticsEnabled(Properties schema)
     {
         return parseBoolean(schema.getProperty(ORC_MAP_STATISTICS_KEY, "false"));
@@ -144,6 +144,8 @@ public class DwrfSelectivePageSourceFactory
                 tupleDomainFilterCache,
                 encryptionInformation,
                 dwrfEncryptionProvider,
-                appendRowNumberEnabled));
+                appendRowNumberEnabled,
+                Optional.empty(),
+                Optional.empty()));
     }
 }
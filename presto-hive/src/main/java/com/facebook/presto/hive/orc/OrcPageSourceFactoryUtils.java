@@ -21,6 +21,7 @@ import com.facebook.presto.hive.HiveColumnHandle;
 import com.facebook.presto.hive.HiveFileContext;
 import com.facebook.presto.hive.HiveFileSplit;
 import com.facebook.presto.hive.HiveOrcAggregatedMemoryContext;
+import com.facebook.presto.orc.DecompressedStreamCacheOptions;
 import com.facebook.presto.orc.DwrfEncryptionProvider;
 import com.facebook.presto.orc.DwrfKeyProvider;
 import com.facebook.presto.orc.OrcDataSource;
@@ -29,6 +30,8 @@ import com.facebook.presto.orc.OrcEncoding;
 import com.facebook.presto.orc.OrcReader;
 import com.facebook.presto.orc.OrcReaderOptions;
 import com.facebook.presto.orc.StripeMetadataSourceFactory;
+import com.facebook.presto.orc.StripeReadAheadOptions;
+import com.facebook.presto.orc.cache.DecompressedStreamCache;
 import com.facebook.presto.orc.cache.OrcFileTailSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
@@ -42,6 +45,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import static com.facebook.presto.hive.HiveCommonSessionProperties.getOrcLazyReadSmallRanges;
 import static com.facebook.presto.hive.HiveCommonSessionProperties.getOrcMaxBufferSize;
@@ -49,6 +53,8 @@ import static com.facebook.presto.hive.HiveCommonSessionProperties.getOrcMaxMerg
 import static com.facebook.presto.hive.HiveCommonSessionProperties.getOrcStreamBufferSize;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_CANNOT_OPEN_SPLIT;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_MISSING_DATA;
+import static com.facebook.presto.hive.HiveSessionProperties.getOrcMaxStripeReadAheadSize;
+import static com.facebook.presto.hive.HiveSessionProperties.isOrcStripeReadAheadEnabled;
 import static com.google.common.base.Strings.nullToEmpty;
 import static java.lang.String.format;
 
@@ -108,6 +114,19 @@ public class OrcPageSourceFactoryUtils
         return reader;
     }
 
+    public static Optional<StripeReadAheadOptions> getStripeReadAheadOptions(ConnectorSession session, Optional<Executor> stripeReadAheadExecutor, FileFormatDataSourceStats stats)
+    {
+        if (!stripeReadAheadExecutor.isPresent() || !isOrcStripeReadAheadEnabled(session)) {
+            return Optional.empty();
+        }
+        return Optional.of(new StripeReadAheadOptions(stripeReadAheadExecutor.get(), getOrcMaxStripeReadAheadSize(session), stats));
+    }
+
+    public static Optional<DecompressedStreamCacheOptions> getDecompressedStreamCacheOptions(Optional<DecompressedStreamCache> decompressedStreamCache, HiveFileContext hiveFileContext)
+    {
+        return decompressedStreamCache.map(cache -> new DecompressedStreamCacheOptions(cache, hiveFileContext.getModificationTime()));
+    }
+
     public static PrestoException mapToPrestoException(Exception e, Path path, HiveFileSplit fileSplit)
     {
         // instanceof and class comparison do not work here since they are loaded by different class loaders.
@@ -184,7 +184,6 @@ public class ParquetPageSourceFactory
 
         String user = session.getUser();
         boolean useParquetColumnNames = isUseParquetColumnNames(session);
-        boolean columnIndexFilterEnabled = columnIndexFilterEnabled(session);
         boolean readMaskedValue = getReadNullMaskedParquetEncryptedValue(session);
 
         ParquetDataSource dataSource = null;
@@ -216,57 +215,18 @@ public class ParquetPageSourceFactory
 
             MessageType requestedSchema = message.orElse(new MessageType(fileSchema.getName(), ImmutableList.of()));
 
-            ImmutableList.Builder<BlockMetaData> footerBlocks = ImmutableList.builder();
-
-            for (BlockMetaData block : parquetMetadata.getBlocks()) {
-                Optional<Integer> firstIndex = findFirstNonHiddenColumnId(block);
-                if (firstIndex.isPresent()) {
-                    long firstDataPage = block.getColumns().get(firstIndex.get()).getFirstDataPageOffset();
-                    if (firstDataPage >= fileSplit.getStart() && firstDataPage < fileSplit.getStart() + fileSplit.getLength()) {
-                        footerBlocks.add(block);
-                    }
-                }
-            }
-            Map<List<String>, RichColumnDescriptor> descriptorsByPath = getDescriptors(fileSchema, requestedSchema);
-            TupleDomain<ColumnDescriptor> parquetTupleDomain = getParquetTupleDomain(descriptorsByPath, effectivePredicate);
-            Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, descriptorsByPath);
-            final ParquetDataSource finalDataSource = dataSource;
-            ImmutableList.Builder<BlockMetaData> blocks = ImmutableList.builder();
-            List<ColumnIndexStore> blockIndexStores = new ArrayList<>();
-
-            long nextStart = 0;
-            ImmutableList.Builder<Long> blockStarts = ImmutableList.builder();
-            for (BlockMetaData block : footerBlocks.build()) {
-                Optional<ColumnIndexStore> columnIndexStore = ColumnIndexFilterUtils.getColumnIndexStore(parquetPredicate, finalDataSource, block, descriptorsByPath, columnIndexFilterEnabled);
-                if (predicateMatches(parquetPredicate, block, finalDataSource, descriptorsByPath, parquetTupleDomain, columnIndexStore, columnIndexFilterEnabled, Optional.of(session.getWarningCollector()))) {
-                    blocks.add(block);
-                    blockStarts.add(nextStart);
-                    blockIndexStores.add(columnIndexStore.orElse(null));
-                    hiveFileContext.incrementCounter("parquet.blocksRead", NONE, 1);
-                    hiveFileContext.incrementCounter("parquet.rowsRead", NONE, block.getRowCount());
-                    hiveFileContext.incrementCounter("parquet.totalBytesRead", BYTE, block.getTotalByteSize());
-                }
-                else {
-                    hiveFileContext.incrementCounter("parquet.blocksSkipped", NONE, 1);
-                    hiveFileContext.incrementCounter("parquet.rowsSkipped", NONE, block.getRowCount());
-                    hiveFileContext.incrementCounter("parquet.totalBytesSkipped", BYTE, block.getTotalByteSize());
-                }
-                nextStart += block.getRowCount();
-            }
             MessageColumnIO messageColumnIO = getColumnIO(fileSchema, requestedSchema);
-            ParquetReader parquetReader = new ParquetReader(
-                    messageColumnIO,
-                    blocks.build(),
-                    Optional.of(blockStarts.build()),
+            ParquetReader parquetReader = createParquetReader(
+                    session,
+                    fileSplit,
                     dataSource,
-                    systemMemoryContext,
-                    getParquetMaxReadBlockSize(session),
-                    isParquetBatchReadsEnabled(session),
-                    isParquetBatchReaderVerificationEnabled(session),
-                    parquetPredicate,
-                    blockIndexStores,
-                    columnIndexFilterEnabled,
-                    fileDecryptor);
+                    parquetMetadata,
+                    requestedSchema,
+                    messageColumnIO,
+                    effectivePredicate,
+                    hiveFileContext,
+                    fileDecryptor,
+                    systemMemoryContext);
 
             ImmutableList.Builder<String> namesBuilder = ImmutableList.builder();
             ImmutableList.Builder<Type> typesBuilder = ImmutableList.builder();
@@ -321,6 +281,71 @@ public class ParquetPageSourceFactory
         }
     }
 
+    public static ParquetReader createParquetReader(
+            ConnectorSession session,
+            HiveFileSplit fileSplit,
+            ParquetDataSource dataSource,
+            ParquetMetadata parquetMetadata,
+            MessageType requestedSchema,
+            MessageColumnIO messageColumnIO,
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            HiveFileContext hiveFileContext,
+            Optional<InternalFileDecryptor> fileDecryptor,
+            AggregatedMemoryContext systemMemoryContext)
+    {
+        boolean columnIndexFilterEnabled = columnIndexFilterEnabled(session);
+        MessageType fileSchema = parquetMetadata.getFileMetaData().getSchema();
+
+        ImmutableList.Builder<BlockMetaData> footerBlocks = ImmutableList.builder();
+        for (BlockMetaData block : parquetMetadata.getBlocks()) {
+            Optional<Integer> firstIndex = findFirstNonHiddenColumnId(block);
+            if (firstIndex.isPresent()) {
+                long firstDataPage = block.getColumns().get(firstIndex.get()).getFirstDataPageOffset();
+                if (firstDataPage >= fileSplit.getStart() && firstDataPage < fileSplit.getStart() + fileSplit.getLength()) {
+                    footerBlocks.add(block);
+                }
+            }
+        }
+        Map<List<String>, RichColumnDescriptor> descriptorsByPath = getDescriptors(fileSchema, requestedSchema);
+        TupleDomain<ColumnDescriptor> parquetTupleDomain = getParquetTupleDomain(descriptorsByPath, effectivePredicate);
+        Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, descriptorsByPath);
+        ImmutableList.Builder<BlockMetaData> blocks = ImmutableList.builder();
+        List<ColumnIndexStore> blockIndexStores = new ArrayList<>();
+
+        long nextStart = 0;
+        ImmutableList.Builder<Long> blockStarts = ImmutableList.builder();
+        for (BlockMetaData block : footerBlocks.build()) {
+            Optional<ColumnIndexStore> columnIndexStore = ColumnIndexFilterUtils.getColumnIndexStore(parquetPredicate, dataSource, block, descriptorsByPath, columnIndexFilterEnabled);
+            if (predicateMatches(parquetPredicate, block, dataSource, descriptorsByPath, parquetTupleDomain, columnIndexStore, columnIndexFilterEnabled, Optional.of(session.getWarningCollector()))) {
+                blocks.add(block);
+                blockStarts.add(nextStart);
+                blockIndexStores.add(columnIndexStore.orElse(null));
+                hiveFileContext.incrementCounter("parquet.blocksRead", NONE, 1);
+                hiveFileContext.incrementCounter("parquet.rowsRead", NONE, block.getRowCount());
+                hiveFileContext.incrementCounter("parquet.totalBytesRead", BYTE, block.getTotalByteSize());
+            }
+            else {
+                hiveFileContext.incrementCounter("parquet.blocksSkipped", NONE, 1);
+                hiveFileContext.incrementCounter("parquet.rowsSkipped", NONE, block.getRowCount());
+                hiveFileContext.incrementCounter("parquet.totalBytesSkipped", BYTE, block.getTotalByteSize());
+            }
+            nextStart += block.getRowCount();
+        }
+        return new ParquetReader(
+                messageColumnIO,
+                blocks.build(),
+                Optional.of(blockStarts.build()),
+                dataSource,
+                systemMemoryContext,
+                getParquetMaxReadBlockSize(session),
+                isParquetBatchReadsEnabled(session),
+                isParquetBatchReaderVerificationEnabled(session),
+                parquetPredicate,
+                blockIndexStores,
+                columnIndexFilterEnabled,
+                fileDecryptor);
+    }
+
     public static TupleDomain<ColumnDescriptor> getParquetTupleDomain(Map<List<String>, RichColumnDescriptor> descriptorsByPath, TupleDomain<HiveColumnHandle> effectivePredicate)
     {
         if (effectivePredicate.isNone()) {
@@ -0,0 +1,472 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.parquet;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.Subfield;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.LazyBlock;
+import com.facebook.presto.common.block.LazyBlockLoader;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
+import com.facebook.presto.common.predicate.FilterFunction;
+import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.type.RowType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.hive.HiveCoercer;
+import com.facebook.presto.parquet.Field;
+import com.facebook.presto.parquet.ParquetCorruptionException;
+import com.facebook.presto.parquet.reader.ParquetReader;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static com.facebook.presto.common.array.Arrays.ensureCapacity;
+import static com.facebook.presto.hive.FilteringPageSource.testNonNullPosition;
+import static com.facebook.presto.hive.HiveErrorCode.HIVE_BAD_DATA;
+import static com.facebook.presto.hive.HiveErrorCode.HIVE_CURSOR_ERROR;
+import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads Parquet files with filters pushed down into the scan. For every batch, the columns with
+ * range filters are read first and each filter only tests the positions that passed the filters
+ * before it; the remaining predicate is then evaluated on the surviving positions. Columns that
+ * are only projected are read lazily and restricted to the surviving positions, and are never
+ * decoded for batches in which no position survives.
+ * <p>
+ * Channels are the indices of the columns passed to the factory. Filters test the values as they
+ * are stored in the file, and coercions to the table schema are applied to the projected values
+ * and to the inputs of the remaining predicate.
+ */
+public class ParquetSelectivePageSource
+        implements ConnectorPageSource
+{
+    private final ParquetReader parquetReader;
+    private final List<Type> types;
+    private final List<Optional<Field>> fields;
+    private final List<Optional<Block>> constantBlocks;
+    private final Map<Integer, HiveCoercer> coercers;
+    private final List<ColumnFilter> columnFilters;
+    private final List<FilterFunction> filterFunctions;
+    private final List<Integer> outputChannels;
+    private final RuntimeStats runtimeStats;
+
+    // blocks of the current batch, indexed by channel
+    private final Block[] blocks;
+    private final Block[] coercedBlocks;
+
+    private int[] positions = new int[0];
+    private RuntimeException[] errors = new RuntimeException[0];
+
+    private int batchId;
+    private int batchSize;
+    private long completedPositions;
+    private boolean closed;
+
+    public ParquetSelectivePageSource(
+            ParquetReader parquetReader,
+            List<Type> types,
+            List<Optional<Field>> fields,
+            List<Optional<Block>> constantBlocks,
+            Map<Integer, HiveCoercer> coercers,
+            Map<Integer, Map<Subfield, TupleDomainFilter>> tupleDomainFilters,
+            List<FilterFunction> filterFunctions,
+            List<Integer> outputChannels,
+            RuntimeStats runtimeStats)
+    {
+        this.parquetReader = requireNonNull(parquetReader, "parquetReader is null");
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.fields = ImmutableList.copyOf(requireNonNull(fields, "fields is null"));
+        this.constantBlocks = ImmutableList.copyOf(requireNonNull(constantBlocks, "constantBlocks is null"));
+        this.coercers = ImmutableMap.copyOf(requireNonNull(coercers, "coercers is null"));
+        this.filterFunctions = ImmutableList.copyOf(requireNonNull(filterFunctions, "filterFunctions is null"));
+        this.outputChannels = ImmutableList.copyOf(requireNonNull(outputChannels, "outputChannels is null"));
+        this.runtimeStats = requireNonNull(runtimeStats, "runtimeStats is null");
+
+        checkArgument(
+                types.size() == fields.size() && types.size() == constantBlocks.size(),
+                "types, fields, and constantBlocks must correspond one-to-one-to-one");
+        for (int channel = 0; channel < fields.size(); channel++) {
+            checkArgument(fields.get(channel).isPresent() != constantBlocks.get(channel).isPresent(), "channel %s must be either read from the file or constant", channel);
+        }
+
+        // columns are filtered in the order they are declared, using a stable order across splits
+        this.columnFilters = new TreeMap<>(requireNonNull(tupleDomainFilters, "tupleDomainFilters is null")).entrySet().stream()
+                .map(entry -> new ColumnFilter(entry.getKey(), this.types.get(entry.getKey()), entry.getValue()))
+                .collect(toImmutableList());
+
+        this.blocks = new Block[types.size()];
+        this.coercedBlocks = new Block[types.size()];
+    }
+
+    @Override
+    public RuntimeStats getRuntimeStats()
+    {
+        return runtimeStats;
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return parquetReader.getDataSource().getReadBytes();
+    }
+
+    @Override
+    public long getCompletedPositions()
+    {
+        return completedPositions;
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return parquetReader.getDataSource().getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return closed;
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return parquetReader.getSystemMemoryUsage();
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        try {
+            while (true) {
+                batchId++;
+                batchSize = parquetReader.nextBatch();
+
+                if (closed || batchSize <= 0) {
+                    close();
+                    return null;
+                }
+
+                completedPositions += batchSize;
+                Arrays.fill(blocks, null);
+                Arrays.fill(coercedBlocks, null);
+
+                int positionCount = applyFilters();
+                if (positionCount > 0) {
+                    return getOutputPage(positionCount);
+                }
+                // no position survived, so the other columns of this batch are skipped without being decoded
+            }
+        }
+        catch (PrestoException e) {
+            closeWithSuppression(e);
+            throw e;
+        }
+        catch (RuntimeException e) {
+            closeWithSuppression(e);
+            throw new PrestoException(HIVE_CURSOR_ERROR, e);
+        }
+    }
+
+    private int applyFilters()
+    {
+        positions = ensureCapacity(positions, batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            positions[i] = i;
+        }
+
+        int positionCount = batchSize;
+        for (ColumnFilter columnFilter : columnFilters) {
+            positionCount = columnFilter.filter(getBlock(columnFilter.getChannel()), positions, positionCount);
+            if (positionCount == 0) {
+                return 0;
+            }
+        }
+
+        if (filterFunctions.isEmpty()) {
+            return positionCount;
+        }
+
+        if (errors.length < batchSize) {
+            errors = new RuntimeException[batchSize];
+        }
+        Arrays.fill(errors, 0, positionCount, null);
+        for (FilterFunction function : filterFunctions) {
+            int[] inputChannels = function.getInputChannels();
+            Block[] inputBlocks = new Block[inputChannels.length];
+            for (int i = 0; i < inputChannels.length; i++) {
+                inputBlocks[i] = getCoercedBlock(inputChannels[i]);
+            }
+            positionCount = function.filter(new Page(batchSize, inputBlocks), positions, positionCount, errors);
+            if (positionCount == 0) {
+                return 0;
+            }
+        }
+
+        // errors are only raised for the positions that passed all the filters
+        for (int i = 0; i < positionCount; i++) {
+            if (errors[i] != null) {
+                throw errors[i];
+            }
+        }
+        return positionCount;
+    }
+
+    private Page getOutputPage(int positionCount)
+    {
+        int[] outputPositions = Arrays.copyOf(positions, positionCount);
+        Block[] outputBlocks = new Block[outputChannels.size()];
+        for (int i = 0; i < outputBlocks.length; i++) {
+            int channel = outputChannels.get(i);
+            if (coercedBlocks[channel] != null) {
+                outputBlocks[i] = selectPositions(coercedBlocks[channel], outputPositions, positionCount);
+            }
+            else if (blocks[channel] != null || constantBlocks.get(channel).isPresent()) {
+                outputBlocks[i] = coerce(channel, selectPositions(getBlock(channel), outputPositions, positionCount));
+            }
+            else {
+                outputBlocks[i] = new LazyBlock(positionCount, new ParquetSelectiveBlockLoader(channel, outputPositions, positionCount));
+            }
+        }
+        return new Page(positionCount, outputBlocks);
+    }
+
+    private Block getBlock(int channel)
+    {
+        if (blocks[channel] == null) {
+            Optional<Block> constantBlock = constantBlocks.get(channel);
+            if (constantBlock.isPresent()) {
+                blocks[channel] = new RunLengthEncodedBlock(constantBlock.get(), batchSize);
+            }
+            else {
+                blocks[channel] = readBlock(fields.get(channel).get());
+            }
+        }
+        return blocks[channel];
+    }
+
+    private Block getCoercedBlock(int channel)
+    {
+        if (coercedBlocks[channel] == null) {
+            coercedBlocks[channel] = coerce(channel, getBlock(channel));
+        }
+        return coercedBlocks[channel];
+    }
+
+    private Block coerce(int channel, Block block)
+    {
+        HiveCoercer coercer = coercers.get(channel);
+        if (coercer == null) {
+            return block;
+        }
+        return coercer.apply(block);
+    }
+
+    private Block readBlock(Field field)
+    {
+        try {
+            return parquetReader.readBlock(field);
+        }
+        catch (ParquetCorruptionException e) {
+            throw new PrestoException(HIVE_BAD_DATA, e);
+        }
+        catch (IOException e) {
+            throw new PrestoException(HIVE_CURSOR_ERROR, e);
+        }
+    }
+
+    private static Block selectPositions(Block block, int[] positions, int positionCount)
+    {
+        if (positionCount == block.getPositionCount()) {
+            return block;
+        }
+        return block.getPositions(positions, 0, positionCount);
+    }
+
+    private void closeWithSuppression(Throwable throwable)
+    {
+        requireNonNull(throwable, "throwable is null");
+        try {
+            close();
+        }
+        catch (RuntimeException e) {
+            // Self-suppression not permitted
+            if (e != throwable) {
+                throwable.addSuppressed(e);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            parquetReader.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final class ParquetSelectiveBlockLoader
+            implements LazyBlockLoader<LazyBlock>
+    {
+        private final int expectedBatchId = batchId;
+        private final int channel;
+        private final int[] positions;
+        private final int positionCount;
+        private boolean loaded;
+
+        public ParquetSelectiveBlockLoader(int channel, int[] positions, int positionCount)
+        {
+            this.channel = channel;
+            this.positions = requireNonNull(positions, "positions is null");
+            this.positionCount = positionCount;
+        }
+
+        @Override
+        public final void load(LazyBlock lazyBlock)
+        {
+            if (loaded) {
+                return;
+            }
+
+            checkState(batchId == expectedBatchId);
+
+            lazyBlock.setBlock(coerce(channel, selectPositions(getBlock(channel), positions, positionCount)));
+            loaded = true;
+        }
+    }
+
+    private static final class ColumnFilter
+    {
+        private final int channel;
+        private final List<SubfieldFilter> subfieldFilters;
+
+        public ColumnFilter(int channel, Type type, Map<Subfield, TupleDomainFilter> filters)
+        {
+            this.channel = channel;
+            this.subfieldFilters = filters.entrySet().stream()
+                    .map(entry -> new SubfieldFilter(entry.getKey(), type, entry.getValue()))
+                    .collect(toImmutableList());
+        }
+
+        public int getChannel()
+        {
+            return channel;
+        }
+
+        public int filter(Block block, int[] positions, int positionCount)
+        {
+            if (block instanceof RunLengthEncodedBlock) {
+                return test(block, 0) ? positionCount : 0;
+            }
+
+            int outputPositionCount = 0;
+            for (int i = 0; i < positionCount; i++) {
+                int position = positions[i];
+                if (test(block, position)) {
+                    positions[outputPositionCount] = position;
+                    outputPositionCount++;
+                }
+            }
+            return outputPositionCount;
+        }
+
+        private boolean test(Block block, int position)
+        {
+            for (SubfieldFilter subfieldFilter : subfieldFilters) {
+                if (!subfieldFilter.test(block, position)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Tests a filter on a column or on a field nested in struct columns. A null struct on the
+     * path makes the field null.
+     */
+    private static final class SubfieldFilter
+    {
+        private final int[] fieldIndices;
+        private final Type type;
+        private final TupleDomainFilter filter;
+
+        public SubfieldFilter(Subfield subfield, Type columnType, TupleDomainFilter filter)
+        {
+            List<Subfield.PathElement> path = subfield.getPath();
+            this.fieldIndices = new int[path.size()];
+            Type type = columnType;
+            for (int i = 0; i < path.size(); i++) {
+                if (!(path.get(i) instanceof Subfield.NestedField) || !(type instanceof RowType)) {
+                    throw new PrestoException(NOT_SUPPORTED, format("Parquet reader doesn't support filter pushdown on subfield %s", subfield));
+                }
+                String name = ((Subfield.NestedField) path.get(i)).getName();
+                List<RowType.Field> rowFields = ((RowType) type).getFields();
+                int fieldIndex = -1;
+                for (int field = 0; field < rowFields.size(); field++) {
+                    if (rowFields.get(field).getName().map(fieldName -> fieldName.toLowerCase(Locale.ENGLISH).equals(name.toLowerCase(Locale.ENGLISH))).orElse(false)) {
+                        fieldIndex = field;
+                        break;
+                    }
+                }
+                if (fieldIndex < 0) {
+                    throw new PrestoException(NOT_SUPPORTED, format("Parquet reader doesn't support filter pushdown on subfield %s", subfield));
+                }
+                fieldIndices[i] = fieldIndex;
+                type = rowFields.get(fieldIndex).getType();
+            }
+            this.type = type;
+            this.filter = requireNonNull(filter, "filter is null");
+        }
+
+        public boolean test(Block block, int position)
+        {
+            for (int fieldIndex : fieldIndices) {
+                if (block.isNull(position)) {
+                    return filter.testNull();
+                }
+                block = block.getBlock(position);
+                position = fieldIndex;
+            }
+            if (block.isNull(position)) {
+                return filter.testNull();
+            }
+            return testNonNullPosition(block, position, type, filter);
+        }
+    }
+}
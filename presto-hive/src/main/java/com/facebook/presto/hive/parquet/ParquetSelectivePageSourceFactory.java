@@ -14,44 +14,119 @@
 package com.facebook.presto.hive.parquet;
 
 import com.facebook.presto.common.Subfield;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.predicate.FilterFunction;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.TypeManager;
 import com.facebook.presto.hive.BucketAdaptation;
 import com.facebook.presto.hive.EncryptionInformation;
+import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.hive.HiveCoercer;
 import com.facebook.presto.hive.HiveColumnHandle;
 import com.facebook.presto.hive.HiveFileContext;
 import com.facebook.presto.hive.HiveFileSplit;
 import com.facebook.presto.hive.HiveSelectivePageSourceFactory;
 import com.facebook.presto.hive.metastore.Storage;
+import com.facebook.presto.hive.orc.OrcSelectivePageSourceFactory.BucketAdapter;
+import com.facebook.presto.hive.orc.TupleDomainFilterCache;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.parquet.Field;
+import com.facebook.presto.parquet.ParquetDataSource;
+import com.facebook.presto.parquet.cache.ParquetMetadataSource;
+import com.facebook.presto.parquet.reader.ParquetReader;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.function.StandardFunctionResolution;
+import com.facebook.presto.spi.relation.InputReferenceExpression;
 import com.facebook.presto.spi.relation.RowExpression;
-import com.google.common.collect.ImmutableSet;
+import com.facebook.presto.spi.relation.RowExpressionService;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.google.common.collect.ImmutableList;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.crypto.InternalFileDecryptor;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
 import org.joda.time.DateTimeZone;
 
 import javax.inject.Inject;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.stream.IntStream;
 
-import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
+import static com.facebook.presto.common.Utils.nativeValueToBlock;
+import static com.facebook.presto.expressions.RowExpressionNodeInliner.replaceExpression;
+import static com.facebook.presto.hive.BaseHiveColumnHandle.ColumnType.REGULAR;
+import static com.facebook.presto.hive.HiveCommonSessionProperties.getReadNullMaskedParquetEncryptedValue;
+import static com.facebook.presto.hive.HiveCommonSessionProperties.isUseParquetColumnNames;
+import static com.facebook.presto.hive.HiveErrorCode.HIVE_PARTITION_SCHEMA_MISMATCH;
+import static com.facebook.presto.hive.HiveUtil.typedPartitionKey;
+import static com.facebook.presto.hive.orc.OrcSelectivePageSourceFactory.collectRequiredSubfields;
+import static com.facebook.presto.hive.orc.OrcSelectivePageSourceFactory.toFilterFunctions;
+import static com.facebook.presto.hive.orc.OrcSelectivePageSourceFactory.toTupleDomainFilters;
+import static com.facebook.presto.hive.parquet.HdfsParquetDataSource.buildHdfsParquetDataSource;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.PARQUET_SERDE_CLASS_NAMES;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.checkSchemaMatch;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.createDecryptor;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.createParquetReader;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactoryUtils.mapToPrestoException;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.parquet.ParquetTypeUtils.getColumnIO;
+import static com.facebook.presto.parquet.ParquetTypeUtils.getParquetTypeByName;
+import static com.facebook.presto.parquet.ParquetTypeUtils.lookupColumnByName;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.Maps.uniqueIndex;
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static org.apache.parquet.io.ColumnIOConverter.constructField;
+import static org.apache.parquet.schema.Type.Repetition.REPEATED;
 
 public class ParquetSelectivePageSourceFactory
         implements HiveSelectivePageSourceFactory
 {
-    private static final Set<String> PARQUET_SERDE_CLASS_NAMES = ImmutableSet.<String>builder()
-            .add("org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe")
-            .add("parquet.hive.serde.ParquetHiveSerDe")
-            .build();
+    private final TypeManager typeManager;
+    private final StandardFunctionResolution functionResolution;
+    private final RowExpressionService rowExpressionService;
+    private final HdfsEnvironment hdfsEnvironment;
+    private final FileFormatDataSourceStats stats;
+    private final ParquetMetadataSource parquetMetadataSource;
+    private final TupleDomainFilterCache tupleDomainFilterCache;
 
     @Inject
-    public ParquetSelectivePageSourceFactory()
+    public ParquetSelectivePageSourceFactory(
+            TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            RowExpressionService rowExpressionService,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            ParquetMetadataSource parquetMetadataSource,
+            TupleDomainFilterCache tupleDomainFilterCache)
     {
+        this.typeManager = requireNonNull(typeManager, "typeManager is null");
+        this.functionResolution = requireNonNull(functionResolution, "functionResolution is null");
+        this.rowExpressionService = requireNonNull(rowExpressionService, "rowExpressionService is null");
+        this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
+        this.stats = requireNonNull(stats, "stats is null");
+        this.parquetMetadataSource = requireNonNull(parquetMetadataSource, "parquetMetadataSource is null");
+        this.tupleDomainFilterCache = requireNonNull(tupleDomainFilterCache, "tupleDomainFilterCache is null");
     }
 
     @Override
@@ -76,6 +151,250 @@ public class ParquetSelectivePageSourceFactory
             return Optional.empty();
         }
         checkState(!appendRowNumberEnabled, "append row number is not supported for Parquet Reader");
-        throw new PrestoException(NOT_SUPPORTED, "Parquet reader doesn't support filter pushdown yet");
+
+        return Optional.of(createParquetPageSource(
+                session,
+                configuration,
+                fileSplit,
+                columns,
+                prefilledValues,
+                coercers,
+                bucketAdaptation,
+                outputColumns,
+                domainPredicate,
+                remainingPredicate,
+                hiveStorageTimeZone,
+                hiveFileContext));
+    }
+
+    private ConnectorPageSource createParquetPageSource(
+            ConnectorSession session,
+            Configuration configuration,
+            HiveFileSplit fileSplit,
+            List<HiveColumnHandle> columns,
+            Map<Integer, String> prefilledValues,
+            Map<Integer, HiveCoercer> coercers,
+            Optional<BucketAdaptation> bucketAdaptation,
+            List<Integer> outputColumns,
+            TupleDomain<Subfield> domainPredicate,
+            RowExpression remainingPredicate,
+            DateTimeZone hiveStorageTimeZone,
+            HiveFileContext hiveFileContext)
+    {
+        checkArgument(!domainPredicate.isNone(), "Unexpected NONE domain");
+
+        AggregatedMemoryContext systemMemoryContext = newSimpleAggregatedMemoryContext();
+
+        String user = session.getUser();
+        boolean useParquetColumnNames = isUseParquetColumnNames(session);
+        boolean readMaskedValue = getReadNullMaskedParquetEncryptedValue(session);
+
+        ParquetDataSource dataSource = null;
+        Path path = new Path(fileSplit.getPath());
+        try {
+            FSDataInputStream inputStream = hdfsEnvironment.getFileSystem(user, path, configuration).openFile(path, hiveFileContext);
+            // Lambda expression below requires final variable, so we define a new variable parquetDataSource.
+            final ParquetDataSource parquetDataSource = buildHdfsParquetDataSource(inputStream, path, stats);
+            dataSource = parquetDataSource;
+            Optional<InternalFileDecryptor> fileDecryptor = createDecryptor(configuration, path);
+            ParquetMetadata parquetMetadata = hdfsEnvironment.doAs(user, () -> parquetMetadataSource.getParquetMetadata(
+                    parquetDataSource,
+                    fileSplit.getFileSize(),
+                    hiveFileContext.isCacheable(),
+                    hiveFileContext.getModificationTime(),
+                    fileDecryptor,
+                    readMaskedValue).getParquetMetadata());
+            MessageType fileSchema = parquetMetadata.getFileMetaData().getSchema();
+
+            // channels are the positions of the columns in the list of columns
+            Map<Integer, Integer> channels = IntStream.range(0, columns.size())
+                    .boxed()
+                    .collect(toImmutableMap(channel -> columns.get(channel).getHiveColumnIndex(), channel -> channel));
+            Map<String, Integer> columnIndices = columns.stream()
+                    .collect(toImmutableMap(HiveColumnHandle::getName, HiveColumnHandle::getHiveColumnIndex));
+            List<Type> types = columns.stream()
+                    .map(column -> typeManager.getType(column.getTypeSignature()))
+                    .collect(toImmutableList());
+
+            Map<Integer, Map<Subfield, TupleDomainFilter>> tupleDomainFilters = toTupleDomainFilters(domainPredicate, columnIndices, coercers, tupleDomainFilterCache);
+            Map<Integer, List<Subfield>> requiredSubfields = collectRequiredSubfields(columns, outputColumns, tupleDomainFilters, remainingPredicate, columnIndices, functionResolution, rowExpressionService, session);
+
+            List<HiveColumnHandle> physicalColumns = new ArrayList<>();
+            Map<Integer, org.apache.parquet.schema.Type> parquetTypes = new HashMap<>();
+            for (int channel = 0; channel < columns.size(); channel++) {
+                HiveColumnHandle column = columns.get(channel);
+                if (column.getColumnType() != REGULAR || prefilledValues.containsKey(column.getHiveColumnIndex())) {
+                    continue;
+                }
+                Optional<org.apache.parquet.schema.Type> parquetType = getParquetType(column, types.get(channel), fileSchema, useParquetColumnNames, path);
+                if (parquetType.isPresent()) {
+                    physicalColumns.add(column);
+                    parquetTypes.put(channel, pruneType(parquetType.get(), requiredSubfields.getOrDefault(column.getHiveColumnIndex(), ImmutableList.of())));
+                }
+            }
+
+            MessageType requestedSchema = parquetTypes.values().stream()
+                    .map(type -> new MessageType(fileSchema.getName(), type))
+                    .reduce(MessageType::union)
+                    .orElse(new MessageType(fileSchema.getName(), ImmutableList.of()));
+            MessageColumnIO messageColumnIO = getColumnIO(fileSchema, requestedSchema);
+
+            // row groups are pruned using the statistics of the columns filtered in full
+            Map<String, HiveColumnHandle> physicalColumnsByName = uniqueIndex(physicalColumns, HiveColumnHandle::getName);
+            TupleDomain<HiveColumnHandle> effectivePredicate = domainPredicate
+                    .transform(subfield -> subfield.getPath().isEmpty() ? physicalColumnsByName.get(subfield.getRootName()) : null)
+                    // filter out columns with coercions to avoid type mismatch errors between column stats in the file and values domain
+                    .transform(column -> coercers.containsKey(column.getHiveColumnIndex()) ? null : column);
+
+            ParquetReader parquetReader = createParquetReader(
+                    session,
+                    fileSplit,
+                    dataSource,
+                    parquetMetadata,
+                    requestedSchema,
+                    messageColumnIO,
+                    effectivePredicate,
+                    hiveFileContext,
+                    fileDecryptor,
+                    systemMemoryContext);
+
+            ImmutableList.Builder<Optional<Field>> fields = ImmutableList.builder();
+            ImmutableList.Builder<Optional<Block>> constantBlocks = ImmutableList.builder();
+            for (int channel = 0; channel < columns.size(); channel++) {
+                HiveColumnHandle column = columns.get(channel);
+                Type type = types.get(channel);
+                Optional<Field> field = Optional.ofNullable(parquetTypes.get(channel))
+                        .flatMap(parquetType -> constructField(type, lookupColumnByName(messageColumnIO, parquetType.getName())));
+                fields.add(field);
+                if (field.isPresent()) {
+                    constantBlocks.add(Optional.empty());
+                }
+                else if (prefilledValues.containsKey(column.getHiveColumnIndex())) {
+                    Object value = typedPartitionKey(prefilledValues.get(column.getHiveColumnIndex()), type, column.getName(), hiveStorageTimeZone);
+                    constantBlocks.add(Optional.of(nativeValueToBlock(type, value)));
+                }
+                else {
+                    constantBlocks.add(Optional.of(nativeValueToBlock(type, null)));
+                }
+            }
+
+            // use column types from the current table schema; these types might be different from this partition's schema
+            Map<VariableReferenceExpression, InputReferenceExpression> variableToInput = IntStream.range(0, columns.size())
+                    .boxed()
+                    .collect(toImmutableMap(
+                            channel -> new VariableReferenceExpression(Optional.empty(), columns.get(channel).getName(), getColumnTypeFromTableSchema(coercers, columns.get(channel), types.get(channel))),
+                            channel -> new InputReferenceExpression(Optional.empty(), channel, getColumnTypeFromTableSchema(coercers, columns.get(channel), types.get(channel)))));
+
+            Optional<BucketAdapter> bucketAdapter = bucketAdaptation.map(adaptation -> new BucketAdapter(
+                    Arrays.stream(adaptation.getBucketColumnIndices())
+                            .map(channels::get)
+                            .toArray(),
+                    adaptation.getBucketColumnHiveTypes(),
+                    adaptation.getTableBucketCount(),
+                    adaptation.getPartitionBucketCount(),
+                    adaptation.getBucketToKeep()));
+
+            List<FilterFunction> filterFunctions = toFilterFunctions(replaceExpression(remainingPredicate, variableToInput), bucketAdapter, session, rowExpressionService.getDeterminismEvaluator(), rowExpressionService.getPredicateCompiler());
+
+            return new ParquetSelectivePageSource(
+                    parquetReader,
+                    types,
+                    fields.build(),
+                    constantBlocks.build(),
+                    coercers.entrySet().stream()
+                            .collect(toImmutableMap(entry -> channels.get(entry.getKey()), Map.Entry::getValue)),
+                    tupleDomainFilters.entrySet().stream()
+                            .collect(toImmutableMap(entry -> channels.get(entry.getKey()), Map.Entry::getValue)),
+                    filterFunctions,
+                    outputColumns.stream()
+                            .map(channels::get)
+                            .collect(toImmutableList()),
+                    hiveFileContext.getStats());
+        }
+        catch (Exception e) {
+            try {
+                if (dataSource != null) {
+                    dataSource.close();
+                }
+            }
+            catch (IOException ignored) {
+            }
+            throw mapToPrestoException(e, path, fileSplit);
+        }
+    }
+
+    private static Type getColumnTypeFromTableSchema(Map<Integer, HiveCoercer> coercers, HiveColumnHandle column, Type type)
+    {
+        HiveCoercer coercer = coercers.get(column.getHiveColumnIndex());
+        return coercer != null ? coercer.getToType() : type;
+    }
+
+    private static Optional<org.apache.parquet.schema.Type> getParquetType(HiveColumnHandle column, Type type, MessageType fileSchema, boolean useParquetColumnNames, Path path)
+    {
+        org.apache.parquet.schema.Type parquetType = null;
+        if (useParquetColumnNames) {
+            parquetType = getParquetTypeByName(column.getName(), fileSchema);
+        }
+        else if (column.getHiveColumnIndex() < fileSchema.getFieldCount()) {
+            parquetType = fileSchema.getType(column.getHiveColumnIndex());
+        }
+
+        if (parquetType == null) {
+            return Optional.empty();
+        }
+        if (!checkSchemaMatch(parquetType, type)) {
+            throw new PrestoException(HIVE_PARTITION_SCHEMA_MISMATCH, format("The column %s is declared as type %s, but the Parquet file (%s) declares the column as type %s",
+                    column.getName(),
+                    column.getHiveType(),
+                    path,
+                    parquetType));
+        }
+        return Optional.of(parquetType);
+    }
+
+    /**
+     * Removes the fields of struct columns that are neither projected nor filtered on.
+     * Lists and maps are read in full.
+     */
+    private static org.apache.parquet.schema.Type pruneType(org.apache.parquet.schema.Type type, List<Subfield> requiredSubfields)
+    {
+        return pruneType(type, requiredSubfields.stream()
+                .map(Subfield::getPath)
+                .collect(toImmutableList()));
+    }
+
+    private static org.apache.parquet.schema.Type pruneType(org.apache.parquet.schema.Type type, Iterable<List<Subfield.PathElement>> paths)
+    {
+        if (type.isPrimitive() || type.isRepetition(REPEATED) || type.getOriginalType() != null) {
+            return type;
+        }
+
+        Map<String, List<List<Subfield.PathElement>>> pathsByField = new LinkedHashMap<>();
+        for (List<Subfield.PathElement> path : paths) {
+            if (path.isEmpty() || !(path.get(0) instanceof Subfield.NestedField)) {
+                // entire struct is required
+                return type;
+            }
+            String name = ((Subfield.NestedField) path.get(0)).getName().toLowerCase(ENGLISH);
+            pathsByField.computeIfAbsent(name, key -> new ArrayList<>()).add(path.subList(1, path.size()));
+        }
+        if (pathsByField.isEmpty()) {
+            return type;
+        }
+
+        GroupType groupType = type.asGroupType();
+        ImmutableList.Builder<org.apache.parquet.schema.Type> prunedFields = ImmutableList.builder();
+        for (org.apache.parquet.schema.Type field : groupType.getFields()) {
+            List<List<Subfield.PathElement>> fieldPaths = pathsByField.get(field.getName().toLowerCase(ENGLISH));
+            if (fieldPaths != null) {
+                prunedFields.add(pruneType(field, fieldPaths));
+            }
+        }
+        List<org.apache.parquet.schema.Type> fields = prunedFields.build();
+        if (fields.isEmpty()) {
+            // none of the required fields are in the file
+            return type;
+        }
+        return groupType.withNewFields(fields);
     }
 }
@@ -14,14 +14,23 @@
 package com.facebook.presto.hive;
 
 import com.facebook.presto.cache.CacheConfig;
+import com.facebook.presto.hive.datasink.OutputStreamDataSinkFactory;
+import com.facebook.presto.orc.OrcEncoding;
 import com.facebook.presto.orc.OrcWriterOptions;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.testing.TestingConnectorSession;
 import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.Test;
 
 import java.util.Properties;
 
+import static com.facebook.presto.hive.HiveDwrfEncryptionProvider.NO_ENCRYPTION;
+import static com.facebook.presto.hive.HiveErrorCode.HIVE_INVALID_METADATA;
+import static com.facebook.presto.hive.HiveMetadata.ORC_BLOOM_FILTER_COLUMNS_KEY;
+import static com.facebook.presto.hive.HiveMetadata.ORC_BLOOM_FILTER_FPP_KEY;
+import static com.facebook.presto.hive.HiveTestUtils.FUNCTION_AND_TYPE_MANAGER;
+import static com.facebook.presto.hive.HiveTestUtils.HDFS_ENVIRONMENT;
 import static com.facebook.presto.hive.HiveTestUtils.HIVE_CLIENT_CONFIG;
 import static com.facebook.presto.hive.HiveTestUtils.METASTORE_CLIENT_CONFIG;
 import static com.facebook.presto.hive.HiveTestUtils.getDefaultOrcFileWriterFactory;
@@ -29,10 +38,16 @@ import static com.facebook.presto.hive.OrcFileWriterFactory.ORC_FLAT_MAP_COLUMN_
 import static com.facebook.presto.hive.OrcFileWriterFactory.ORC_FLAT_MAP_KEY_LIMIT_KEY;
 import static com.facebook.presto.hive.OrcFileWriterFactory.ORC_FLAT_MAP_WRITER_ENABLED_KEY;
 import static com.facebook.presto.hive.OrcFileWriterFactory.ORC_MAP_STATISTICS_KEY;
+import static com.facebook.presto.orc.OrcEncoding.DWRF;
+import static com.facebook.presto.orc.OrcEncoding.ORC;
+import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_BLOOM_FILTER_FPP;
 import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_MAX_FLATTENED_MAP_KEY_COUNT;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.apache.hadoop.hive.metastore.api.hive_metastoreConstants.META_TABLE_COLUMNS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TesOrcFileWriterFactory
 {
@@ -88,7 +103,81 @@ public class TesOrcFileWriterFactory
         assertTrue(orcWriterOptions.isMapStatisticsEnabled());
     }
 
+    @Test
+    public void testDefaultBloomFilterOptions()
+    {
+        OrcWriterOptions orcWriterOptions = getOrcWriterOptions(new Properties(), ORC);
+        assertEquals(orcWriterOptions.getBloomFilterColumns().size(), 0);
+        assertEquals(orcWriterOptions.getBloomFilterFpp(), DEFAULT_BLOOM_FILTER_FPP);
+    }
+
+    @Test
+    public void testBloomFilterColumns()
+    {
+        Properties schema = new Properties();
+        schema.setProperty(META_TABLE_COLUMNS, "a,b,c,d");
+        schema.setProperty(ORC_BLOOM_FILTER_COLUMNS_KEY, "b, D,dropped");
+        schema.setProperty(ORC_BLOOM_FILTER_FPP_KEY, "0.01");
+
+        OrcWriterOptions orcWriterOptions = getOrcWriterOptions(schema, ORC);
+        assertEquals(orcWriterOptions.getBloomFilterColumns(), ImmutableSet.of(1, 3));
+        assertEquals(orcWriterOptions.getBloomFilterFpp(), 0.01);
+
+        // DWRF does not support bloom filters
+        orcWriterOptions = getOrcWriterOptions(schema, DWRF);
+        assertEquals(orcWriterOptions.getBloomFilterColumns().size(), 0);
+    }
+
+    @Test
+    public void testInvalidBloomFilterFpp()
+    {
+        for (String fpp : new String[] {"0", "1", "-0.5", "1.5", "NaN", "abc"}) {
+            Properties schema = new Properties();
+            schema.setProperty(ORC_BLOOM_FILTER_FPP_KEY, fpp);
+            try {
+                getOrcWriterOptions(schema, ORC);
+                fail("expected exception for fpp " + fpp);
+            }
+            catch (PrestoException e) {
+                assertEquals(e.getErrorCode(), HIVE_INVALID_METADATA.toErrorCode());
+            }
+        }
+    }
+
+    @Test
+    public void testColumnEncodingParallelism()
+    {
+        OrcFileWriterConfig orcFileWriterConfig = new OrcFileWriterConfig()
+                .setParallelColumnEncodingEnabled(true)
+                .setColumnEncodingThreads(5);
+        OrcFileWriterFactory orcFileWriterFactory = new OrcFileWriterFactory(
+                HDFS_ENVIRONMENT,
+                new OutputStreamDataSinkFactory(),
+                FUNCTION_AND_TYPE_MANAGER,
+                new NodeVersion("test_version"),
+                HIVE_CLIENT_CONFIG,
+                new FileFormatDataSourceStats(),
+                orcFileWriterConfig,
+                NO_ENCRYPTION,
+                newDirectExecutorService());
+        HiveSessionProperties sessionProperties = new HiveSessionProperties(
+                new HiveClientConfig(),
+                orcFileWriterConfig,
+                new ParquetFileWriterConfig(),
+                new CacheConfig());
+        ConnectorSession session = new TestingConnectorSession(sessionProperties.getSessionProperties());
+
+        OrcWriterOptions orcWriterOptions = orcFileWriterFactory.buildOrcWriterOptions(session, new Properties(), ORC);
+        assertTrue(orcWriterOptions.getColumnEncodingExecutor().isPresent());
+        assertEquals(orcWriterOptions.getColumnEncodingParallelism(), 5);
+    }
+
     private static OrcWriterOptions getOrcWriterOptions(Properties serDe)
+    {
+        return getOrcWriterOptions(serDe, DWRF);
+    }
+
+    private static OrcWriterOptions getOrcWriterOptions(Properties serDe, OrcEncoding orcEncoding)
     {
         OrcFileWriterConfig orcFileWriterConfig = new OrcFileWriterConfig();
         orcFileWriterConfig.setFlatMapWriterEnabled(true);
@@ -99,6 +188,6 @@ public class TesOrcFileWriterFactory
                 new ParquetFileWriterConfig(),
                 new CacheConfig());
         ConnectorSession session = new TestingConnectorSession(sessionProperties.getSessionProperties());
-        return orcFileWriterFactory.buildOrcWriterOptions(session, serDe);
+        return orcFileWriterFactory.buildOrcWriterOptions(session, serDe, orcEncoding);
     }
 }
@@ -86,6 +86,9 @@ public class TestHiveClientConfig
                 .setUseOrcColumnNames(false)
                 .setAssumeCanonicalPartitionKeys(false)
                 .setOrcDefaultBloomFilterFpp(0.05)
+                .setOrcStripeReadAheadEnabled(false)
+                .setOrcMaxStripeReadAheadSize(new DataSize(32, Unit.MEGABYTE))
+                .setOrcStripeReadAheadThreads(32)
                 .setRcfileOptimizedWriterEnabled(true)
                 .setRcfileWriterValidate(false)
                 .setHdfsAuthenticationType(HdfsAuthenticationType.NONE)
@@ -209,6 +212,9 @@ public class TestHiveClientConfig
                 .put("hive.text.max-line-length", "13MB")
                 .put("hive.orc.use-column-names", "true")
                 .put("hive.orc.default-bloom-filter-fpp", "0.96")
+                .put("hive.orc.stripe-read-ahead-enabled", "true")
+                .put("hive.orc.max-stripe-read-ahead-size", "8MB")
+                .put("hive.orc.stripe-read-ahead-threads", "4")
                 .put("hive.rcfile-optimized-writer.enabled", "false")
                 .put("hive.rcfile.writer.validate", "true")
                 .put("hive.hdfs.authentication.type", "KERBEROS")
@@ -329,6 +335,9 @@ public class TestHiveClientConfig
                 .setUseOrcColumnNames(true)
                 .setAssumeCanonicalPartitionKeys(true)
                 .setOrcDefaultBloomFilterFpp(0.96)
+                .setOrcStripeReadAheadEnabled(true)
+                .setOrcMaxStripeReadAheadSize(new DataSize(8, Unit.MEGABYTE))
+                .setOrcStripeReadAheadThreads(4)
                 .setRcfileOptimizedWriterEnabled(false)
                 .setRcfileWriterValidate(true)
                 .setHdfsAuthenticationType(HdfsAuthenticationType.KERBEROS)
@@ -5662,7 +5662,7 @@ public class TestHiveIntegrationSmokeTest
     }
 
     @Test
-    public void testParquetSelectivePageSourceFails()
+    public void testParquetSelectivePageSource()
     {
         assertUpdate("CREATE TABLE test_parquet_filter_pushdoown (a BIGINT, b BOOLEAN) WITH (format = 'parquet')");
         assertUpdate(getSession(), "INSERT INTO test_parquet_filter_pushdoown VALUES (1, true)", 1);
@@ -5687,9 +5687,43 @@ public class TestHiveIntegrationSmokeTest
                 .setCatalogSessionProperty("hive", "pushdown_filter_enabled", "true")
                 .setCatalogSessionProperty("hive", "parquet_pushdown_filter_enabled", "true")
                 .build();
-        assertQueryFails(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown", "Parquet reader doesn't support filter pushdown yet");
-        assertQueryFails(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = true", "Parquet reader doesn't support filter pushdown yet");
-        assertQueryFails(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = false", "Parquet reader doesn't support filter pushdown yet");
+        assertQuery(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown", "select 1");
+        assertQuery(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = true", "select 1");
+        assertQueryReturnsEmptyResult(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = false");
+
+        assertUpdate("DROP TABLE test_parquet_filter_pushdoown");
+    }
+
+    @Test
+    public void testParquetSelectivePageSourceFilters()
+    {
+        Session parquetFilterPushdownSession = Session.builder(getSession())
+                .setCatalogSessionProperty("hive", "pushdown_filter_enabled", "true")
+                .setCatalogSessionProperty("hive", "parquet_pushdown_filter_enabled", "true")
+                .build();
+
+        assertUpdate(
+                "CREATE TABLE test_parquet_selective_filters (a BIGINT, b VARCHAR, c ROW(x BIGINT, y VARCHAR), ds VARCHAR) WITH (format = 'parquet', partitioned_by = ARRAY['ds'])");
+        assertUpdate(
+                "INSERT INTO test_parquet_selective_filters " +
+                        "SELECT orderkey, orderstatus, CAST(ROW(custkey, orderpriority) AS ROW(x BIGINT, y VARCHAR)), if(orderkey % 2 = 0, 'even', 'odd') FROM orders",
+                "SELECT count(*) FROM orders");
+
+        // range filters
+        assertQuery(parquetFilterPushdownSession, "SELECT a, b FROM test_parquet_selective_filters WHERE a BETWEEN 100 AND 200", "SELECT orderkey, orderstatus FROM orders WHERE orderkey BETWEEN 100 AND 200");
+        assertQuery(parquetFilterPushdownSession, "SELECT a FROM test_parquet_selective_filters WHERE b = 'F' AND a < 1000", "SELECT orderkey FROM orders WHERE orderstatus = 'F' AND orderkey < 1000");
+        assertQuery(parquetFilterPushdownSession, "SELECT count(*) FROM test_parquet_selective_filters WHERE b IS NULL", "SELECT 0");
+
+        // filters on struct fields and projections of struct fields
+        assertQuery(parquetFilterPushdownSession, "SELECT a, c.y FROM test_parquet_selective_filters WHERE c.x = 370", "SELECT orderkey, orderpriority FROM orders WHERE custkey = 370");
+        assertQuery(parquetFilterPushdownSession, "SELECT c.x FROM test_parquet_selective_filters WHERE c.y = '1-URGENT' AND a < 500", "SELECT custkey FROM orders WHERE orderpriority = '1-URGENT' AND orderkey < 500");
+
+        // remaining predicate and partition keys
+        assertQuery(parquetFilterPushdownSession, "SELECT a, ds FROM test_parquet_selective_filters WHERE a % 7 = c.x % 5", "SELECT orderkey, if(orderkey % 2 = 0, 'even', 'odd') FROM orders WHERE orderkey % 7 = custkey % 5");
+        assertQuery(parquetFilterPushdownSession, "SELECT a FROM test_parquet_selective_filters WHERE ds = 'even' AND a < 100", "SELECT orderkey FROM orders WHERE orderkey % 2 = 0 AND orderkey < 100");
+        assertQueryReturnsEmptyResult(parquetFilterPushdownSession, "SELECT a FROM test_parquet_selective_filters WHERE a < 0");
+
+        assertUpdate("DROP TABLE test_parquet_selective_filters");
     }
 
     private void testPageFileCompression(String compression)
@@ -14,19 +14,26 @@
 package com.facebook.presto.hive;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.operator.MergeJoinOperator;
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.operator.OrderByOperator;
+import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.plan.JoinType;
 import com.facebook.presto.sql.planner.assertions.PlanMatchPattern;
 import com.facebook.presto.testing.QueryRunner;
 import com.facebook.presto.tests.AbstractTestQueryFramework;
+import com.facebook.presto.tests.DistributedQueryRunner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.facebook.presto.SystemSessionProperties.GROUPED_EXECUTION;
 import static com.facebook.presto.SystemSessionProperties.PREFER_MERGE_JOIN_FOR_SORTED_INPUTS;
+import static com.facebook.presto.SystemSessionProperties.TASK_CONCURRENCY;
 import static com.facebook.presto.hive.HiveQueryRunner.HIVE_CATALOG;
 import static com.facebook.presto.hive.HiveSessionProperties.ORDER_BASED_EXECUTION_ENABLED;
 import static com.facebook.presto.spi.plan.JoinDistributionType.PARTITIONED;
@@ -38,10 +45,13 @@ import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTre
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.equiJoinClause;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.mergeJoin;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static io.airlift.tpch.TpchTable.CUSTOMER;
 import static io.airlift.tpch.TpchTable.LINE_ITEM;
 import static io.airlift.tpch.TpchTable.NATION;
 import static io.airlift.tpch.TpchTable.ORDERS;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestMergeJoinPlan
         extends AbstractTestQueryFramework
@@ -298,6 +308,73 @@ public class TestMergeJoinPlan
         }
     }
 
+    @Test
+    public void testTaskConcurrency()
+    {
+        QueryRunner queryRunner = getQueryRunner();
+
+        try {
+            queryRunner.execute("CREATE TABLE test_join_customer_task_concurrency WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.customer LIMIT 1000");
+
+            queryRunner.execute("CREATE TABLE test_join_order_task_concurrency WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.\"orders\" LIMIT 1000");
+
+            // Task concurrency does not change how the sorted bucketed scans feed the merge join
+            Session session = Session.builder(mergeJoinEnabled())
+                    .setSystemProperty(TASK_CONCURRENCY, "4")
+                    .build();
+            String query = "select * from test_join_customer_task_concurrency join test_join_order_task_concurrency " +
+                    "on test_join_customer_task_concurrency.custkey = test_join_order_task_concurrency.custkey";
+            assertPlan(
+                    session,
+                    query,
+                    joinPlan("test_join_customer_task_concurrency", "test_join_order_task_concurrency", ImmutableList.of("custkey"), ImmutableList.of("custkey"), INNER, true));
+            assertQueryWithSameQueryRunner(session, query, groupedExecutionDisabled());
+        }
+        finally {
+            queryRunner.execute("DROP TABLE IF EXISTS test_join_customer_task_concurrency");
+            queryRunner.execute("DROP TABLE IF EXISTS test_join_order_task_concurrency");
+        }
+    }
+
+    @Test
+    public void testNoSortUnderMergeJoin()
+    {
+        DistributedQueryRunner queryRunner = getDistributedQueryRunner();
+
+        try {
+            queryRunner.execute("CREATE TABLE test_join_customer_no_sort WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.customer LIMIT 1000");
+
+            queryRunner.execute("CREATE TABLE test_join_order_no_sort WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.\"orders\" LIMIT 1000");
+
+            // The scans are already sorted on the join keys, so they must stream into the merge join without being sorted again
+            QueryId queryId = queryRunner.executeWithQueryId(
+                    mergeJoinEnabled(),
+                    "select * from test_join_customer_no_sort join test_join_order_no_sort on test_join_customer_no_sort.custkey = test_join_order_no_sort.custkey")
+                    .getQueryId();
+            Set<String> operatorTypes = queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(queryId).getQueryStats().getOperatorSummaries().stream()
+                    .map(OperatorStats::getOperatorType)
+                    .collect(toImmutableSet());
+            assertTrue(operatorTypes.contains(MergeJoinOperator.class.getSimpleName()));
+            assertFalse(operatorTypes.contains(OrderByOperator.class.getSimpleName()));
+        }
+        finally {
+            queryRunner.execute("DROP TABLE IF EXISTS test_join_customer_no_sort");
+            queryRunner.execute("DROP TABLE IF EXISTS test_join_order_no_sort");
+        }
+    }
+
     private Session groupedExecutionDisabled()
     {
         return Session.builder(getQueryRunner().getDefaultSession())
@@ -18,9 +18,11 @@ import com.facebook.presto.common.plan.PlanCanonicalizationStrategy;
 import com.facebook.presto.execution.QueryManagerConfig;
 import com.facebook.presto.execution.QueryManagerConfig.ExchangeMaterializationStrategy;
 import com.facebook.presto.execution.TaskManagerConfig;
+import com.facebook.presto.execution.buffer.ExchangeCompressionCodec;
 import com.facebook.presto.execution.scheduler.NodeSchedulerConfig;
 import com.facebook.presto.execution.scheduler.NodeSchedulerConfig.ResourceAwareSchedulingStrategy;
 import com.facebook.presto.execution.warnings.WarningCollectorConfig;
+import com.facebook.presto.geospatial.rtree.Flatbush;
 import com.facebook.presto.memory.MemoryManagerConfig;
 import com.facebook.presto.memory.NodeMemoryConfig;
 import com.facebook.presto.server.security.SecurityConfig;
@@ -135,6 +137,8 @@ public final class SystemSessionProperties
     public static final String PLAN_WITH_TABLE_NODE_PARTITIONING = "plan_with_table_node_partitioning";
     public static final String SPATIAL_JOIN = "spatial_join";
     public static final String SPATIAL_PARTITIONING_TABLE_NAME = "spatial_partitioning_table_name";
+    public static final String SPATIAL_JOIN_INDEX_PACKING = "spatial_join_index_packing";
+    public static final String SPATIAL_JOIN_PARALLEL_INDEX_BUILD_ENABLED = "spatial_join_parallel_index_build_enabled";
     public static final String COLOCATED_JOIN = "colocated_join";
     public static final String CONCURRENT_LIFESPANS_PER_NODE = "concurrent_lifespans_per_task";
     public static final String REORDER_JOINS = "reorder_joins";
@@ -172,6 +176,8 @@ public final class SystemSessionProperties
     public static final String RUNTIME_OPTIMIZER_ENABLED = "runtime_optimizer_enabled";
     public static final String EXCHANGE_COMPRESSION = "exchange_compression";
     public static final String EXCHANGE_CHECKSUM = "exchange_checksum";
+    public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
+    public static final String EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED = "exchange_adaptive_compression_enabled";
     public static final String LEGACY_TIMESTAMP = "legacy_timestamp";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_JOIN = "push_aggregation_through_join";
@@ -217,16 +223,20 @@ public final class SystemSessionProperties
     public static final String PARTITIONING_PRECISION_STRATEGY = "partitioning_precision_strategy";
     public static final String EXPERIMENTAL_FUNCTIONS_ENABLED = "experimental_functions_enabled";
     public static final String OPTIMIZE_COMMON_SUB_EXPRESSIONS = "optimize_common_sub_expressions";
+    public static final String ADAPTIVE_FILTER_REORDERING_ENABLED = "adaptive_filter_reordering_enabled";
     public static final String PREFER_DISTRIBUTED_UNION = "prefer_distributed_union";
     public static final String WARNING_HANDLING = "warning_handling";
     public static final String OPTIMIZE_NULLS_IN_JOINS = "optimize_nulls_in_join";
     public static final String OPTIMIZE_PAYLOAD_JOINS = "optimize_payload_joins";
+    public static final String JOIN_BUILD_OUTPUT_BY_REFERENCE_ENABLED = "join_build_output_by_reference_enabled";
+    public static final String FLAT_GROUPED_TOP_N_ENABLED = "flat_grouped_top_n_enabled";
     public static final String TARGET_RESULT_SIZE = "target_result_size";
     public static final String PUSHDOWN_DEREFERENCE_ENABLED = "pushdown_dereference_enabled";
     public static final String ENABLE_DYNAMIC_FILTERING = "enable_dynamic_filtering";
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_ROW_COUNT = "dynamic_filtering_max_per_driver_row_count";
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_SIZE = "dynamic_filtering_max_per_driver_size";
     public static final String DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER = "dynamic_filtering_range_row_limit_per_driver";
+    public static final String DYNAMIC_FILTERING_BLOOM_FILTER_SIZE = "dynamic_filtering_bloom_filter_size";
     public static final String FRAGMENT_RESULT_CACHING_ENABLED = "fragment_result_caching_enabled";
     public static final String INLINE_SQL_FUNCTIONS = "inline_sql_functions";
     public static final String REMOTE_FUNCTIONS_ENABLED = "remote_functions_enabled";
@@ -259,6 +269,7 @@ public final class SystemSessionProperties
     public static final String DISTRIBUTED_TRACING_MODE = "distributed_tracing_mode";
     public static final String VERBOSE_RUNTIME_STATS_ENABLED = "verbose_runtime_stats_enabled";
     public static final String OPTIMIZERS_TO_ENABLE_VERBOSE_RUNTIME_STATS = "optimizers_to_enable_verbose_runtime_stats";
+    public static final String OPERATOR_PROFILING_ENABLED = "operator_profiling_enabled";
     public static final String VERBOSE_OPTIMIZER_INFO_ENABLED = "verbose_optimizer_info_enabled";
     public static final String VERBOSE_OPTIMIZER_RESULTS = "verbose_optimizer_results";
     public static final String STREAMING_FOR_PARTIAL_AGGREGATION_ENABLED = "streaming_for_partial_aggregation_enabled";
@@ -753,6 +764,23 @@ public final class SystemSessionProperties
                         "Name of the table containing spatial partitioning scheme",
                         null,
                         false),
+                new PropertyMetadata<>(
+                        SPATIAL_JOIN_INDEX_PACKING,
+                        format("How geometries are grouped into the leaves of the spatial join index. Options are %s",
+                                Stream.of(Flatbush.Packing.values())
+                                        .map(Flatbush.Packing::name)
+                                        .collect(joining(","))),
+                        VARCHAR,
+                        Flatbush.Packing.class,
+                        featuresConfig.getSpatialJoinIndexPacking(),
+                        false,
+                        value -> Flatbush.Packing.valueOf(((String) value).toUpperCase()),
+                        Flatbush.Packing::name),
+                booleanProperty(
+                        SPATIAL_JOIN_PARALLEL_INDEX_BUILD_ENABLED,
+                        "Deserialize and prepare the build side geometries of a spatial join in parallel",
+                        featuresConfig.isSpatialJoinParallelIndexBuildEnabled(),
+                        false),
                 integerProperty(
                         CONCURRENT_LIFESPANS_PER_NODE,
                         "Experimental: Run a fixed number of groups concurrently for eligible JOINs",
@@ -920,6 +948,23 @@ public final class SystemSessionProperties
                         "Enable checksum in exchanges",
                         featuresConfig.isExchangeChecksumEnabled(),
                         false),
+                new PropertyMetadata<>(
+                        EXCHANGE_COMPRESSION_CODEC,
+                        format("Codec used to compress exchange pages when exchange compression is enabled. Options are %s",
+                                Stream.of(ExchangeCompressionCodec.values())
+                                        .map(ExchangeCompressionCodec::name)
+                                        .collect(joining(","))),
+                        VARCHAR,
+                        ExchangeCompressionCodec.class,
+                        featuresConfig.getExchangeCompressionCodec(),
+                        false,
+                        value -> ExchangeCompressionCodec.valueOf(((String) value).toUpperCase()),
+                        ExchangeCompressionCodec::name),
+                booleanProperty(
+                        EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED,
+                        "Stop compressing exchange pages that do not shrink",
+                        featuresConfig.isExchangeAdaptiveCompressionEnabled(),
+                        false),
                 booleanProperty(
                         LEGACY_TIMESTAMP,
                         "Use legacy TIME & TIMESTAMP semantics (warning: this will be removed)",
@@ -1199,6 +1244,11 @@ public final class SystemSessionProperties
                         "Extract and compute common sub-expressions in projection",
                         featuresConfig.isOptimizeCommonSubExpressions(),
                         false),
+                booleanProperty(
+                        ADAPTIVE_FILTER_REORDERING_ENABLED,
+                        "Reorder the conjuncts of compiled filters at runtime by measured selectivity and cost",
+                        featuresConfig.isAdaptiveFilterReorderingEnabled(),
+                        false),
                 booleanProperty(
                         PREFER_DISTRIBUTED_UNION,
                         "Prefer distributed union",
@@ -1226,6 +1276,16 @@ public final class SystemSessionProperties
                         "Optimize joins with payload columns",
                         featuresConfig.isOptimizePayloadJoins(),
                         false),
+                booleanProperty(
+                        JOIN_BUILD_OUTPUT_BY_REFERENCE_ENABLED,
+                        "Reference the build side rows of hash joins by address, and avoid copying them when the output can point to the build pages",
+                        featuresConfig.isJoinBuildOutputByReferenceEnabled(),
+                        false),
+                booleanProperty(
+                        FLAT_GROUPED_TOP_N_ENABLED,
+                        "Keep the top N rows of each group of a top N row number in primitive arrays instead of in per row objects, when N is small",
+                        featuresConfig.isFlatGroupedTopNEnabled(),
+                        false),
                 new PropertyMetadata<>(
                         TARGET_RESULT_SIZE,
                         "Target result size for results being streamed from coordinator",
@@ -1259,6 +1319,15 @@ public final class SystemSessionProperties
                         "Maximum number of build-side rows per driver up to which min and max values will be collected for dynamic filtering",
                         featuresConfig.getDynamicFilteringRangeRowLimitPerDriver(),
                         false),
+                new PropertyMetadata<>(
+                        DYNAMIC_FILTERING_BLOOM_FILTER_SIZE,
+                        "Size of the Bloom filter collected per build-side driver and join key for dynamic filtering, 0 to disable Bloom filters",
+                        VARCHAR,
+                        DataSize.class,
+                        featuresConfig.getDynamicFilteringBloomFilterSize(),
+                        false,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
                 booleanProperty(
                         FRAGMENT_RESULT_CACHING_ENABLED,
                         "Enable fragment result caching and read/write leaf fragment result pages from/to cache when applicable",
@@ -1406,6 +1475,11 @@ public final class SystemSessionProperties
                         "Optimizers to enable verbose runtime stats",
                         "",
                         false),
+                booleanProperty(
+                        OPERATOR_PROFILING_ENABLED,
+                        "Track CPU time and allocated bytes of every operator and sample the stacks of driver threads",
+                        false,
+                        false),
                 booleanProperty(
                         VERBOSE_OPTIMIZER_INFO_ENABLED,
                         "Enable logging of verbose information about applied optimizations",
@@ -2222,6 +2296,16 @@ public final class SystemSessionProperties
         return Optional.ofNullable(session.getSystemProperty(SPATIAL_PARTITIONING_TABLE_NAME, String.class));
     }
 
+    public static Flatbush.Packing getSpatialJoinIndexPacking(Session session)
+    {
+        return session.getSystemProperty(SPATIAL_JOIN_INDEX_PACKING, Flatbush.Packing.class);
+    }
+
+    public static boolean isSpatialJoinParallelIndexBuildEnabled(Session session)
+    {
+        return session.getSystemProperty(SPATIAL_JOIN_PARALLEL_INDEX_BUILD_ENABLED, Boolean.class);
+    }
+
     public static OptionalInt getConcurrentLifespansPerNode(Session session)
     {
         Integer result = session.getSystemProperty(CONCURRENT_LIFESPANS_PER_NODE, Integer.class);
@@ -2408,6 +2492,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_CHECKSUM, Boolean.class);
     }
 
+    public static ExchangeCompressionCodec getExchangeCompressionCodec(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_CODEC, ExchangeCompressionCodec.class);
+    }
+
+    public static boolean isExchangeAdaptiveCompressionEnabled(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED, Boolean.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -2697,6 +2791,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(OPTIMIZE_COMMON_SUB_EXPRESSIONS, Boolean.class);
     }
 
+    public static boolean isAdaptiveFilterReorderingEnabled(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_FILTER_REORDERING_ENABLED, Boolean.class);
+    }
+
     public static boolean isPreferDistributedUnion(Session session)
     {
         return session.getSystemProperty(PREFER_DISTRIBUTED_UNION, Boolean.class);
@@ -2712,6 +2811,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(OPTIMIZE_PAYLOAD_JOINS, Boolean.class);
     }
 
+    public static boolean isJoinBuildOutputByReferenceEnabled(Session session)
+    {
+        return session.getSystemProperty(JOIN_BUILD_OUTPUT_BY_REFERENCE_ENABLED, Boolean.class);
+    }
+
+    public static boolean isFlatGroupedTopNEnabled(Session session)
+    {
+        return session.getSystemProperty(FLAT_GROUPED_TOP_N_ENABLED, Boolean.class);
+    }
+
     public static JoinNotNullInferenceStrategy getNotNullInferenceStrategy(Session session)
     {
         if (session.getSystemProperty(OPTIMIZE_NULLS_IN_JOINS, Boolean.class)) {
@@ -2745,6 +2854,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER, Integer.class);
     }
 
+    public static DataSize getDynamicFilteringBloomFilterSize(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_BLOOM_FILTER_SIZE, DataSize.class);
+    }
+
     public static boolean isFragmentResultCachingEnabled(Session session)
     {
         return session.getSystemProperty(FRAGMENT_RESULT_CACHING_ENABLED, Boolean.class);
@@ -2855,6 +2969,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(OPTIMIZERS_TO_ENABLE_VERBOSE_RUNTIME_STATS, String.class);
     }
 
+    public static boolean isOperatorProfilingEnabled(Session session)
+    {
+        return session.getSystemProperty(OPERATOR_PROFILING_ENABLED, Boolean.class);
+    }
+
     public static boolean isVerboseOptimizerResults(Session session)
     {
         return session.getSystemProperty(VERBOSE_OPTIMIZER_RESULTS, VerboseOptimizerResultsProperty.class).isEnabled();
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.stats.CounterStat;
+import com.facebook.presto.memory.VoidTraversingQueryContextVisitor;
+import com.facebook.presto.operator.DriverContext;
+import com.facebook.presto.operator.TaskContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.SystemSessionProperties.isOperatorProfilingEnabled;
+import static java.lang.Thread.State.RUNNABLE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Periodically samples the stacks of the threads processing drivers of queries with operator
+ * profiling enabled. Only runnable threads are sampled, so the samples approximate where the
+ * CPU time of an operator goes. The stacks of all threads are captured in a single call, and
+ * each sample is reduced to the innermost frame outside of the JDK, which is attributed to an
+ * operator by the driver.
+ * <p>
+ * The tasks of queries with profiling enabled are looked up once per second, so that
+ * sampling costs nothing while no query is profiled.
+ */
+public class OperatorStackSampler
+{
+    private static final Logger log = Logger.get(OperatorStackSampler.class);
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final int MAX_STACK_DEPTH = 32;
+    private static final long PROFILED_TASKS_REFRESH_INTERVAL_MILLIS = 1000;
+
+    private final Supplier<List<SqlTask>> allTasksSupplier;
+    private final long samplingIntervalMillis;
+    private final ScheduledExecutorService samplerExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("operator-stack-sampler"));
+
+    private final CounterStat samples = new CounterStat();
+
+    // only accessed by the sampler thread
+    private List<TaskContext> profiledTaskContexts = ImmutableList.of();
+
+    @Nullable
+    private ScheduledFuture<?> refreshFuture;
+    @Nullable
+    private ScheduledFuture<?> scheduledFuture;
+
+    @Inject
+    public OperatorStackSampler(SqlTaskManager sqlTaskManager, TaskManagerConfig config)
+    {
+        this(
+                requireNonNull(sqlTaskManager, "sqlTaskManager is null")::getAllTasks,
+                requireNonNull(config, "config is null").getOperatorStackSamplingInterval().toMillis());
+    }
+
+    @VisibleForTesting
+    OperatorStackSampler(Supplier<List<SqlTask>> allTasksSupplier, long samplingIntervalMillis)
+    {
+        this.allTasksSupplier = requireNonNull(allTasksSupplier, "allTasksSupplier is null");
+        this.samplingIntervalMillis = samplingIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        refreshFuture = samplerExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refreshProfiledTasks();
+            }
+            catch (Exception e) {
+                log.error(e, "Error looking up profiled tasks");
+            }
+        }, 0, PROFILED_TASKS_REFRESH_INTERVAL_MILLIS, MILLISECONDS);
+        scheduledFuture = samplerExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                sample();
+            }
+            catch (Exception e) {
+                log.error(e, "Error sampling operator stacks");
+            }
+        }, samplingIntervalMillis, samplingIntervalMillis, MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if (refreshFuture != null) {
+            refreshFuture.cancel(true);
+            refreshFuture = null;
+        }
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(true);
+            scheduledFuture = null;
+        }
+        samplerExecutor.shutdownNow();
+    }
+
+    @VisibleForTesting
+    void refreshProfiledTasks()
+    {
+        ImmutableList.Builder<TaskContext> taskContexts = ImmutableList.builder();
+        for (SqlTask task : allTasksSupplier.get()) {
+            Optional<TaskContext> taskContext = task.getTaskContext();
+            if (taskContext.isPresent() && !taskContext.get().isDone() && isOperatorProfilingEnabled(taskContext.get().getSession())) {
+                taskContexts.add(taskContext.get());
+            }
+        }
+        profiledTaskContexts = taskContexts.build();
+    }
+
+    @VisibleForTesting
+    void sample()
+    {
+        if (profiledTaskContexts.isEmpty()) {
+            return;
+        }
+
+        List<DriverContext> driverContexts = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (TaskContext taskContext : profiledTaskContexts) {
+            if (taskContext.isDone()) {
+                continue;
+            }
+            taskContext.accept(new VoidTraversingQueryContextVisitor<Void>()
+            {
+                @Override
+                public Void visitDriverContext(DriverContext driverContext, Void context)
+                {
+                    Thread thread = driverContext.getProcessingThread();
+                    if (thread != null) {
+                        driverContexts.add(driverContext);
+                        threads.add(thread);
+                    }
+                    return null;
+                }
+            }, null);
+        }
+        if (threads.isEmpty()) {
+            return;
+        }
+
+        long[] threadIds = threads.stream()
+                .mapToLong(Thread::getId)
+                .toArray();
+        ThreadInfo[] threadInfos = THREAD_MX_BEAN.getThreadInfo(threadIds, MAX_STACK_DEPTH);
+        for (int i = 0; i < threadInfos.length; i++) {
+            ThreadInfo threadInfo = threadInfos[i];
+            DriverContext driverContext = driverContexts.get(i);
+            // skip threads that are waiting, and threads that moved on to another driver
+            if (threadInfo == null || threadInfo.getThreadState() != RUNNABLE || driverContext.getProcessingThread() != threads.get(i)) {
+                continue;
+            }
+            Optional<String> frame = getSampledFrame(threadInfo.getStackTrace());
+            if (frame.isPresent()) {
+                driverContext.recordStackSample(frame.get());
+                samples.update(1);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static Optional<String> getSampledFrame(StackTraceElement[] stackTrace)
+    {
+        if (stackTrace.length == 0) {
+            return Optional.empty();
+        }
+        for (StackTraceElement element : stackTrace) {
+            if (!isJdkClass(element.getClassName())) {
+                return Optional.of(formatFrame(element));
+            }
+        }
+        return Optional.of(formatFrame(stackTrace[0]));
+    }
+
+    private static boolean isJdkClass(String className)
+    {
+        return className.startsWith("java.") ||
+                className.startsWith("javax.") ||
+                className.startsWith("jdk.") ||
+                className.startsWith("sun.") ||
+                className.startsWith("com.sun.");
+    }
+
+    private static String formatFrame(StackTraceElement element)
+    {
+        return element.getClassName() + "." + element.getMethodName();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getSamples()
+    {
+        return samples;
+    }
+}
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 
+import static com.facebook.presto.SystemSessionProperties.isOperatorProfilingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isVerboseExceededMemoryLimitErrorsEnabled;
 import static com.facebook.presto.execution.SqlTaskExecution.createSqlTaskExecution;
 import static com.google.common.base.Throwables.throwIfUnchecked;
@@ -87,15 +88,17 @@ public class SqlTaskExecutionFactory
             List<TaskSource> sources,
             TableWriteInfo tableWriteInfo)
     {
+        // operator profiling turns on the per operator timers for this query only
+        boolean operatorProfilingEnabled = isOperatorProfilingEnabled(session);
         TaskContext taskContext = queryContext.addTaskContext(
                 taskStateMachine,
                 session,
                 // Plan has to be retained only if verbose memory exceeded errors are requested
                 isVerboseExceededMemoryLimitErrorsEnabled(session) ? Optional.of(fragment.getRoot()) : Optional.empty(),
-                perOperatorCpuTimerEnabled,
-                cpuTimerEnabled,
-                perOperatorAllocationTrackingEnabled,
-                allocationTrackingEnabled,
+                perOperatorCpuTimerEnabled || operatorProfilingEnabled,
+                cpuTimerEnabled || operatorProfilingEnabled,
+                perOperatorAllocationTrackingEnabled || operatorProfilingEnabled,
+                allocationTrackingEnabled || operatorProfilingEnabled,
                 legacyLifespanCompletionCondition);
 
         LocalExecutionPlan localExecutionPlan;
@@ -51,6 +51,7 @@ public class TaskManagerConfig
     private boolean statisticsCpuTimerEnabled = true;
     private boolean perOperatorAllocationTrackingEnabled;
     private boolean taskAllocationTrackingEnabled;
+    private Duration operatorStackSamplingInterval = new Duration(10, TimeUnit.MILLISECONDS);
     private DataSize maxPartialAggregationMemoryUsage = new DataSize(16, Unit.MEGABYTE);
     private DataSize maxLocalExchangeBufferSize = new DataSize(32, Unit.MEGABYTE);
     private DataSize maxIndexMemoryUsage = new DataSize(64, Unit.MEGABYTE);
@@ -195,6 +196,21 @@ public class TaskManagerConfig
         return this;
     }
 
+    @MinDuration("1ms")
+    @NotNull
+    public Duration getOperatorStackSamplingInterval()
+    {
+        return operatorStackSamplingInterval;
+    }
+
+    @Config("task.operator-stack-sampling-interval")
+    @ConfigDescription("Interval between stack samples of driver threads for queries with operator profiling enabled")
+    public TaskManagerConfig setOperatorStackSamplingInterval(Duration operatorStackSamplingInterval)
+    {
+        this.operatorStackSamplingInterval = operatorStackSamplingInterval;
+        return this;
+    }
+
     public boolean isTaskAllocationTrackingEnabled()
     {
         return taskAllocationTrackingEnabled;
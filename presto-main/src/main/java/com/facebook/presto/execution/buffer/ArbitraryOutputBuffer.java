@@ -16,7 +16,6 @@ package com.facebook.presto.execution.buffer;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
-import com.facebook.presto.execution.buffer.ClientBuffer.PagesSupplier;
 import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
 import com.facebook.presto.execution.buffer.SerializedPageReference.PagesReleasedListener;
 import com.facebook.presto.memory.context.LocalMemoryContext;
@@ -69,7 +68,10 @@ public class ArbitraryOutputBuffer
     @GuardedBy("this")
     private OutputBuffers outputBuffers = createInitialEmptyOutputBuffers(ARBITRARY);
 
-    private final MasterBuffer masterBuffer;
+    private final PageQueue masterBuffer;
+    private final Optional<OutputBufferSpooler> spooler;
+    // same instance as the master buffer, only present when spooling is enabled
+    private final Optional<SpoolingPageQueue> spoolingMasterBuffer;
 
     @GuardedBy("this")
     private final ConcurrentMap<OutputBufferId, ClientBuffer> buffers = new ConcurrentHashMap<>();
@@ -91,6 +93,17 @@ public class ArbitraryOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public ArbitraryOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<OutputBufferSpooler> spooler)
     {
         this.taskInstanceId = requireNonNull(taskInstanceId, "taskInstanceId is null");
         this.state = requireNonNull(state, "state is null");
@@ -101,7 +114,9 @@ public class ArbitraryOutputBuffer
                 requireNonNull(systemMemoryContextSupplier, "systemMemoryContextSupplier is null"),
                 requireNonNull(notificationExecutor, "notificationExecutor is null"));
         this.pageTracker = new LifespanSerializedPageTracker(memoryManager);
-        this.masterBuffer = new MasterBuffer(pageTracker);
+        this.spooler = requireNonNull(spooler, "spooler is null");
+        this.spoolingMasterBuffer = spooler.map(outputBufferSpooler -> outputBufferSpooler.createPageQueue(memoryManager, pageTracker, this::loadPagesIntoClientBuffers));
+        this.masterBuffer = spoolingMasterBuffer.isPresent() ? spoolingMasterBuffer.get() : new MasterBuffer(pageTracker);
     }
 
     @Override
@@ -252,7 +267,15 @@ public class ArbitraryOutputBuffer
 
         // add pages to the buffer (this will increase the reference count by one)
         masterBuffer.addPages(serializedPageReferences);
+        if (spooler.isPresent()) {
+            spooler.get().spillIfNecessary(memoryManager, ImmutableList.of(spoolingMasterBuffer.get()));
+        }
 
+        loadPagesIntoClientBuffers();
+    }
+
+    private void loadPagesIntoClientBuffers()
+    {
         // process any pending reads from the client buffers
         List<ClientBuffer> buffers = safeGetBuffersSnapshot();
         if (buffers.isEmpty()) {
@@ -434,7 +457,7 @@ public class ArbitraryOutputBuffer
 
     @ThreadSafe
     private static class MasterBuffer
-            implements PagesSupplier
+            implements PageQueue
     {
         private final PagesReleasedListener onPagesReleased;
 
@@ -451,12 +474,14 @@ public class ArbitraryOutputBuffer
             this.onPagesReleased = requireNonNull(onPagesReleased, "onPagesReleased is null");
         }
 
+        @Override
         public synchronized void addPages(List<SerializedPageReference> pages)
         {
             masterBuffer.addAll(pages);
             bufferedPages.set(masterBuffer.size());
         }
 
+        @Override
         public synchronized boolean isEmpty()
         {
             return masterBuffer.isEmpty();
@@ -468,6 +493,7 @@ public class ArbitraryOutputBuffer
             return !noMorePages || !masterBuffer.isEmpty();
         }
 
+        @Override
         public synchronized void setNoMorePages()
         {
             this.noMorePages = true;
@@ -500,6 +526,7 @@ public class ArbitraryOutputBuffer
             return ImmutableList.copyOf(pages);
         }
 
+        @Override
         public void destroy()
         {
             checkState(!Thread.holdsLock(this), "Can not destroy master buffer while holding a lock on this");
@@ -514,6 +541,7 @@ public class ArbitraryOutputBuffer
             dereferencePages(pages, onPagesReleased);
         }
 
+        @Override
         public int getBufferedPages()
         {
             return bufferedPages.get();
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.spi.page.PageCodecMarker;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.snappy.SnappyCompressor;
+import io.airlift.compress.snappy.SnappyDecompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+public enum ExchangeCompressionCodec
+{
+    NONE(Optional.empty(), ExchangeCompressionCodec::noCompressor, ExchangeCompressionCodec::noDecompressor),
+    // LZ4 pages carry no codec marker, so that they can be read by workers that only support LZ4
+    LZ4(Optional.empty(), Lz4Compressor::new, Lz4Decompressor::new),
+    ZSTD(Optional.of(PageCodecMarker.ZSTD), ZstdCompressor::new, ZstdDecompressor::new),
+    SNAPPY(Optional.of(PageCodecMarker.SNAPPY), SnappyCompressor::new, SnappyDecompressor::new);
+
+    private final Optional<PageCodecMarker> codecMarker;
+    private final Supplier<Compressor> compressorSupplier;
+    private final Supplier<Decompressor> decompressorSupplier;
+
+    ExchangeCompressionCodec(Optional<PageCodecMarker> codecMarker, Supplier<Compressor> compressorSupplier, Supplier<Decompressor> decompressorSupplier)
+    {
+        this.codecMarker = codecMarker;
+        this.compressorSupplier = compressorSupplier;
+        this.decompressorSupplier = decompressorSupplier;
+    }
+
+    public Optional<PageCodecMarker> getCodecMarker()
+    {
+        return codecMarker;
+    }
+
+    public Compressor createCompressor()
+    {
+        return compressorSupplier.get();
+    }
+
+    public Decompressor createDecompressor()
+    {
+        return decompressorSupplier.get();
+    }
+
+    private static Compressor noCompressor()
+    {
+        throw new UnsupportedOperationException("Compression codec NONE has no compressor");
+    }
+
+    private static Decompressor noDecompressor()
+    {
+        throw new UnsupportedOperationException("Compression codec NONE has no decompressor");
+    }
+
+    public static ExchangeCompressionCodec fromPageCodecMarkers(byte pageCodecMarkers)
+    {
+        if (PageCodecMarker.ZSTD.isSet(pageCodecMarkers)) {
+            return ZSTD;
+        }
+        if (PageCodecMarker.SNAPPY.isSet(pageCodecMarkers)) {
+            return SNAPPY;
+        }
+        return LZ4;
+    }
+}
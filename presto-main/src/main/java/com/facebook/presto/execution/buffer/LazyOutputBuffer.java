@@ -161,13 +161,26 @@ public class LazyOutputBuffer
                     }
                     switch (newOutputBuffers.getType()) {
                         case PARTITIONED:
-                            outputBuffer = new PartitionedOutputBuffer(taskInstanceId, state, newOutputBuffers, maxBufferSize, systemMemoryContextSupplier, executor);
+                            outputBuffer = new PartitionedOutputBuffer(
+                                    taskInstanceId,
+                                    state,
+                                    newOutputBuffers,
+                                    maxBufferSize,
+                                    systemMemoryContextSupplier,
+                                    executor,
+                                    spoolingOutputBufferFactory.createOutputBufferSpooler(taskId));
                             break;
                         case BROADCAST:
                             outputBuffer = new BroadcastOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor);
                             break;
                         case ARBITRARY:
-                            outputBuffer = new ArbitraryOutputBuffer(taskInstanceId, state, maxBufferSize, systemMemoryContextSupplier, executor);
+                            outputBuffer = new ArbitraryOutputBuffer(
+                                    taskInstanceId,
+                                    state,
+                                    maxBufferSize,
+                                    systemMemoryContextSupplier,
+                                    executor,
+                                    spoolingOutputBufferFactory.createOutputBufferSpooler(taskId));
                             break;
                         case DISCARDING:
                             outputBuffer = new DiscardingOutputBuffer(newOutputBuffers, state);
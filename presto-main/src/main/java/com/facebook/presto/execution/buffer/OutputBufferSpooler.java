@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.common.io.DataOutput;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.buffer.SerializedPageReference.PagesReleasedListener;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.page.PageDataOutput;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.spi.security.Identity;
+import com.facebook.presto.spi.storage.TempDataOperationContext;
+import com.facebook.presto.spi.storage.TempDataSink;
+import com.facebook.presto.spi.storage.TempStorage;
+import com.facebook.presto.spi.storage.TempStorageHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.SliceInput;
+import io.airlift.units.DataSize;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import static com.facebook.presto.spi.StandardErrorCode.SPOOLING_STORAGE_ERROR;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPages;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.transform;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Offloads pages of a partitioned or arbitrary output buffer to {@link TempStorage}
+ * once the buffered bytes exceed the spooling threshold, so that slow consumers do
+ * not block the producers on a full buffer.
+ */
+public class OutputBufferSpooler
+{
+    private static final Logger log = Logger.get(OutputBufferSpooler.class);
+
+    private final TempStorage tempStorage;
+    private final TempDataOperationContext tempDataOperationContext;
+    private final ListeningExecutorService executor;
+    private final long thresholdBytes;
+
+    public OutputBufferSpooler(TaskId taskId, TempStorage tempStorage, DataSize threshold, ListeningExecutorService executor)
+    {
+        requireNonNull(taskId, "taskId is null");
+        this.tempStorage = requireNonNull(tempStorage, "tempStorage is null");
+        this.thresholdBytes = requireNonNull(threshold, "threshold is null").toBytes();
+        this.executor = requireNonNull(executor, "executor is null");
+
+        tempDataOperationContext = new TempDataOperationContext(Optional.empty(), taskId.getQueryId().toString(), Optional.empty(), Optional.empty(), new Identity("spooling-buffer", Optional.empty()));
+    }
+
+    SpoolingPageQueue createPageQueue(OutputBufferMemoryManager memoryManager, PagesReleasedListener onPagesReleased, Runnable onPagesLoaded)
+    {
+        return new SpoolingPageQueue(this, memoryManager, onPagesReleased, onPagesLoaded);
+    }
+
+    /**
+     * Spills the queues holding the most in-memory bytes until the buffer is back under half of the threshold.
+     */
+    void spillIfNecessary(OutputBufferMemoryManager memoryManager, List<SpoolingPageQueue> queues)
+    {
+        if (memoryManager.getBufferedBytes() < thresholdBytes) {
+            return;
+        }
+
+        List<SpoolingPageQueue> candidates = queues.stream()
+                .sorted(Comparator.comparingLong(SpoolingPageQueue::getSpillableBytes).reversed())
+                .collect(toImmutableList());
+        for (SpoolingPageQueue queue : candidates) {
+            if (memoryManager.getBufferedBytes() < thresholdBytes / 2) {
+                break;
+            }
+            if (queue.spill() == 0) {
+                // queues are sorted by spillable bytes, so nothing else can be spilled
+                break;
+            }
+        }
+    }
+
+    ListenableFuture<TempStorageHandle> write(List<SerializedPage> pages)
+    {
+        List<DataOutput> dataOutputs = pages.stream()
+                .map(PageDataOutput::new)
+                .collect(toImmutableList());
+
+        return executor.submit(() -> {
+            TempDataSink dataSink = tempStorage.create(tempDataOperationContext);
+            dataSink.write(dataOutputs);
+            return dataSink.commit();
+        });
+    }
+
+    ListenableFuture<List<SerializedPage>> read(ListenableFuture<TempStorageHandle> handleFuture)
+    {
+        return transform(handleFuture, handle -> {
+            try (SliceInput input = new InputStreamSliceInput(tempStorage.open(tempDataOperationContext, handle))) {
+                ImmutableList.Builder<SerializedPage> pages = ImmutableList.builder();
+                Iterator<SerializedPage> serializedPages = readSerializedPages(input);
+                while (serializedPages.hasNext()) {
+                    pages.add(serializedPages.next());
+                }
+                return pages.build();
+            }
+            catch (IOException e) {
+                throw new PrestoException(SPOOLING_STORAGE_ERROR, "Failed to read file from TempStorage", e);
+            }
+        }, executor);
+    }
+
+    Executor getExecutor()
+    {
+        return executor;
+    }
+
+    void remove(ListenableFuture<TempStorageHandle> handleFuture)
+    {
+        handleFuture.addListener(() -> {
+            try {
+                tempStorage.remove(tempDataOperationContext, handleFuture.get());
+            }
+            catch (Exception e) {
+                log.error(e, "Failed to remove file from TempStorage");
+            }
+        }, executor);
+    }
+}
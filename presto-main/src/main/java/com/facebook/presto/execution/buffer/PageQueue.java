@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.execution.buffer.ClientBuffer.PagesSupplier;
+
+import java.util.List;
+
+/**
+ * Pages that have been enqueued but not yet loaded into a {@link ClientBuffer}.
+ * The queue owns the initial reference of every page added to it.
+ */
+interface PageQueue
+        extends PagesSupplier
+{
+    void addPages(List<SerializedPageReference> pages);
+
+    boolean isEmpty();
+
+    void setNoMorePages();
+
+    void destroy();
+
+    int getBufferedPages();
+}
@@ -20,18 +20,21 @@ import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spi.spiller.SpillCipher;
 import io.airlift.compress.Compressor;
 import io.airlift.compress.Decompressor;
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
 
 import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
 
+import static com.facebook.presto.execution.buffer.ExchangeCompressionCodec.LZ4;
+import static com.facebook.presto.execution.buffer.ExchangeCompressionCodec.NONE;
 import static java.util.Objects.requireNonNull;
 
 public class PagesSerdeFactory
 {
     private final BlockEncodingSerde blockEncodingSerde;
-    private final boolean compressionEnabled;
+    private final ExchangeCompressionCodec compressionCodec;
+    private final boolean adaptiveCompression;
     private final boolean checksumEnabled;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled)
@@ -40,9 +43,15 @@ public class PagesSerdeFactory
     }
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled, boolean checksumEnabled)
+    {
+        this(blockEncodingSerde, compressionEnabled ? LZ4 : NONE, false, checksumEnabled);
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, ExchangeCompressionCodec compressionCodec, boolean adaptiveCompression, boolean checksumEnabled)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        this.compressionEnabled = compressionEnabled;
+        this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
+        this.adaptiveCompression = adaptiveCompression;
         this.checksumEnabled = checksumEnabled;
     }
 
@@ -58,60 +67,98 @@ public class PagesSerdeFactory
 
     private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
     {
-        if (compressionEnabled) {
+        if (compressionCodec != NONE) {
             return new PagesSerde(
                     blockEncodingSerde,
-                    Optional.of(new PageCompressor()
-                    {
-                        Compressor compressor = new Lz4Compressor();
-                        @Override
-                        public int maxCompressedLength(int uncompressedSize)
-                        {
-                            return compressor.maxCompressedLength(uncompressedSize);
-                        }
-
-                        @Override
-                        public int compress(
-                                byte[] input,
-                                int inputOffset,
-                                int inputLength,
-                                byte[] output,
-                                int outputOffset,
-                                int maxOutputLength)
-                        {
-                            return compressor.compress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
-                        }
-
-                        @Override
-                        public void compress(ByteBuffer input, ByteBuffer output)
-                        {
-                            compressor.compress(input, output);
-                        }
-                    }),
-                    Optional.of(new PageDecompressor()
-                    {
-                        Decompressor decompressor = new Lz4Decompressor();
-                        @Override
-                        public int decompress(
-                                byte[] input,
-                                int inputOffset,
-                                int inputLength,
-                                byte[] output,
-                                int outputOffset,
-                                int maxOutputLength)
-                        {
-                            return decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
-                        }
-
-                        @Override
-                        public void decompress(ByteBuffer input, ByteBuffer output)
-                        {
-                            decompressor.decompress(input, output);
-                        }
-                    }),
-                    spillCipher, checksumEnabled);
+                    Optional.of(new CodecPageCompressor(compressionCodec)),
+                    // pages are decompressed with the codec recorded in their markers, whichever codec this serde compresses with
+                    Optional.of(new CodecPageDecompressor()),
+                    spillCipher,
+                    checksumEnabled,
+                    adaptiveCompression);
         }
 
         return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty(), spillCipher, checksumEnabled);
     }
+
+    private static class CodecPageCompressor
+            implements PageCompressor
+    {
+        private final ExchangeCompressionCodec codec;
+        private final Compressor compressor;
+
+        private CodecPageCompressor(ExchangeCompressionCodec codec)
+        {
+            this.codec = codec;
+            this.compressor = codec.createCompressor();
+        }
+
+        @Override
+        public int maxCompressedLength(int uncompressedSize)
+        {
+            return compressor.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int compress(
+                byte[] input,
+                int inputOffset,
+                int inputLength,
+                byte[] output,
+                int outputOffset,
+                int maxOutputLength)
+        {
+            return compressor.compress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+        }
+
+        @Override
+        public void compress(ByteBuffer input, ByteBuffer output)
+        {
+            compressor.compress(input, output);
+        }
+
+        @Override
+        public byte setCodecMarker(byte pageCodecMarkers)
+        {
+            return codec.getCodecMarker()
+                    .map(marker -> marker.set(pageCodecMarkers))
+                    .orElse(pageCodecMarkers);
+        }
+    }
+
+    private static class CodecPageDecompressor
+            implements PageDecompressor
+    {
+        // decompressors are created lazily, most exchanges only ever see a single codec
+        private final Map<ExchangeCompressionCodec, Decompressor> decompressors = new EnumMap<>(ExchangeCompressionCodec.class);
+
+        @Override
+        public int decompress(
+                byte[] input,
+                int inputOffset,
+                int inputLength,
+                byte[] output,
+                int outputOffset,
+                int maxOutputLength)
+        {
+            return getDecompressor(LZ4).decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+        }
+
+        @Override
+        public void decompress(ByteBuffer input, ByteBuffer output)
+        {
+            getDecompressor(LZ4).decompress(input, output);
+        }
+
+        @Override
+        public void decompress(byte pageCodecMarkers, ByteBuffer input, ByteBuffer output)
+        {
+            getDecompressor(ExchangeCompressionCodec.fromPageCodecMarkers(pageCodecMarkers)).decompress(input, output);
+        }
+
+        private Decompressor getDecompressor(ExchangeCompressionCodec codec)
+        {
+            return decompressors.computeIfAbsent(codec, ExchangeCompressionCodec::createDecompressor);
+        }
+    }
 }
@@ -25,6 +25,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -51,6 +52,9 @@ public class PartitionedOutputBuffer
     private final LifespanSerializedPageTracker pageTracker;
 
     private final List<ClientBuffer> partitions;
+    // pages that have not been loaded into the client buffers yet, only present when spooling is enabled
+    private final Optional<List<SpoolingPageQueue>> spoolingQueues;
+    private final Optional<OutputBufferSpooler> spooler;
 
     private final AtomicLong totalPagesAdded = new AtomicLong();
     private final AtomicLong totalRowsAdded = new AtomicLong();
@@ -62,6 +66,18 @@ public class PartitionedOutputBuffer
             DataSize maxBufferSize,
             Supplier<LocalMemoryContext> systemMemoryContextSupplier,
             Executor notificationExecutor)
+    {
+        this(taskInstanceId, state, outputBuffers, maxBufferSize, systemMemoryContextSupplier, notificationExecutor, Optional.empty());
+    }
+
+    public PartitionedOutputBuffer(
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            OutputBuffers outputBuffers,
+            DataSize maxBufferSize,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            Optional<OutputBufferSpooler> spooler)
     {
         this.state = requireNonNull(state, "state is null");
 
@@ -83,6 +99,16 @@ public class PartitionedOutputBuffer
         }
         this.partitions = partitions.build();
 
+        this.spooler = requireNonNull(spooler, "spooler is null");
+        this.spoolingQueues = spooler.map(outputBufferSpooler -> {
+            ImmutableList.Builder<SpoolingPageQueue> queues = ImmutableList.builderWithExpectedSize(this.partitions.size());
+            for (int partition = 0; partition < this.partitions.size(); partition++) {
+                int partitionNumber = partition;
+                queues.add(outputBufferSpooler.createPageQueue(memoryManager, pageTracker, () -> loadPagesIfNecessary(partitionNumber)));
+            }
+            return queues.build();
+        });
+
         state.compareAndSet(OPEN, NO_MORE_BUFFERS);
         state.compareAndSet(NO_MORE_PAGES, FLUSHING);
         checkFlushComplete();
@@ -130,6 +156,11 @@ public class PartitionedOutputBuffer
 
             totalBufferedPages += bufferInfo.getPageBufferInfo().getBufferedPages();
         }
+        if (spoolingQueues.isPresent()) {
+            for (SpoolingPageQueue queue : spoolingQueues.get()) {
+                totalBufferedPages += queue.getBufferedPages();
+            }
+        }
 
         return new OutputBufferInfo(
                 "PARTITIONED",
@@ -210,6 +241,14 @@ public class PartitionedOutputBuffer
         totalPagesAdded.addAndGet(serializedPageReferences.size());
         pageTracker.incrementLifespanPageCount(lifespan, serializedPageReferences.size());
 
+        if (spoolingQueues.isPresent()) {
+            // the queue takes over the initial reference
+            spoolingQueues.get().get(partitionNumber).addPages(serializedPageReferences);
+            spooler.get().spillIfNecessary(memoryManager, spoolingQueues.get());
+            loadPagesIfNecessary(partitionNumber);
+            return;
+        }
+
         // add pages to the buffer (this will increase the reference count by one)
         partitions.get(partitionNumber).enqueuePages(serializedPageReferences);
 
@@ -235,7 +274,8 @@ public class PartitionedOutputBuffer
         requireNonNull(outputBufferId, "outputBufferId is null");
         checkArgument(maxSize.toBytes() > 0, "maxSize must be at least 1 byte");
 
-        return partitions.get(outputBufferId.getId()).getPages(startingSequenceId, maxSize);
+        int partition = outputBufferId.getId();
+        return partitions.get(partition).getPages(startingSequenceId, maxSize, spoolingQueues.map(queues -> queues.get(partition)));
     }
 
     @Override
@@ -252,6 +292,7 @@ public class PartitionedOutputBuffer
         requireNonNull(bufferId, "bufferId is null");
 
         partitions.get(bufferId.getId()).destroy();
+        spoolingQueues.ifPresent(queues -> queues.get(bufferId.getId()).destroy());
 
         checkFlushComplete();
     }
@@ -263,7 +304,16 @@ public class PartitionedOutputBuffer
         state.compareAndSet(NO_MORE_BUFFERS, FLUSHING);
         memoryManager.setNoBlockOnFull();
 
-        partitions.forEach(ClientBuffer::setNoMorePages);
+        if (spoolingQueues.isPresent()) {
+            // the client buffers observe the end of the data once they have drained their queue
+            spoolingQueues.get().forEach(SpoolingPageQueue::setNoMorePages);
+            for (int partition = 0; partition < partitions.size(); partition++) {
+                loadPagesIfNecessary(partition);
+            }
+        }
+        else {
+            partitions.forEach(ClientBuffer::setNoMorePages);
+        }
 
         checkFlushComplete();
     }
@@ -274,6 +324,7 @@ public class PartitionedOutputBuffer
         // ignore destroy if the buffer already in a terminal state.
         if (state.setIf(FINISHED, oldState -> !oldState.isTerminal())) {
             partitions.forEach(ClientBuffer::destroy);
+            spoolingQueues.ifPresent(queues -> queues.forEach(SpoolingPageQueue::destroy));
             memoryManager.setNoBlockOnFull();
             forceFreeMemory();
         }
@@ -296,6 +347,11 @@ public class PartitionedOutputBuffer
         return memoryManager.getPeakMemoryUsage();
     }
 
+    private void loadPagesIfNecessary(int partitionNumber)
+    {
+        partitions.get(partitionNumber).loadPagesIfNecessary(spoolingQueues.get().get(partitionNumber));
+    }
+
     @VisibleForTesting
     void forceFreeMemory()
     {
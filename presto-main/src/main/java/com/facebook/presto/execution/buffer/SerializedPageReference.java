@@ -64,6 +64,11 @@ final class SerializedPageReference
         return serializedPage.getRetainedSizeInBytes();
     }
 
+    public Lifespan getLifespan()
+    {
+        return lifespan;
+    }
+
     private boolean dereferencePage()
     {
         int remainingReferences = REFERENCE_COUNT_UPDATER.decrementAndGet(this);
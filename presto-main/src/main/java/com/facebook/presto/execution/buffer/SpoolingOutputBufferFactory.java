@@ -29,6 +29,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
@@ -96,4 +97,16 @@ public class SpoolingOutputBufferFactory
                 executor,
                 finalizerService);
     }
+
+    public Optional<OutputBufferSpooler> createOutputBufferSpooler(TaskId taskId)
+    {
+        if (!featuresConfig.isPartitionedSpoolingOutputBufferEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.of(new OutputBufferSpooler(
+                taskId,
+                tempStorageManager.getTempStorage(LocalTempStorage.NAME),
+                featuresConfig.getSpoolingOutputBufferThreshold(),
+                executor));
+    }
 }
@@ -0,0 +1,363 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.execution.buffer.SerializedPageReference.PagesReleasedListener;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.spi.storage.TempStorageHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.spi.StandardErrorCode.SPOOLING_STORAGE_ERROR;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.addCallback;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link PageQueue} that can move its in-memory pages to temp storage. Pages are
+ * handed out in the order they were added: first the pages already read back from
+ * storage, then the spilled runs (each one is read back when it reaches the head of
+ * the queue), then the pages that were never spilled.
+ * <p>
+ * Spilled pages keep their outstanding lifespan page count in the page tracker, but
+ * their memory is released from the memory manager until they are read back.
+ */
+@ThreadSafe
+class SpoolingPageQueue
+        implements PageQueue
+{
+    private final OutputBufferSpooler spooler;
+    private final OutputBufferMemoryManager memoryManager;
+    private final PagesReleasedListener onPagesReleased;
+    private final Runnable onPagesLoaded;
+
+    @GuardedBy("this")
+    private final Deque<SerializedPageReference> loadedPages = new ArrayDeque<>();
+
+    @GuardedBy("this")
+    private final Deque<SpilledRun> spilledRuns = new ArrayDeque<>();
+
+    @GuardedBy("this")
+    private final Deque<SerializedPageReference> pages = new ArrayDeque<>();
+
+    @GuardedBy("this")
+    private long spillableBytes;
+
+    @GuardedBy("this")
+    private boolean noMorePages;
+
+    @GuardedBy("this")
+    private boolean destroyed;
+
+    @GuardedBy("this")
+    private Throwable failure;
+
+    private final AtomicInteger bufferedPages = new AtomicInteger();
+
+    SpoolingPageQueue(OutputBufferSpooler spooler, OutputBufferMemoryManager memoryManager, PagesReleasedListener onPagesReleased, Runnable onPagesLoaded)
+    {
+        this.spooler = requireNonNull(spooler, "spooler is null");
+        this.memoryManager = requireNonNull(memoryManager, "memoryManager is null");
+        this.onPagesReleased = requireNonNull(onPagesReleased, "onPagesReleased is null");
+        this.onPagesLoaded = requireNonNull(onPagesLoaded, "onPagesLoaded is null");
+    }
+
+    @Override
+    public void addPages(List<SerializedPageReference> pages)
+    {
+        boolean destroyed;
+        synchronized (this) {
+            destroyed = this.destroyed;
+            if (!destroyed) {
+                for (SerializedPageReference page : pages) {
+                    this.pages.add(page);
+                    spillableBytes += page.getRetainedSizeInBytes();
+                }
+                bufferedPages.addAndGet(pages.size());
+            }
+        }
+
+        if (destroyed) {
+            // the queue owns the initial reference, so release it right away
+            SerializedPageReference.dereferencePages(pages, onPagesReleased);
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty()
+    {
+        return loadedPages.isEmpty() && spilledRuns.isEmpty() && pages.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean mayHaveMorePages()
+    {
+        return !noMorePages || !isEmpty();
+    }
+
+    @Override
+    public synchronized void setNoMorePages()
+    {
+        noMorePages = true;
+    }
+
+    @Override
+    public synchronized List<SerializedPageReference> getPages(DataSize maxSize)
+    {
+        if (failure != null) {
+            throw new PrestoException(SPOOLING_STORAGE_ERROR, "Failed to read spilled pages from TempStorage", failure);
+        }
+
+        long maxBytes = maxSize.toBytes();
+        List<SerializedPageReference> result = new ArrayList<>();
+        long bytesRemoved = 0;
+
+        while (true) {
+            Deque<SerializedPageReference> source;
+            if (!loadedPages.isEmpty()) {
+                source = loadedPages;
+            }
+            else if (spilledRuns.isEmpty()) {
+                source = pages;
+            }
+            else {
+                // the next pages are still on disk
+                break;
+            }
+
+            SerializedPageReference page = source.peek();
+            if (page == null) {
+                break;
+            }
+            bytesRemoved += page.getRetainedSizeInBytes();
+            // break (and don't add) if this page would exceed the limit
+            if (!result.isEmpty() && bytesRemoved > maxBytes) {
+                break;
+            }
+            source.poll();
+            if (source == pages) {
+                spillableBytes -= page.getRetainedSizeInBytes();
+            }
+            result.add(page);
+        }
+        bufferedPages.addAndGet(-result.size());
+
+        // start reading the next run back as soon as the pages in front of it are handed out
+        if (loadedPages.isEmpty() && !spilledRuns.isEmpty()) {
+            loadNextRun();
+        }
+
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Writes the pages that are only held in memory to temp storage.
+     *
+     * @return the number of bytes released from the memory manager
+     */
+    public long spill()
+    {
+        long bytes;
+        synchronized (this) {
+            if (destroyed || pages.isEmpty()) {
+                return 0;
+            }
+
+            ImmutableList.Builder<SerializedPage> serializedPages = ImmutableList.builderWithExpectedSize(pages.size());
+            ImmutableList.Builder<Lifespan> lifespans = ImmutableList.builderWithExpectedSize(pages.size());
+            bytes = 0;
+            // the queue owns the only reference of these pages, so they can be dropped without dereferencing
+            for (SerializedPageReference page : pages) {
+                serializedPages.add(page.getSerializedPage());
+                lifespans.add(page.getLifespan());
+                bytes += page.getRetainedSizeInBytes();
+            }
+            pages.clear();
+            spillableBytes = 0;
+
+            spilledRuns.add(new SpilledRun(spooler.write(serializedPages.build()), lifespans.build()));
+        }
+
+        memoryManager.updateMemoryUsage(-bytes);
+        return bytes;
+    }
+
+    @GuardedBy("this")
+    private void loadNextRun()
+    {
+        SpilledRun run = spilledRuns.peek();
+        if (run.isLoading()) {
+            return;
+        }
+
+        ListenableFuture<List<SerializedPage>> pagesFuture = spooler.read(run.getHandleFuture());
+        run.setLoading();
+        addCallback(pagesFuture, new FutureCallback<List<SerializedPage>>()
+        {
+            @Override
+            public void onSuccess(List<SerializedPage> result)
+            {
+                pagesLoaded(run, result);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable)
+            {
+                loadFailed(run, throwable);
+            }
+        }, spooler.getExecutor());
+    }
+
+    private void pagesLoaded(SpilledRun run, List<SerializedPage> serializedPages)
+    {
+        spooler.remove(run.getHandleFuture());
+
+        List<Lifespan> lifespans = run.getLifespans();
+        checkState(serializedPages.size() == lifespans.size(), "Expected %s spilled pages, but read %s", lifespans.size(), serializedPages.size());
+
+        long bytes = 0;
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            checkState(spilledRuns.poll() == run, "Spilled runs corrupted");
+            for (int i = 0; i < serializedPages.size(); i++) {
+                SerializedPage page = serializedPages.get(i);
+                loadedPages.add(new SerializedPageReference(page, 1, lifespans.get(i)));
+                bytes += page.getRetainedSizeInBytes();
+            }
+        }
+
+        memoryManager.updateMemoryUsage(bytes);
+        onPagesLoaded.run();
+    }
+
+    private void loadFailed(SpilledRun run, Throwable throwable)
+    {
+        spooler.remove(run.getHandleFuture());
+
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            failure = throwable;
+        }
+
+        // wake up the readers so that they observe the failure
+        onPagesLoaded.run();
+    }
+
+    @Override
+    public void destroy()
+    {
+        checkState(!Thread.holdsLock(this), "Can not destroy spooling page queue while holding a lock on this");
+        List<SerializedPageReference> pages;
+        List<SpilledRun> spilledRuns;
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            destroyed = true;
+            pages = ImmutableList.<SerializedPageReference>builder()
+                    .addAll(loadedPages)
+                    .addAll(this.pages)
+                    .build();
+            spilledRuns = ImmutableList.copyOf(this.spilledRuns);
+            loadedPages.clear();
+            this.pages.clear();
+            this.spilledRuns.clear();
+            spillableBytes = 0;
+            bufferedPages.set(0);
+        }
+
+        // dereference outside of synchronized to avoid making a callback while holding a lock
+        SerializedPageReference.dereferencePages(pages, onPagesReleased);
+        for (SpilledRun run : spilledRuns) {
+            // the memory of spilled pages has already been released, only the page counts are outstanding
+            for (Lifespan lifespan : run.getLifespans()) {
+                onPagesReleased.onPagesReleased(lifespan, 1, 0);
+            }
+            // runs that are being read back are removed once the read completes
+            if (!run.isLoading()) {
+                spooler.remove(run.getHandleFuture());
+            }
+        }
+    }
+
+    @Override
+    public int getBufferedPages()
+    {
+        return bufferedPages.get();
+    }
+
+    public synchronized long getSpillableBytes()
+    {
+        return spillableBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("bufferedPages", bufferedPages.get())
+                .toString();
+    }
+
+    private static class SpilledRun
+    {
+        private final ListenableFuture<TempStorageHandle> handleFuture;
+        private final List<Lifespan> lifespans;
+        private boolean loading;
+
+        private SpilledRun(ListenableFuture<TempStorageHandle> handleFuture, List<Lifespan> lifespans)
+        {
+            this.handleFuture = requireNonNull(handleFuture, "handleFuture is null");
+            this.lifespans = requireNonNull(lifespans, "lifespans is null");
+        }
+
+        public ListenableFuture<TempStorageHandle> getHandleFuture()
+        {
+            return handleFuture;
+        }
+
+        public List<Lifespan> getLifespans()
+        {
+            return lifespans;
+        }
+
+        public boolean isLoading()
+        {
+            return loading;
+        }
+
+        public void setLoading()
+        {
+            loading = true;
+        }
+    }
+}
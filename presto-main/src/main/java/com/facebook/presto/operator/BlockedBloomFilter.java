@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Split block Bloom filter over the non-null values of a single type. A value sets one bit in each
+ * of the eight words of a 256 bit block, so adding or looking up a value touches a single cache line.
+ * <p>
+ * Filters of the same type and size can be merged; the result contains the values of both.
+ * This class is not thread safe, a filter must not be modified once it is shared.
+ */
+public class BlockedBloomFilter
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BlockedBloomFilter.class).instanceSize();
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BYTES_PER_BLOCK = WORDS_PER_BLOCK * Integer.BYTES;
+    // odd constants selecting the bit of each word of a block, see the Parquet split block Bloom filter specification
+    private static final int[] SALT = {0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+    // with more bits set, more than about 10% of the values not in the filter pass it
+    private static final double MAX_FILL_RATIO = 0.75;
+
+    private final Type type;
+    private final int blockCount;
+    private final int[] words;
+
+    public BlockedBloomFilter(Type type, long sizeInBytes)
+    {
+        this.type = requireNonNull(type, "type is null");
+        checkArgument(sizeInBytes >= BYTES_PER_BLOCK, "sizeInBytes must be at least %s", BYTES_PER_BLOCK);
+        this.blockCount = toIntExact(sizeInBytes / BYTES_PER_BLOCK);
+        this.words = new int[blockCount * WORDS_PER_BLOCK];
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public long getSizeInBytes()
+    {
+        return (long) blockCount * BYTES_PER_BLOCK;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(words);
+    }
+
+    public void add(Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return;
+        }
+        addHash(murmurHash3(type.hash(block, position)));
+    }
+
+    public void addAll(Block block)
+    {
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            add(block, position);
+        }
+    }
+
+    /**
+     * Returns false if the value at {@code position} was never added to the filter.
+     * Null never matches, as the filter is only used for equality joins.
+     */
+    public boolean mightContain(Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return false;
+        }
+        return mightContainHash(murmurHash3(type.hash(block, position)));
+    }
+
+    public void merge(BlockedBloomFilter other)
+    {
+        checkArgument(type.equals(other.type), "Cannot merge filters of different types: %s and %s", type, other.type);
+        checkArgument(blockCount == other.blockCount, "Cannot merge filters of different sizes: %s and %s", getSizeInBytes(), other.getSizeInBytes());
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Whether so many bits are set that the filter is not selective enough to be worth applying.
+     */
+    public boolean isSaturated()
+    {
+        long bitCount = 0;
+        for (int word : words) {
+            bitCount += Integer.bitCount(word);
+        }
+        return bitCount > MAX_FILL_RATIO * words.length * Integer.SIZE;
+    }
+
+    private void addHash(long hash)
+    {
+        int offset = getBlockOffset(hash);
+        int key = (int) hash;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            words[offset + i] |= 1 << ((key * SALT[i]) >>> 27);
+        }
+    }
+
+    private boolean mightContainHash(long hash)
+    {
+        int offset = getBlockOffset(hash);
+        int key = (int) hash;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            if ((words[offset + i] & (1 << ((key * SALT[i]) >>> 27))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getBlockOffset(long hash)
+    {
+        // maps the upper half of the hash to [0, blockCount) without a division
+        return (int) (((hash >>> 32) * blockCount) >>> 32) * WORDS_PER_BLOCK;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("type", type)
+                .add("sizeInBytes", getSizeInBytes())
+                .toString();
+    }
+}
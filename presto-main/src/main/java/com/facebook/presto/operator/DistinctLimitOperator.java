@@ -18,21 +18,30 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
@@ -52,6 +61,8 @@ public class DistinctLimitOperator
         private boolean closed;
         private final JoinCompiler joinCompiler;
         private final int timeoutMillis;
+        private final boolean spillEnabled;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
 
         public DistinctLimitOperatorFactory(
                 int operatorId,
@@ -74,6 +85,21 @@ public class DistinctLimitOperator
                 Optional<Integer> hashChannel,
                 JoinCompiler joinCompiler,
                 int timeoutMillis)
+        {
+            this(operatorId, planNodeId, sourceTypes, distinctChannels, limit, hashChannel, joinCompiler, timeoutMillis, false, unsupportedPartitioningSpillerFactory());
+        }
+
+        public DistinctLimitOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> distinctChannels,
+                long limit,
+                Optional<Integer> hashChannel,
+                JoinCompiler joinCompiler,
+                int timeoutMillis,
+                boolean spillEnabled,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -85,6 +111,8 @@ public class DistinctLimitOperator
             this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
             this.timeoutMillis = timeoutMillis;
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         @Override
@@ -95,7 +123,7 @@ public class DistinctLimitOperator
             List<Type> distinctTypes = distinctChannels.stream()
                     .map(sourceTypes::get)
                     .collect(toImmutableList());
-            return new DistinctLimitOperator(operatorContext, distinctChannels, distinctTypes, limit, hashChannel, joinCompiler, timeoutMillis);
+            return new DistinctLimitOperator(operatorContext, distinctChannels, distinctTypes, limit, hashChannel, joinCompiler, timeoutMillis, spillEnabled, partitioningSpillerFactory);
         }
 
         @Override
@@ -107,20 +135,27 @@ public class DistinctLimitOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new DistinctLimitOperatorFactory(operatorId, planNodeId, sourceTypes, distinctChannels, limit, hashChannel, joinCompiler, timeoutMillis);
+            return new DistinctLimitOperatorFactory(operatorId, planNodeId, sourceTypes, distinctChannels, limit, hashChannel, joinCompiler, timeoutMillis, spillEnabled, partitioningSpillerFactory);
         }
     }
 
     private final OperatorContext operatorContext;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
     private Page inputPage;
+    private Page outputPage;
     private long remainingLimit;
 
     private boolean finishing;
 
     private final int[] outputChannels;
-    private final GroupByHash groupByHash;
+    private final List<Type> distinctTypes;
+    private final Optional<Integer> hashChannel;
+    private final int expectedGroups;
+    private final JoinCompiler joinCompiler;
+    @Nullable
+    private GroupByHash groupByHash;
     private long nextDistinctId;
 
     // for yield when memory is not available
@@ -128,10 +163,38 @@ public class DistinctLimitOperator
     private Work<GroupByIdBlock> unfinishedWork;
     private final long timeoutMillis;
 
+    // once memory has been revoked, all input is spilled and deduplicated one partition at a time when finishing
+    private final boolean spillEnabled;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
+    private Optional<PartitionedDistinctSpiller> spiller = Optional.empty();
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private int unspillingPartition;
+    @Nullable
+    private Iterator<Page> unspilledValues;
+    @Nullable
+    private Work<?> unfinishedValuesWork;
+    @Nullable
+    private Iterator<Page> unspilledInput;
+
     public DistinctLimitOperator(OperatorContext operatorContext, List<Integer> distinctChannels, List<Type> distinctTypes, long limit, Optional<Integer> hashChannel, JoinCompiler joinCompiler, int timeout)
+    {
+        this(operatorContext, distinctChannels, distinctTypes, limit, hashChannel, joinCompiler, timeout, false, unsupportedPartitioningSpillerFactory());
+    }
+
+    public DistinctLimitOperator(
+            OperatorContext operatorContext,
+            List<Integer> distinctChannels,
+            List<Type> distinctTypes,
+            long limit,
+            Optional<Integer> hashChannel,
+            JoinCompiler joinCompiler,
+            int timeout,
+            boolean spillEnabled,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
         checkArgument(limit >= 0, "limit must be at least zero");
         requireNonNull(hashChannel, "hashChannel is null");
 
@@ -144,14 +207,14 @@ public class DistinctLimitOperator
             outputChannels = distinctChannelInts.clone(); // defensive copy since this is passed into createGroupByHash
         }
 
-        this.groupByHash = createGroupByHash(
-                distinctTypes,
-                distinctChannelInts,
-                hashChannel,
-                min((int) limit, 10_000),
-                isDictionaryAggregationEnabled(operatorContext.getSession()),
-                joinCompiler,
-                this::updateMemoryReservation);
+        // the hash is fed with the output channels only, so that its values can be spilled and reloaded as is
+        this.distinctTypes = ImmutableList.copyOf(requireNonNull(distinctTypes, "distinctTypes is null"));
+        this.hashChannel = hashChannel.map(channel -> distinctChannelInts.length);
+        this.expectedGroups = min((int) limit, 10_000);
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        this.spillEnabled = spillEnabled;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+        this.groupByHash = createHash();
         remainingLimit = limit;
         if (timeout > 0) {
             this.timeoutMillis = System.currentTimeMillis() + timeout;
@@ -161,6 +224,18 @@ public class DistinctLimitOperator
         }
     }
 
+    private GroupByHash createHash()
+    {
+        return createGroupByHash(
+                distinctTypes,
+                IntStream.range(0, distinctTypes.size()).toArray(),
+                hashChannel,
+                expectedGroups,
+                isDictionaryAggregationEnabled(operatorContext.getSession()),
+                joinCompiler,
+                this::updateMemoryReservation);
+    }
+
     private boolean finishIfTimedOut()
     {
         if (timeoutMillis > 0 && System.currentTimeMillis() >= timeoutMillis) {
@@ -186,12 +261,24 @@ public class DistinctLimitOperator
     @Override
     public boolean isFinished()
     {
-        return finishIfTimedOut() || (!hasUnfinishedInput() && (finishing || remainingLimit == 0));
+        return finishIfTimedOut() || (!hasUnfinishedInput() && (remainingLimit == 0 || (finishing && !hasSpilledPartitions())));
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (spiller.isPresent() && !spiller.get().getSpillInProgress().isDone()) {
+            return spiller.get().getSpillInProgress();
+        }
+        return NOT_BLOCKED;
     }
 
     @Override
     public boolean needsInput()
     {
+        if (spiller.isPresent() && !spiller.get().getSpillInProgress().isDone()) {
+            return false;
+        }
         return !finishIfTimedOut() && !finishing && remainingLimit > 0 && !hasUnfinishedInput();
     }
 
@@ -204,8 +291,13 @@ public class DistinctLimitOperator
 
         checkState(needsInput());
 
-        inputPage = page;
-        unfinishedWork = groupByHash.getGroupIds(page);
+        if (spiller.isPresent()) {
+            spiller.get().spillInput(page.extractChannels(outputChannels));
+            return;
+        }
+
+        inputPage = page.extractChannels(outputChannels);
+        unfinishedWork = groupByHash.getGroupIds(inputPage);
         processUnfinishedWork();
         updateMemoryReservation();
     }
@@ -218,10 +310,25 @@ public class DistinctLimitOperator
             return null;
         }
 
-        if (groupByIds == null) {
-            return null;
+        if (groupByIds != null) {
+            outputPage = buildOutput();
         }
 
+        if (outputPage != null) {
+            Page result = outputPage;
+            outputPage = null;
+            return result;
+        }
+
+        if (finishing && hasSpilledPartitions() && spiller.get().getSpillInProgress().isDone()) {
+            return processSpilledPartitions();
+        }
+        return null;
+    }
+
+    @Nullable
+    private Page buildOutput()
+    {
         verify(inputPage != null);
 
         long resultingPositions = min(groupByIds.getGroupCount() - nextDistinctId, remainingLimit);
@@ -237,7 +344,7 @@ public class DistinctLimitOperator
             }
             verify(distinctCount == distinctPositions.length);
             remainingLimit -= distinctCount;
-            result = inputPage.extractChannels(outputChannels).getPositions(distinctPositions, 0, distinctPositions.length);
+            result = inputPage.getPositions(distinctPositions, 0, distinctPositions.length);
         }
 
         groupByIds = null;
@@ -258,9 +365,108 @@ public class DistinctLimitOperator
         return true;
     }
 
+    @Nullable
+    private Page processSpilledPartitions()
+    {
+        PartitionedDistinctSpiller spiller = this.spiller.get();
+        while (unspillingPartition < spiller.getPartitionCount() && remainingLimit > 0) {
+            if (unspilledValues == null && unspilledInput == null) {
+                groupByHash = createHash();
+                unspilledValues = spiller.getSpilledValues(unspillingPartition);
+            }
+
+            if (unspilledValues != null) {
+                if (!loadUnspilledValues()) {
+                    return null;
+                }
+                unspilledValues = null;
+                // values seen before spilling are not distinct anymore
+                nextDistinctId = groupByHash.getGroupCount();
+                unspilledInput = spiller.getSpilledInput(unspillingPartition);
+            }
+
+            if (unspilledInput.hasNext()) {
+                inputPage = unspilledInput.next();
+                unfinishedWork = groupByHash.getGroupIds(inputPage);
+                if (!processUnfinishedWork()) {
+                    return null;
+                }
+                Page result = buildOutput();
+                if (result != null) {
+                    return result;
+                }
+                continue;
+            }
+
+            unspilledInput = null;
+            groupByHash = null;
+            updateMemoryReservation();
+            unspillingPartition++;
+        }
+        return null;
+    }
+
+    private boolean loadUnspilledValues()
+    {
+        while (true) {
+            if (unfinishedValuesWork != null) {
+                if (!unfinishedValuesWork.process()) {
+                    return false;
+                }
+                unfinishedValuesWork = null;
+            }
+            if (!unspilledValues.hasNext()) {
+                return true;
+            }
+            unfinishedValuesWork = groupByHash.addPage(unspilledValues.next());
+        }
+    }
+
+    private boolean hasSpilledPartitions()
+    {
+        return spiller.isPresent() && unspillingPartition < spiller.get().getPartitionCount();
+    }
+
     private boolean hasUnfinishedInput()
     {
-        return !finishIfTimedOut() && inputPage != null || unfinishedWork != null;
+        return !finishIfTimedOut() && inputPage != null || unfinishedWork != null || outputPage != null;
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        // a pending page must be deduplicated against the current hash before the hash is spilled
+        if (spiller.isPresent() || (unfinishedWork != null && !processUnfinishedWork())) {
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+        if (groupByIds != null) {
+            outputPage = buildOutput();
+        }
+
+        spiller = Optional.of(new PartitionedDistinctSpiller(
+                groupByHash.getTypes(),
+                groupByHash.getTypes(),
+                distinctTypes,
+                IntStream.range(0, distinctTypes.size()).boxed().collect(toImmutableList()),
+                partitioningSpillerFactory,
+                operatorContext));
+        ListenableFuture<?> spillInProgress = spiller.get().spillValues(groupByHash.getGroupValuePages());
+        finishMemoryRevoke = Optional.of(() -> {
+            groupByHash = null;
+            localRevocableMemoryContext.setBytes(0);
+        });
+        return spillInProgress;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
     }
 
     /**
@@ -273,13 +479,31 @@ public class DistinctLimitOperator
     // The following implementation is a hybrid model, where the push model is going to call the pull model causing reentrancy
     private boolean updateMemoryReservation()
     {
+        long estimatedSize = groupByHash == null ? 0 : groupByHash.getEstimatedSize();
         // Operator/driver will be blocked on memory after we call localUserMemoryContext.setBytes().
         // If memory is not available, once we return, this operator will be blocked until memory is available.
-        localUserMemoryContext.setBytes(groupByHash.getEstimatedSize());
+        if (spillEnabled && !spiller.isPresent()) {
+            localRevocableMemoryContext.setBytes(estimatedSize);
+        }
+        else {
+            localUserMemoryContext.setBytes(estimatedSize);
+        }
         // If memory is not available, inform the caller that we cannot proceed for allocation.
         return operatorContext.isWaitingForMemory().isDone();
     }
 
+    @Override
+    public void close()
+            throws IOException
+    {
+        groupByHash = null;
+        unspilledValues = null;
+        unspilledInput = null;
+        if (spiller.isPresent()) {
+            spiller.get().close();
+        }
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
@@ -47,6 +47,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.SystemSessionProperties.isOperatorProfilingEnabled;
 import static com.facebook.presto.common.RuntimeMetricName.FRAGMENT_RESULT_CACHE_HIT;
 import static com.facebook.presto.common.RuntimeMetricName.FRAGMENT_RESULT_CACHE_MISS;
 import static com.facebook.presto.common.RuntimeUnit.NONE;
@@ -103,6 +104,8 @@ public class Driver
     private final AtomicReference<Split> split = new AtomicReference<>();
     private final List<Page> outputPages = new ArrayList<>();
 
+    private final boolean operatorProfilingEnabled;
+
     private enum State
     {
         ALIVE, NEED_DESTRUCTION, DESTROYED
@@ -159,6 +162,7 @@ public class Driver
         this.sourceOperator = sourceOperator;
         this.deleteOperator = deleteOperator;
         this.updateOperator = updateOperator;
+        this.operatorProfilingEnabled = isOperatorProfilingEnabled(driverContext.getSession());
 
         currentTaskSource = sourceOperator.map(operator -> new TaskSource(operator.getSourceId(), ImmutableSet.of(), false)).orElse(null);
         // initially the driverBlockedFuture is not blocked (it is completed)
@@ -313,6 +317,7 @@ public class Driver
             OperationTimer operationTimer = createTimer();
             driverContext.startProcessTimer();
             driverContext.getYieldSignal().setWithDelay(maxRuntime, driverContext.getYieldExecutor());
+            startProcessingThread();
             try {
                 long start = System.nanoTime();
                 do {
@@ -326,6 +331,7 @@ public class Driver
             finally {
                 driverContext.getYieldSignal().reset();
                 driverContext.recordProcessed(operationTimer);
+                endProcessingThread();
             }
             return NOT_BLOCKED;
         });
@@ -343,12 +349,32 @@ public class Driver
         }
 
         Optional<ListenableFuture<?>> result = tryWithLock(100, TimeUnit.MILLISECONDS, () -> {
-            ListenableFuture<?> future = processInternal(createTimer());
-            return updateDriverBlockedFuture(future);
+            startProcessingThread();
+            try {
+                ListenableFuture<?> future = processInternal(createTimer());
+                return updateDriverBlockedFuture(future);
+            }
+            finally {
+                endProcessingThread();
+            }
         });
         return result.orElse(NOT_BLOCKED);
     }
 
+    private void startProcessingThread()
+    {
+        if (operatorProfilingEnabled) {
+            driverContext.setProcessingThread(Thread.currentThread());
+        }
+    }
+
+    private void endProcessingThread()
+    {
+        if (operatorProfilingEnabled) {
+            driverContext.setProcessingThread(null);
+        }
+    }
+
     private OperationTimer createTimer()
     {
         return new OperationTimer(
@@ -30,8 +30,12 @@ import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -86,6 +90,11 @@ public class DriverContext
     private final Optional<FragmentResultCacheContext> fragmentResultCacheContext;
     private final long splitWeight;
 
+    // stack samples of the processing thread that are not yet attributed to an operator
+    private final Queue<String> pendingStackSamples = new ConcurrentLinkedQueue<>();
+    @Nullable
+    private volatile Thread processingThread;
+
     public DriverContext(
             PipelineContext pipelineContext,
             Executor notificationExecutor,
@@ -178,6 +187,39 @@ public class DriverContext
         blocked.addListener(monitor, notificationExecutor);
     }
 
+    /**
+     * Publishes the thread processing the driver, so that its stack can be sampled
+     * while operator profiling is enabled.
+     */
+    public void setProcessingThread(@Nullable Thread processingThread)
+    {
+        this.processingThread = processingThread;
+    }
+
+    @Nullable
+    public Thread getProcessingThread()
+    {
+        return processingThread;
+    }
+
+    /**
+     * Records a stack sample of the processing thread. Like CPU time and allocations, the
+     * sample is attributed to the operator that completes the next operation.
+     */
+    public void recordStackSample(String frame)
+    {
+        pendingStackSamples.add(requireNonNull(frame, "frame is null"));
+    }
+
+    void attributeStackSamples(OperatorContext operatorContext)
+    {
+        String frame = pendingStackSamples.poll();
+        while (frame != null) {
+            operatorContext.recordStackSample(frame);
+            frame = pendingStackSamples.poll();
+        }
+    }
+
     public void finished()
     {
         if (!finished.compareAndSet(false, true)) {
@@ -20,6 +20,7 @@ import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.aggregation.TypedSet;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
@@ -29,6 +30,7 @@ import io.airlift.units.DataSize;
 import javax.annotation.Nullable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -39,6 +41,7 @@ import static com.facebook.presto.common.type.TypeUtils.isFloatingPointNaN;
 import static com.facebook.presto.common.type.TypeUtils.readNativeValue;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toSet;
 
@@ -47,6 +50,8 @@ import static java.util.stream.Collectors.toSet;
  * The collected pages' value are used for creating a run-time filtering constraint (for probe-side table scan in an inner join).
  * We record all values for the run-time filter only for small build-side pages (which should be the case when using "broadcast" join).
  * For large inputs on build side, we can optionally record the min and max values per channel for orderable types (except Double and Real).
+ * Optionally, once the values become too many for the exact predicate, a fixed size Bloom filter of the values is collected per channel instead.
+ * The Bloom filters are published before the predicate, both once all build-side pages were seen.
  */
 public class DynamicFilterSourceOperator
         implements Operator
@@ -92,6 +97,8 @@ public class DynamicFilterSourceOperator
         private final int maxFilterPositionsCount;
         private final DataSize maxFilterSize;
         private final int minMaxCollectionLimit;
+        private final Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer;
+        private final DataSize bloomFilterSize;
 
         private boolean closed;
 
@@ -103,6 +110,20 @@ public class DynamicFilterSourceOperator
                 int maxFilterPositionsCount,
                 DataSize maxFilterSize,
                 int minMaxCollectionLimit)
+        {
+            this(operatorId, planNodeId, dynamicPredicateConsumer, channels, maxFilterPositionsCount, maxFilterSize, minMaxCollectionLimit, bloomFilters -> {}, new DataSize(0, BYTE));
+        }
+
+        public DynamicFilterSourceOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Consumer<TupleDomain<String>> dynamicPredicateConsumer,
+                List<Channel> channels,
+                int maxFilterPositionsCount,
+                DataSize maxFilterSize,
+                int minMaxCollectionLimit,
+                Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer,
+                DataSize bloomFilterSize)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -117,6 +138,8 @@ public class DynamicFilterSourceOperator
             this.maxFilterPositionsCount = maxFilterPositionsCount;
             this.maxFilterSize = maxFilterSize;
             this.minMaxCollectionLimit = minMaxCollectionLimit;
+            this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+            this.bloomFilterSize = requireNonNull(bloomFilterSize, "bloomFilterSize is null");
         }
 
         @Override
@@ -130,7 +153,9 @@ public class DynamicFilterSourceOperator
                     planNodeId,
                     maxFilterPositionsCount,
                     maxFilterSize,
-                    minMaxCollectionLimit);
+                    minMaxCollectionLimit,
+                    bloomFilterConsumer,
+                    bloomFilterSize);
         }
 
         @Override
@@ -153,6 +178,9 @@ public class DynamicFilterSourceOperator
     private final long maxFilterSizeInBytes;
     private final List<Channel> channels;
     private final List<Integer> minMaxChannels;
+    private final Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer;
+    private final long bloomFilterSizeInBytes;
+    private final LocalMemoryContext bloomFilterMemoryContext;
 
     private boolean finished;
     private Page current;
@@ -169,6 +197,12 @@ public class DynamicFilterSourceOperator
     @Nullable
     private Block[] maxValues;
 
+    // Created once the exact predicate becomes too large.
+    @Nullable
+    private BlockedBloomFilter[] bloomFilters;
+    // Whether the predicate turned out to allow all values but is not published yet, as the Bloom filters must be published first.
+    private boolean allowAllPending;
+
     private DynamicFilterSourceOperator(
             OperatorContext context,
             Consumer<TupleDomain<String>> dynamicPredicateConsumer,
@@ -176,7 +210,9 @@ public class DynamicFilterSourceOperator
             PlanNodeId planNodeId,
             int maxFilterPositionsCount,
             DataSize maxFilterSize,
-            int minMaxCollectionLimit)
+            int minMaxCollectionLimit,
+            Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer,
+            DataSize bloomFilterSize)
     {
         this.context = requireNonNull(context, "context is null");
         this.maxFilterPositionsCount = maxFilterPositionsCount;
@@ -184,6 +220,9 @@ public class DynamicFilterSourceOperator
 
         this.dynamicPredicateConsumer = requireNonNull(dynamicPredicateConsumer, "dynamicPredicateConsumer is null");
         this.channels = requireNonNull(channels, "channels is null");
+        this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+        this.bloomFilterSizeInBytes = requireNonNull(bloomFilterSize, "bloomFilterSize is null").toBytes();
+        this.bloomFilterMemoryContext = context.localUserMemoryContext();
 
         this.blockBuilders = new BlockBuilder[channels.size()];
         this.valueSets = new TypedSet[channels.size()];
@@ -227,6 +266,11 @@ public class DynamicFilterSourceOperator
     {
         verify(!finished, "DynamicFilterSourceOperator: addInput() shouldn't not be called after finish()");
         current = page;
+        if (bloomFilters != null) {
+            for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+                bloomFilters[channelIndex].addAll(page.getBlock(channels.get(channelIndex).getIndex()));
+            }
+        }
         if (valueSets == null) {
             // the exact predicate became too large.
             if (minValues == null) {
@@ -267,10 +311,15 @@ public class DynamicFilterSourceOperator
 
     private void handleTooLargePredicate()
     {
+        if (isBloomFilterEnabled()) {
+            // keep collecting the values in Bloom filters from now on
+            createBloomFilters();
+        }
+
         // The resulting predicate is too large
         if (minMaxChannels.isEmpty()) {
             // allow all probe-side values to be read.
-            dynamicPredicateConsumer.accept(TupleDomain.all());
+            allowAll();
         }
         else {
             if (minMaxCollectionLimit < 0) {
@@ -293,12 +342,59 @@ public class DynamicFilterSourceOperator
     private void handleMinMaxCollectionLimitExceeded()
     {
         // allow all probe-side values to be read.
-        dynamicPredicateConsumer.accept(TupleDomain.all());
+        allowAll();
         // Drop references to collected values.
         minValues = null;
         maxValues = null;
     }
 
+    private void allowAll()
+    {
+        if (isBloomFilterEnabled()) {
+            allowAllPending = true;
+            return;
+        }
+        dynamicPredicateConsumer.accept(TupleDomain.all());
+    }
+
+    private boolean isBloomFilterEnabled()
+    {
+        return bloomFilterSizeInBytes > 0;
+    }
+
+    private void createBloomFilters()
+    {
+        verify(blockBuilders != null, "blockBuilders is null when creating Bloom filters");
+        bloomFilters = new BlockedBloomFilter[channels.size()];
+        long retainedSizeInBytes = 0;
+        for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+            bloomFilters[channelIndex] = new BlockedBloomFilter(channels.get(channelIndex).getType(), bloomFilterSizeInBytes);
+            // the values collected so far
+            bloomFilters[channelIndex].addAll(blockBuilders[channelIndex].build());
+            retainedSizeInBytes += bloomFilters[channelIndex].getRetainedSizeInBytes();
+        }
+        bloomFilterMemoryContext.setBytes(retainedSizeInBytes);
+    }
+
+    private void publishBloomFilters()
+    {
+        if (bloomFilters == null) {
+            // the exact predicate covers all values, so the Bloom filters are built from it when other drivers need them
+            return;
+        }
+        ImmutableMap.Builder<String, BlockedBloomFilter> bloomFiltersBuilder = ImmutableMap.builder();
+        for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+            // a saturated filter would only slow down the probe side
+            if (!bloomFilters[channelIndex].isSaturated()) {
+                bloomFiltersBuilder.put(channels.get(channelIndex).getFilterId(), bloomFilters[channelIndex]);
+            }
+        }
+        bloomFilters = null;
+        bloomFilterConsumer.accept(bloomFiltersBuilder.build());
+        // the consumer accounts for the published filters from now on
+        bloomFilterMemoryContext.setBytes(0);
+    }
+
     private void updateMinMaxValues(Block block, int channelIndex)
     {
         checkState(minValues != null && maxValues != null);
@@ -359,6 +455,13 @@ public class DynamicFilterSourceOperator
             return;
         }
         finished = true;
+        if (isBloomFilterEnabled()) {
+            publishBloomFilters();
+            if (allowAllPending) {
+                dynamicPredicateConsumer.accept(TupleDomain.all());
+                return;
+            }
+        }
         ImmutableMap.Builder<String, Domain> domainsBuilder = ImmutableMap.builder();
         if (valueSets == null) {
             if (minValues == null) {
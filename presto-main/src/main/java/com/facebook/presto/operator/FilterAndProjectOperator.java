@@ -105,6 +105,12 @@ public class FilterAndProjectOperator
         return mergingOutput.getOutput();
     }
 
+    @Override
+    public void close()
+    {
+        processor.updateRuntimeStats(operatorContext.getRuntimeStats());
+    }
+
     public static class FilterAndProjectOperatorFactory
             implements OperatorFactory
     {
@@ -21,8 +21,10 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -117,4 +119,32 @@ public interface GroupByHash
             }
         };
     }
+
+    /**
+     * Returns the values of all groups in group id order, as pages laid out like {@link #getTypes()}.
+     * The pages are built lazily, so the hash must not be modified while they are consumed.
+     */
+    default Iterator<Page> getGroupValuePages()
+    {
+        return new AbstractIterator<Page>()
+        {
+            private final PageBuilder pageBuilder = new PageBuilder(getTypes());
+            private int groupId;
+
+            @Override
+            protected Page computeNext()
+            {
+                if (groupId == getGroupCount()) {
+                    return endOfData();
+                }
+                pageBuilder.reset();
+                while (!pageBuilder.isFull() && groupId < getGroupCount()) {
+                    pageBuilder.declarePosition();
+                    appendValuesTo(groupId, pageBuilder, 0);
+                    groupId++;
+                }
+                return pageBuilder.build();
+            }
+        };
+    }
 }
@@ -19,6 +19,17 @@ public interface HashGenerator
 {
     long hashPosition(int position, Page page);
 
+    /**
+     * Hashes the first {@code positionCount} positions of the page into {@code hashes}.
+     * The hashes must be the same as the ones returned by {@link #hashPosition(int, Page)}.
+     */
+    default void hashPositions(Page page, int positionCount, long[] hashes)
+    {
+        for (int position = 0; position < positionCount; position++) {
+            hashes[position] = hashPosition(position, page);
+        }
+    }
+
     default int getPartition(int partitionCount, int position, Page page)
     {
         long rawHash = hashPosition(position, page);
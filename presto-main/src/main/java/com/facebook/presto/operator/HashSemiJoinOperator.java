@@ -18,18 +18,29 @@ import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.SetBuilderOperator.SetSupplier;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getDone;
 import static com.facebook.airlift.concurrent.MoreFutures.tryGetFutureValue;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
 
 public class HashSemiJoinOperator
@@ -46,17 +57,32 @@ public class HashSemiJoinOperator
         private final List<Type> probeTypes;
         private final int probeJoinChannel;
         private final Optional<Integer> probeJoinHashChannel;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
         private boolean closed;
 
         public HashSemiJoinOperatorFactory(int operatorId, PlanNodeId planNodeId, SetSupplier setSupplier, List<? extends Type> probeTypes, int probeJoinChannel, Optional<Integer> probeJoinHashChannel)
+        {
+            this(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel, unsupportedPartitioningSpillerFactory());
+        }
+
+        public HashSemiJoinOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                SetSupplier setSupplier,
+                List<? extends Type> probeTypes,
+                int probeJoinChannel,
+                Optional<Integer> probeJoinHashChannel,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
-            this.setSupplier = setSupplier;
+            this.setSupplier = requireNonNull(setSupplier, "setSupplier is null");
             this.probeTypes = ImmutableList.copyOf(probeTypes);
             checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
             this.probeJoinChannel = probeJoinChannel;
             this.probeJoinHashChannel = probeJoinHashChannel;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+            setSupplier.addProbeFactory();
         }
 
         @Override
@@ -64,31 +90,59 @@ public class HashSemiJoinOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, HashSemiJoinOperator.class.getSimpleName());
-            return new HashSemiJoinOperator(operatorContext, setSupplier, probeJoinChannel, probeJoinHashChannel);
+            setSupplier.getSpilledChannelSetHandle().registerProbe();
+            return new HashSemiJoinOperator(operatorContext, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel, partitioningSpillerFactory);
         }
 
         @Override
         public void noMoreOperators()
         {
+            if (closed) {
+                return;
+            }
             closed = true;
+            setSupplier.probeFactoryClosed();
         }
 
         @Override
         public OperatorFactory duplicate()
         {
-            return new HashSemiJoinOperatorFactory(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel);
+            return new HashSemiJoinOperatorFactory(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel, partitioningSpillerFactory);
         }
     }
 
+    private final SetSupplier setSupplier;
+    private final List<Type> probeTypes;
     private final int probeJoinChannel;
     private final ListenableFuture<ChannelSet> channelSetFuture;
     private final Optional<Integer> probeHashChannel;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
 
     private ChannelSet channelSet;
     private Page outputPage;
     private boolean finishing;
+    private boolean closed;
+
+    // set when the build side has been spilled, in which case the whole probe input is spilled
+    // and then probed one partition at a time
+    @Nullable
+    private SpilledChannelSetHandle spilledChannelSet;
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private int probedPartition;
+    private boolean allPartitionsReleased;
+    @Nullable
+    private ListenableFuture<ChannelSet> partitionChannelSet;
+    @Nullable
+    private Iterator<Page> unspilledProbePages;
 
-    public HashSemiJoinOperator(OperatorContext operatorContext, SetSupplier channelSetFuture, int probeJoinChannel, Optional<Integer> probeHashChannel)
+    public HashSemiJoinOperator(
+            OperatorContext operatorContext,
+            SetSupplier channelSetFuture,
+            List<Type> probeTypes,
+            int probeJoinChannel,
+            Optional<Integer> probeHashChannel,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
 
@@ -96,9 +150,12 @@ public class HashSemiJoinOperator
         requireNonNull(channelSetFuture, "hashProvider is null");
         checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
 
+        this.setSupplier = channelSetFuture;
         this.channelSetFuture = channelSetFuture.getChannelSet();
+        this.probeTypes = ImmutableList.copyOf(requireNonNull(probeTypes, "probeTypes is null"));
         this.probeJoinChannel = probeJoinChannel;
         this.probeHashChannel = probeHashChannel;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
     }
 
     @Override
@@ -116,13 +173,22 @@ public class HashSemiJoinOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && outputPage == null;
+        return finishing && outputPage == null && (spilledChannelSet == null || allPartitionsReleased);
     }
 
     @Override
     public ListenableFuture<?> isBlocked()
     {
-        return channelSetFuture;
+        if (!setSupplier.getSetReady().isDone()) {
+            return setSupplier.getSetReady();
+        }
+        if (!spillInProgress.isDone()) {
+            return spillInProgress;
+        }
+        if (partitionChannelSet != null && !partitionChannelSet.isDone()) {
+            return partitionChannelSet;
+        }
+        return NOT_BLOCKED;
     }
 
     @Override
@@ -132,8 +198,19 @@ public class HashSemiJoinOperator
             return false;
         }
 
-        if (channelSet == null) {
-            channelSet = tryGetFutureValue(channelSetFuture).orElse(null);
+        if (channelSet == null && spilledChannelSet == null) {
+            if (!setSupplier.getSetReady().isDone()) {
+                return false;
+            }
+            if (setSupplier.isSpilled()) {
+                spilledChannelSet = setSupplier.getSpilledChannelSetHandle();
+            }
+            else {
+                channelSet = tryGetFutureValue(channelSetFuture).orElse(null);
+            }
+        }
+        if (spilledChannelSet != null) {
+            return spillInProgress.isDone();
         }
         return channelSet != null;
     }
@@ -143,11 +220,19 @@ public class HashSemiJoinOperator
     {
         requireNonNull(page, "page is null");
         checkState(!finishing, "Operator is finishing");
-        // use an effectively-final local variable instead of the non-final instance field inside of the loop
-        ChannelSet channelSet = this.channelSet;
-        checkState(channelSet != null, "Set has not been built yet");
         checkState(outputPage == null, "Operator still has pending output");
 
+        if (spilledChannelSet != null) {
+            spillInput(page.getLoadedPage());
+            return;
+        }
+
+        checkState(channelSet != null, "Set has not been built yet");
+        outputPage = semiJoin(page, channelSet, channelSet.containsNull(), channelSet.isEmpty(), probeHashChannel);
+    }
+
+    private Page semiJoin(Page page, ChannelSet channelSet, boolean setContainsNull, boolean setIsEmpty, Optional<Integer> probeHashChannel)
+    {
         // create the block builder for the new boolean column
         // we know the exact size required for the block
         BlockBuilder blockBuilder = BOOLEAN.createFixedSizeBlockBuilder(page.getPositionCount());
@@ -159,7 +244,7 @@ public class HashSemiJoinOperator
         // update hashing strategy to use probe cursor
         for (int position = 0; position < page.getPositionCount(); position++) {
             if (probeJoinNulls != null && probeJoinNulls.isNull(position)) {
-                if (channelSet.isEmpty()) {
+                if (setIsEmpty) {
                     BOOLEAN.writeBoolean(blockBuilder, false);
                 }
                 else {
@@ -175,7 +260,7 @@ public class HashSemiJoinOperator
                 else {
                     contains = channelSet.contains(position, probeJoinPage);
                 }
-                if (!contains && channelSet.containsNull()) {
+                if (!contains && setContainsNull) {
                     blockBuilder.appendNull();
                 }
                 else {
@@ -185,14 +270,105 @@ public class HashSemiJoinOperator
         }
 
         // add the new boolean column to the page
-        outputPage = page.appendColumn(blockBuilder.build());
+        return page.appendColumn(blockBuilder.build());
+    }
+
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+
+        if (!spiller.isPresent()) {
+            // partition the same way as the build side, which only has the set channel
+            LocalPartitionGenerator partitionGenerator = new LocalPartitionGenerator(
+                    new InterpretedHashGenerator(ImmutableList.of(setSupplier.getType()), new int[] {probeJoinChannel}),
+                    spilledChannelSet.getPartitionCount());
+            spiller = Optional.of(partitioningSpillerFactory.create(
+                    probeTypes,
+                    partitionGenerator,
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext()));
+        }
+
+        spillInProgress = spiller.get().partitionAndSpill(page, partition -> true).getSpillingFuture();
     }
 
     @Override
     public Page getOutput()
     {
-        Page result = outputPage;
-        outputPage = null;
-        return result;
+        if (outputPage != null) {
+            Page result = outputPage;
+            outputPage = null;
+            return result;
+        }
+
+        if (!finishing || spilledChannelSet == null || !spillInProgress.isDone()) {
+            return null;
+        }
+        checkSpillSucceeded(spillInProgress);
+        return probeSpilledPartitions();
+    }
+
+    @Nullable
+    private Page probeSpilledPartitions()
+    {
+        while (!allPartitionsReleased) {
+            if (!spiller.isPresent()) {
+                // no probe input, so none of the partitions is needed
+                releaseRemainingPartitions();
+                return null;
+            }
+
+            if (partitionChannelSet == null) {
+                partitionChannelSet = spilledChannelSet.getPartition(probedPartition);
+            }
+            if (!partitionChannelSet.isDone()) {
+                return null;
+            }
+
+            if (unspilledProbePages == null) {
+                unspilledProbePages = spiller.get().getSpilledPages(probedPartition);
+            }
+            if (unspilledProbePages.hasNext()) {
+                // the build partition has no precomputed hash, so the probe hash cannot be used
+                return semiJoin(unspilledProbePages.next(), getDone(partitionChannelSet), spilledChannelSet.containsNull(), spilledChannelSet.isEmpty(), Optional.empty());
+            }
+
+            unspilledProbePages = null;
+            partitionChannelSet = null;
+            spilledChannelSet.release(probedPartition);
+            probedPartition++;
+            allPartitionsReleased = probedPartition == spilledChannelSet.getPartitionCount();
+        }
+        return null;
+    }
+
+    private void releaseRemainingPartitions()
+    {
+        if (!allPartitionsReleased) {
+            setSupplier.getSpilledChannelSetHandle().releaseFrom(probedPartition);
+            allPartitionsReleased = true;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        channelSet = null;
+        partitionChannelSet = null;
+        unspilledProbePages = null;
+        releaseRemainingPartitions();
+        if (spiller.isPresent()) {
+            try {
+                spiller.get().close();
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 }
@@ -0,0 +1,544 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.array.IntBigArray;
+import com.facebook.presto.common.array.LongBigArray;
+import com.facebook.presto.common.array.ObjectBigArray;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Collections.emptyIterator;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Finds the top N rows for each group, like {@link InMemoryGroupedTopNBuilder}, without allocating an object per row or per group.
+ *
+ * Every buffered row has an int row id, and {@code rowAddresses} maps it to the synthetic address of its page and position.
+ * The heap of a group is a segment of {@code topN} row ids in {@code heaps}, starting at {@code groupId * topN}, with the row
+ * that would be evicted next at its root. When a row is evicted, the row replacing it takes over its row id and its heap slot.
+ *
+ * A page is dropped once none of its positions is referenced by a row, and compacted once less than half of them are.
+ * The heap segment of every group is allocated in full, so this builder is meant for small values of N.
+ */
+public class InMemoryFlatGroupedTopNBuilder
+        implements MigratableGroupedTopNBuilder
+{
+    // the heap segments take topN ints per group, however many rows the group has
+    public static final int MAX_TOP_N = 32;
+
+    private static final long INSTANCE_SIZE = ClassLayout.parseClass(InMemoryFlatGroupedTopNBuilder.class).instanceSize();
+    // compact a page when 50% of its positions are unreferenced
+    private static final int COMPACT_THRESHOLD = 2;
+
+    private final Type[] sourceTypes;
+    private final int topN;
+    private final boolean produceRowNumber;
+    private final GroupByHash groupByHash;
+    private final PageWithPositionComparator comparator;
+    private LocalMemoryContext memoryContext;
+
+    // row ids of the heap of each group, in segments of topN
+    private final IntBigArray heaps = new IntBigArray();
+    private final IntBigArray heapSizes = new IntBigArray();
+    // number of groups with an allocated heap segment
+    private long heapCount;
+
+    private final LongBigArray rowAddresses = new LongBigArray();
+    private int rowCount;
+
+    private final ObjectBigArray<PageReference> pageReferences = new ObjectBigArray<>();
+    // slots of removed pages, to be reused
+    private final IntArrayList emptyPageReferenceSlots = new IntArrayList();
+    private int currentPageCount;
+    private long pageReferencesSizeInBytes;
+
+    public InMemoryFlatGroupedTopNBuilder(
+            List<Type> sourceTypes,
+            PageWithPositionComparator comparator,
+            int topN,
+            boolean produceRowNumber,
+            LocalMemoryContext memoryContext,
+            GroupByHash groupByHash)
+    {
+        this.sourceTypes = requireNonNull(sourceTypes, "sourceTypes is null").toArray(new Type[0]);
+        checkArgument(topN > 0, "topN must be > 0");
+        this.topN = topN;
+        this.produceRowNumber = produceRowNumber;
+        this.groupByHash = requireNonNull(groupByHash, "groupByHash is null");
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        this.comparator = requireNonNull(comparator, "comparator is null");
+    }
+
+    @Override
+    public Work<?> processPage(Page page)
+    {
+        return new TransformWork<>(
+                groupByHash.getGroupIds(page),
+                groupIds -> {
+                    processPage(page, groupIds);
+                    return null;
+                });
+    }
+
+    @Override
+    public WorkProcessor<Page> buildResult()
+    {
+        if (groupByHash.getGroupCount() == 0) {
+            return WorkProcessor.fromIterator(emptyIterator());
+        }
+        return WorkProcessor.fromIterator(new ResultIterator(IntStream.range(0, groupByHash.getGroupCount()).iterator(), false));
+    }
+
+    @Override
+    public Iterator<Page> buildHashSortedIntermediateResult()
+    {
+        return new ResultIterator(groupByHash.getHashSortedGroupIds(), true);
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("InMemoryFlatGroupedTopNBuilder does not support startMemoryRevoke");
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("InMemoryFlatGroupedTopNBuilder does not support finishMemoryRevoke");
+    }
+
+    @Override
+    public long getEstimatedSizeInBytes()
+    {
+        return INSTANCE_SIZE +
+                pageReferencesSizeInBytes +
+                groupByHash.getEstimatedSize() +
+                heaps.sizeOf() +
+                heapSizes.sizeOf() +
+                rowAddresses.sizeOf() +
+                pageReferences.sizeOf() +
+                sizeOf(emptyPageReferenceSlots.elements()) +
+                getGroupIdsSortingSize();
+    }
+
+    // see InMemoryGroupedTopNBuilder.getGroupIdsSortingSize
+    public long getGroupIdsSortingSize()
+    {
+        return (long) groupByHash.getGroupCount() * Integer.BYTES;
+    }
+
+    @Override
+    public ListenableFuture<?> updateMemoryReservations()
+    {
+        return memoryContext.setBytes(getEstimatedSizeInBytes());
+    }
+
+    @Override
+    public boolean migrateMemoryContext(LocalMemoryContext newMemoryContext)
+    {
+        long currentBytes = memoryContext.getBytes();
+        memoryContext.setBytes(0);
+        if (!newMemoryContext.trySetBytes(newMemoryContext.getBytes() + currentBytes)) {
+            memoryContext.setBytes(currentBytes);
+            return false;
+        }
+        memoryContext = newMemoryContext;
+        return true;
+    }
+
+    @Override
+    public GroupByHash getGroupByHash()
+    {
+        return groupByHash;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return groupByHash.getGroupCount() == 0;
+    }
+
+    @Override
+    public void close() {}
+
+    @VisibleForTesting
+    List<Page> getBufferedPages()
+    {
+        return IntStream.range(0, currentPageCount)
+                .filter(i -> pageReferences.get(i) != null)
+                .mapToObj(i -> pageReferences.get(i).getPage())
+                .collect(toImmutableList());
+    }
+
+    private void processPage(Page newPage, GroupByIdBlock groupIds)
+    {
+        int firstPositionToInsert = findFirstPositionToInsert(newPage, groupIds);
+        if (firstPositionToInsert < 0) {
+            // no insertions required
+            return;
+        }
+
+        int newPageId = addPage(newPage);
+        PageReference newPageReference = pageReferences.get(newPageId);
+
+        // ensure sufficient group capacity outside of the loop
+        heapCount = groupIds.getGroupCount();
+        heapSizes.ensureCapacity(heapCount);
+        heaps.ensureCapacity(heapCount * topN);
+
+        IntSet pagesToCompact = new IntOpenHashSet();
+        for (int position = firstPositionToInsert; position < newPage.getPositionCount(); position++) {
+            long groupId = groupIds.getGroupId(position);
+            long heapStart = groupId * topN;
+            int heapSize = heapSizes.get(groupId);
+
+            if (heapSize < topN) {
+                checkState(rowCount < Integer.MAX_VALUE, "Too many rows");
+                int rowId = rowCount++;
+                rowAddresses.ensureCapacity(rowCount);
+                rowAddresses.set(rowId, encodeSyntheticAddress(newPageId, position));
+                newPageReference.reference(position, rowId);
+
+                heaps.set(heapStart + heapSize, rowId);
+                heapSizes.set(groupId, heapSize + 1);
+                siftUp(heapStart, heapSize);
+                continue;
+            }
+
+            // replace the root if the new row comes before it
+            int rootRowId = heaps.get(heapStart);
+            long rootAddress = rowAddresses.get(rootRowId);
+            int rootPageId = decodeSliceIndex(rootAddress);
+            PageReference rootPageReference = pageReferences.get(rootPageId);
+            if (comparator.compareTo(newPage, position, rootPageReference.getPage(), decodePosition(rootAddress)) < 0) {
+                rootPageReference.dereference(decodePosition(rootAddress));
+                rowAddresses.set(rootRowId, encodeSyntheticAddress(newPageId, position));
+                newPageReference.reference(position, rootRowId);
+                siftDown(heapStart, heapSize);
+
+                // compact a page if it is not the current input page and the reference count is below the threshold
+                if (rootPageId != newPageId &&
+                        rootPageReference.getUsedPositionCount() * COMPACT_THRESHOLD < rootPageReference.getPage().getPositionCount()) {
+                    pagesToCompact.add(rootPageId);
+                }
+            }
+        }
+
+        // may compact the new page as well
+        if (newPageReference.getUsedPositionCount() * COMPACT_THRESHOLD < newPage.getPositionCount()) {
+            pagesToCompact.add(newPageId);
+        }
+
+        IntIterator iterator = pagesToCompact.iterator();
+        while (iterator.hasNext()) {
+            int pageId = iterator.nextInt();
+            PageReference pageReference = pageReferences.get(pageId);
+            pageReferencesSizeInBytes -= pageReference.getEstimatedSizeInBytes();
+            if (pageReference.getUsedPositionCount() == 0) {
+                pageReferences.set(pageId, null);
+                emptyPageReferenceSlots.add(pageId);
+            }
+            else {
+                pageReference.compact(pageId, rowAddresses);
+                pageReferencesSizeInBytes += pageReference.getEstimatedSizeInBytes();
+            }
+        }
+    }
+
+    private int findFirstPositionToInsert(Page newPage, GroupByIdBlock groupIds)
+    {
+        for (int position = 0; position < newPage.getPositionCount(); position++) {
+            long groupId = groupIds.getGroupId(position);
+            if (groupId >= heapCount || heapSizes.get(groupId) < topN) {
+                return position;
+            }
+            // check against the row that would be evicted next
+            long rootAddress = rowAddresses.get(heaps.get(groupId * topN));
+            Page rootPage = pageReferences.get(decodeSliceIndex(rootAddress)).getPage();
+            if (comparator.compareTo(newPage, position, rootPage, decodePosition(rootAddress)) < 0) {
+                return position;
+            }
+        }
+        // no positions to insert
+        return -1;
+    }
+
+    private int addPage(Page page)
+    {
+        PageReference pageReference = new PageReference(page);
+        pageReferencesSizeInBytes += pageReference.getEstimatedSizeInBytes();
+        int pageId;
+        if (emptyPageReferenceSlots.isEmpty()) {
+            // all the previous slots are full; create a new one
+            pageReferences.ensureCapacity(currentPageCount + 1);
+            pageId = currentPageCount;
+            currentPageCount++;
+        }
+        else {
+            // reuse a previously removed page's slot
+            pageId = emptyPageReferenceSlots.removeInt(emptyPageReferenceSlots.size() - 1);
+        }
+        verify(pageReferences.setIfNull(pageId, pageReference), "should not overwrite a non-empty slot");
+        return pageId;
+    }
+
+    /**
+     * Orders rows so that the row to be evicted first compares greatest.
+     */
+    private int compareRows(int leftRowId, int rightRowId)
+    {
+        long leftAddress = rowAddresses.get(leftRowId);
+        long rightAddress = rowAddresses.get(rightRowId);
+        return comparator.compareTo(
+                pageReferences.get(decodeSliceIndex(leftAddress)).getPage(),
+                decodePosition(leftAddress),
+                pageReferences.get(decodeSliceIndex(rightAddress)).getPage(),
+                decodePosition(rightAddress));
+    }
+
+    private void siftUp(long heapStart, int index)
+    {
+        int rowId = heaps.get(heapStart + index);
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int parentRowId = heaps.get(heapStart + parent);
+            if (compareRows(parentRowId, rowId) >= 0) {
+                break;
+            }
+            heaps.set(heapStart + index, parentRowId);
+            index = parent;
+        }
+        heaps.set(heapStart + index, rowId);
+    }
+
+    private void siftDown(long heapStart, int heapSize)
+    {
+        int rowId = heaps.get(heapStart);
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            int childRowId = heaps.get(heapStart + child);
+            if (child + 1 < heapSize) {
+                int rightRowId = heaps.get(heapStart + child + 1);
+                if (compareRows(rightRowId, childRowId) > 0) {
+                    child++;
+                    childRowId = rightRowId;
+                }
+            }
+            if (compareRows(rowId, childRowId) >= 0) {
+                break;
+            }
+            heaps.set(heapStart + index, childRowId);
+            index = child;
+        }
+        heaps.set(heapStart + index, rowId);
+    }
+
+    /**
+     * Sorts a heap segment in place, in output order.
+     */
+    private void sortHeap(long heapStart, int heapSize)
+    {
+        for (int size = heapSize - 1; size > 0; size--) {
+            int rootRowId = heaps.get(heapStart);
+            heaps.set(heapStart, heaps.get(heapStart + size));
+            heaps.set(heapStart + size, rootRowId);
+            siftDown(heapStart, size);
+        }
+    }
+
+    private static class PageReference
+    {
+        private static final long INSTANCE_SIZE = ClassLayout.parseClass(PageReference.class).instanceSize();
+        private static final int UNREFERENCED = -1;
+
+        private Page page;
+        // row id referencing each position
+        private int[] rowIds;
+        private int usedPositionCount;
+
+        public PageReference(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+            this.rowIds = new int[page.getPositionCount()];
+            Arrays.fill(rowIds, UNREFERENCED);
+        }
+
+        public void reference(int position, int rowId)
+        {
+            rowIds[position] = rowId;
+            usedPositionCount++;
+        }
+
+        public boolean dereference(int position)
+        {
+            checkArgument(rowIds[position] != UNREFERENCED && usedPositionCount > 0);
+            rowIds[position] = UNREFERENCED;
+            return (--usedPositionCount) == 0;
+        }
+
+        public int getUsedPositionCount()
+        {
+            return usedPositionCount;
+        }
+
+        /**
+         * Drops the unreferenced positions, and updates the addresses of the rows referencing the others.
+         */
+        public void compact(int pageId, LongBigArray rowAddresses)
+        {
+            checkState(usedPositionCount > 0);
+
+            if (usedPositionCount == page.getPositionCount()) {
+                return;
+            }
+
+            int[] newRowIds = new int[usedPositionCount];
+            int[] positions = new int[usedPositionCount];
+            int index = 0;
+            for (int position = 0; position < rowIds.length && index < usedPositionCount; position++) {
+                int rowId = rowIds[position];
+                if (rowId != UNREFERENCED) {
+                    rowAddresses.set(rowId, encodeSyntheticAddress(pageId, index));
+                    newRowIds[index] = rowId;
+                    positions[index] = position;
+                    index++;
+                }
+            }
+            verify(index == usedPositionCount);
+
+            page = page.copyPositions(positions, 0, usedPositionCount);
+            rowIds = newRowIds;
+        }
+
+        public Page getPage()
+        {
+            return page;
+        }
+
+        public long getEstimatedSizeInBytes()
+        {
+            return page.getRetainedSizeInBytes() + sizeOf(rowIds) + INSTANCE_SIZE;
+        }
+    }
+
+    private class ResultIterator
+            extends AbstractIterator<Page>
+    {
+        private final PageBuilder pageBuilder;
+        private final PrimitiveIterator.OfInt groupIds;
+        private final boolean intermediate;
+
+        private long currentHeapStart;
+        // the row number of the current position in the group
+        private int currentGroupPosition;
+        // number of rows in the group
+        private int currentGroupSize;
+
+        ResultIterator(PrimitiveIterator.OfInt groupIds, boolean intermediate)
+        {
+            this.groupIds = requireNonNull(groupIds, "groupIds is null");
+            this.intermediate = intermediate;
+
+            // row numbers of intermediate (spilled) output are computed after it is unspilled
+            if (produceRowNumber && !intermediate) {
+                pageBuilder = new PageBuilder(new ImmutableList.Builder<Type>().add(sourceTypes).add(BIGINT).build());
+            }
+            else {
+                pageBuilder = new PageBuilder(ImmutableList.copyOf(sourceTypes));
+            }
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            pageBuilder.reset();
+            while (!pageBuilder.isFull()) {
+                if (currentGroupPosition == currentGroupSize) {
+                    if (!groupIds.hasNext()) {
+                        break;
+                    }
+                    nextGroup(groupIds.nextInt());
+                    continue;
+                }
+
+                long address = rowAddresses.get(heaps.get(currentHeapStart + currentGroupPosition));
+                int pageId = decodeSliceIndex(address);
+                int position = decodePosition(address);
+                PageReference pageReference = pageReferences.get(pageId);
+                Page page = pageReference.getPage();
+                for (int i = 0; i < sourceTypes.length; i++) {
+                    sourceTypes[i].appendTo(page.getBlock(i), position, pageBuilder.getBlockBuilder(i));
+                }
+
+                if (produceRowNumber && !intermediate) {
+                    BIGINT.writeLong(pageBuilder.getBlockBuilder(sourceTypes.length), currentGroupPosition + 1);
+                }
+                pageBuilder.declarePosition();
+                currentGroupPosition++;
+
+                // no need to compact the pages but remove them once completely unused
+                if (pageReference.dereference(position)) {
+                    pageReferences.set(pageId, null);
+                    pageReferencesSizeInBytes -= pageReference.getEstimatedSizeInBytes();
+                }
+            }
+
+            if (pageBuilder.isEmpty()) {
+                return endOfData();
+            }
+            return pageBuilder.build();
+        }
+
+        private void nextGroup(int groupId)
+        {
+            currentHeapStart = (long) groupId * topN;
+            currentGroupSize = heapSizes.get(groupId);
+            verify(currentGroupSize > 0, "impossible to have inserted a group without a witness row for group %s", groupId);
+            sortHeap(currentHeapStart, currentGroupSize);
+            currentGroupPosition = 0;
+        }
+    }
+}
@@ -59,7 +59,7 @@ import static java.util.Objects.requireNonNull;
  * As we receive input we populate it into the HashTable and also populate it to the Heap.
  */
 public class InMemoryGroupedTopNBuilder
-        implements GroupedTopNBuilder
+        implements MigratableGroupedTopNBuilder
 {
     private static final long INSTANCE_SIZE = ClassLayout.parseClass(InMemoryGroupedTopNBuilder.class).instanceSize();
     // compact a page when 50% of its positions are unreferenced
@@ -583,6 +583,7 @@ public class InMemoryGroupedTopNBuilder
      * @param newMemoryContext
      * @return
      */
+    @Override
     public boolean migrateMemoryContext(LocalMemoryContext newMemoryContext)
     {
         long currentBytes = memoryContext.getBytes();
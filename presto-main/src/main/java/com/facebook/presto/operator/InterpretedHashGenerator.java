@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.AbstractLongType;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.scalar.CombineHashFunction;
 import com.facebook.presto.type.TypeUtils;
@@ -25,7 +26,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.function.IntFunction;
 
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.TimestampType.TIMESTAMP;
 import static com.facebook.presto.sql.planner.PlannerUtils.INITIAL_HASH_VALUE;
+import static com.facebook.presto.type.TypeUtils.NULL_HASH_CODE;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -36,6 +42,10 @@ public class InterpretedHashGenerator
     private final Type[] hashChannelTypes;
     @Nullable
     private final int[] hashChannels; // null value indicates that the identity channel mapping is used
+    // the types hashed by AbstractLongType.hash, which are hashed without going through the type
+    private final boolean[] fixedWidth;
+    private final boolean[] intValues;
+    private final boolean allFixedWidth;
 
     public static InterpretedHashGenerator createPositionalWithTypes(List<Type> hashChannelTypes)
     {
@@ -65,6 +75,17 @@ public class InterpretedHashGenerator
             // simple positional indices are converted to null
             this.hashChannels = isPositionalChannels(hashChannels) ? null : hashChannels;
         }
+
+        this.fixedWidth = new boolean[this.hashChannelTypes.length];
+        this.intValues = new boolean[this.hashChannelTypes.length];
+        boolean allFixedWidth = true;
+        for (int i = 0; i < this.hashChannelTypes.length; i++) {
+            Type type = this.hashChannelTypes[i];
+            intValues[i] = type.equals(INTEGER) || type.equals(DATE);
+            fixedWidth[i] = intValues[i] || type.equals(BIGINT) || type.equals(TIMESTAMP);
+            allFixedWidth &= fixedWidth[i];
+        }
+        this.allFixedWidth = allFixedWidth;
     }
 
     @Override
@@ -90,6 +111,85 @@ public class InterpretedHashGenerator
         return result;
     }
 
+    @Override
+    public void hashPositions(Page page, int positionCount, long[] hashes)
+    {
+        // Note: this must logically match hashPosition(position, Page page), but hashes the page one column at a time,
+        // so that every loop deals with a single block and type
+        if (allFixedWidth && hashChannelTypes.length == 2) {
+            hashFixedWidthPositions(page.getBlock(getChannel(0)), intValues[0], page.getBlock(getChannel(1)), intValues[1], positionCount, hashes);
+            return;
+        }
+        if (allFixedWidth && hashChannelTypes.length == 3) {
+            hashFixedWidthPositions(
+                    page.getBlock(getChannel(0)),
+                    intValues[0],
+                    page.getBlock(getChannel(1)),
+                    intValues[1],
+                    page.getBlock(getChannel(2)),
+                    intValues[2],
+                    positionCount,
+                    hashes);
+            return;
+        }
+
+        Arrays.fill(hashes, 0, positionCount, INITIAL_HASH_VALUE);
+        for (int i = 0; i < hashChannelTypes.length; i++) {
+            Block block = page.getBlock(getChannel(i));
+            if (fixedWidth[i]) {
+                combineFixedWidthHashes(block, intValues[i], positionCount, hashes);
+            }
+            else {
+                combineHashes(hashChannelTypes[i], block, positionCount, hashes);
+            }
+        }
+    }
+
+    private int getChannel(int index)
+    {
+        return hashChannels == null ? index : hashChannels[index];
+    }
+
+    private static void hashFixedWidthPositions(Block first, boolean firstInt, Block second, boolean secondInt, int positionCount, long[] hashes)
+    {
+        for (int position = 0; position < positionCount; position++) {
+            long hash = CombineHashFunction.getHash(INITIAL_HASH_VALUE, fixedWidthHash(first, firstInt, position));
+            hashes[position] = CombineHashFunction.getHash(hash, fixedWidthHash(second, secondInt, position));
+        }
+    }
+
+    private static void hashFixedWidthPositions(Block first, boolean firstInt, Block second, boolean secondInt, Block third, boolean thirdInt, int positionCount, long[] hashes)
+    {
+        for (int position = 0; position < positionCount; position++) {
+            long hash = CombineHashFunction.getHash(INITIAL_HASH_VALUE, fixedWidthHash(first, firstInt, position));
+            hash = CombineHashFunction.getHash(hash, fixedWidthHash(second, secondInt, position));
+            hashes[position] = CombineHashFunction.getHash(hash, fixedWidthHash(third, thirdInt, position));
+        }
+    }
+
+    private static void combineFixedWidthHashes(Block block, boolean intValues, int positionCount, long[] hashes)
+    {
+        for (int position = 0; position < positionCount; position++) {
+            hashes[position] = CombineHashFunction.getHash(hashes[position], fixedWidthHash(block, intValues, position));
+        }
+    }
+
+    private static void combineHashes(Type type, Block block, int positionCount, long[] hashes)
+    {
+        for (int position = 0; position < positionCount; position++) {
+            hashes[position] = CombineHashFunction.getHash(hashes[position], TypeUtils.hashPosition(type, block, position));
+        }
+    }
+
+    private static long fixedWidthHash(Block block, boolean intValue, int position)
+    {
+        if (block.isNull(position)) {
+            return NULL_HASH_CODE;
+        }
+        // same as AbstractIntType.hash for int values
+        return AbstractLongType.hash(intValue ? block.getInt(position) : block.getLong(position));
+    }
+
     @Override
     public String toString()
     {
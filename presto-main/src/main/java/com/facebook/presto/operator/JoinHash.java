@@ -15,10 +15,12 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
 import org.openjdk.jol.info.ClassLayout;
 
 import javax.annotation.Nullable;
 
+import java.util.List;
 import java.util.Optional;
 
 import static java.lang.Math.toIntExact;
@@ -124,6 +126,24 @@ public final class JoinHash
         pagesHash.appendTo(toIntExact(position), pageBuilder, outputChannelOffset);
     }
 
+    @Override
+    public boolean isOutputAddressable()
+    {
+        return true;
+    }
+
+    @Override
+    public long getOutputAddress(long position)
+    {
+        return pagesHash.getAddress(toIntExact(position));
+    }
+
+    @Override
+    public List<Block> getOutputBlocks(int outputChannel)
+    {
+        return pagesHash.getOutputChannelBlocks(outputChannel);
+    }
+
     @Override
     public void close()
     {
@@ -41,6 +41,7 @@ import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static com.facebook.airlift.concurrent.MoreFutures.getDone;
+import static com.facebook.presto.SystemSessionProperties.isJoinBuildOutputByReferenceEnabled;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.FULL_OUTER;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.PROBE_OUTER;
 import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
@@ -130,7 +131,7 @@ public class LookupJoinOperator
         this.statisticsCounter = new JoinStatisticsCounter(joinType);
         operatorContext.setInfoSupplier(this.statisticsCounter);
 
-        this.pageBuilder = new LookupJoinPageBuilder(buildOutputTypes);
+        this.pageBuilder = new LookupJoinPageBuilder(buildOutputTypes, isJoinBuildOutputByReferenceEnabled(operatorContext.getSession()));
         this.optimizeProbeForEmptyBuild = optimizeProbeForEmptyBuild;
     }
 
@@ -16,12 +16,20 @@ package com.facebook.presto.operator;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
 import com.facebook.presto.common.type.Type;
+import com.google.common.collect.ImmutableList;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import javax.annotation.Nullable;
 
 import java.util.List;
 
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Verify.verify;
 import static java.util.Objects.requireNonNull;
@@ -30,27 +38,53 @@ import static java.util.Objects.requireNonNull;
  * This page builder creates pages with dictionary blocks:
  * normal dictionary blocks for the probe side and the original blocks for the build side.
  * <p>
- * TODO use dictionary blocks (probably extended kind) to avoid data copying for build side
+ * When build rows are referenced, the rows of the build side are recorded by their address in the
+ * {@link LookupSource} instead of being copied row by row. When the page is built, a build column
+ * becomes a dictionary over the build block if all rows come from the same build block, and is
+ * otherwise copied one column at a time.
  */
 public class LookupJoinPageBuilder
 {
+    private static final long NULL_BUILD_ADDRESS = -1;
+
     private final IntArrayList probeIndexBuilder = new IntArrayList();
+    private final List<Type> buildTypes;
     private final PageBuilder buildPageBuilder;
     private final int buildOutputChannelCount;
+    private final boolean referenceBuildRows;
     private int estimatedProbeBlockBytes;
     private int previousPosition = -1;
     private int estimatedProbeBytesPerRow = -1;
     private boolean isSequentialProbeIndices = true;
 
+    // whether the build rows of the current page are referenced by address rather than copied to buildPageBuilder
+    private boolean referencingBuildRows;
+    private final LongArrayList buildAddresses = new LongArrayList();
+    private long estimatedBuildBytes;
+    // the lookup source of the build addresses, and its output blocks
+    @Nullable
+    private LookupSource addressedLookupSource;
+    @Nullable
+    private List<List<Block>> addressedBlocks;
+    private long estimatedBuildBytesPerRow;
+
     public LookupJoinPageBuilder(List<Type> buildTypes)
     {
-        this.buildPageBuilder = new PageBuilder(requireNonNull(buildTypes, "buildTypes is null"));
+        this(buildTypes, false);
+    }
+
+    public LookupJoinPageBuilder(List<Type> buildTypes, boolean referenceBuildRows)
+    {
+        this.buildTypes = ImmutableList.copyOf(requireNonNull(buildTypes, "buildTypes is null"));
+        this.buildPageBuilder = new PageBuilder(buildTypes);
         this.buildOutputChannelCount = buildTypes.size();
+        this.referenceBuildRows = referenceBuildRows;
+        this.referencingBuildRows = referenceBuildRows;
     }
 
     public boolean isFull()
     {
-        return estimatedProbeBlockBytes + buildPageBuilder.getSizeInBytes() >= DEFAULT_MAX_PAGE_SIZE_IN_BYTES || buildPageBuilder.isFull();
+        return estimatedProbeBlockBytes + getEstimatedBuildBytes() >= DEFAULT_MAX_PAGE_SIZE_IN_BYTES || buildPageBuilder.isFull();
     }
 
     public boolean isEmpty()
@@ -67,10 +101,13 @@ public class LookupJoinPageBuilder
         estimatedProbeBytesPerRow = -1;
         previousPosition = -1;
         isSequentialProbeIndices = true;
+        buildAddresses.clear();
+        estimatedBuildBytes = 0;
+        referencingBuildRows = referenceBuildRows;
     }
 
     /**
-     * append the index for the probe and copy the row for the build
+     * append the index for the probe and copy (or reference) the row for the build
      */
     public void appendRow(JoinProbe probe, LookupSource lookupSource, long joinPosition)
     {
@@ -78,6 +115,11 @@ public class LookupJoinPageBuilder
         appendProbeIndex(probe);
 
         // build side
+        if (referencingBuildRows && canReference(lookupSource)) {
+            buildAddresses.add(lookupSource.getOutputAddress(joinPosition));
+            estimatedBuildBytes += estimatedBuildBytesPerRow;
+            return;
+        }
         buildPageBuilder.declarePosition();
         lookupSource.appendTo(joinPosition, buildPageBuilder, 0);
     }
@@ -91,6 +133,11 @@ public class LookupJoinPageBuilder
         appendProbeIndex(probe);
 
         // build side
+        if (referencingBuildRows) {
+            buildAddresses.add(NULL_BUILD_ADDRESS);
+            estimatedBuildBytes += Long.BYTES;
+            return;
+        }
         buildPageBuilder.declarePosition();
         for (int i = 0; i < buildOutputChannelCount; i++) {
             buildPageBuilder.getBlockBuilder(i).appendNull();
@@ -100,7 +147,7 @@ public class LookupJoinPageBuilder
     public Page build(JoinProbe probe)
     {
         int outputPositions = probeIndexBuilder.size();
-        verify(buildPageBuilder.getPositionCount() == outputPositions);
+        verify((referencingBuildRows ? buildAddresses.size() : buildPageBuilder.getPositionCount()) == outputPositions);
 
         int[] probeOutputChannels = probe.getOutputChannels();
         Block[] blocks = new Block[probeOutputChannels.length + buildOutputChannelCount];
@@ -129,8 +176,15 @@ public class LookupJoinPageBuilder
         }
 
         int offset = probeOutputChannels.length;
+        if (referencingBuildRows) {
+            buildReferencedBlocks(blocks, offset);
+        }
+        else {
+            for (int i = 0; i < buildOutputChannelCount; i++) {
+                blocks[offset + i] = buildPageBuilder.getBlockBuilder(i).build();
+            }
+        }
         for (int i = 0; i < buildOutputChannelCount; i++) {
-            blocks[offset + i] = buildPageBuilder.getBlockBuilder(i).build();
             verify(blocks[offset + i].getPositionCount() == outputPositions);
         }
         return new Page(outputPositions, blocks);
@@ -140,11 +194,148 @@ public class LookupJoinPageBuilder
     public String toString()
     {
         return toStringHelper(this)
-                .add("estimatedSize", estimatedProbeBlockBytes + buildPageBuilder.getSizeInBytes())
-                .add("positionCount", buildPageBuilder.getPositionCount())
+                .add("estimatedSize", estimatedProbeBlockBytes + getEstimatedBuildBytes())
+                .add("positionCount", probeIndexBuilder.size())
                 .toString();
     }
 
+    private long getEstimatedBuildBytes()
+    {
+        return referencingBuildRows ? estimatedBuildBytes : buildPageBuilder.getSizeInBytes();
+    }
+
+    /**
+     * Returns whether the build rows of {@code lookupSource} can be referenced in the current page.
+     * Otherwise, the rows referenced so far are copied and the rest of the page is built by copying.
+     */
+    private boolean canReference(LookupSource lookupSource)
+    {
+        if (lookupSource == addressedLookupSource) {
+            return true;
+        }
+        if (buildAddresses.isEmpty() || buildAddresses.stream().allMatch(address -> address == NULL_BUILD_ADDRESS)) {
+            // no row references the previous lookup source
+            if (lookupSource.isOutputAddressable()) {
+                setAddressedLookupSource(lookupSource);
+                return true;
+            }
+        }
+        // the lookup source changed within the page, e.g. after a spill
+        copyReferencedRows();
+        return false;
+    }
+
+    private void setAddressedLookupSource(LookupSource lookupSource)
+    {
+        ImmutableList.Builder<List<Block>> blocks = ImmutableList.builder();
+        long estimatedBytesPerRow = Long.BYTES;
+        for (int channel = 0; channel < buildOutputChannelCount; channel++) {
+            List<Block> channelBlocks = lookupSource.getOutputBlocks(channel);
+            blocks.add(channelBlocks);
+            long sizeInBytes = 0;
+            long positionCount = 0;
+            for (Block block : channelBlocks) {
+                sizeInBytes += block.getSizeInBytes();
+                positionCount += block.getPositionCount();
+            }
+            if (positionCount > 0) {
+                estimatedBytesPerRow += sizeInBytes / positionCount;
+            }
+        }
+        addressedLookupSource = lookupSource;
+        addressedBlocks = blocks.build();
+        estimatedBuildBytesPerRow = estimatedBytesPerRow;
+    }
+
+    private void copyReferencedRows()
+    {
+        for (int i = 0; i < buildAddresses.size(); i++) {
+            long address = buildAddresses.getLong(i);
+            buildPageBuilder.declarePosition();
+            for (int channel = 0; channel < buildOutputChannelCount; channel++) {
+                BlockBuilder blockBuilder = buildPageBuilder.getBlockBuilder(channel);
+                if (address == NULL_BUILD_ADDRESS) {
+                    blockBuilder.appendNull();
+                }
+                else {
+                    Block block = addressedBlocks.get(channel).get(decodeSliceIndex(address));
+                    buildTypes.get(channel).appendTo(block, decodePosition(address), blockBuilder);
+                }
+            }
+        }
+        buildAddresses.clear();
+        estimatedBuildBytes = 0;
+        referencingBuildRows = false;
+    }
+
+    private void buildReferencedBlocks(Block[] blocks, int offset)
+    {
+        int positionCount = buildAddresses.size();
+        long[] addresses = buildAddresses.elements();
+
+        // check whether all rows are null, or all come from the same build block
+        boolean allNull = true;
+        int sliceIndex = -1;
+        boolean singleSlice = true;
+        for (int i = 0; i < positionCount; i++) {
+            if (addresses[i] == NULL_BUILD_ADDRESS) {
+                singleSlice = false;
+                continue;
+            }
+            allNull = false;
+            int currentSliceIndex = decodeSliceIndex(addresses[i]);
+            if (sliceIndex == -1) {
+                sliceIndex = currentSliceIndex;
+            }
+            else if (sliceIndex != currentSliceIndex) {
+                singleSlice = false;
+            }
+        }
+
+        if (allNull) {
+            for (int channel = 0; channel < buildOutputChannelCount; channel++) {
+                blocks[offset + channel] = RunLengthEncodedBlock.create(buildTypes.get(channel), null, positionCount);
+            }
+            return;
+        }
+
+        if (singleSlice) {
+            int[] positions = new int[positionCount];
+            for (int i = 0; i < positionCount; i++) {
+                positions[i] = decodePosition(addresses[i]);
+            }
+            for (int channel = 0; channel < buildOutputChannelCount; channel++) {
+                blocks[offset + channel] = addressedBlocks.get(channel).get(sliceIndex).getPositions(positions, 0, positionCount);
+            }
+            return;
+        }
+
+        for (int channel = 0; channel < buildOutputChannelCount; channel++) {
+            blocks[offset + channel] = copyColumn(buildTypes.get(channel), addressedBlocks.get(channel), addresses, positionCount);
+        }
+    }
+
+    private static Block copyColumn(Type type, List<Block> blocks, long[] addresses, int positionCount)
+    {
+        BlockBuilder blockBuilder = type.createBlockBuilder(null, positionCount);
+        int currentSliceIndex = -1;
+        Block currentBlock = null;
+        for (int i = 0; i < positionCount; i++) {
+            long address = addresses[i];
+            if (address == NULL_BUILD_ADDRESS) {
+                blockBuilder.appendNull();
+                continue;
+            }
+            int sliceIndex = decodeSliceIndex(address);
+            if (sliceIndex != currentSliceIndex) {
+                currentSliceIndex = sliceIndex;
+                currentBlock = blocks.get(sliceIndex);
+            }
+            type.appendTo(currentBlock, decodePosition(address), blockBuilder);
+        }
+        return blockBuilder.build();
+    }
+
     private void appendProbeIndex(JoinProbe probe)
     {
         int position = probe.getPosition();
@@ -15,10 +15,12 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
 import java.io.Closeable;
+import java.util.List;
 
 @NotThreadSafe
 public interface LookupSource
@@ -40,6 +42,33 @@ public interface LookupSource
 
     void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset);
 
+    /**
+     * Whether the output channels of a row can be referenced with {@link #getOutputAddress} and
+     * {@link #getOutputBlocks} instead of being copied with {@link #appendTo}.
+     */
+    default boolean isOutputAddressable()
+    {
+        return false;
+    }
+
+    /**
+     * Returns the synthetic address (block index and position within the block) of the output channels
+     * of the row at {@code position}. As with {@link #appendTo}, the row counts as visited for outer joins.
+     */
+    default long getOutputAddress(long position)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the blocks of output channel {@code outputChannel}, indexed by the block index of {@link #getOutputAddress}.
+     * The blocks stay valid after this lookup source is closed.
+     */
+    default List<Block> getOutputBlocks(int outputChannel)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     boolean isJoinPositionEligible(long currentJoinPosition, int probePosition, Page allProbeChannelsPage);
 
     boolean isEmpty();
@@ -23,6 +23,7 @@ import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -66,6 +67,14 @@ public class MarkDistinctHash
         return groupByHash.getBufferedPages();
     }
 
+    /**
+     * Returns the distinct values seen so far, laid out as the distinct channels followed by the optional hash channel.
+     */
+    public Iterator<Page> getDistinctValuePages()
+    {
+        return groupByHash.getGroupValuePages();
+    }
+
     private Block processNextGroupIds(GroupByIdBlock ids)
     {
         int positions = ids.getPositionCount();
@@ -18,18 +18,28 @@ import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
 
 public class MarkDistinctOperator
@@ -44,6 +54,8 @@ public class MarkDistinctOperator
         private final List<Integer> markDistinctChannels;
         private final List<Type> types;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
         private boolean closed;
 
         public MarkDistinctOperatorFactory(
@@ -53,6 +65,19 @@ public class MarkDistinctOperator
                 Collection<Integer> markDistinctChannels,
                 Optional<Integer> hashChannel,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, sourceTypes, markDistinctChannels, hashChannel, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+        }
+
+        public MarkDistinctOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                Collection<Integer> markDistinctChannels,
+                Optional<Integer> hashChannel,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -64,6 +89,8 @@ public class MarkDistinctOperator
                     .addAll(sourceTypes)
                     .add(BOOLEAN)
                     .build();
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         @Override
@@ -71,7 +98,7 @@ public class MarkDistinctOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MarkDistinctOperator.class.getSimpleName());
-            return new MarkDistinctOperator(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler);
+            return new MarkDistinctOperator(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
 
         @Override
@@ -83,33 +110,75 @@ public class MarkDistinctOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new MarkDistinctOperatorFactory(operatorId, planNodeId, types.subList(0, types.size() - 1), markDistinctChannels, hashChannel, joinCompiler);
+            return new MarkDistinctOperatorFactory(operatorId, planNodeId, types.subList(0, types.size() - 1), markDistinctChannels, hashChannel, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
     }
 
     private final OperatorContext operatorContext;
-    private final MarkDistinctHash markDistinctHash;
+    private final List<Type> sourceTypes;
+    private final List<Integer> markDistinctChannels;
+    private final List<Type> distinctTypes;
+    private final Optional<Integer> hashChannel;
+    private final JoinCompiler joinCompiler;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
+
+    private final boolean spillEnabled;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
+
+    @Nullable
+    private MarkDistinctHash markDistinctHash;
 
     private Page inputPage;
+    private Page outputPage;
     private boolean finishing;
 
     // for yield when memory is not available
     private Work<Block> unfinishedWork;
 
+    // once memory has been revoked, all input is spilled and marked one partition at a time when finishing
+    private Optional<PartitionedDistinctSpiller> spiller = Optional.empty();
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private int unspillingPartition;
+    @Nullable
+    private Iterator<Page> unspilledValues;
+    @Nullable
+    private Work<Block> unfinishedValuesWork;
+    @Nullable
+    private Iterator<Page> unspilledInput;
+
     public MarkDistinctOperator(OperatorContext operatorContext, List<Type> types, List<Integer> markDistinctChannels, Optional<Integer> hashChannel, JoinCompiler joinCompiler)
+    {
+        this(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+    }
+
+    public MarkDistinctOperator(
+            OperatorContext operatorContext,
+            List<Type> types,
+            List<Integer> markDistinctChannels,
+            Optional<Integer> hashChannel,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
 
-        requireNonNull(hashChannel, "hashChannel is null");
-        requireNonNull(markDistinctChannels, "markDistinctChannels is null");
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.markDistinctChannels = ImmutableList.copyOf(requireNonNull(markDistinctChannels, "markDistinctChannels is null"));
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        // the output types include the marker column
+        this.sourceTypes = ImmutableList.copyOf(types.subList(0, types.size() - 1));
 
         ImmutableList.Builder<Type> distinctTypes = ImmutableList.builder();
         for (int channel : markDistinctChannels) {
             distinctTypes.add(types.get(channel));
         }
-        this.markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), distinctTypes.build(), Ints.toArray(markDistinctChannels), hashChannel, joinCompiler, this::updateMemoryReservation);
+        this.distinctTypes = distinctTypes.build();
+        this.markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), this.distinctTypes, Ints.toArray(markDistinctChannels), hashChannel, joinCompiler, this::updateMemoryReservation);
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.spillEnabled = spillEnabled;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
     }
 
     @Override
@@ -127,12 +196,24 @@ public class MarkDistinctOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && !hasUnfinishedInput();
+        return finishing && !hasUnfinishedInput() && (!spiller.isPresent() || unspillingPartition == spiller.get().getPartitionCount());
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (spiller.isPresent() && !spiller.get().getSpillInProgress().isDone()) {
+            return spiller.get().getSpillInProgress();
+        }
+        return NOT_BLOCKED;
     }
 
     @Override
     public boolean needsInput()
     {
+        if (spiller.isPresent() && !spiller.get().getSpillInProgress().isDone()) {
+            return false;
+        }
         return !finishing && !hasUnfinishedInput();
     }
 
@@ -142,6 +223,11 @@ public class MarkDistinctOperator
         requireNonNull(page, "page is null");
         checkState(needsInput());
 
+        if (spiller.isPresent()) {
+            spiller.get().spillInput(page);
+            return;
+        }
+
         inputPage = page;
 
         unfinishedWork = markDistinctHash.markDistinctRows(page);
@@ -151,27 +237,145 @@ public class MarkDistinctOperator
     @Override
     public Page getOutput()
     {
-        if (unfinishedWork == null) {
+        if (unfinishedWork != null && !processUnfinishedWork()) {
             return null;
         }
 
+        if (outputPage != null) {
+            Page result = outputPage;
+            outputPage = null;
+            return result;
+        }
+
+        if (finishing && spiller.isPresent() && spiller.get().getSpillInProgress().isDone()) {
+            return markSpilledPartitions();
+        }
+        return null;
+    }
+
+    private boolean processUnfinishedWork()
+    {
         if (!unfinishedWork.process()) {
-            return null;
+            return false;
         }
 
         // add the new boolean column to the page
-        Page outputPage = inputPage.appendColumn(unfinishedWork.getResult());
+        outputPage = inputPage.appendColumn(unfinishedWork.getResult());
 
         unfinishedWork = null;
         inputPage = null;
 
         updateMemoryReservation();
-        return outputPage;
+        return true;
+    }
+
+    @Nullable
+    private Page markSpilledPartitions()
+    {
+        PartitionedDistinctSpiller spiller = this.spiller.get();
+        while (unspillingPartition < spiller.getPartitionCount()) {
+            if (unspilledValues == null && unspilledInput == null) {
+                // the distinct values and the hash channel are laid out first in the spilled values
+                markDistinctHash = new MarkDistinctHash(
+                        operatorContext.getSession(),
+                        distinctTypes,
+                        IntStream.range(0, distinctTypes.size()).toArray(),
+                        hashChannel.map(channel -> distinctTypes.size()),
+                        joinCompiler,
+                        this::updateMemoryReservation);
+                unspilledValues = spiller.getSpilledValues(unspillingPartition);
+            }
+
+            if (unspilledValues != null) {
+                if (!loadUnspilledValues()) {
+                    return null;
+                }
+                unspilledValues = null;
+                unspilledInput = spiller.getSpilledInput(unspillingPartition);
+            }
+
+            if (unspilledInput.hasNext()) {
+                inputPage = unspilledInput.next();
+                unfinishedWork = markDistinctHash.markDistinctRows(inputPage.extractChannels(getValueChannels()));
+                if (!processUnfinishedWork()) {
+                    return null;
+                }
+                Page result = outputPage;
+                outputPage = null;
+                return result;
+            }
+
+            unspilledInput = null;
+            markDistinctHash = null;
+            updateMemoryReservation();
+            unspillingPartition++;
+        }
+        return null;
+    }
+
+    private boolean loadUnspilledValues()
+    {
+        while (true) {
+            if (unfinishedValuesWork != null) {
+                if (!unfinishedValuesWork.process()) {
+                    return false;
+                }
+                unfinishedValuesWork = null;
+            }
+            if (!unspilledValues.hasNext()) {
+                return true;
+            }
+            // every value is new to the hash, the marks are not needed
+            unfinishedValuesWork = markDistinctHash.markDistinctRows(unspilledValues.next());
+        }
+    }
+
+    private int[] getValueChannels()
+    {
+        ImmutableList.Builder<Integer> valueChannels = ImmutableList.<Integer>builder().addAll(markDistinctChannels);
+        hashChannel.ifPresent(valueChannels::add);
+        return Ints.toArray(valueChannels.build());
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        // rows of a pending page must be marked against the current hash before the hash is spilled
+        if (spiller.isPresent() || (unfinishedWork != null && !processUnfinishedWork())) {
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        ImmutableList.Builder<Type> valueTypes = ImmutableList.<Type>builder().addAll(distinctTypes);
+        hashChannel.ifPresent(channel -> valueTypes.add(BIGINT));
+        spiller = Optional.of(new PartitionedDistinctSpiller(
+                valueTypes.build(),
+                sourceTypes,
+                distinctTypes,
+                markDistinctChannels,
+                partitioningSpillerFactory,
+                operatorContext));
+        ListenableFuture<?> spillInProgress = spiller.get().spillValues(markDistinctHash.getDistinctValuePages());
+        finishMemoryRevoke = Optional.of(() -> {
+            markDistinctHash = null;
+            localRevocableMemoryContext.setBytes(0);
+        });
+        return spillInProgress;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
     }
 
     private boolean hasUnfinishedInput()
     {
-        return inputPage != null || unfinishedWork != null;
+        return inputPage != null || unfinishedWork != null || outputPage != null;
     }
 
     /**
@@ -184,13 +388,31 @@ public class MarkDistinctOperator
     // The following implementation is a hybrid model, where the push model is going to call the pull model causing reentrancy
     private boolean updateMemoryReservation()
     {
+        long estimatedSize = markDistinctHash == null ? 0 : markDistinctHash.getEstimatedSize();
         // Operator/driver will be blocked on memory after we call localUserMemoryContext.setBytes().
         // If memory is not available, once we return, this operator will be blocked until memory is available.
-        localUserMemoryContext.setBytes(markDistinctHash.getEstimatedSize());
+        if (spillEnabled && !spiller.isPresent()) {
+            localRevocableMemoryContext.setBytes(estimatedSize);
+        }
+        else {
+            localUserMemoryContext.setBytes(estimatedSize);
+        }
         // If memory is not available, inform the caller that we cannot proceed for allocation.
         return operatorContext.isWaitingForMemory().isDone();
     }
 
+    @Override
+    public void close()
+            throws IOException
+    {
+        markDistinctHash = null;
+        unspilledValues = null;
+        unspilledInput = null;
+        if (spiller.isPresent()) {
+            spiller.get().close();
+        }
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
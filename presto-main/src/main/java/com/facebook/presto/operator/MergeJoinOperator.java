@@ -0,0 +1,784 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.spi.plan.JoinType;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.SingleStreamSpiller;
+import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.spi.plan.JoinType.LEFT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Collections.emptyIterator;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streaming sort-merge join of two inputs that are both sorted on the join keys
+ * in {@code ASC NULLS FIRST} order. The left (probe) side is the input of this
+ * operator and the right (build) side is pulled page by page from a {@link MergeJoinSource}.
+ * <p>
+ * Only the run of right side rows sharing the key of the current left row is
+ * retained, so memory is bounded by the longest key run rather than by the size
+ * of the right side. When spilling is enabled, the run is kept in revocable memory
+ * and is spilled to disk on memory revocation.
+ */
+public class MergeJoinOperator
+        implements Operator, Closeable
+{
+    public static class MergeJoinOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager;
+        private final JoinType joinType;
+        private final List<Type> probeTypes;
+        private final List<Integer> probeJoinChannels;
+        private final List<Integer> probeOutputChannels;
+        private final List<Type> buildTypes;
+        private final List<Integer> buildJoinChannels;
+        private final List<Integer> buildOutputChannels;
+        private final boolean spillEnabled;
+        private final Optional<SingleStreamSpillerFactory> spillerFactory;
+        private boolean closed;
+
+        public MergeJoinOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager,
+                JoinType joinType,
+                List<Type> probeTypes,
+                List<Integer> probeJoinChannels,
+                List<Integer> probeOutputChannels,
+                List<Type> buildTypes,
+                List<Integer> buildJoinChannels,
+                List<Integer> buildOutputChannels,
+                boolean spillEnabled,
+                Optional<SingleStreamSpillerFactory> spillerFactory)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.mergeJoinSourceManager = requireNonNull(mergeJoinSourceManager, "mergeJoinSourceManager is null");
+            this.joinType = requireNonNull(joinType, "joinType is null");
+            this.probeTypes = ImmutableList.copyOf(requireNonNull(probeTypes, "probeTypes is null"));
+            this.probeJoinChannels = ImmutableList.copyOf(requireNonNull(probeJoinChannels, "probeJoinChannels is null"));
+            this.probeOutputChannels = ImmutableList.copyOf(requireNonNull(probeOutputChannels, "probeOutputChannels is null"));
+            this.buildTypes = ImmutableList.copyOf(requireNonNull(buildTypes, "buildTypes is null"));
+            this.buildJoinChannels = ImmutableList.copyOf(requireNonNull(buildJoinChannels, "buildJoinChannels is null"));
+            this.buildOutputChannels = ImmutableList.copyOf(requireNonNull(buildOutputChannels, "buildOutputChannels is null"));
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+
+            checkArgument(joinType == INNER || joinType == LEFT, "Unsupported merge join type: %s", joinType);
+            checkArgument(probeJoinChannels.size() == buildJoinChannels.size(), "probe and build join channels do not match");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
+
+            this.mergeJoinSourceManager.incrementProbeFactoryCount();
+        }
+
+        private MergeJoinOperatorFactory(MergeJoinOperatorFactory other)
+        {
+            requireNonNull(other, "other is null");
+            this.operatorId = other.operatorId;
+            this.planNodeId = other.planNodeId;
+            this.mergeJoinSourceManager = other.mergeJoinSourceManager;
+            this.joinType = other.joinType;
+            this.probeTypes = other.probeTypes;
+            this.probeJoinChannels = other.probeJoinChannels;
+            this.probeOutputChannels = other.probeOutputChannels;
+            this.buildTypes = other.buildTypes;
+            this.buildJoinChannels = other.buildJoinChannels;
+            this.buildOutputChannels = other.buildOutputChannels;
+            this.spillEnabled = other.spillEnabled;
+            this.spillerFactory = other.spillerFactory;
+
+            // closed is intentionally not copied
+            closed = false;
+
+            mergeJoinSourceManager.incrementProbeFactoryCount();
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            MergeJoinSource mergeJoinSource = mergeJoinSourceManager.getJoinBridge(driverContext.getLifespan());
+
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MergeJoinOperator.class.getSimpleName());
+
+            mergeJoinSourceManager.probeOperatorCreated(driverContext.getLifespan());
+            return new MergeJoinOperator(
+                    operatorContext,
+                    mergeJoinSource,
+                    joinType,
+                    probeTypes,
+                    probeJoinChannels,
+                    probeOutputChannels,
+                    buildTypes,
+                    buildJoinChannels,
+                    buildOutputChannels,
+                    spillEnabled,
+                    spillerFactory,
+                    () -> mergeJoinSourceManager.probeOperatorClosed(driverContext.getLifespan()));
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            mergeJoinSourceManager.probeOperatorFactoryClosedForAllLifespans();
+        }
+
+        @Override
+        public void noMoreOperators(Lifespan lifespan)
+        {
+            mergeJoinSourceManager.probeOperatorFactoryClosed(lifespan);
+        }
+
+        @Override
+        public OperatorFactory duplicate()
+        {
+            return new MergeJoinOperatorFactory(this);
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final MergeJoinSource mergeJoinSource;
+    private final boolean probeOuter;
+    private final List<Type> joinKeyTypes;
+    private final int[] probeJoinChannels;
+    private final int[] probeOutputChannels;
+    private final List<Type> probeOutputTypes;
+    private final int[] buildJoinChannels;
+    private final int[] buildOutputChannels;
+    private final List<Type> buildOutputTypes;
+    private final int[] runKeyChannels;
+    private final boolean spillEnabled;
+    private final Optional<SingleStreamSpillerFactory> spillerFactory;
+    private final Runnable afterClose;
+    private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
+    private final PageBuilder pageBuilder;
+
+    private Page probePage;
+    private int probePosition;
+
+    // next right side row that has not been consumed yet
+    private Page buildPage;
+    private int buildPosition;
+    private boolean waitingForBuild;
+
+    // right side rows sharing the key of the current left row
+    private BuildRun currentRun;
+
+    // state of joining the left rows [probePosition, chunkEnd) with all rows of the current run
+    private boolean replaying;
+    private int chunkEnd;
+    private boolean runNeededAfterReplay;
+    private Iterator<Page> replaySpilledPages = emptyIterator();
+    private Iterator<Page> replayInMemoryPages = emptyIterator();
+    private Optional<SingleStreamSpiller> replaySpiller = Optional.empty();
+    private Page replayPage;
+    private int replayProbePosition;
+    private int replayBuildPosition;
+
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Runnable finishMemoryRevoke = () -> {};
+
+    private boolean finishing;
+    private boolean closed;
+
+    public MergeJoinOperator(
+            OperatorContext operatorContext,
+            MergeJoinSource mergeJoinSource,
+            JoinType joinType,
+            List<Type> probeTypes,
+            List<Integer> probeJoinChannels,
+            List<Integer> probeOutputChannels,
+            List<Type> buildTypes,
+            List<Integer> buildJoinChannels,
+            List<Integer> buildOutputChannels,
+            boolean spillEnabled,
+            Optional<SingleStreamSpillerFactory> spillerFactory,
+            Runnable afterClose)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.mergeJoinSource = requireNonNull(mergeJoinSource, "mergeJoinSource is null");
+        this.probeOuter = requireNonNull(joinType, "joinType is null") == LEFT;
+        this.joinKeyTypes = probeJoinChannels.stream()
+                .map(probeTypes::get)
+                .collect(toImmutableList());
+        this.probeJoinChannels = Ints.toArray(probeJoinChannels);
+        this.probeOutputChannels = Ints.toArray(probeOutputChannels);
+        this.probeOutputTypes = probeOutputChannels.stream()
+                .map(probeTypes::get)
+                .collect(toImmutableList());
+        this.buildJoinChannels = Ints.toArray(buildJoinChannels);
+        this.buildOutputChannels = Ints.toArray(buildOutputChannels);
+        this.buildOutputTypes = buildOutputChannels.stream()
+                .map(buildTypes::get)
+                .collect(toImmutableList());
+        this.runKeyChannels = new int[buildJoinChannels.size()];
+        for (int i = 0; i < runKeyChannels.length; i++) {
+            runKeyChannels[i] = i;
+        }
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        this.afterClose = requireNonNull(afterClose, "afterClose is null");
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.pageBuilder = new PageBuilder(ImmutableList.<Type>builder()
+                .addAll(probeOutputTypes)
+                .addAll(buildOutputTypes)
+                .build());
+
+        mergeJoinSource.consumerCreated();
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (!spillInProgress.isDone()) {
+            return spillInProgress;
+        }
+        if (waitingForBuild) {
+            return mergeJoinSource.getConsumerFuture();
+        }
+        return NOT_BLOCKED;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && probePage == null && spillInProgress.isDone();
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(!finishing, "Operator is finishing");
+        checkState(probePage == null, "Current page has not been completely processed yet");
+
+        if (page.getPositionCount() > 0) {
+            probePage = page;
+            probePosition = 0;
+        }
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (!spillInProgress.isDone()) {
+            return null;
+        }
+        checkSpillSucceeded(spillInProgress);
+
+        waitingForBuild = false;
+        while (!pageBuilder.isFull() && processProbe()) {
+            // continue until the output page is full or more input is needed
+        }
+
+        if (pageBuilder.isFull() || (!pageBuilder.isEmpty() && probePage == null)) {
+            Page page = pageBuilder.build();
+            pageBuilder.reset();
+            return page;
+        }
+        return null;
+    }
+
+    /**
+     * Makes progress on the current left row. Returns false if more input is needed
+     * or if the operator is blocked on the right side or on spilling.
+     */
+    private boolean processProbe()
+    {
+        if (replaying) {
+            return processReplay();
+        }
+
+        if (probePage == null) {
+            return false;
+        }
+        if (probePosition == probePage.getPositionCount()) {
+            probePage = null;
+            return false;
+        }
+
+        if (hasNullKey(probePage, probePosition, probeJoinChannels)) {
+            appendUnmatchedRow(probePosition);
+            probePosition++;
+            return true;
+        }
+
+        if (currentRun != null) {
+            int comparison = compareKeys(probePage, probePosition, probeJoinChannels, currentRun.getKey(), 0, runKeyChannels);
+            if (comparison < 0) {
+                appendUnmatchedRow(probePosition);
+                probePosition++;
+                return true;
+            }
+            if (comparison == 0) {
+                return collectRun() && startReplay();
+            }
+            checkState(currentRun.isComplete(), "current run is not complete");
+            closeRun();
+        }
+
+        // skip right side rows with smaller keys
+        while (true) {
+            if (!hasBuildRow()) {
+                if (mergeJoinSource.isFinished()) {
+                    appendUnmatchedRow(probePosition);
+                    probePosition++;
+                    return true;
+                }
+                waitingForBuild = true;
+                return false;
+            }
+
+            int lastPosition = buildPage.getPositionCount() - 1;
+            if (compareKeys(probePage, probePosition, probeJoinChannels, buildPage, lastPosition, buildJoinChannels) > 0) {
+                buildPage = null;
+                updateMemoryUsage();
+                continue;
+            }
+
+            buildPosition = findFirstNotSmaller(buildPosition, lastPosition);
+            int comparison = compareKeys(probePage, probePosition, probeJoinChannels, buildPage, buildPosition, buildJoinChannels);
+            if (comparison < 0) {
+                appendUnmatchedRow(probePosition);
+                probePosition++;
+                return true;
+            }
+            break;
+        }
+
+        currentRun = new BuildRun(buildPage.extractChannels(buildJoinChannels).getSingleValuePage(buildPosition));
+        return collectRun() && startReplay();
+    }
+
+    /**
+     * Binary search for the first right side row in [low, high] with a key that is not smaller than
+     * the key of the current left row. The row at position high must not be smaller.
+     */
+    private int findFirstNotSmaller(int low, int high)
+    {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareKeys(probePage, probePosition, probeJoinChannels, buildPage, middle, buildJoinChannels) > 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds all right side rows matching the key of the current run. Returns false if blocked on the right side.
+     */
+    private boolean collectRun()
+    {
+        while (!currentRun.isComplete()) {
+            if (!hasBuildRow()) {
+                if (mergeJoinSource.isFinished()) {
+                    currentRun.complete();
+                    break;
+                }
+                waitingForBuild = true;
+                return false;
+            }
+
+            int start = buildPosition;
+            int end = start;
+            while (end < buildPage.getPositionCount() && compareKeys(currentRun.getKey(), 0, runKeyChannels, buildPage, end, buildJoinChannels) == 0) {
+                end++;
+            }
+            if (end > start) {
+                currentRun.addPage(buildPage.getRegion(start, end - start).extractChannels(buildOutputChannels));
+            }
+            buildPosition = end;
+            if (end < buildPage.getPositionCount()) {
+                currentRun.complete();
+            }
+            updateMemoryUsage();
+        }
+        return true;
+    }
+
+    private boolean hasBuildRow()
+    {
+        while (buildPage == null || buildPosition == buildPage.getPositionCount()) {
+            buildPage = mergeJoinSource.pollPage();
+            buildPosition = 0;
+            if (buildPage == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startReplay()
+    {
+        chunkEnd = probePosition + 1;
+        while (chunkEnd < probePage.getPositionCount() && compareKeys(probePage, chunkEnd, probeJoinChannels, currentRun.getKey(), 0, runKeyChannels) == 0) {
+            chunkEnd++;
+        }
+        // the next left page may start with the same key, in which case the run has to be replayed again
+        runNeededAfterReplay = chunkEnd == probePage.getPositionCount();
+
+        replaySpilledPages = currentRun.getSpilledPages();
+        replayInMemoryPages = currentRun.getInMemoryPages().iterator();
+        if (runNeededAfterReplay && currentRun.hasSpilledPages()) {
+            // spilled pages can only be read once, so copy them to a new spill file while replaying
+            replaySpiller = Optional.of(createSpiller());
+        }
+        replayPage = null;
+        replaying = true;
+        return true;
+    }
+
+    private boolean processReplay()
+    {
+        while (!pageBuilder.isFull()) {
+            if (replayPage == null) {
+                if (!spillInProgress.isDone()) {
+                    return false;
+                }
+                checkSpillSucceeded(spillInProgress);
+
+                if (replaySpilledPages.hasNext()) {
+                    replayPage = replaySpilledPages.next();
+                    if (replaySpiller.isPresent()) {
+                        spillInProgress = replaySpiller.get().spill(replayPage);
+                    }
+                }
+                else if (replayInMemoryPages.hasNext()) {
+                    replayPage = replayInMemoryPages.next();
+                }
+                else {
+                    finishReplay();
+                    return true;
+                }
+                replayProbePosition = probePosition;
+                replayBuildPosition = 0;
+            }
+
+            while (replayProbePosition < chunkEnd) {
+                while (replayBuildPosition < replayPage.getPositionCount()) {
+                    if (pageBuilder.isFull()) {
+                        return true;
+                    }
+                    appendRow(replayProbePosition, replayPage, replayBuildPosition);
+                    replayBuildPosition++;
+                }
+                replayBuildPosition = 0;
+                replayProbePosition++;
+            }
+            replayPage = null;
+        }
+        return true;
+    }
+
+    private void finishReplay()
+    {
+        replaying = false;
+        replaySpilledPages = emptyIterator();
+        replayInMemoryPages = emptyIterator();
+        probePosition = chunkEnd;
+
+        if (!runNeededAfterReplay) {
+            // the left rows are sorted, so the next left row has a greater key
+            closeRun();
+            return;
+        }
+        if (replaySpiller.isPresent()) {
+            currentRun.replaceSpiller(replaySpiller.get());
+            replaySpiller = Optional.empty();
+        }
+    }
+
+    private void closeRun()
+    {
+        if (currentRun != null) {
+            currentRun.close();
+            currentRun = null;
+        }
+        updateMemoryUsage();
+    }
+
+    private void appendRow(int probePosition, Page build, int buildPosition)
+    {
+        pageBuilder.declarePosition();
+        for (int i = 0; i < probeOutputChannels.length; i++) {
+            probeOutputTypes.get(i).appendTo(probePage.getBlock(probeOutputChannels[i]), probePosition, pageBuilder.getBlockBuilder(i));
+        }
+        for (int i = 0; i < buildOutputTypes.size(); i++) {
+            buildOutputTypes.get(i).appendTo(build.getBlock(i), buildPosition, pageBuilder.getBlockBuilder(probeOutputChannels.length + i));
+        }
+    }
+
+    private void appendUnmatchedRow(int probePosition)
+    {
+        if (!probeOuter) {
+            return;
+        }
+        pageBuilder.declarePosition();
+        for (int i = 0; i < probeOutputChannels.length; i++) {
+            probeOutputTypes.get(i).appendTo(probePage.getBlock(probeOutputChannels[i]), probePosition, pageBuilder.getBlockBuilder(i));
+        }
+        for (int i = 0; i < buildOutputTypes.size(); i++) {
+            pageBuilder.getBlockBuilder(probeOutputChannels.length + i).appendNull();
+        }
+    }
+
+    private int compareKeys(Page left, int leftPosition, int[] leftChannels, Page right, int rightPosition, int[] rightChannels)
+    {
+        for (int i = 0; i < leftChannels.length; i++) {
+            Block leftBlock = left.getBlock(leftChannels[i]);
+            Block rightBlock = right.getBlock(rightChannels[i]);
+            int comparison = ASC_NULLS_FIRST.compareBlockValue(joinKeyTypes.get(i), leftBlock, leftPosition, rightBlock, rightPosition);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasNullKey(Page page, int position, int[] channels)
+    {
+        for (int channel : channels) {
+            if (page.getBlock(channel).isNull(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SingleStreamSpiller createSpiller()
+    {
+        checkState(spillerFactory.isPresent(), "spillerFactory is not present");
+        return spillerFactory.get().create(
+                buildOutputTypes,
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.newLocalSystemMemoryContext(MergeJoinOperator.class.getSimpleName()));
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        // pages of a run can not be spilled while they are being replayed
+        if (currentRun == null || replaying || currentRun.getInMemoryPages().isEmpty()) {
+            finishMemoryRevoke = () -> {};
+            return NOT_BLOCKED;
+        }
+        checkSpillSucceeded(spillInProgress);
+
+        if (!currentRun.hasSpiller()) {
+            currentRun.replaceSpiller(createSpiller());
+        }
+        spillInProgress = currentRun.spillInMemoryPages();
+        finishMemoryRevoke = () -> {
+            currentRun.clearInMemoryPages();
+            updateMemoryUsage();
+        };
+        return spillInProgress;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        finishMemoryRevoke.run();
+        finishMemoryRevoke = () -> {};
+    }
+
+    private void updateMemoryUsage()
+    {
+        long runBytes = currentRun == null ? 0 : currentRun.getInMemorySizeInBytes();
+        long buildPageBytes = buildPage == null ? 0 : buildPage.getRetainedSizeInBytes();
+        if (spillEnabled) {
+            localUserMemoryContext.setBytes(buildPageBytes);
+            localRevocableMemoryContext.setBytes(runBytes);
+        }
+        else {
+            localUserMemoryContext.setBytes(runBytes + buildPageBytes);
+        }
+    }
+
+    @Override
+    public void finish()
+    {
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        boolean finished = finishing && probePage == null && !replaying && pageBuilder.isEmpty() && spillInProgress.isDone();
+        if (finished) {
+            close();
+        }
+        return finished;
+    }
+
+    @Override
+    public void close()
+    {
+        probePage = null;
+        buildPage = null;
+        replayPage = null;
+        replaySpiller.ifPresent(SingleStreamSpiller::close);
+        replaySpiller = Optional.empty();
+        if (currentRun != null) {
+            currentRun.close();
+            currentRun = null;
+        }
+        localUserMemoryContext.setBytes(0);
+        localRevocableMemoryContext.setBytes(0);
+        // We don't want to release the join bridge multiple times, since its reference counted
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // `afterClose` must be run last.
+        afterClose.run();
+    }
+
+    /**
+     * Right side rows sharing the same join key. Pages that were spilled precede the
+     * pages still held in memory.
+     */
+    private static class BuildRun
+    {
+        private final Page key;
+        private final List<Page> inMemoryPages = new ArrayList<>();
+        private long inMemorySizeInBytes;
+        private Optional<SingleStreamSpiller> spiller = Optional.empty();
+        private boolean hasSpilledPages;
+        private boolean complete;
+
+        public BuildRun(Page key)
+        {
+            this.key = requireNonNull(key, "key is null");
+        }
+
+        public Page getKey()
+        {
+            return key;
+        }
+
+        public void addPage(Page page)
+        {
+            checkState(!complete, "run is already complete");
+            inMemoryPages.add(page);
+            inMemorySizeInBytes += page.getRetainedSizeInBytes();
+        }
+
+        public boolean isComplete()
+        {
+            return complete;
+        }
+
+        public void complete()
+        {
+            complete = true;
+        }
+
+        public List<Page> getInMemoryPages()
+        {
+            return inMemoryPages;
+        }
+
+        public long getInMemorySizeInBytes()
+        {
+            return inMemorySizeInBytes;
+        }
+
+        public boolean hasSpiller()
+        {
+            return spiller.isPresent();
+        }
+
+        public boolean hasSpilledPages()
+        {
+            return hasSpilledPages;
+        }
+
+        public void replaceSpiller(SingleStreamSpiller newSpiller)
+        {
+            spiller.ifPresent(SingleStreamSpiller::close);
+            spiller = Optional.of(newSpiller);
+        }
+
+        public ListenableFuture<?> spillInMemoryPages()
+        {
+            checkState(spiller.isPresent(), "spiller is not present");
+            hasSpilledPages = true;
+            return spiller.get().spill(ImmutableList.copyOf(inMemoryPages).iterator());
+        }
+
+        public void clearInMemoryPages()
+        {
+            inMemoryPages.clear();
+            inMemorySizeInBytes = 0;
+        }
+
+        public Iterator<Page> getSpilledPages()
+        {
+            if (!hasSpilledPages) {
+                return emptyIterator();
+            }
+            return spiller.get().getSpilledPages();
+        }
+
+        public void close()
+        {
+            spiller.ifPresent(SingleStreamSpiller::close);
+            spiller = Optional.empty();
+            clearInMemoryPages();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hands the sorted pages of the right side of a merge join over from the
+ * {@link MergeJoinSourceOperator} to the {@link MergeJoinOperator}.
+ * <p>
+ * At most one page is buffered at a time, so the memory held by the bridge
+ * does not depend on the size of the right side. Both sides must be single
+ * sorted streams, so only one producer and one consumer are allowed per lifespan;
+ * the local execution planner merges a side that runs with several drivers.
+ */
+@ThreadSafe
+public class MergeJoinSource
+        implements JoinBridge
+{
+    @GuardedBy("this")
+    private Page bufferedPage;
+    @GuardedBy("this")
+    private boolean producerCreated;
+    @GuardedBy("this")
+    private boolean consumerCreated;
+    @GuardedBy("this")
+    private boolean noMorePages;
+    @GuardedBy("this")
+    private boolean destroyed;
+    @GuardedBy("this")
+    private SettableFuture<?> producerFuture = SettableFuture.create();
+    @GuardedBy("this")
+    private SettableFuture<?> consumerFuture = SettableFuture.create();
+
+    public MergeJoinSource()
+    {
+        producerFuture.set(null);
+    }
+
+    public synchronized void producerCreated()
+    {
+        checkState(!producerCreated, "Merge join expects the right side to be a single sorted stream, but multiple build operators were created");
+        producerCreated = true;
+    }
+
+    public synchronized void consumerCreated()
+    {
+        checkState(!consumerCreated, "Merge join expects the left side to be a single sorted stream, but multiple probe operators were created");
+        consumerCreated = true;
+    }
+
+    /**
+     * Invoked when no more build operators will be created. If no build operator was
+     * created at all (e.g. the right side has no splits), the right side is empty.
+     */
+    public void noMoreProducers()
+    {
+        boolean empty;
+        synchronized (this) {
+            empty = !producerCreated;
+        }
+        if (empty) {
+            noMorePages();
+        }
+    }
+
+    public synchronized boolean canAcceptPage()
+    {
+        return bufferedPage == null || destroyed;
+    }
+
+    public synchronized ListenableFuture<?> getProducerFuture()
+    {
+        return producerFuture;
+    }
+
+    public synchronized boolean isDestroyed()
+    {
+        return destroyed;
+    }
+
+    public void addPage(Page page)
+    {
+        requireNonNull(page, "page is null");
+
+        SettableFuture<?> future;
+        synchronized (this) {
+            checkState(!noMorePages, "No more pages already set");
+            if (destroyed) {
+                // the probe side no longer needs the pages
+                return;
+            }
+            checkState(bufferedPage == null, "A page is already buffered");
+            bufferedPage = page;
+            producerFuture = SettableFuture.create();
+            future = consumerFuture;
+        }
+
+        // notify the consumer outside of the lock since this may result in a callback
+        future.set(null);
+    }
+
+    public void noMorePages()
+    {
+        SettableFuture<?> future;
+        synchronized (this) {
+            if (noMorePages) {
+                return;
+            }
+            noMorePages = true;
+            future = consumerFuture;
+        }
+
+        future.set(null);
+    }
+
+    /**
+     * Returns the next page of the right side, or null if no page is currently available.
+     */
+    public Page pollPage()
+    {
+        Page page;
+        SettableFuture<?> future;
+        synchronized (this) {
+            page = bufferedPage;
+            if (page == null) {
+                return null;
+            }
+            bufferedPage = null;
+            if (!noMorePages) {
+                consumerFuture = SettableFuture.create();
+            }
+            future = producerFuture;
+        }
+
+        future.set(null);
+        return page;
+    }
+
+    /**
+     * Returns a future that completes once a page is available or the right side is finished.
+     */
+    public synchronized ListenableFuture<?> getConsumerFuture()
+    {
+        return consumerFuture;
+    }
+
+    public synchronized boolean isFinished()
+    {
+        return noMorePages && bufferedPage == null;
+    }
+
+    @Override
+    public OuterPositionIterator getOuterPositionIterator()
+    {
+        throw new UnsupportedOperationException("Merge join does not support outer build side");
+    }
+
+    @Override
+    public void destroy()
+    {
+        SettableFuture<?> future;
+        synchronized (this) {
+            destroyed = true;
+            bufferedPage = null;
+            future = producerFuture;
+        }
+
+        // let the MergeJoinSourceOperator declare that it's finished
+        future.set(null);
+    }
+
+    @Override
+    public ListenableFuture<?> whenBuildFinishes()
+    {
+        // The right side is streamed rather than built, and the left side may finish before
+        // consuming all of it. The bridge must be destroyed as soon as the probe operators
+        // are done, so that the right side pipeline stops waiting for the consumer.
+        return immediateFuture(null);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.memory.context.LocalMemoryContext;
+
+/**
+ * An in-memory {@link GroupedTopNBuilder} whose memory reservation can be moved to another
+ * memory context, e.g. from revocable to user memory once its result can no longer be spilled.
+ */
+public interface MigratableGroupedTopNBuilder
+        extends GroupedTopNBuilder
+{
+    /**
+     * Moves the memory accounted by this builder to {@code newMemoryContext}.
+     *
+     * @return false if the memory could not be reserved in the new context, in which case it stays in the current one
+     */
+    boolean migrateMemoryContext(LocalMemoryContext newMemoryContext);
+}
@@ -298,8 +298,11 @@ public class MultiChannelGroupByHash
 
     private int putIfAbsent(int position, Page page, long rawHash)
     {
-        int hashPosition = (int) getHashPosition(rawHash, mask);
+        return putIfAbsent(position, page, rawHash, (int) getHashPosition(rawHash, mask));
+    }
 
+    private int putIfAbsent(int position, Page page, long rawHash, int hashPosition)
+    {
         // look for an empty slot or a slot containing this key
         int groupId = -1;
         while (groupAddressByHash[hashPosition] != -1) {
@@ -551,6 +554,39 @@ public class MultiChannelGroupByHash
         return groupId;
     }
 
+    /**
+     * Resolves the group ids of a page in batches: the raw hashes of all positions are computed
+     * up front, one column at a time, then the bucket indexes of all remaining positions,
+     * and only then are the positions matched against the hash table.
+     */
+    private final class BatchedPage
+    {
+        private final Page page;
+        private final long[] rawHashes;
+        private final int[] hashPositions;
+        // the mask the hash positions were computed with; they must be computed again after a rehash
+        private int hashPositionsMask = -1;
+
+        public BatchedPage(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+            this.rawHashes = new long[page.getPositionCount()];
+            this.hashPositions = new int[page.getPositionCount()];
+            hashGenerator.hashPositions(page, page.getPositionCount(), rawHashes);
+        }
+
+        public int putIfAbsent(int position)
+        {
+            if (hashPositionsMask != mask) {
+                for (int i = position; i < rawHashes.length; i++) {
+                    hashPositions[i] = (int) getHashPosition(rawHashes[i], mask);
+                }
+                hashPositionsMask = mask;
+            }
+            return MultiChannelGroupByHash.this.putIfAbsent(position, page, rawHashes[position], hashPositions[position]);
+        }
+    }
+
     private static final class DictionaryLookBack
     {
         private final Block dictionary;
@@ -588,12 +624,14 @@ public class MultiChannelGroupByHash
             implements Work<Void>
     {
         private final Page page;
+        private final BatchedPage batchedPage;
 
         private int lastPosition;
 
         public AddNonDictionaryPageWork(Page page)
         {
             this.page = requireNonNull(page, "page is null");
+            this.batchedPage = new BatchedPage(page);
         }
 
         @Override
@@ -612,7 +650,7 @@ public class MultiChannelGroupByHash
             // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
             while (lastPosition < positionCount && !needRehash()) {
                 // get the group for the current row
-                putIfAbsent(lastPosition, page);
+                batchedPage.putIfAbsent(lastPosition);
                 lastPosition++;
             }
             return lastPosition == positionCount;
@@ -718,6 +756,7 @@ public class MultiChannelGroupByHash
     {
         private final BlockBuilder blockBuilder;
         private final Page page;
+        private final BatchedPage batchedPage;
 
         private boolean finished;
         private int lastPosition;
@@ -725,6 +764,7 @@ public class MultiChannelGroupByHash
         public GetNonDictionaryGroupIdsWork(Page page)
         {
             this.page = requireNonNull(page, "page is null");
+            this.batchedPage = new BatchedPage(page);
             // we know the exact size required for the block
             this.blockBuilder = BIGINT.createFixedSizeBlockBuilder(page.getPositionCount());
         }
@@ -746,7 +786,7 @@ public class MultiChannelGroupByHash
             // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
             while (lastPosition < positionCount && !needRehash()) {
                 // output the group id for this row
-                BIGINT.writeLong(blockBuilder, putIfAbsent(lastPosition, page));
+                BIGINT.writeLong(blockBuilder, batchedPage.putIfAbsent(lastPosition));
                 lastPosition++;
             }
             return lastPosition == positionCount;
@@ -0,0 +1,441 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.array.AdaptiveLongBigArray;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.TimestampType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarcharType;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Double.longBitsToDouble;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sorts a range of a {@link PagesIndex} on normalized keys instead of with a {@link PagesIndexComparator}.
+ * <p>
+ * The sort channels of every position are encoded once into a fixed number of longs which, compared
+ * word by word as unsigned integers, order the positions the same way the comparator does. The keys
+ * are sorted with an MSD radix sort, so the blocks are not read again for every comparison.
+ * <p>
+ * A varchar or varbinary channel is only encoded by a prefix of its value, and ends the key, because
+ * the channels that follow it cannot be ordered on a prefix. The same goes for channels of types
+ * without an encoding. Runs of positions with equal keys are then sorted with the comparator, unless
+ * the key covers all the sort channels exactly.
+ */
+public final class NormalizedKeySorter
+{
+    // encoding keys does not pay off for small ranges, e.g. most window partitions
+    private static final int MIN_POSITION_COUNT = 128;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    private static final int SLICE_PREFIX_BYTES = 7;
+
+    private final int[] keyChannels;
+    private final KeyEncoding[] keyEncodings;
+    private final SortOrder[] keyOrders;
+    private final boolean exact;
+    private final PagesIndexOrdering ordering;
+
+    private NormalizedKeySorter(List<Integer> keyChannels, List<KeyEncoding> keyEncodings, List<SortOrder> keyOrders, boolean exact, PagesIndexOrdering ordering)
+    {
+        this.keyChannels = keyChannels.stream().mapToInt(Integer::intValue).toArray();
+        this.keyEncodings = keyEncodings.toArray(new KeyEncoding[0]);
+        this.keyOrders = keyOrders.toArray(new SortOrder[0]);
+        this.exact = exact;
+        this.ordering = requireNonNull(ordering, "ordering is null");
+    }
+
+    /**
+     * Returns a sorter for the sort channels, or empty if the first sort channel cannot be encoded.
+     *
+     * @param ordering the comparator based ordering of the same sort channels, used to break ties
+     */
+    public static Optional<NormalizedKeySorter> create(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders, PagesIndexOrdering ordering)
+    {
+        checkArgument(sortTypes.size() == sortChannels.size() && sortTypes.size() == sortOrders.size(), "sortTypes, sortChannels and sortOrders must have the same size");
+
+        List<Integer> keyChannels = new ArrayList<>();
+        List<KeyEncoding> keyEncodings = new ArrayList<>();
+        List<SortOrder> keyOrders = new ArrayList<>();
+        boolean exact = true;
+        for (int i = 0; i < sortTypes.size(); i++) {
+            Optional<KeyEncoding> encoding = getKeyEncoding(sortTypes.get(i));
+            if (!encoding.isPresent()) {
+                exact = false;
+                break;
+            }
+            keyChannels.add(sortChannels.get(i));
+            keyEncodings.add(encoding.get());
+            keyOrders.add(sortOrders.get(i));
+            if (encoding.get() == KeyEncoding.SLICE_PREFIX) {
+                exact = false;
+                break;
+            }
+        }
+        if (keyChannels.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new NormalizedKeySorter(keyChannels, keyEncodings, keyOrders, exact, ordering));
+    }
+
+    /**
+     * Sorts the range, reserving the memory of the keys in {@code memoryContext} while sorting. Falls back to
+     * the comparator if the reservation fails.
+     */
+    public void sort(PagesIndex pagesIndex, int startPosition, int endPosition, LocalMemoryContext memoryContext)
+    {
+        int positionCount = endPosition - startPosition;
+        if (positionCount < MIN_POSITION_COUNT) {
+            ordering.sort(pagesIndex, startPosition, endPosition);
+            return;
+        }
+
+        // a channel without nulls needs no null indicator, and a narrow one keeps it above its value
+        boolean[] nullable = new boolean[keyChannels.length];
+        int keyWidth = 0;
+        for (int i = 0; i < keyChannels.length; i++) {
+            nullable[i] = mayHaveNull(pagesIndex.getChannel(keyChannels[i]));
+            keyWidth += nullable[i] && keyEncodings[i].getBits() == Long.SIZE ? 2 : 1;
+        }
+        if ((long) positionCount * keyWidth > Integer.MAX_VALUE - 8) {
+            ordering.sort(pagesIndex, startPosition, endPosition);
+            return;
+        }
+
+        // addresses, keys, rows and the radix sort scratch rows
+        long sortSizeInBytes = sizeOfLongArray(positionCount) + sizeOfLongArray(positionCount * keyWidth) + 2 * sizeOfIntArray(positionCount);
+        long reservedBytes = memoryContext.getBytes();
+        if (!memoryContext.trySetBytes(reservedBytes + sortSizeInBytes)) {
+            ordering.sort(pagesIndex, startPosition, endPosition);
+            return;
+        }
+        try {
+            sort(pagesIndex, startPosition, positionCount, keyWidth, nullable);
+        }
+        finally {
+            memoryContext.setBytes(reservedBytes);
+        }
+    }
+
+    private void sort(PagesIndex pagesIndex, int startPosition, int positionCount, int keyWidth, boolean[] nullable)
+    {
+        AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
+        long[] addresses = new long[positionCount];
+        long[] keys = new long[positionCount * keyWidth];
+        for (int row = 0; row < positionCount; row++) {
+            long address = valueAddresses.get(startPosition + row);
+            addresses[row] = address;
+            encodeKey(pagesIndex, decodeSliceIndex(address), decodePosition(address), nullable, keys, row * keyWidth);
+        }
+
+        int[] digits = varyingDigits(keys, keyWidth, positionCount);
+        int[] rows = new int[positionCount];
+        for (int row = 0; row < positionCount; row++) {
+            rows[row] = row;
+        }
+        if (digits.length > 0) {
+            radixSort(keys, keyWidth, digits, rows, new int[positionCount], 0, positionCount, 0);
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            valueAddresses.set(startPosition + i, addresses[rows[i]]);
+        }
+
+        if (!exact) {
+            // positions with equal keys may still differ in the channels the key does not cover
+            int runStart = 0;
+            for (int i = 1; i <= positionCount; i++) {
+                if (i == positionCount || compareKeys(keys, keyWidth, rows[runStart], rows[i]) != 0) {
+                    if (i - runStart > 1) {
+                        ordering.sort(pagesIndex, startPosition + runStart, startPosition + i);
+                    }
+                    runStart = i;
+                }
+            }
+        }
+    }
+
+    private static Optional<KeyEncoding> getKeyEncoding(Type type)
+    {
+        if (type.equals(BIGINT) || type instanceof TimestampType) {
+            return Optional.of(KeyEncoding.LONG);
+        }
+        if (type.equals(INTEGER) || type.equals(DATE)) {
+            return Optional.of(KeyEncoding.INT);
+        }
+        if (type.equals(SMALLINT)) {
+            return Optional.of(KeyEncoding.SHORT);
+        }
+        if (type.equals(TINYINT)) {
+            return Optional.of(KeyEncoding.BYTE);
+        }
+        if (type.equals(BOOLEAN)) {
+            return Optional.of(KeyEncoding.BOOLEAN);
+        }
+        if (type.equals(DOUBLE)) {
+            return Optional.of(KeyEncoding.DOUBLE);
+        }
+        if (type.equals(REAL)) {
+            return Optional.of(KeyEncoding.REAL);
+        }
+        if (type instanceof VarcharType || type.equals(VARBINARY)) {
+            return Optional.of(KeyEncoding.SLICE_PREFIX);
+        }
+        return Optional.empty();
+    }
+
+    private void encodeKey(PagesIndex pagesIndex, int blockIndex, int blockPosition, boolean[] nullable, long[] keys, int offset)
+    {
+        for (int i = 0; i < keyChannels.length; i++) {
+            Block block = pagesIndex.getChannel(keyChannels[i]).get(blockIndex);
+            KeyEncoding encoding = keyEncodings[i];
+            SortOrder sortOrder = keyOrders[i];
+
+            boolean isNull = nullable[i] && block.isNull(blockPosition);
+            long value = 0;
+            if (!isNull) {
+                value = encoding.encode(block, blockPosition);
+                if (!sortOrder.isAscending()) {
+                    value = ~value & encoding.getMask();
+                }
+            }
+            if (nullable[i]) {
+                long nullIndicator = isNull == sortOrder.isNullsFirst() ? 0 : 1;
+                if (encoding.getBits() == Long.SIZE) {
+                    keys[offset++] = nullIndicator;
+                }
+                else {
+                    value |= nullIndicator << encoding.getBits();
+                }
+            }
+            keys[offset++] = value;
+        }
+    }
+
+    private static boolean mayHaveNull(ObjectArrayList<Block> blocks)
+    {
+        for (int i = 0; i < blocks.size(); i++) {
+            if (blocks.get(i).mayHaveNull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the bytes of the key, most significant first, that are not the same for all rows.
+     * Each digit is encoded as the index of its word shifted left by 8, plus its shift within the word.
+     */
+    private static int[] varyingDigits(long[] keys, int keyWidth, int rowCount)
+    {
+        long[] varyingBits = new long[keyWidth];
+        for (int row = 1; row < rowCount; row++) {
+            int offset = row * keyWidth;
+            for (int word = 0; word < keyWidth; word++) {
+                varyingBits[word] |= keys[offset + word] ^ keys[word];
+            }
+        }
+
+        int[] digits = new int[keyWidth * Long.BYTES];
+        int digitCount = 0;
+        for (int word = 0; word < keyWidth; word++) {
+            for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                if (((varyingBits[word] >>> shift) & 0xFF) != 0) {
+                    digits[digitCount++] = (word << 8) | shift;
+                }
+            }
+        }
+        int[] result = new int[digitCount];
+        System.arraycopy(digits, 0, result, 0, digitCount);
+        return result;
+    }
+
+    private static void radixSort(long[] keys, int keyWidth, int[] digits, int[] rows, int[] buffer, int from, int to, int digit)
+    {
+        if (digit == digits.length) {
+            // keys are equal
+            return;
+        }
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, keyWidth, rows, from, to);
+            return;
+        }
+
+        int word = digits[digit] >>> 8;
+        int shift = digits[digit] & 0xFF;
+        int[] bucketEnds = new int[256];
+        for (int i = from; i < to; i++) {
+            bucketEnds[digitValue(keys, keyWidth, rows[i], word, shift)]++;
+        }
+
+        int rowCount = to - from;
+        int offset = 0;
+        for (int bucket = 0; bucket < bucketEnds.length; bucket++) {
+            int count = bucketEnds[bucket];
+            if (count == rowCount) {
+                // all rows share this digit
+                radixSort(keys, keyWidth, digits, rows, buffer, from, to, digit + 1);
+                return;
+            }
+            bucketEnds[bucket] = offset;
+            offset += count;
+        }
+
+        // bucketEnds holds the bucket starts until all rows are scattered
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            buffer[from + bucketEnds[digitValue(keys, keyWidth, row, word, shift)]++] = row;
+        }
+        System.arraycopy(buffer, from, rows, from, rowCount);
+
+        int bucketStart = from;
+        for (int bucket = 0; bucket < bucketEnds.length; bucket++) {
+            int bucketEnd = from + bucketEnds[bucket];
+            if (bucketEnd - bucketStart > 1) {
+                radixSort(keys, keyWidth, digits, rows, buffer, bucketStart, bucketEnd, digit + 1);
+            }
+            bucketStart = bucketEnd;
+        }
+    }
+
+    private static int digitValue(long[] keys, int keyWidth, int row, int word, int shift)
+    {
+        return (int) (keys[row * keyWidth + word] >>> shift) & 0xFF;
+    }
+
+    private static void insertionSort(long[] keys, int keyWidth, int[] rows, int from, int to)
+    {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i;
+            while (j > from && compareKeys(keys, keyWidth, rows[j - 1], row) > 0) {
+                rows[j] = rows[j - 1];
+                j--;
+            }
+            rows[j] = row;
+        }
+    }
+
+    private static int compareKeys(long[] keys, int keyWidth, int leftRow, int rightRow)
+    {
+        int leftOffset = leftRow * keyWidth;
+        int rightOffset = rightRow * keyWidth;
+        for (int word = 0; word < keyWidth; word++) {
+            int comparison = Long.compareUnsigned(keys[leftOffset + word], keys[rightOffset + word]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private enum KeyEncoding
+    {
+        LONG(Long.SIZE),
+        INT(Integer.SIZE),
+        SHORT(Short.SIZE),
+        BYTE(Byte.SIZE),
+        BOOLEAN(1),
+        DOUBLE(Long.SIZE),
+        REAL(Integer.SIZE),
+        // the first bytes of the value followed by its length, capped at one more than the prefix
+        SLICE_PREFIX(Long.SIZE);
+
+        private final int bits;
+        private final long mask;
+
+        KeyEncoding(int bits)
+        {
+            this.bits = bits;
+            this.mask = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+        }
+
+        public int getBits()
+        {
+            return bits;
+        }
+
+        public long getMask()
+        {
+            return mask;
+        }
+
+        /**
+         * Encodes a non-null value into the low {@link #getBits} bits of a long, so that
+         * unsigned comparison of the encoded values agrees with {@link Type#compareTo}.
+         */
+        public long encode(Block block, int position)
+        {
+            switch (this) {
+                case LONG:
+                    return block.getLong(position) ^ Long.MIN_VALUE;
+                case INT:
+                    return (block.getInt(position) ^ Integer.MIN_VALUE) & mask;
+                case SHORT:
+                    return (block.getShort(position) ^ Short.MIN_VALUE) & mask;
+                case BYTE:
+                    return (block.getByte(position) ^ Byte.MIN_VALUE) & mask;
+                case BOOLEAN:
+                    return block.getByte(position) != 0 ? 1 : 0;
+                case DOUBLE:
+                    // canonicalizes NaN, and orders -0.0 before 0.0, as Double.compare does
+                    long doubleBits = doubleToLongBits(longBitsToDouble(block.getLong(position)));
+                    return doubleBits < 0 ? ~doubleBits : doubleBits ^ Long.MIN_VALUE;
+                case REAL:
+                    int floatBits = floatToIntBits(intBitsToFloat(block.getInt(position)));
+                    return (floatBits < 0 ? ~floatBits : floatBits ^ Integer.MIN_VALUE) & mask;
+                case SLICE_PREFIX:
+                    int length = block.getSliceLength(position);
+                    int prefixLength = min(length, SLICE_PREFIX_BYTES);
+                    Slice prefix = block.getSlice(position, 0, prefixLength);
+                    long value = 0;
+                    for (int i = 0; i < SLICE_PREFIX_BYTES; i++) {
+                        value <<= Byte.SIZE;
+                        if (i < prefixLength) {
+                            value |= prefix.getByte(i) & 0xFF;
+                        }
+                    }
+                    return (value << Byte.SIZE) | min(length, SLICE_PREFIX_BYTES + 1);
+                default:
+                    throw new UnsupportedOperationException("Unsupported encoding: " + this);
+            }
+        }
+    }
+}
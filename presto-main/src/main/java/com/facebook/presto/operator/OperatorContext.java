@@ -34,11 +34,15 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.common.RuntimeMetricName.STACK_SAMPLE_METRIC_PREFIX;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.operator.BlockedReason.WAITING_FOR_MEMORY;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -56,6 +60,9 @@ import static java.util.Objects.requireNonNull;
  */
 public class OperatorContext
 {
+    private static final int MAX_SAMPLED_FRAMES = 64;
+    private static final String OTHER_FRAMES = "<other>";
+
     private final int operatorId;
     private final PlanNodeId planNodeId;
     private final String operatorType;
@@ -100,6 +107,7 @@ public class OperatorContext
     private final AtomicLong peakSystemMemoryReservation = new AtomicLong();
     private final AtomicLong peakTotalMemoryReservation = new AtomicLong();
     private final RuntimeStats runtimeStats = new RuntimeStats();
+    private final Set<String> sampledFrames = ConcurrentHashMap.newKeySet();
 
     private final AtomicLong currentTotalMemoryReservationInBytes = new AtomicLong();
 
@@ -178,6 +186,7 @@ public class OperatorContext
     void recordAddInput(OperationTimer operationTimer, Page page)
     {
         operationTimer.recordOperationComplete(addInputTiming);
+        driverContext.attributeStackSamples(this);
         if (page != null) {
             inputDataSize.update(page.getSizeInBytes());
             inputPositions.update(page.getPositionCount());
@@ -218,6 +227,7 @@ public class OperatorContext
     void recordGetOutput(OperationTimer operationTimer, Page page)
     {
         operationTimer.recordOperationComplete(getOutputTiming);
+        driverContext.attributeStackSamples(this);
         if (page != null) {
             outputDataSize.update(page.getSizeInBytes());
             outputPositions.update(page.getPositionCount());
@@ -278,6 +288,24 @@ public class OperatorContext
     void recordFinish(OperationTimer operationTimer)
     {
         operationTimer.recordOperationComplete(finishTiming);
+        driverContext.attributeStackSamples(this);
+    }
+
+    /**
+     * Counts a stack sample in the runtime stats. Only a limited number of distinct frames
+     * is tracked per operator, the samples of any further frames are counted together.
+     */
+    void recordStackSample(String frame)
+    {
+        if (!sampledFrames.contains(frame)) {
+            if (sampledFrames.size() >= MAX_SAMPLED_FRAMES) {
+                frame = OTHER_FRAMES;
+            }
+            else {
+                sampledFrames.add(frame);
+            }
+        }
+        runtimeStats.addMetricValue(STACK_SAMPLE_METRIC_PREFIX + frame, NONE, 1);
     }
 
     public ListenableFuture<?> isWaitingForMemory()
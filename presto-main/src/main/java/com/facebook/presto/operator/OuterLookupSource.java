@@ -15,11 +15,13 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.List;
 import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -106,6 +108,26 @@ public final class OuterLookupSource
         outerPositionTracker.positionVisited(position);
     }
 
+    @Override
+    public boolean isOutputAddressable()
+    {
+        return lookupSource.isOutputAddressable();
+    }
+
+    @Override
+    public long getOutputAddress(long position)
+    {
+        long address = lookupSource.getOutputAddress(position);
+        outerPositionTracker.positionVisited(position);
+        return address;
+    }
+
+    @Override
+    public List<Block> getOutputBlocks(int outputChannel)
+    {
+        return lookupSource.getOutputBlocks(outputChannel);
+    }
+
     @Override
     public void close()
     {
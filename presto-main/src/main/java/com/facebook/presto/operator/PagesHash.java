@@ -16,11 +16,13 @@ package com.facebook.presto.operator;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.array.AdaptiveLongBigArray;
+import com.facebook.presto.common.block.Block;
 import io.airlift.units.DataSize;
 import it.unimi.dsi.fastutil.HashCommon;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
@@ -189,6 +191,16 @@ public final class PagesHash
         pagesHashStrategy.appendTo(blockIndex, blockPosition, pageBuilder, outputChannelOffset);
     }
 
+    public long getAddress(int position)
+    {
+        return addresses.get(position);
+    }
+
+    public List<Block> getOutputChannelBlocks(int outputChannel)
+    {
+        return pagesHashStrategy.getOutputChannelBlocks(outputChannel);
+    }
+
     private boolean isPositionNull(int position)
     {
         long pageAddress = addresses.get(position);
@@ -15,6 +15,9 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+
+import java.util.List;
 
 public interface PagesHashStrategy
 {
@@ -33,6 +36,11 @@ public interface PagesHashStrategy
      */
     void appendTo(int blockIndex, int position, PageBuilder pageBuilder, int outputChannelOffset);
 
+    /**
+     * Gets the blocks of the column appended at {@code outputChannel} by {@link #appendTo}, indexed by block index.
+     */
+    List<Block> getOutputChannelBlocks(int outputChannel);
+
     /**
      * Calculates the hash code the hashed columns in this PagesHashStrategy at the specified position.
      */
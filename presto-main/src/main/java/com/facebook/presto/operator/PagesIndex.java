@@ -83,6 +83,7 @@ public class PagesIndex
     private final JoinCompiler joinCompiler;
     private final FunctionAndTypeManager functionAndTypeManager;
     private final boolean groupByUsesEqualTo;
+    private final boolean normalizedKeySortEnabled;
 
     private final List<Type> types;
     private final AdaptiveLongBigArray valueAddresses;
@@ -99,6 +100,7 @@ public class PagesIndex
             JoinCompiler joinCompiler,
             FunctionAndTypeManager functionAndTypeManager,
             boolean groupByUsesEqualTo,
+            boolean normalizedKeySortEnabled,
             List<Type> types,
             int expectedPositions,
             boolean eagerCompact)
@@ -107,6 +109,7 @@ public class PagesIndex
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.functionAndTypeManager = requireNonNull(functionAndTypeManager, "functionManager is null");
         this.groupByUsesEqualTo = groupByUsesEqualTo;
+        this.normalizedKeySortEnabled = normalizedKeySortEnabled;
         this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
         this.valueAddresses = new AdaptiveLongBigArray();
         this.valueAddresses.ensureCapacity(expectedPositions);
@@ -132,6 +135,7 @@ public class PagesIndex
         private static final OrderingCompiler ORDERING_COMPILER = new OrderingCompiler();
         private static final JoinCompiler JOIN_COMPILER = new JoinCompiler(MetadataManager.createTestMetadataManager(), new FeaturesConfig());
         private final boolean groupByUsesEqualTo = new FeaturesConfig().isGroupByUsesEqualTo();
+        private final boolean normalizedKeySortEnabled = new FeaturesConfig().isPagesIndexNormalizedKeySortEnabled();
         private final boolean eagerCompact;
 
         public TestingFactory(boolean eagerCompact)
@@ -142,7 +146,7 @@ public class PagesIndex
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, MetadataManager.createTestMetadataManager().getFunctionAndTypeManager(), groupByUsesEqualTo, types, expectedPositions, eagerCompact);
+            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, MetadataManager.createTestMetadataManager().getFunctionAndTypeManager(), groupByUsesEqualTo, normalizedKeySortEnabled, types, expectedPositions, eagerCompact);
         }
     }
 
@@ -154,6 +158,7 @@ public class PagesIndex
         private final boolean eagerCompact;
         private final FunctionAndTypeManager functionAndTypeManager;
         private final boolean groupByUsesEqualTo;
+        private final boolean normalizedKeySortEnabled;
 
         @Inject
         public DefaultFactory(OrderingCompiler orderingCompiler, JoinCompiler joinCompiler, FeaturesConfig featuresConfig, Metadata metadata)
@@ -163,12 +168,13 @@ public class PagesIndex
             this.eagerCompact = requireNonNull(featuresConfig, "featuresConfig is null").isPagesIndexEagerCompactionEnabled();
             this.functionAndTypeManager = requireNonNull(metadata, "metadata is null").getFunctionAndTypeManager();
             this.groupByUsesEqualTo = featuresConfig.isGroupByUsesEqualTo();
+            this.normalizedKeySortEnabled = featuresConfig.isPagesIndexNormalizedKeySortEnabled();
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(orderingCompiler, joinCompiler, functionAndTypeManager, groupByUsesEqualTo, types, expectedPositions, eagerCompact);
+            return new PagesIndex(orderingCompiler, joinCompiler, functionAndTypeManager, groupByUsesEqualTo, normalizedKeySortEnabled, types, expectedPositions, eagerCompact);
         }
     }
 
@@ -382,6 +388,31 @@ public class PagesIndex
         createPagesIndexComparator(sortChannels, sortOrders).sort(this, startPosition, endPosition);
     }
 
+    /**
+     * Sorts on normalized keys when enabled, reserving the memory of the keys in {@code sortMemoryContext} while sorting.
+     */
+    public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, LocalMemoryContext sortMemoryContext)
+    {
+        sort(sortChannels, sortOrders, 0, getPositionCount(), sortMemoryContext);
+    }
+
+    public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition, LocalMemoryContext sortMemoryContext)
+    {
+        requireNonNull(sortMemoryContext, "sortMemoryContext is null");
+        PagesIndexOrdering ordering = createPagesIndexComparator(sortChannels, sortOrders);
+        if (normalizedKeySortEnabled) {
+            List<Type> sortTypes = sortChannels.stream()
+                    .map(types::get)
+                    .collect(toImmutableList());
+            Optional<NormalizedKeySorter> sorter = NormalizedKeySorter.create(sortTypes, sortChannels, sortOrders, ordering);
+            if (sorter.isPresent()) {
+                sorter.get().sort(this, startPosition, endPosition, sortMemoryContext);
+                return;
+            }
+        }
+        ordering.sort(this, startPosition, endPosition);
+    }
+
     public boolean positionEqualsPosition(PagesHashStrategy partitionHashStrategy, int leftPosition, int rightPosition)
     {
         long leftAddress = valueAddresses.get(leftPosition);
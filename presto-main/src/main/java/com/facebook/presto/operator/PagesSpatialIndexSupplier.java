@@ -28,14 +28,19 @@ import com.facebook.presto.operator.SpatialIndexBuilderOperator.SpatialPredicate
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler;
 import io.airlift.slice.Slice;
 import io.airlift.units.DataSize;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import org.openjdk.jol.info.ClassLayout;
 
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
+import static com.facebook.presto.SystemSessionProperties.getSpatialJoinIndexPacking;
+import static com.facebook.presto.SystemSessionProperties.isSpatialJoinParallelIndexBuildEnabled;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.geospatial.GeometryUtils.accelerateGeometry;
@@ -45,6 +50,7 @@ import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
@@ -53,6 +59,8 @@ public class PagesSpatialIndexSupplier
 {
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(PagesSpatialIndexSupplier.class).instanceSize();
     private static final int MEMORY_USAGE_UPDATE_INCREMENT_BYTES = 100 * 1024 * 1024;   // 100 MB
+    private static final int BUILD_BATCH_SIZE = 64 * 1024;
+    private static final int MIN_PARALLEL_BUILD_POSITIONS = 1024;
 
     private final Session session;
     private final AdaptiveLongBigArray addresses;
@@ -91,7 +99,16 @@ public class PagesSpatialIndexSupplier
         this.filterFunctionFactory = filterFunctionFactory;
         this.partitions = partitions;
 
-        this.rtree = buildRTree(addresses, positionCount, channels, geometryChannel, radiusChannel, partitionChannel, localUserMemoryContext);
+        this.rtree = buildRTree(
+                addresses,
+                positionCount,
+                channels,
+                geometryChannel,
+                radiusChannel,
+                partitionChannel,
+                getSpatialJoinIndexPacking(session),
+                isSpatialJoinParallelIndexBuildEnabled(session),
+                localUserMemoryContext);
         this.radiusChannel = radiusChannel;
         this.memorySizeInBytes = INSTANCE_SIZE + rtree.getEstimatedSizeInBytes();
     }
@@ -103,62 +120,101 @@ public class PagesSpatialIndexSupplier
             int geometryChannel,
             Optional<Integer> radiusChannel,
             Optional<Integer> partitionChannel,
+            Flatbush.Packing packing,
+            boolean parallel,
             LocalMemoryContext localUserMemoryContext)
     {
         Operator relateOperator = OperatorFactoryLocal.getInstance().getOperator(Operator.Type.Relate);
 
-        ObjectArrayList<GeometryWithPosition> geometries = new ObjectArrayList<>();
+        GeometryWithPosition[] geometries = new GeometryWithPosition[positionCount];
+        int geometryCount = 0;
 
         long recordedSizeInBytes = localUserMemoryContext.getBytes();
         long addedSizeInBytes = 0;
 
-        for (int position = 0; position < positionCount; position++) {
-            long pageAddress = addresses.get(position);
-            int blockIndex = decodeSliceIndex(pageAddress);
-            int blockPosition = decodePosition(pageAddress);
-
-            Block block = channels.get(geometryChannel).get(blockIndex);
-            // TODO Consider pushing is-null and is-empty checks into a filter below the join
-            if (block.isNull(blockPosition)) {
-                continue;
+        // Deserializing and accelerating the geometries dominates the build. Geometries are prepared in
+        // batches, which are processed in parallel when enabled, and memory is accounted between batches.
+        for (int batchStart = 0; batchStart < positionCount; batchStart += BUILD_BATCH_SIZE) {
+            int batchEnd = min(positionCount, batchStart + BUILD_BATCH_SIZE);
+            IntStream positions = IntStream.range(batchStart, batchEnd);
+            if (parallel && batchEnd - batchStart >= MIN_PARALLEL_BUILD_POSITIONS) {
+                positions = positions.parallel();
             }
-
-            Slice slice = block.getSlice(blockPosition, 0, block.getSliceLength(blockPosition));
-            OGCGeometry ogcGeometry = deserialize(slice);
-            verify(ogcGeometry != null);
-            if (ogcGeometry.isEmpty()) {
-                continue;
+            positions.forEach(position -> geometries[position] = createGeometryWithPosition(
+                    addresses,
+                    position,
+                    channels,
+                    geometryChannel,
+                    radiusChannel,
+                    partitionChannel,
+                    relateOperator));
+
+            // compact the array in place, skipping null, empty and negative radius geometries
+            for (int position = batchStart; position < batchEnd; position++) {
+                GeometryWithPosition geometryWithPosition = geometries[position];
+                if (geometryWithPosition == null) {
+                    continue;
+                }
+                geometries[position] = null;
+                geometries[geometryCount] = geometryWithPosition;
+                geometryCount++;
+                addedSizeInBytes += geometryWithPosition.getEstimatedSizeInBytes();
             }
 
-            double radius = radiusChannel.map(channel -> DOUBLE.getDouble(channels.get(channel).get(blockIndex), blockPosition)).orElse(0.0);
-            if (radius < 0) {
-                continue;
+            if (addedSizeInBytes >= MEMORY_USAGE_UPDATE_INCREMENT_BYTES) {
+                localUserMemoryContext.setBytes(recordedSizeInBytes + addedSizeInBytes);
+                recordedSizeInBytes += addedSizeInBytes;
+                addedSizeInBytes = 0;
             }
+        }
 
-            if (!radiusChannel.isPresent()) {
-                // If radiusChannel is supplied, this is a distance query, for which our acceleration won't help.
-                accelerateGeometry(ogcGeometry, relateOperator);
-            }
+        return new Flatbush<>(Arrays.copyOf(geometries, geometryCount), packing);
+    }
 
-            int partition = -1;
-            if (partitionChannel.isPresent()) {
-                Block partitionBlock = channels.get(partitionChannel.get()).get(blockIndex);
-                partition = toIntExact(INTEGER.getLong(partitionBlock, blockPosition));
-            }
+    @Nullable
+    private static GeometryWithPosition createGeometryWithPosition(
+            AdaptiveLongBigArray addresses,
+            int position,
+            List<List<Block>> channels,
+            int geometryChannel,
+            Optional<Integer> radiusChannel,
+            Optional<Integer> partitionChannel,
+            Operator relateOperator)
+    {
+        long pageAddress = addresses.get(position);
+        int blockIndex = decodeSliceIndex(pageAddress);
+        int blockPosition = decodePosition(pageAddress);
+
+        Block block = channels.get(geometryChannel).get(blockIndex);
+        // TODO Consider pushing is-null and is-empty checks into a filter below the join
+        if (block.isNull(blockPosition)) {
+            return null;
+        }
 
-            GeometryWithPosition geometryWithPosition = new GeometryWithPosition(ogcGeometry, partition, position, radius);
-            geometries.add(geometryWithPosition);
+        Slice slice = block.getSlice(blockPosition, 0, block.getSliceLength(blockPosition));
+        OGCGeometry ogcGeometry = deserialize(slice);
+        verify(ogcGeometry != null);
+        if (ogcGeometry.isEmpty()) {
+            return null;
+        }
 
-            addedSizeInBytes += geometryWithPosition.getEstimatedSizeInBytes();
+        double radius = radiusChannel.map(channel -> DOUBLE.getDouble(channels.get(channel).get(blockIndex), blockPosition)).orElse(0.0);
+        if (radius < 0) {
+            return null;
+        }
 
-            if (addedSizeInBytes >= MEMORY_USAGE_UPDATE_INCREMENT_BYTES) {
-                localUserMemoryContext.setBytes(recordedSizeInBytes + addedSizeInBytes);
-                recordedSizeInBytes += addedSizeInBytes;
-                addedSizeInBytes = 0;
-            }
+        if (!radiusChannel.isPresent()) {
+            // If radiusChannel is supplied, this is a distance query, for which our acceleration won't help.
+            accelerateGeometry(ogcGeometry, relateOperator);
+        }
+
+        int partition = -1;
+        if (partitionChannel.isPresent()) {
+            Block partitionBlock = channels.get(partitionChannel.get()).get(blockIndex);
+            partition = toIntExact(INTEGER.getLong(partitionBlock, blockPosition));
         }
 
-        return new Flatbush<>(geometries.toArray(new GeometryWithPosition[] {}));
+        return new GeometryWithPosition(ogcGeometry, partition, position, radius);
     }
 
     // doesn't include memory used by channels and addresses which are shared with PagesIndex
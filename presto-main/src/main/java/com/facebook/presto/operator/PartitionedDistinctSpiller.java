@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Spills the state of a streaming distinct operator. The distinct values seen before memory
+ * was revoked and all input received afterwards are hash partitioned on the distinct channels,
+ * so each partition can later be processed on its own: its values are loaded into an empty
+ * hash first, and then its input is deduplicated against them.
+ * <p>
+ * Value pages have the distinct channels first, followed by the optional hash channel.
+ */
+class PartitionedDistinctSpiller
+        implements Closeable
+{
+    // must be a power of 2
+    private static final int PARTITION_COUNT = 8;
+
+    private final Closer closer = Closer.create();
+    private final PartitioningSpiller valuesSpiller;
+    private final PartitioningSpiller inputSpiller;
+
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+
+    public PartitionedDistinctSpiller(
+            List<Type> valueTypes,
+            List<Type> inputTypes,
+            List<Type> distinctTypes,
+            List<Integer> inputDistinctChannels,
+            PartitioningSpillerFactory partitioningSpillerFactory,
+            OperatorContext operatorContext)
+    {
+        requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+        requireNonNull(operatorContext, "operatorContext is null");
+        int[] valueDistinctChannels = IntStream.range(0, distinctTypes.size()).toArray();
+        this.valuesSpiller = closer.register(partitioningSpillerFactory.create(
+                ImmutableList.copyOf(valueTypes),
+                new LocalPartitionGenerator(new InterpretedHashGenerator(distinctTypes, valueDistinctChannels), PARTITION_COUNT),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.aggregateSystemMemoryContext()));
+        this.inputSpiller = closer.register(partitioningSpillerFactory.create(
+                ImmutableList.copyOf(inputTypes),
+                new LocalPartitionGenerator(new InterpretedHashGenerator(distinctTypes, Ints.toArray(inputDistinctChannels)), PARTITION_COUNT),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.aggregateSystemMemoryContext()));
+    }
+
+    public int getPartitionCount()
+    {
+        return PARTITION_COUNT;
+    }
+
+    public ListenableFuture<?> getSpillInProgress()
+    {
+        return spillInProgress;
+    }
+
+    /**
+     * Spills the distinct values seen so far. The pages are consumed lazily, on the spilling thread.
+     */
+    public ListenableFuture<?> spillValues(Iterator<Page> valuePages)
+    {
+        checkNoSpillInProgress();
+        spillInProgress = spill(valuesSpiller, valuePages);
+        return spillInProgress;
+    }
+
+    public ListenableFuture<?> spillInput(Page page)
+    {
+        checkNoSpillInProgress();
+        spillInProgress = inputSpiller.partitionAndSpill(page, partition -> true).getSpillingFuture();
+        return spillInProgress;
+    }
+
+    public Iterator<Page> getSpilledValues(int partition)
+    {
+        checkNoSpillInProgress();
+        return valuesSpiller.getSpilledPages(partition);
+    }
+
+    public Iterator<Page> getSpilledInput(int partition)
+    {
+        checkNoSpillInProgress();
+        return inputSpiller.getSpilledPages(partition);
+    }
+
+    private void checkNoSpillInProgress()
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+    }
+
+    private static ListenableFuture<?> spill(PartitioningSpiller spiller, Iterator<Page> pages)
+    {
+        while (pages.hasNext()) {
+            ListenableFuture<?> spillingFuture = spiller.partitionAndSpill(pages.next(), partition -> true).getSpillingFuture();
+            if (!spillingFuture.isDone()) {
+                // the spiller does not accept another page until the previous one has been spilled
+                return Futures.transformAsync(spillingFuture, ignored -> spill(spiller, pages), directExecutor());
+            }
+            checkSpillSucceeded(spillingFuture);
+        }
+        return immediateFuture(null);
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        closer.close();
+    }
+}
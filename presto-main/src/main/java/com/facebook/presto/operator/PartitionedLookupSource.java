@@ -15,8 +15,10 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Closer;
 
 import javax.annotation.Nullable;
@@ -32,6 +34,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.lang.Integer.numberOfTrailingZeros;
@@ -84,6 +89,12 @@ public class PartitionedLookupSource
     @Nullable
     private final OuterPositionTracker outerPositionTracker;
 
+    // the output blocks of all partitions are concatenated, starting at these block indexes
+    @Nullable
+    private int[] partitionBlockOffsets;
+    @Nullable
+    private List<Block>[] outputBlocks;
+
     private boolean closed;
 
     private PartitionedLookupSource(List<? extends LookupSource> lookupSources, List<Type> hashChannelTypes, Optional<OuterPositionTracker> outerPositionTracker)
@@ -176,6 +187,59 @@ public class PartitionedLookupSource
         }
     }
 
+    @Override
+    public boolean isOutputAddressable()
+    {
+        return Arrays.stream(lookupSources).allMatch(LookupSource::isOutputAddressable);
+    }
+
+    @Override
+    public long getOutputAddress(long partitionedJoinPosition)
+    {
+        int partition = decodePartition(partitionedJoinPosition);
+        int joinPosition = decodeJoinPosition(partitionedJoinPosition);
+        long address = lookupSources[partition].getOutputAddress(joinPosition);
+        if (outerPositionTracker != null) {
+            outerPositionTracker.positionVisited(partition, joinPosition);
+        }
+        if (partitionBlockOffsets == null) {
+            partitionBlockOffsets = computePartitionBlockOffsets();
+        }
+        return encodeSyntheticAddress(partitionBlockOffsets[partition] + decodeSliceIndex(address), decodePosition(address));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Block> getOutputBlocks(int outputChannel)
+    {
+        if (outputBlocks == null) {
+            outputBlocks = new List[getChannelCount()];
+        }
+        if (outputBlocks[outputChannel] == null) {
+            ImmutableList.Builder<Block> blocks = ImmutableList.builder();
+            for (LookupSource lookupSource : lookupSources) {
+                blocks.addAll(lookupSource.getOutputBlocks(outputChannel));
+            }
+            outputBlocks[outputChannel] = blocks.build();
+        }
+        return outputBlocks[outputChannel];
+    }
+
+    private int[] computePartitionBlockOffsets()
+    {
+        int[] offsets = new int[lookupSources.length];
+        if (getChannelCount() == 0) {
+            // there are no output blocks to address
+            return offsets;
+        }
+        int blockCount = 0;
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            offsets[partition] = blockCount;
+            blockCount += lookupSources[partition].getOutputBlocks(0).size();
+        }
+        return offsets;
+    }
+
     @Override
     public long joinPositionWithinPartition(long joinPosition)
     {
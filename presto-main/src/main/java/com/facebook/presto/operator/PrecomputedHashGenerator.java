@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.BigintType;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -34,6 +35,15 @@ public class PrecomputedHashGenerator
         return BigintType.BIGINT.getLong(page.getBlock(hashChannel), position);
     }
 
+    @Override
+    public void hashPositions(Page page, int positionCount, long[] hashes)
+    {
+        Block hashBlock = page.getBlock(hashChannel);
+        for (int position = 0; position < positionCount; position++) {
+            hashes[position] = BigintType.BIGINT.getLong(hashBlock, position);
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -45,6 +45,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.units.DataSize;
 
+import javax.annotation.Nullable;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -81,6 +83,7 @@ public class ScanFilterAndProjectOperator
     private final LocalMemoryContext outputMemoryContext;
     private final SettableFuture<?> blocked = SettableFuture.create();
     private final Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier;
+    private final Optional<Supplier<Map<Integer, BlockedBloomFilter>>> bloomFilterSupplier;
     private final MergingPageOutput mergingOutput;
 
     private RecordCursor cursor;
@@ -104,6 +107,7 @@ public class ScanFilterAndProjectOperator
             Iterable<ColumnHandle> columns,
             Iterable<Type> types,
             Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier,
+            Optional<Supplier<Map<Integer, BlockedBloomFilter>>> bloomFilterSupplier,
             MergingPageOutput mergingOutput)
     {
         this.cursorProcessor = requireNonNull(cursorProcessor, "cursorProcessor is null");
@@ -118,6 +122,7 @@ public class ScanFilterAndProjectOperator
         this.pageProcessorMemoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext(ScanFilterAndProjectOperator.class.getSimpleName());
         this.outputMemoryContext = operatorContext.newLocalSystemMemoryContext(ScanFilterAndProjectOperator.class.getSimpleName());
         this.dynamicFilterSupplier = requireNonNull(dynamicFilterSupplier, "dynamicFilterSupplier is null");
+        this.bloomFilterSupplier = requireNonNull(bloomFilterSupplier, "bloomFilterSupplier is null");
         this.mergingOutput = requireNonNull(mergingOutput, "mergingOutput is null");
 
         this.pageBuilder = new PageBuilder(ImmutableList.copyOf(requireNonNull(types, "types is null")));
@@ -186,6 +191,7 @@ public class ScanFilterAndProjectOperator
     @Override
     public void close()
     {
+        pageProcessor.updateRuntimeStats(operatorContext.getRuntimeStats());
         finish();
     }
 
@@ -300,7 +306,10 @@ public class ScanFilterAndProjectOperator
             if (page != null) {
                 // update operator stats
                 page = recordProcessedInput(page);
+                page = applyBloomFilters(page);
+            }
 
+            if (page != null) {
                 Iterator<Optional<Page>> output = pageProcessor.process(sqlFunctionProperties, yieldSignal, pageProcessorMemoryContext, page);
                 mergingOutput.addInput(output);
             }
@@ -395,6 +404,63 @@ public class ScanFilterAndProjectOperator
         return (blocks == null) ? page : new Page(page.getPositionCount(), blocks);
     }
 
+    /**
+     * Drops the rows that cannot match the build side of a dynamic filtering join. Only the
+     * filtered columns are loaded; other lazy columns stay lazy and are loaded for the surviving
+     * rows only.
+     */
+    @Nullable
+    private Page applyBloomFilters(Page page)
+    {
+        if (!bloomFilterSupplier.isPresent()) {
+            return page;
+        }
+        Map<Integer, BlockedBloomFilter> bloomFilters = bloomFilterSupplier.get().get();
+        if (bloomFilters.isEmpty()) {
+            return page;
+        }
+
+        int[] positions = new int[page.getPositionCount()];
+        int positionCount = page.getPositionCount();
+        for (int position = 0; position < positionCount; position++) {
+            positions[position] = position;
+        }
+        for (Map.Entry<Integer, BlockedBloomFilter> entry : bloomFilters.entrySet()) {
+            Block block = page.getBlock(entry.getKey()).getLoadedBlock();
+            BlockedBloomFilter bloomFilter = entry.getValue();
+            int selectedCount = 0;
+            for (int i = 0; i < positionCount; i++) {
+                int position = positions[i];
+                if (bloomFilter.mightContain(block, position)) {
+                    positions[selectedCount] = position;
+                    selectedCount++;
+                }
+            }
+            positionCount = selectedCount;
+        }
+
+        if (positionCount == page.getPositionCount()) {
+            return page;
+        }
+        if (positionCount == 0) {
+            return null;
+        }
+
+        int selectedCount = positionCount;
+        Block[] blocks = new Block[page.getChannelCount()];
+        for (int channel = 0; channel < blocks.length; channel++) {
+            Block block = page.getBlock(channel);
+            if (block instanceof LazyBlock && !((LazyBlock) block).isLoaded()) {
+                LazyBlock lazyBlock = (LazyBlock) block;
+                blocks[channel] = new LazyBlock(selectedCount, lazy -> lazy.setBlock(lazyBlock.getLoadedBlock().getPositions(positions, 0, selectedCount)));
+            }
+            else {
+                blocks[channel] = block.getPositions(positions, 0, selectedCount);
+            }
+        }
+        return new Page(selectedCount, blocks);
+    }
+
     private static Block[] copyOfPageBlocks(Page page)
     {
         Block[] blocks = new Block[page.getChannelCount()];
@@ -417,6 +483,7 @@ public class ScanFilterAndProjectOperator
         private final List<ColumnHandle> columns;
         private final List<Type> types;
         private final Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier;
+        private final Optional<Supplier<Map<Integer, BlockedBloomFilter>>> bloomFilterSupplier;
         private final DataSize minOutputPageSize;
         private final int minOutputPageRowCount;
         private boolean closed;
@@ -434,6 +501,37 @@ public class ScanFilterAndProjectOperator
                 Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier,
                 DataSize minOutputPageSize,
                 int minOutputPageRowCount)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    sourceId,
+                    pageSourceProvider,
+                    cursorProcessor,
+                    pageProcessor,
+                    table,
+                    columns,
+                    types,
+                    dynamicFilterSupplier,
+                    Optional.empty(),
+                    minOutputPageSize,
+                    minOutputPageRowCount);
+        }
+
+        public ScanFilterAndProjectOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                Supplier<CursorProcessor> cursorProcessor,
+                Supplier<PageProcessor> pageProcessor,
+                TableHandle table,
+                Iterable<ColumnHandle> columns,
+                List<Type> types,
+                Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier,
+                Optional<Supplier<Map<Integer, BlockedBloomFilter>>> bloomFilterSupplier,
+                DataSize minOutputPageSize,
+                int minOutputPageRowCount)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -445,6 +543,7 @@ public class ScanFilterAndProjectOperator
             this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
             this.types = requireNonNull(types, "types is null");
             this.dynamicFilterSupplier = requireNonNull(dynamicFilterSupplier, "dynamicFilterSupplier is null");
+            this.bloomFilterSupplier = requireNonNull(bloomFilterSupplier, "bloomFilterSupplier is null");
             this.minOutputPageSize = requireNonNull(minOutputPageSize, "minOutputPageSize is null");
             this.minOutputPageRowCount = minOutputPageRowCount;
         }
@@ -470,6 +569,7 @@ public class ScanFilterAndProjectOperator
                     columns,
                     types,
                     dynamicFilterSupplier,
+                    bloomFilterSupplier,
                     new MergingPageOutput(types, minOutputPageSize.toBytes(), minOutputPageRowCount));
         }
 
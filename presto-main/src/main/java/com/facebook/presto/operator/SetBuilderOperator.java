@@ -13,32 +13,65 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.airlift.log.Logger;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.ChannelSet.ChannelSetBuilder;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.concat;
+import static com.google.common.collect.Iterators.singletonIterator;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
 public class SetBuilderOperator
         implements Operator
 {
+    private static final Logger log = Logger.get(SetBuilderOperator.class);
+
+    // must be a power of 2
+    private static final int SPILL_PARTITION_COUNT = 8;
+
     public static class SetSupplier
     {
         private final Type type;
         private final SettableFuture<ChannelSet> channelSetFuture = SettableFuture.create();
+        private final SpilledChannelSetHandle spilledChannelSetHandle = new SpilledChannelSetHandle();
+        private final SettableFuture<?> spilledChannelSetFuture = SettableFuture.create();
+        private final ListenableFuture<?> setReady = whenAnyComplete(ImmutableList.of(channelSetFuture, spilledChannelSetFuture));
+
+        @GuardedBy("this")
+        private int probeFactories;
+        @GuardedBy("this")
+        private int closedProbeFactories;
 
         public SetSupplier(Type type)
         {
@@ -60,6 +93,49 @@ public class SetBuilderOperator
             boolean wasSet = channelSetFuture.set(requireNonNull(channelSet, "channelSet is null"));
             checkState(wasSet, "ChannelSet already set");
         }
+
+        /**
+         * Completes when either the in-memory set is available or the set has been spilled.
+         */
+        public ListenableFuture<?> getSetReady()
+        {
+            return setReady;
+        }
+
+        boolean isSpilled()
+        {
+            return spilledChannelSetFuture.isDone();
+        }
+
+        SpilledChannelSetHandle getSpilledChannelSetHandle()
+        {
+            return spilledChannelSetHandle;
+        }
+
+        void setSpilled(int partitionCount, boolean containsNull, boolean empty)
+        {
+            spilledChannelSetHandle.setSpilled(partitionCount, containsNull, empty);
+            boolean wasSet = spilledChannelSetFuture.set(null);
+            checkState(wasSet, "Set already spilled");
+        }
+
+        synchronized void addProbeFactory()
+        {
+            probeFactories++;
+        }
+
+        void probeFactoryClosed()
+        {
+            boolean noMoreProbes;
+            synchronized (this) {
+                closedProbeFactories++;
+                checkState(closedProbeFactories <= probeFactories, "More probe factories closed than created");
+                noMoreProbes = closedProbeFactories == probeFactories;
+            }
+            if (noMoreProbes) {
+                spilledChannelSetHandle.noMoreProbes();
+            }
+        }
     }
 
     public static class SetBuilderOperatorFactory
@@ -73,6 +149,8 @@ public class SetBuilderOperator
         private final int expectedPositions;
         private boolean closed;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
 
         public SetBuilderOperatorFactory(
                 int operatorId,
@@ -82,6 +160,20 @@ public class SetBuilderOperator
                 Optional<Integer> hashChannel,
                 int expectedPositions,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, type, setChannel, hashChannel, expectedPositions, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+        }
+
+        public SetBuilderOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Type type,
+                int setChannel,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -91,6 +183,8 @@ public class SetBuilderOperator
             this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
             this.expectedPositions = expectedPositions;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         public SetSupplier getSetProvider()
@@ -103,7 +197,7 @@ public class SetBuilderOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, SetBuilderOperator.class.getSimpleName());
-            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, joinCompiler);
+            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
 
         @Override
@@ -115,20 +209,74 @@ public class SetBuilderOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new SetBuilderOperatorFactory(operatorId, planNodeId, setProvider.getType(), setChannel, hashChannel, expectedPositions, joinCompiler);
+            return new SetBuilderOperatorFactory(operatorId, planNodeId, setProvider.getType(), setChannel, hashChannel, expectedPositions, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
     }
 
+    @VisibleForTesting
+    public enum State
+    {
+        /**
+         * Operator accepts input
+         */
+        CONSUMING_INPUT,
+
+        /**
+         * Memory revoking occurred during {@link #CONSUMING_INPUT}. Operator accepts input and spills it
+         */
+        SPILLING_INPUT,
+
+        /**
+         * Set has been spilled, waiting for the probes to request or release the current partition
+         */
+        INPUT_SPILLED,
+
+        /**
+         * The current partition is being unspilled
+         */
+        INPUT_UNSPILLING,
+
+        /**
+         * The current partition has been unspilled and built, waiting for the probes to release it
+         */
+        INPUT_UNSPILLED_AND_BUILT,
+
+        /**
+         * No longer needed
+         */
+        CLOSED
+    }
+
     private final OperatorContext operatorContext;
     private final SetSupplier setSupplier;
     private final int[] sourceChannels;
+    private final int expectedPositions;
+    private final JoinCompiler joinCompiler;
+    private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
-    private final ChannelSetBuilder channelSetBuilder;
+    private final boolean spillEnabled;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
 
-    private boolean finished;
+    private State state = State.CONSUMING_INPUT;
+
+    @Nullable
+    private ChannelSetBuilder channelSetBuilder;
 
     @Nullable
     private Work<?> unfinishedWork;  // The pending work for current page.
+    @Nullable
+    private Page unfinishedPage;  // The page of unfinishedWork, retained only when spill is enabled.
+
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private boolean spilledContainsNull;
+    private boolean spilledNonEmpty;
+
+    private int unspillingPartition;
+    @Nullable
+    private Iterator<Page> unspilledPages;
 
     public SetBuilderOperator(
             OperatorContext operatorContext,
@@ -137,9 +285,28 @@ public class SetBuilderOperator
             Optional<Integer> hashChannel,
             int expectedPositions,
             JoinCompiler joinCompiler)
+    {
+        this(operatorContext, setSupplier, setChannel, hashChannel, expectedPositions, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+    }
+
+    public SetBuilderOperator(
+            OperatorContext operatorContext,
+            SetSupplier setSupplier,
+            int setChannel,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.setSupplier = requireNonNull(setSupplier, "setProvider is null");
+        this.expectedPositions = expectedPositions;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.spillEnabled = spillEnabled;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
 
         if (requireNonNull(hashChannel, "hashChannel is null").isPresent()) {
             this.sourceChannels = new int[]{setChannel, hashChannel.get()};
@@ -154,8 +321,9 @@ public class SetBuilderOperator
                 setSupplier.getType(),
                 channelSetHashChannel,
                 expectedPositions,
-                requireNonNull(operatorContext, "operatorContext is null"),
-                requireNonNull(joinCompiler, "joinCompiler is null"));
+                operatorContext,
+                joinCompiler,
+                spillEnabled ? localRevocableMemoryContext : localUserMemoryContext);
     }
 
     @Override
@@ -164,32 +332,167 @@ public class SetBuilderOperator
         return operatorContext;
     }
 
+    @VisibleForTesting
+    public State getState()
+    {
+        return state;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        switch (state) {
+            case SPILLING_INPUT:
+                return spillInProgress;
+            case INPUT_SPILLED:
+                return setSupplier.getSpilledChannelSetHandle().getPartitionRequestedOrReleased(unspillingPartition);
+            case INPUT_UNSPILLED_AND_BUILT:
+                return setSupplier.getSpilledChannelSetHandle().getPartitionReleased(unspillingPartition);
+            default:
+                return NOT_BLOCKED;
+        }
+    }
+
     @Override
     public void finish()
     {
-        if (finished) {
+        if (finishMemoryRevoke.isPresent()) {
             return;
         }
 
+        switch (state) {
+            case CONSUMING_INPUT:
+                finishInput();
+                return;
+
+            case SPILLING_INPUT:
+                finishSpilledInput();
+                return;
+
+            case INPUT_SPILLED:
+                unspillPartitionIfRequested();
+                return;
+
+            case INPUT_UNSPILLING:
+                finishPartitionUnspilling();
+                return;
+
+            case INPUT_UNSPILLED_AND_BUILT:
+                disposePartitionIfReleased();
+                return;
+
+            case CLOSED:
+                // no-op
+                return;
+        }
+
+        throw new IllegalStateException("Unhandled state: " + state);
+    }
+
+    private void finishInput()
+    {
+        checkState(state == State.CONSUMING_INPUT);
         ChannelSet channelSet = channelSetBuilder.build();
+        if (spillEnabled) {
+            // the set can no longer be spilled once the probes see it
+            localUserMemoryContext.setBytes(channelSet.getEstimatedSizeInBytes());
+            localRevocableMemoryContext.setBytes(0);
+        }
         setSupplier.setChannelSet(channelSet);
         operatorContext.recordOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
-        finished = true;
+        state = State.CLOSED;
+    }
+
+    private void finishSpilledInput()
+    {
+        checkState(state == State.SPILLING_INPUT);
+        if (!spillInProgress.isDone()) {
+            // Not ready to handle finish() yet
+            return;
+        }
+        checkSpillSucceeded(spillInProgress);
+        setSupplier.setSpilled(SPILL_PARTITION_COUNT, spilledContainsNull, !spilledNonEmpty);
+        state = State.INPUT_SPILLED;
+    }
+
+    private void unspillPartitionIfRequested()
+    {
+        checkState(state == State.INPUT_SPILLED);
+        SpilledChannelSetHandle handle = setSupplier.getSpilledChannelSetHandle();
+        if (handle.isPartitionReleased(unspillingPartition)) {
+            // no probe needs this partition
+            nextPartition();
+            return;
+        }
+        if (!handle.getPartitionRequestedOrReleased(unspillingPartition).isDone()) {
+            // Nothing to do yet.
+            return;
+        }
+
+        log.debug("Unspilling set partition %s for operator %s", unspillingPartition, operatorContext);
+        unspilledPages = getSpiller().getSpilledPages(unspillingPartition);
+        channelSetBuilder = new ChannelSetBuilder(setSupplier.getType(), Optional.empty(), expectedPositions, operatorContext, joinCompiler, localUserMemoryContext);
+        state = State.INPUT_UNSPILLING;
+    }
+
+    private void finishPartitionUnspilling()
+    {
+        checkState(state == State.INPUT_UNSPILLING);
+        while (unfinishedWork == null || processUnfinishedWork()) {
+            if (!unspilledPages.hasNext()) {
+                unspilledPages = null;
+                ChannelSet channelSet = channelSetBuilder.build();
+                setSupplier.getSpilledChannelSetHandle().setPartition(unspillingPartition, channelSet);
+                operatorContext.recordOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
+                state = State.INPUT_UNSPILLED_AND_BUILT;
+                return;
+            }
+            unfinishedWork = channelSetBuilder.addPage(unspilledPages.next());
+        }
+        // unspilled page could not be added, most likely because memory is not available
+    }
+
+    private void disposePartitionIfReleased()
+    {
+        checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
+        if (!setSupplier.getSpilledChannelSetHandle().isPartitionReleased(unspillingPartition)) {
+            return;
+        }
+
+        channelSetBuilder = null;
+        localUserMemoryContext.setBytes(0);
+        nextPartition();
+    }
+
+    private void nextPartition()
+    {
+        unspillingPartition++;
+        if (unspillingPartition == SPILL_PARTITION_COUNT) {
+            close();
+            return;
+        }
+        state = State.INPUT_SPILLED;
     }
 
     @Override
     public boolean isFinished()
     {
-        return finished;
+        return state == State.CLOSED;
     }
 
     @Override
     public boolean needsInput()
     {
+        if (finishMemoryRevoke.isPresent()) {
+            return false;
+        }
+        if (state == State.SPILLING_INPUT) {
+            return spillInProgress.isDone();
+        }
         // Since SetBuilderOperator doesn't produce any output, the getOutput()
         // method may never be called. We need to handle any unfinished work
         // before addInput() can be called again.
-        return !finished && (unfinishedWork == null || processUnfinishedWork());
+        return state == State.CONSUMING_INPUT && (unfinishedWork == null || processUnfinishedWork());
     }
 
     @Override
@@ -198,10 +501,107 @@ public class SetBuilderOperator
         requireNonNull(page, "page is null");
         checkState(!isFinished(), "Operator is already finished");
 
-        unfinishedWork = channelSetBuilder.addPage(page.extractChannels(sourceChannels));
+        Page sourcePage = page.extractChannels(sourceChannels);
+        if (state == State.SPILLING_INPUT) {
+            spillInput(sourcePage);
+            return;
+        }
+
+        checkState(state == State.CONSUMING_INPUT);
+        unfinishedWork = channelSetBuilder.addPage(sourcePage);
+        if (spillEnabled) {
+            unfinishedPage = sourcePage;
+        }
         processUnfinishedWork();
     }
 
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+        spillInProgress = spillValues(singletonIterator(page.extractChannel(0)));
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        if (state == State.CONSUMING_INPUT) {
+            log.debug("Spilling set for operator %s, estimated size: %s", operatorContext, channelSetBuilder.getEstimatedSize());
+            ChannelSet channelSet = channelSetBuilder.build();
+            spilledContainsNull = channelSet.containsNull();
+            spilledNonEmpty = !channelSet.isEmpty();
+
+            Iterator<Page> values = channelSetBuilder.getValuePages();
+            if (unfinishedPage != null) {
+                // the page may have been partially added to the set, spilling it again only adds duplicates
+                values = concat(values, singletonIterator(unfinishedPage.extractChannel(0)));
+                unfinishedPage = null;
+                unfinishedWork = null;
+            }
+            spiller = Optional.of(partitioningSpillerFactory.create(
+                    ImmutableList.of(setSupplier.getType()),
+                    new LocalPartitionGenerator(new InterpretedHashGenerator(ImmutableList.of(setSupplier.getType()), new int[] {0}), SPILL_PARTITION_COUNT),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext()));
+            spillInProgress = spillValues(values);
+
+            finishMemoryRevoke = Optional.of(() -> {
+                channelSetBuilder = null;
+                localRevocableMemoryContext.setBytes(0);
+                state = State.SPILLING_INPUT;
+            });
+            return spillInProgress;
+        }
+        else if (operatorContext.getReservedRevocableBytes() == 0) {
+            // Probably stale revoking request
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        throw new IllegalStateException(format("State %s can not have revocable memory, but has %s revocable bytes", state, operatorContext.getReservedRevocableBytes()));
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> spillValues(Iterator<Page> pages)
+    {
+        while (pages.hasNext()) {
+            Page page = pages.next();
+            recordSpilledValues(page.getBlock(0));
+            ListenableFuture<?> spillingFuture = getSpiller().partitionAndSpill(page, partition -> true).getSpillingFuture();
+            if (!spillingFuture.isDone()) {
+                // the spiller does not accept another page until the previous one has been spilled
+                return Futures.transformAsync(spillingFuture, ignored -> spillValues(pages), directExecutor());
+            }
+            checkSpillSucceeded(spillingFuture);
+        }
+        return immediateFuture(null);
+    }
+
+    private void recordSpilledValues(Block values)
+    {
+        if (values.getPositionCount() == 0) {
+            return;
+        }
+        spilledNonEmpty = true;
+        if (!spilledContainsNull && values.mayHaveNull()) {
+            for (int position = 0; position < values.getPositionCount(); position++) {
+                if (values.isNull(position)) {
+                    spilledContainsNull = true;
+                    break;
+                }
+            }
+        }
+    }
+
     @Override
     public Page getOutput()
     {
@@ -216,12 +616,42 @@ public class SetBuilderOperator
         boolean done = unfinishedWork.process();
         if (done) {
             unfinishedWork = null;
+            unfinishedPage = null;
         }
         // We need to update the memory reservation again since the page builder memory may also be increasing.
         channelSetBuilder.updateMemoryReservation();
         return done;
     }
 
+    private PartitioningSpiller getSpiller()
+    {
+        return spiller.orElseThrow(() -> new IllegalStateException("Spiller not created"));
+    }
+
+    @Override
+    public void close()
+    {
+        if (state == State.CLOSED) {
+            return;
+        }
+        // close() can be called in any state, due for example to query failure, and must clean resource up unconditionally
+        channelSetBuilder = null;
+        unfinishedWork = null;
+        unfinishedPage = null;
+        unspilledPages = null;
+        state = State.CLOSED;
+        finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
+
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            closer.register(() -> localUserMemoryContext.setBytes(0));
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
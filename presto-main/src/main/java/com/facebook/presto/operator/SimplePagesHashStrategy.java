@@ -110,6 +110,12 @@ public class SimplePagesHashStrategy
         }
     }
 
+    @Override
+    public List<Block> getOutputChannelBlocks(int outputChannel)
+    {
+        return channels.get(outputChannels.get(outputChannel));
+    }
+
     @Override
     public long hashPosition(int blockIndex, int position)
     {
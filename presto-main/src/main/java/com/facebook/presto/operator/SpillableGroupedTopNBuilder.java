@@ -49,16 +49,16 @@ public class SpillableGroupedTopNBuilder
 {
     private static final long INSTANCE_SIZE = ClassLayout.parseClass(SpillableGroupedTopNBuilder.class).instanceSize();
 
-    private final Supplier<InMemoryGroupedTopNBuilder> inputInMemoryGroupedTopNBuilderSupplier;
-    private final Supplier<InMemoryGroupedTopNBuilder> outputInMemoryGroupedTopNBuilderSupplier;
+    private final Supplier<MigratableGroupedTopNBuilder> inputInMemoryGroupedTopNBuilderSupplier;
+    private final Supplier<MigratableGroupedTopNBuilder> outputInMemoryGroupedTopNBuilderSupplier;
     private final Supplier<ListenableFuture<?>> memoryWaitingFutureSupplier;
     private final SpillerFactory spillerFactory;
     private final List<Type> sourceTypes;
     private final List<Type> partitionTypes;
     private final List<Integer> partitionChannels;
 
-    private InMemoryGroupedTopNBuilder inputInMemoryGroupedTopNBuilder;
-    private InMemoryGroupedTopNBuilder outputInMemoryGroupedTopNBuilder;
+    private MigratableGroupedTopNBuilder inputInMemoryGroupedTopNBuilder;
+    private MigratableGroupedTopNBuilder outputInMemoryGroupedTopNBuilder;
 
     private final LocalMemoryContext localUserMemoryContext;
     private final LocalMemoryContext localRevocableMemoryContext;
@@ -76,8 +76,8 @@ public class SpillableGroupedTopNBuilder
             List<Type> sourceTypes,
             List<Type> partitionTypes,
             List<Integer> partitionChannels,
-            Supplier<InMemoryGroupedTopNBuilder> inputInMemoryGroupedTopNBuilderSupplier,
-            Supplier<InMemoryGroupedTopNBuilder> outputInMemoryGroupedTopNBuilderSupplier,
+            Supplier<MigratableGroupedTopNBuilder> inputInMemoryGroupedTopNBuilderSupplier,
+            Supplier<MigratableGroupedTopNBuilder> outputInMemoryGroupedTopNBuilderSupplier,
             Supplier<ListenableFuture<?>> memoryWaitingFutureSupplier,
             long unspillMemoryLimit,
             LocalMemoryContext localUserMemoryContext,
@@ -323,7 +323,7 @@ public class SpillableGroupedTopNBuilder
     }
 
     @VisibleForTesting
-    protected InMemoryGroupedTopNBuilder getInputInMemoryGroupedTopNBuilder()
+    protected MigratableGroupedTopNBuilder getInputInMemoryGroupedTopNBuilder()
     {
         return inputInMemoryGroupedTopNBuilder;
     }
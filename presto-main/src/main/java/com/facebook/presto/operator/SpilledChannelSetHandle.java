@@ -0,0 +1,263 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coordinates a spilled semi join set between the {@link SetBuilderOperator} and the
+ * {@link HashSemiJoinOperator}s probing it. The set is split into partitions which are
+ * unspilled one at a time, in order: partition {@code p} is built once a probe requests it and
+ * is disposed once every probe has released it.
+ * <p>
+ * Every probe releases every partition exactly once, either after probing it or when it is closed.
+ */
+@ThreadSafe
+final class SpilledChannelSetHandle
+{
+    @GuardedBy("this")
+    private int probeCount;
+    @GuardedBy("this")
+    private boolean noMoreProbes;
+    // next partition of each probe that was closed before the set was spilled
+    @GuardedBy("this")
+    private final List<Integer> closedProbes = new ArrayList<>();
+
+    @GuardedBy("this")
+    private boolean spilled;
+    @GuardedBy("this")
+    private int partitionCount;
+    @GuardedBy("this")
+    private boolean containsNull;
+    @GuardedBy("this")
+    private boolean empty;
+
+    @GuardedBy("this")
+    private int[] releaseCounts;
+    @GuardedBy("this")
+    private boolean[] released;
+    @GuardedBy("this")
+    private SettableFuture<ChannelSet>[] partitions;
+    @GuardedBy("this")
+    private SettableFuture<?>[] partitionsRequested;
+    @GuardedBy("this")
+    private SettableFuture<?>[] partitionsReleased;
+    @GuardedBy("this")
+    private ListenableFuture<?>[] partitionsRequestedOrReleased;
+
+    public synchronized void registerProbe()
+    {
+        checkState(!noMoreProbes, "No more probes already set");
+        probeCount++;
+    }
+
+    public void noMoreProbes()
+    {
+        List<SettableFuture<?>> releasedFutures;
+        synchronized (this) {
+            noMoreProbes = true;
+            releasedFutures = updateReleasedPartitions();
+        }
+        completeFutures(releasedFutures);
+    }
+
+    public void setSpilled(int partitionCount, boolean containsNull, boolean empty)
+    {
+        List<SettableFuture<?>> releasedFutures;
+        synchronized (this) {
+            initializePartitions(partitionCount, containsNull, empty);
+            releasedFutures = updateReleasedPartitions();
+        }
+        completeFutures(releasedFutures);
+    }
+
+    @SuppressWarnings("unchecked")
+    @GuardedBy("this")
+    private void initializePartitions(int partitionCount, boolean containsNull, boolean empty)
+    {
+        checkState(!spilled, "Set already spilled");
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        this.partitionCount = partitionCount;
+        this.containsNull = containsNull;
+        this.empty = empty;
+
+        releaseCounts = new int[partitionCount];
+        released = new boolean[partitionCount];
+        partitions = new SettableFuture[partitionCount];
+        partitionsRequested = new SettableFuture[partitionCount];
+        partitionsReleased = new SettableFuture[partitionCount];
+        partitionsRequestedOrReleased = new ListenableFuture[partitionCount];
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitions[partition] = SettableFuture.create();
+            partitionsRequested[partition] = SettableFuture.create();
+            partitionsReleased[partition] = SettableFuture.create();
+            partitionsRequestedOrReleased[partition] = whenAnyComplete(ImmutableList.of(partitionsRequested[partition], partitionsReleased[partition]));
+        }
+        for (int nextPartition : closedProbes) {
+            for (int partition = nextPartition; partition < partitionCount; partition++) {
+                releaseCounts[partition]++;
+            }
+        }
+        closedProbes.clear();
+        spilled = true;
+    }
+
+    public synchronized int getPartitionCount()
+    {
+        checkSpilled();
+        return partitionCount;
+    }
+
+    /**
+     * Whether the whole set, not just a single partition, contains null.
+     */
+    public synchronized boolean containsNull()
+    {
+        checkSpilled();
+        return containsNull;
+    }
+
+    /**
+     * Whether the whole set, not just a single partition, is empty.
+     */
+    public synchronized boolean isEmpty()
+    {
+        checkSpilled();
+        return empty;
+    }
+
+    public ListenableFuture<ChannelSet> getPartition(int partition)
+    {
+        SettableFuture<?> requested;
+        SettableFuture<ChannelSet> partitionFuture;
+        synchronized (this) {
+            checkSpilled();
+            requested = partitionsRequested[partition];
+            partitionFuture = partitions[partition];
+        }
+        // notify the builder outside of the lock since this may result in a callback
+        requested.set(null);
+        return partitionFuture;
+    }
+
+    public void setPartition(int partition, ChannelSet channelSet)
+    {
+        requireNonNull(channelSet, "channelSet is null");
+
+        SettableFuture<ChannelSet> partitionFuture;
+        synchronized (this) {
+            checkSpilled();
+            partitionFuture = partitions[partition];
+        }
+        partitionFuture.set(channelSet);
+    }
+
+    public void release(int partition)
+    {
+        List<SettableFuture<?>> releasedFutures;
+        synchronized (this) {
+            checkSpilled();
+            releaseCounts[partition]++;
+            releasedFutures = updateReleasedPartitions();
+        }
+        completeFutures(releasedFutures);
+    }
+
+    /**
+     * Releases all partitions starting from {@code nextPartition} on behalf of a closed probe.
+     * Can be called before the set is spilled.
+     */
+    public void releaseFrom(int nextPartition)
+    {
+        List<SettableFuture<?>> releasedFutures;
+        synchronized (this) {
+            if (!spilled) {
+                closedProbes.add(nextPartition);
+                return;
+            }
+            for (int partition = nextPartition; partition < partitionCount; partition++) {
+                releaseCounts[partition]++;
+            }
+            releasedFutures = updateReleasedPartitions();
+        }
+        completeFutures(releasedFutures);
+    }
+
+    public synchronized boolean isPartitionReleased(int partition)
+    {
+        checkSpilled();
+        return released[partition];
+    }
+
+    public synchronized ListenableFuture<?> getPartitionReleased(int partition)
+    {
+        checkSpilled();
+        return partitionsReleased[partition];
+    }
+
+    public synchronized ListenableFuture<?> getPartitionRequestedOrReleased(int partition)
+    {
+        checkSpilled();
+        return partitionsRequestedOrReleased[partition];
+    }
+
+    /**
+     * Marks the partitions released by every probe and returns their release futures, which the
+     * caller must complete after leaving the lock since completing them may result in a callback.
+     */
+    @GuardedBy("this")
+    private List<SettableFuture<?>> updateReleasedPartitions()
+    {
+        if (!spilled || !noMoreProbes) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<SettableFuture<?>> releasedFutures = ImmutableList.builder();
+        for (int partition = 0; partition < partitionCount; partition++) {
+            checkState(releaseCounts[partition] <= probeCount, "Partition %s released more times than there are probes", partition);
+            if (releaseCounts[partition] == probeCount && !released[partition]) {
+                // let the memory go
+                partitions[partition] = SettableFuture.create();
+                released[partition] = true;
+                releasedFutures.add(partitionsReleased[partition]);
+            }
+        }
+        return releasedFutures.build();
+    }
+
+    private static void completeFutures(List<SettableFuture<?>> futures)
+    {
+        for (SettableFuture<?> future : futures) {
+            future.set(null);
+        }
+    }
+
+    @GuardedBy("this")
+    private void checkSpilled()
+    {
+        checkState(spilled, "Set is not spilled");
+    }
+}
@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
@@ -29,6 +30,7 @@ import java.util.Optional;
 import java.util.function.Supplier;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isFlatGroupedTopNEnabled;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -187,20 +189,23 @@ public class TopNRowNumberOperator
                 joinCompiler,
                 isDictionaryAggregationEnabled(operatorContext.getSession()),
                 this::updateMemoryReservation);
+        boolean flatGroupedTopN = isFlatGroupedTopNEnabled(operatorContext.getSession()) && maxRowCountPerPartition <= InMemoryFlatGroupedTopNBuilder.MAX_TOP_N;
 
         if (spillEnabled) {
             this.groupedTopNBuilder = new SpillableGroupedTopNBuilder(
                     ImmutableList.copyOf(sourceTypes),
                     partitionTypes,
                     partitionChannels,
-                    () -> new InMemoryGroupedTopNBuilder(
+                    () -> createInMemoryGroupedTopNBuilder(
+                            flatGroupedTopN,
                             ImmutableList.copyOf(sourceTypes),
                             new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
                             maxRowCountPerPartition,
                             generateRowNumber,
                             operatorContext.localRevocableMemoryContext(),
                             groupByHashSupplier.get()),
-                    () -> new InMemoryGroupedTopNBuilder(
+                    () -> createInMemoryGroupedTopNBuilder(
+                            flatGroupedTopN,
                             ImmutableList.copyOf(sourceTypes),
                             new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
                             maxRowCountPerPartition,
@@ -218,7 +223,8 @@ public class TopNRowNumberOperator
                     spillerFactory);
         }
         else {
-            this.groupedTopNBuilder = new InMemoryGroupedTopNBuilder(
+            this.groupedTopNBuilder = createInMemoryGroupedTopNBuilder(
+                    flatGroupedTopN,
                     ImmutableList.copyOf(sourceTypes),
                     new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
                     maxRowCountPerPartition,
@@ -228,6 +234,21 @@ public class TopNRowNumberOperator
         }
     }
 
+    private static MigratableGroupedTopNBuilder createInMemoryGroupedTopNBuilder(
+            boolean flat,
+            List<Type> sourceTypes,
+            PageWithPositionComparator comparator,
+            int topN,
+            boolean produceRowNumber,
+            LocalMemoryContext memoryContext,
+            GroupByHash groupByHash)
+    {
+        if (flat) {
+            return new InMemoryFlatGroupedTopNBuilder(sourceTypes, comparator, topN, produceRowNumber, memoryContext, groupByHash);
+        }
+        return new InMemoryGroupedTopNBuilder(sourceTypes, comparator, topN, produceRowNumber, memoryContext, groupByHash);
+    }
+
     private GroupByHash createGroupByHash(
             List<? extends Type> partitionTypes,
             List<Integer> partitionChannels,
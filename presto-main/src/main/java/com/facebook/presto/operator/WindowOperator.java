@@ -21,6 +21,7 @@ import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.WorkProcessor.ProcessState;
 import com.facebook.presto.operator.WorkProcessor.Transformation;
 import com.facebook.presto.operator.WorkProcessor.TransformationState;
+import com.facebook.presto.operator.window.AggregateWindowFunction;
 import com.facebook.presto.operator.window.FrameInfo;
 import com.facebook.presto.operator.window.FramedWindowFunction;
 import com.facebook.presto.operator.window.WindowPartition;
@@ -191,6 +192,7 @@ public class WindowOperator
     }
 
     private final OperatorContext operatorContext;
+    private final LocalMemoryContext sortMemoryContext;
     private final List<Type> outputTypes;
     private final int[] outputChannels;
     private final List<FramedWindowFunction> windowFunctions;
@@ -235,6 +237,7 @@ public class WindowOperator
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
 
         this.operatorContext = operatorContext;
+        this.sortMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(NormalizedKeySorter.class.getSimpleName());
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -607,10 +610,13 @@ public class WindowOperator
             implements Transformation<WindowPartition, Page>
     {
         final PageBuilder pageBuilder;
+        // segment trees built by aggregate window functions for the current partition
+        final LocalMemoryContext windowFunctionsMemoryContext;
 
         WindowPartitionsToOutputPages()
         {
             pageBuilder = new PageBuilder(outputTypes);
+            windowFunctionsMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(WindowPartitionsToOutputPages.class.getSimpleName());
         }
 
         @Override
@@ -618,6 +624,7 @@ public class WindowOperator
         {
             boolean finishing = !partitionOptional.isPresent();
             if (finishing) {
+                windowFunctionsMemoryContext.setBytes(0);
                 if (pageBuilder.isEmpty()) {
                     return TransformationState.finished();
                 }
@@ -632,6 +639,7 @@ public class WindowOperator
             while (!pageBuilder.isFull() && partition.hasNext()) {
                 partition.processNextRow(pageBuilder);
             }
+            updateMemoryUsage();
             if (!pageBuilder.isFull()) {
                 return needsMoreData();
             }
@@ -640,6 +648,17 @@ public class WindowOperator
             pageBuilder.reset();
             return TransformationState.ofResult(page, !partition.hasNext());
         }
+
+        void updateMemoryUsage()
+        {
+            long bytes = 0;
+            for (FramedWindowFunction windowFunction : windowFunctions) {
+                if (windowFunction.getFunction() instanceof AggregateWindowFunction) {
+                    bytes += ((AggregateWindowFunction) windowFunction.getFunction()).getEstimatedSizeInBytes();
+                }
+            }
+            windowFunctionsMemoryContext.setBytes(bytes);
+        }
     }
 
     private class SpillablePagesToPagesIndexes
@@ -887,7 +906,7 @@ public class WindowOperator
             int startPosition = 0;
             while (startPosition < pagesIndexWithHashStrategies.pagesIndex.getPositionCount()) {
                 int endPosition = findGroupEnd(pagesIndexWithHashStrategies.pagesIndex, pagesIndexWithHashStrategies.preSortedPartitionHashStrategy, startPosition);
-                pagesIndexWithHashStrategies.pagesIndex.sort(orderChannels, ordering, startPosition, endPosition);
+                pagesIndexWithHashStrategies.pagesIndex.sort(orderChannels, ordering, startPosition, endPosition, sortMemoryContext);
                 startPosition = endPosition;
             }
         }
@@ -22,6 +22,7 @@ import com.facebook.presto.bytecode.DynamicClassLoader;
 import com.facebook.presto.bytecode.FieldDefinition;
 import com.facebook.presto.bytecode.MethodDefinition;
 import com.facebook.presto.bytecode.Parameter;
+import com.facebook.presto.bytecode.ParameterizedType;
 import com.facebook.presto.bytecode.Scope;
 import com.facebook.presto.bytecode.Variable;
 import com.facebook.presto.bytecode.control.ForLoop;
@@ -64,6 +65,7 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.consta
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantInt;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantLong;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantString;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantTrue;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invokeDynamic;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invokeStatic;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.not;
@@ -158,6 +160,16 @@ public class AccumulatorCompiler
                 lambdaProviderFields,
                 metadata.getInputFunction(),
                 callSiteBinder);
+        if (!grouped && metadata.getRemoveInputFunction().isPresent()) {
+            generateRemoveInputWindowIndex(
+                    definition,
+                    stateFields,
+                    metadata.getValueInputMetadata(),
+                    metadata.getLambdaInterfaces(),
+                    lambdaProviderFields,
+                    metadata.getRemoveInputFunction().get(),
+                    callSiteBinder);
+        }
         generateGetEstimatedSize(definition, stateFields);
 
         generateGetIntermediateType(
@@ -319,25 +331,73 @@ public class AccumulatorCompiler
     {
         // TODO: implement masking based on maskChannel field once Window Functions support DISTINCT arguments to the functions.
 
+        MethodDefinition method = generateWindowIndexLoop(
+                definition,
+                "addInput",
+                type(void.class),
+                stateField,
+                parameterMetadatas,
+                lambdaInterfaces,
+                lambdaProviderFields,
+                inputFunction,
+                callSiteBinder);
+        method.getBody().ret();
+    }
+
+    private static void generateRemoveInputWindowIndex(
+            ClassDefinition definition,
+            List<FieldDefinition> stateField,
+            List<ParameterMetadata> parameterMetadatas,
+            List<Class> lambdaInterfaces,
+            List<FieldDefinition> lambdaProviderFields,
+            MethodHandle removeInputFunction,
+            CallSiteBinder callSiteBinder)
+    {
+        MethodDefinition method = generateWindowIndexLoop(
+                definition,
+                "removeInput",
+                type(boolean.class),
+                stateField,
+                parameterMetadatas,
+                lambdaInterfaces,
+                lambdaProviderFields,
+                removeInputFunction,
+                callSiteBinder);
+        method.getBody()
+                .append(constantTrue())
+                .retBoolean();
+    }
+
+    private static MethodDefinition generateWindowIndexLoop(
+            ClassDefinition definition,
+            String methodName,
+            ParameterizedType returnType,
+            List<FieldDefinition> stateField,
+            List<ParameterMetadata> parameterMetadatas,
+            List<Class> lambdaInterfaces,
+            List<FieldDefinition> lambdaProviderFields,
+            MethodHandle function,
+            CallSiteBinder callSiteBinder)
+    {
         Parameter index = arg("index", WindowIndex.class);
         Parameter channels = arg("channels", type(List.class, Integer.class));
         Parameter startPosition = arg("startPosition", int.class);
         Parameter endPosition = arg("endPosition", int.class);
 
-        MethodDefinition method = definition.declareMethod(a(PUBLIC), "addInput", type(void.class), ImmutableList.of(index, channels, startPosition, endPosition));
+        MethodDefinition method = definition.declareMethod(a(PUBLIC), methodName, returnType, ImmutableList.of(index, channels, startPosition, endPosition));
         Scope scope = method.getScope();
 
         Variable position = scope.declareVariable(int.class, "position");
 
-        Binding binding = callSiteBinder.bind(inputFunction);
-        BytecodeExpression invokeInputFunction = invokeDynamic(
+        Binding binding = callSiteBinder.bind(function);
+        BytecodeExpression invokeFunction = invokeDynamic(
                 BOOTSTRAP_METHOD,
                 ImmutableList.of(binding.getBindingId()),
                 "input",
                 binding.getType(),
                 getInvokeFunctionOnWindowIndexParameters(
                         scope,
-                        inputFunction.type().parameterArray(),
+                        function.type().parameterArray(),
                         parameterMetadatas,
                         lambdaInterfaces,
                         lambdaProviderFields,
@@ -353,8 +413,8 @@ public class AccumulatorCompiler
                         .update(position.increment())
                         .body(new IfStatement()
                                 .condition(anyParametersAreNull(parameterMetadatas, index, channels, position))
-                                .ifFalse(invokeInputFunction)))
-                .ret();
+                                .ifFalse(invokeFunction)));
+        return method;
     }
 
     private static BytecodeExpression anyParametersAreNull(
@@ -21,6 +21,7 @@ import com.facebook.presto.spi.function.AggregationState;
 import com.facebook.presto.spi.function.CombineFunction;
 import com.facebook.presto.spi.function.InputFunction;
 import com.facebook.presto.spi.function.OutputFunction;
+import com.facebook.presto.spi.function.RemoveInputFunction;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 
@@ -37,6 +38,12 @@ public final class CountAggregation
         state.setLong(state.getLong() + 1);
     }
 
+    @RemoveInputFunction
+    public static void removeInput(@AggregationState LongState state)
+    {
+        state.setLong(state.getLong() - 1);
+    }
+
     @CombineFunction
     public static void combine(@AggregationState LongState state, @AggregationState LongState otherState)
     {
@@ -23,17 +23,20 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Pages are added by many producer drivers and removed by a single consumer driver.
+ * Adding and removing pages does not take the lock of this source, which is only used
+ * to register and complete the not empty future of a waiting reader.
+ */
 @ThreadSafe
 public class LocalExchangeSource
 {
@@ -41,12 +44,14 @@ public class LocalExchangeSource
 
     private final Consumer<LocalExchangeSource> onFinish;
 
-    private final BlockingQueue<PageReference> buffer = new LinkedBlockingDeque<>();
-    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final Queue<PageReference> buffer = new ConcurrentLinkedQueue<>();
+    // counters are only used for stats, and ConcurrentLinkedQueue.size() is not constant time
+    private final LongAdder bufferedBytes = new LongAdder();
+    private final LongAdder bufferedPages = new LongAdder();
 
     @Nullable
     @GuardedBy("this")
-    private SettableFuture<?> notEmptyFuture; // null indicates no callback present
+    private volatile SettableFuture<?> notEmptyFuture; // null indicates no callback present, only written while holding the lock
 
     private volatile boolean finishing;
 
@@ -59,42 +64,38 @@ public class LocalExchangeSource
     {
         // This must be lock free to assure task info creation is fast
         // Note: the stats my be internally inconsistent
-        return new LocalExchangeBufferInfo(bufferedBytes.get(), buffer.size());
+        return new LocalExchangeBufferInfo(bufferedBytes.sum(), (int) bufferedPages.sum());
     }
 
     void addPage(PageReference pageReference)
     {
         checkNotHoldsLock();
 
-        boolean added = false;
-        SettableFuture<?> notEmptyFuture = null;
-        long retainedSizeInBytes = pageReference.getRetainedSizeInBytes();
-        synchronized (this) {
-            // ignore pages after finish
-            if (!finishing) {
-                // buffered bytes must be updated before adding to the buffer to assure
-                // the count does not go negative
-                bufferedBytes.addAndGet(retainedSizeInBytes);
-                buffer.add(pageReference);
-                added = true;
-            }
-
-            // we just added a page (or we are finishing) so we are not empty
-            if (this.notEmptyFuture != null) {
-                notEmptyFuture = this.notEmptyFuture;
-                this.notEmptyFuture = null;
-            }
+        // ignore pages after finish
+        if (finishing) {
+            pageReference.removePage();
+            return;
         }
 
-        if (!added) {
-            // dereference the page outside of lock
+        // buffered bytes must be updated before adding to the buffer to assure
+        // the count does not go negative
+        long retainedSizeInBytes = pageReference.getRetainedSizeInBytes();
+        bufferedBytes.add(retainedSizeInBytes);
+        bufferedPages.increment();
+        buffer.add(pageReference);
+
+        // finish or close can run concurrently with the add above. If the page is still in
+        // the buffer it is ignored, as if it had been added after finish.
+        if (finishing && buffer.remove(pageReference)) {
+            bufferedBytes.add(-retainedSizeInBytes);
+            bufferedPages.decrement();
             pageReference.removePage();
+            checkFinished();
+            return;
         }
 
-        // notify readers outside of lock since this may result in a callback
-        if (notEmptyFuture != null) {
-            notEmptyFuture.set(null);
-        }
+        // we just added a page so we are not empty
+        notifyReader();
     }
 
     public WorkProcessor<Page> pages()
@@ -132,7 +133,8 @@ public class LocalExchangeSource
 
         // dereference the page outside of lock, since may trigger a callback
         Page page = pageReference.removePage();
-        bufferedBytes.addAndGet(-page.getRetainedSizeInBytes());
+        bufferedBytes.add(-page.getRetainedSizeInBytes());
+        bufferedPages.decrement();
 
         checkFinished();
 
@@ -148,29 +150,29 @@ public class LocalExchangeSource
             return NOT_BLOCKED;
         }
 
+        SettableFuture<?> future;
         synchronized (this) {
-            // re-check after synchronizing
-            if (finishing || !buffer.isEmpty()) {
-                return NOT_BLOCKED;
-            }
             // if we need to block readers, and the current future is complete, create a new one
             if (notEmptyFuture == null) {
                 notEmptyFuture = SettableFuture.create();
             }
-            return notEmptyFuture;
+            future = notEmptyFuture;
+        }
+
+        // re-check after publishing the future, since producers add pages without
+        // synchronizing, and only complete a future they observe after adding
+        if (finishing || !buffer.isEmpty()) {
+            notifyReader();
+            return NOT_BLOCKED;
         }
+        return future;
     }
 
     public boolean isFinished()
     {
-        // Common case fast-path without synchronizing
-        if (!finishing) {
-            return false;
-        }
-        synchronized (this) {
-            // Synchronize to ensure effects of an in-flight close() or finish() are observed
-            return finishing && buffer.isEmpty();
-        }
+        // pages are only added while not finishing, and pages that race with finish
+        // are removed by the producer, so no synchronization is needed
+        return finishing && buffer.isEmpty();
     }
 
     public void finish()
@@ -200,31 +202,50 @@ public class LocalExchangeSource
     {
         checkNotHoldsLock();
 
-        List<PageReference> remainingPages = new ArrayList<>();
         SettableFuture<?> notEmptyFuture;
         synchronized (this) {
             finishing = true;
 
-            buffer.drainTo(remainingPages);
-            bufferedBytes.addAndGet(-remainingPages.stream().mapToLong(PageReference::getRetainedSizeInBytes).sum());
-
             notEmptyFuture = this.notEmptyFuture;
             this.notEmptyFuture = null;
         }
 
-        // free all the remaining pages
-        remainingPages.forEach(PageReference::removePage);
+        // free all the remaining pages, a producer racing with close removes its own page
+        PageReference pageReference = buffer.poll();
+        while (pageReference != null) {
+            bufferedBytes.add(-pageReference.getRetainedSizeInBytes());
+            bufferedPages.decrement();
+            pageReference.removePage();
+            pageReference = buffer.poll();
+        }
 
         // notify readers outside of lock since this may result in a callback
         if (notEmptyFuture != null) {
             notEmptyFuture.set(null);
         }
 
-        // this will always fire the finished event
-        checkState(isFinished(), "Expected buffer to be finished");
         checkFinished();
     }
 
+    private void notifyReader()
+    {
+        // fast path, no reader is waiting
+        if (notEmptyFuture == null) {
+            return;
+        }
+
+        SettableFuture<?> future;
+        synchronized (this) {
+            future = notEmptyFuture;
+            notEmptyFuture = null;
+        }
+
+        // notify readers outside of lock since this may result in a callback
+        if (future != null) {
+            future.set(null);
+        }
+    }
+
     private void checkFinished()
     {
         checkNotHoldsLock();
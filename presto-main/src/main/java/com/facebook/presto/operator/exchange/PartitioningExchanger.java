@@ -37,6 +37,7 @@ class PartitioningExchanger
     private final int[] partitioningChannels;
     private final Optional<Integer> hashChannel;
     private final IntArrayList[] partitionAssignments;
+    private final Page[] pageSplits;
     private final PageReleasedListener onPageReleased;
 
     public PartitioningExchanger(
@@ -57,6 +58,7 @@ class PartitioningExchanger
         for (int i = 0; i < partitionAssignments.length; i++) {
             partitionAssignments[i] = new IntArrayList();
         }
+        pageSplits = new Page[partitions.size()];
     }
 
     @Override
@@ -75,11 +77,21 @@ class PartitioningExchanger
         }
 
         // build a page for each partition
+        long retainedSizeInBytes = 0;
         for (int partition = 0; partition < buffers.size(); partition++) {
             IntArrayList positions = partitionAssignments[partition];
             if (!positions.isEmpty()) {
-                Page pageSplit = page.copyPositions(positions.elements(), 0, positions.size());
-                memoryManager.updateMemoryUsage(pageSplit.getRetainedSizeInBytes());
+                pageSplits[partition] = page.copyPositions(positions.elements(), 0, positions.size());
+                retainedSizeInBytes += pageSplits[partition].getRetainedSizeInBytes();
+            }
+        }
+
+        // account for all splits with a single update, as the memory manager is shared by all sinks
+        memoryManager.updateMemoryUsage(retainedSizeInBytes);
+        for (int partition = 0; partition < buffers.size(); partition++) {
+            Page pageSplit = pageSplits[partition];
+            if (pageSplit != null) {
+                pageSplits[partition] = null;
                 buffers.get(partition).accept(new PageReference(pageSplit, 1, onPageReleased));
             }
         }
@@ -0,0 +1,293 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static com.facebook.presto.common.RuntimeUnit.NANO;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.facebook.presto.operator.project.SelectedPositions.positionsList;
+import static com.facebook.presto.operator.project.SelectedPositions.positionsRange;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Verify.verify;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evaluates the conjuncts of an AND filter one after the other, each only on the positions
+ * selected by the conjuncts before it. The selectivity and the cost of each conjunct are
+ * measured, and the conjuncts are periodically reordered so that cheap and selective
+ * conjuncts run first.
+ * <p>
+ * A conjunct can fail on positions that an earlier conjunct of the planned order would have
+ * removed. When a conjunct fails in an adapted order, the page is evaluated again in the
+ * planned order and the filter stops adapting.
+ */
+public class AdaptivePageFilter
+        implements PageFilter
+{
+    @VisibleForTesting
+    static final int INITIAL_PROFILE_PAGES = 16;
+    @VisibleForTesting
+    static final int REORDER_INTERVAL_PAGES = 256;
+
+    private final List<PageFilter> conjuncts;
+    private final int[][] conjunctChannels;
+    private final InputChannels inputChannels;
+
+    // statistics used for ordering, decayed at every reorder
+    private final double[] inputPositions;
+    private final double[] outputPositions;
+    private final double[] nanos;
+
+    // statistics not yet published to the runtime stats of the operator
+    private final long[] unreportedInputPositions;
+    private final long[] unreportedOutputPositions;
+    private final long[] unreportedNanos;
+    private long unreportedReorders;
+
+    private final String[] inputPositionsMetricNames;
+    private final String[] outputPositionsMetricNames;
+    private final String[] nanosMetricNames;
+    private final String[] orderMetricNames;
+
+    private int[] order;
+    private boolean adaptive = true;
+    private int pagesUntilReorder = INITIAL_PROFILE_PAGES;
+
+    public AdaptivePageFilter(List<PageFilter> conjuncts)
+    {
+        this.conjuncts = ImmutableList.copyOf(requireNonNull(conjuncts, "conjuncts is null"));
+        checkArgument(this.conjuncts.size() > 1, "adaptive filter requires at least two conjuncts");
+        verify(this.conjuncts.stream().allMatch(PageFilter::isDeterministic), "conjuncts must be deterministic");
+
+        TreeSet<Integer> channels = new TreeSet<>();
+        for (PageFilter conjunct : this.conjuncts) {
+            channels.addAll(conjunct.getInputChannels().getInputChannels());
+        }
+        List<Integer> sortedChannels = ImmutableList.copyOf(channels);
+        this.inputChannels = new InputChannels(sortedChannels);
+        this.conjunctChannels = this.conjuncts.stream()
+                .map(conjunct -> conjunct.getInputChannels().getInputChannels().stream()
+                        .mapToInt(sortedChannels::indexOf)
+                        .toArray())
+                .toArray(int[][]::new);
+
+        int conjunctCount = this.conjuncts.size();
+        this.inputPositions = new double[conjunctCount];
+        this.outputPositions = new double[conjunctCount];
+        this.nanos = new double[conjunctCount];
+        this.unreportedInputPositions = new long[conjunctCount];
+        this.unreportedOutputPositions = new long[conjunctCount];
+        this.unreportedNanos = new long[conjunctCount];
+
+        this.inputPositionsMetricNames = metricNames("adaptiveFilterConjunct%sInputPositions", conjunctCount);
+        this.outputPositionsMetricNames = metricNames("adaptiveFilterConjunct%sOutputPositions", conjunctCount);
+        this.nanosMetricNames = metricNames("adaptiveFilterConjunct%sNanos", conjunctCount);
+        this.orderMetricNames = metricNames("adaptiveFilterConjunct%sOrder", conjunctCount);
+
+        this.order = IntStream.range(0, conjunctCount).toArray();
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return true;
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return inputChannels;
+    }
+
+    @Override
+    public SelectedPositions filter(SqlFunctionProperties properties, Page page)
+    {
+        SelectedPositions selectedPositions;
+        try {
+            selectedPositions = filter(properties, page, order);
+        }
+        catch (RuntimeException e) {
+            if (isPlannedOrder(order)) {
+                throw e;
+            }
+            adaptive = false;
+            order = IntStream.range(0, conjuncts.size()).toArray();
+            selectedPositions = filter(properties, page, order);
+        }
+
+        if (adaptive) {
+            pagesUntilReorder--;
+            if (pagesUntilReorder == 0) {
+                reorder();
+                pagesUntilReorder = REORDER_INTERVAL_PAGES;
+            }
+        }
+        return selectedPositions;
+    }
+
+    private SelectedPositions filter(SqlFunctionProperties properties, Page page, int[] order)
+    {
+        SelectedPositions selectedPositions = positionsRange(0, page.getPositionCount());
+        for (int conjunct : order) {
+            Page conjunctPage = page.extractChannels(conjunctChannels[conjunct]);
+            if (selectedPositions.isList()) {
+                conjunctPage = conjunctPage.getPositions(selectedPositions.getPositions(), selectedPositions.getOffset(), selectedPositions.size());
+            }
+            else if (selectedPositions.size() != page.getPositionCount()) {
+                conjunctPage = conjunctPage.getRegion(selectedPositions.getOffset(), selectedPositions.size());
+            }
+
+            long start = System.nanoTime();
+            SelectedPositions conjunctPositions = conjuncts.get(conjunct).filter(properties, conjunctPage);
+            long elapsed = System.nanoTime() - start;
+
+            inputPositions[conjunct] += conjunctPage.getPositionCount();
+            outputPositions[conjunct] += conjunctPositions.size();
+            nanos[conjunct] += elapsed;
+            unreportedInputPositions[conjunct] += conjunctPage.getPositionCount();
+            unreportedOutputPositions[conjunct] += conjunctPositions.size();
+            unreportedNanos[conjunct] += elapsed;
+
+            selectedPositions = combine(selectedPositions, conjunctPositions);
+            if (selectedPositions.isEmpty()) {
+                break;
+            }
+        }
+        return selectedPositions;
+    }
+
+    /**
+     * Maps the positions selected by a conjunct, which are relative to the positions it was
+     * evaluated on, back to positions of the page.
+     */
+    private static SelectedPositions combine(SelectedPositions evaluatedPositions, SelectedPositions conjunctPositions)
+    {
+        if (conjunctPositions.isEmpty()) {
+            return positionsRange(0, 0);
+        }
+        if (!conjunctPositions.isList() && conjunctPositions.getOffset() == 0 && conjunctPositions.size() == evaluatedPositions.size()) {
+            return evaluatedPositions;
+        }
+        if (!evaluatedPositions.isList() && evaluatedPositions.getOffset() == 0) {
+            // the conjunct was evaluated on a prefix of the page, so its positions are already page positions
+            return conjunctPositions;
+        }
+
+        int[] positions = new int[conjunctPositions.size()];
+        for (int i = 0; i < positions.length; i++) {
+            int conjunctPosition = conjunctPositions.isList()
+                    ? conjunctPositions.getPositions()[conjunctPositions.getOffset() + i]
+                    : conjunctPositions.getOffset() + i;
+            positions[i] = evaluatedPositions.isList()
+                    ? evaluatedPositions.getPositions()[evaluatedPositions.getOffset() + conjunctPosition]
+                    : evaluatedPositions.getOffset() + conjunctPosition;
+        }
+        return positionsList(positions, 0, positions.length);
+    }
+
+    private void reorder()
+    {
+        int[] newOrder = Arrays.stream(order)
+                .boxed()
+                .sorted(Comparator.comparingDouble(this::getRank))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        if (!Arrays.equals(order, newOrder)) {
+            order = newOrder;
+            unreportedReorders++;
+        }
+
+        // decay the statistics so that the order follows changes in the data
+        for (int conjunct = 0; conjunct < conjuncts.size(); conjunct++) {
+            inputPositions[conjunct] /= 2;
+            outputPositions[conjunct] /= 2;
+            nanos[conjunct] /= 2;
+        }
+    }
+
+    /**
+     * Conjuncts are ordered by the cost per position divided by the fraction of positions they
+     * remove, which minimizes the expected cost of evaluating independent conjuncts.
+     * A conjunct that has not been evaluated yet keeps its place behind the measured ones.
+     */
+    private double getRank(int conjunct)
+    {
+        if (inputPositions[conjunct] == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double costPerPosition = nanos[conjunct] / inputPositions[conjunct];
+        double removedFraction = 1 - outputPositions[conjunct] / inputPositions[conjunct];
+        if (removedFraction <= 0) {
+            return Double.MAX_VALUE;
+        }
+        return costPerPosition / removedFraction;
+    }
+
+    private static boolean isPlannedOrder(int[] order)
+    {
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @VisibleForTesting
+    int[] getOrder()
+    {
+        return order.clone();
+    }
+
+    /**
+     * Publishes the statistics gathered since the previous call. Conjuncts are identified by
+     * their position in the planned order, and the order metric records where the conjunct
+     * is currently evaluated.
+     */
+    public void updateRuntimeStats(RuntimeStats runtimeStats)
+    {
+        for (int conjunct = 0; conjunct < conjuncts.size(); conjunct++) {
+            runtimeStats.addMetricValue(inputPositionsMetricNames[conjunct], NONE, unreportedInputPositions[conjunct]);
+            runtimeStats.addMetricValue(outputPositionsMetricNames[conjunct], NONE, unreportedOutputPositions[conjunct]);
+            runtimeStats.addMetricValue(nanosMetricNames[conjunct], NANO, unreportedNanos[conjunct]);
+            unreportedInputPositions[conjunct] = 0;
+            unreportedOutputPositions[conjunct] = 0;
+            unreportedNanos[conjunct] = 0;
+        }
+        for (int i = 0; i < order.length; i++) {
+            runtimeStats.addMetricValue(orderMetricNames[order[i]], NONE, i);
+        }
+        runtimeStats.addMetricValueIgnoreZero("adaptiveFilterReorders", NONE, unreportedReorders);
+        unreportedReorders = 0;
+    }
+
+    private static String[] metricNames(String pattern, int conjunctCount)
+    {
+        return IntStream.range(0, conjunctCount)
+                .mapToObj(conjunct -> format(pattern, conjunct))
+                .toArray(String[]::new);
+    }
+}
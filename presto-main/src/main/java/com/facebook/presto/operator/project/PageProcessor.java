@@ -14,6 +14,7 @@
 package com.facebook.presto.operator.project;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.array.ReferenceCountMap;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.DictionaryBlock;
@@ -63,6 +64,7 @@ public class PageProcessor
     private final ExpressionProfiler expressionProfiler;
     private final DictionarySourceIdFunction dictionarySourceIdFunction = new DictionarySourceIdFunction();
     private final Optional<PageFilter> filter;
+    private final Optional<AdaptivePageFilter> adaptiveFilter;
     private final List<PageProjectionWithOutputs> projections;
     private final int outputCount;
 
@@ -83,7 +85,10 @@ public class PageProcessor
                 outputChannels.size() == outputCount && (outputCount == 0 || outputChannels.stream().max(Integer::compareTo).orElse(0) == outputChannels.size() - 1),
                 format("Invalid outputChannels: outputCount: %d, outputChannels: %s", outputCount, outputChannels));
 
-        this.filter = requireNonNull(filter, "filter is null")
+        this.adaptiveFilter = requireNonNull(filter, "filter is null")
+                .filter(AdaptivePageFilter.class::isInstance)
+                .map(AdaptivePageFilter.class::cast);
+        this.filter = filter
                 .map(pageFilter -> {
                     if (pageFilter.getInputChannels().size() == 1 && pageFilter.isDeterministic()) {
                         return new DictionaryAwarePageFilter(pageFilter);
@@ -110,6 +115,14 @@ public class PageProcessor
         this(filter, projections, OptionalInt.of(1));
     }
 
+    /**
+     * Publishes the conjunct statistics of an adaptive filter to the runtime stats of the operator.
+     */
+    public void updateRuntimeStats(RuntimeStats runtimeStats)
+    {
+        adaptiveFilter.ifPresent(pageFilter -> pageFilter.updateRuntimeStats(runtimeStats));
+    }
+
     public Iterator<Optional<Page>> process(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, LocalMemoryContext memoryContext, Page page)
     {
         WorkProcessor<Page> processor = createWorkProcessor(properties, yieldSignal, memoryContext, page);
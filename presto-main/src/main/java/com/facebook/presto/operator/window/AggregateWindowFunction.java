@@ -22,6 +22,7 @@ import com.facebook.presto.spi.function.Signature;
 import com.facebook.presto.spi.function.WindowFunction;
 import com.facebook.presto.spi.function.WindowIndex;
 import com.facebook.presto.spi.function.aggregation.Accumulator;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
@@ -34,29 +35,57 @@ import static java.util.Objects.requireNonNull;
 public class AggregateWindowFunction
         implements WindowFunction
 {
+    private static final int SEGMENT_TREE_LEAF_SIZE = 32;
+    private static final long MAX_SEGMENT_TREE_SIZE_IN_BYTES = 64L * 1024 * 1024;
+
     private final List<Integer> argumentChannels;
     private final AccumulatorFactory accumulatorFactory;
+    private final long maxSegmentTreeSizeInBytes;
 
     private WindowIndex windowIndex;
     private Accumulator accumulator;
     private int currentStart;
     private int currentEnd;
 
+    // cleared once the accumulator reports that it cannot remove input
+    private boolean removeInputSupported = true;
+    private WindowSegmentTree segmentTree;
+    // set once the segment tree of the current partition outgrew the limit, so it is not built again
+    private boolean segmentTreeTooLarge;
+
     private AggregateWindowFunction(AggregationFunctionImplementation function, List<Integer> argumentChannels)
+    {
+        this(function, argumentChannels, MAX_SEGMENT_TREE_SIZE_IN_BYTES);
+    }
+
+    @VisibleForTesting
+    AggregateWindowFunction(AggregationFunctionImplementation function, List<Integer> argumentChannels, long maxSegmentTreeSizeInBytes)
     {
         checkState(function instanceof BuiltInAggregationFunctionImplementation);
         BuiltInAggregationFunctionImplementation builtinFunction = (BuiltInAggregationFunctionImplementation) function;
         this.argumentChannels = ImmutableList.copyOf(argumentChannels);
         this.accumulatorFactory = generateAccumulatorFactory(builtinFunction, createArgs(builtinFunction), Optional.empty());
+        this.maxSegmentTreeSizeInBytes = maxSegmentTreeSizeInBytes;
     }
 
     @Override
     public void reset(WindowIndex windowIndex)
     {
         this.windowIndex = windowIndex;
+        this.segmentTree = null;
+        this.segmentTreeTooLarge = false;
         resetAccumulator();
     }
 
+    /**
+     * Returns the memory held by the function beyond the window index, which is the segment
+     * tree of the current partition if one has been built.
+     */
+    public long getEstimatedSizeInBytes()
+    {
+        return segmentTree == null ? 0 : segmentTree.getRetainedSizeInBytes();
+    }
+
     @Override
     public void processRow(BlockBuilder output, int peerGroupStart, int peerGroupEnd, int frameStart, int frameEnd)
     {
@@ -69,10 +98,22 @@ public class AggregateWindowFunction
             accumulate(currentEnd + 1, frameEnd);
             currentEnd = frameEnd;
         }
+        else if (isSlidingFrame(frameStart, frameEnd) && retract(currentStart, frameStart - 1)) {
+            // sliding frame: retract the rows that left the frame and add the rows that entered it
+            accumulate(currentEnd + 1, frameEnd);
+            currentStart = frameStart;
+            currentEnd = frameEnd;
+        }
         else {
             // different frame
             resetAccumulator();
-            accumulate(frameStart, frameEnd);
+            if (frameEnd - frameStart >= SEGMENT_TREE_LEAF_SIZE * 2 && isSegmentTreeAvailable()) {
+                segmentTree.aggregate(accumulator, frameStart, frameEnd);
+                releaseSegmentTreeIfTooLarge();
+            }
+            else {
+                accumulate(frameStart, frameEnd);
+            }
             currentStart = frameStart;
             currentEnd = frameEnd;
         }
@@ -80,6 +121,44 @@ public class AggregateWindowFunction
         accumulator.evaluateFinal(output);
     }
 
+    private boolean isSlidingFrame(int frameStart, int frameEnd)
+    {
+        // only retract when it is cheaper than re-accumulating the new frame
+        return removeInputSupported &&
+                currentStart >= 0 &&
+                frameStart > currentStart &&
+                frameStart <= currentEnd + 1 &&
+                frameEnd >= currentEnd &&
+                frameStart - currentStart <= frameEnd - frameStart + 1;
+    }
+
+    private boolean retract(int start, int end)
+    {
+        if (!accumulator.removeInput(windowIndex, argumentChannels, start, end)) {
+            removeInputSupported = false;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isSegmentTreeAvailable()
+    {
+        if (segmentTree == null && !segmentTreeTooLarge) {
+            segmentTree = new WindowSegmentTree(accumulatorFactory, windowIndex, argumentChannels, SEGMENT_TREE_LEAF_SIZE);
+            releaseSegmentTreeIfTooLarge();
+        }
+        return segmentTree != null;
+    }
+
+    private void releaseSegmentTreeIfTooLarge()
+    {
+        // the tree keeps one intermediate state per node, so give up on it for aggregations with large states
+        if (segmentTree.getRetainedSizeInBytes() >= maxSegmentTreeSizeInBytes) {
+            segmentTree = null;
+            segmentTreeTooLarge = true;
+        }
+    }
+
     private void accumulate(int start, int end)
     {
         accumulator.addInput(windowIndex, argumentChannels, start, end);
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.operator.UpdateMemory;
+import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.spi.function.WindowIndex;
+import com.facebook.presto.spi.function.aggregation.Accumulator;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOfObjectArray;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Segment tree of intermediate aggregation states over the rows of a single window partition.
+ * Each leaf covers {@code leafSize} consecutive rows. Nodes are computed lazily the first time
+ * a frame covers them, so a frame of {@code n} rows is aggregated by combining at most
+ * {@code O(log n)} intermediate states plus at most {@code 2 * leafSize} raw rows.
+ * <p>
+ * States are combined from left to right, which keeps order sensitive aggregations correct.
+ */
+final class WindowSegmentTree
+{
+    private final AccumulatorFactory accumulatorFactory;
+    private final WindowIndex windowIndex;
+    private final List<Integer> argumentChannels;
+    private final int leafSize;
+    private final int leafCount;
+    private final int capacity;
+    private final Block[] nodes;
+
+    private long retainedSizeInBytes;
+
+    public WindowSegmentTree(AccumulatorFactory accumulatorFactory, WindowIndex windowIndex, List<Integer> argumentChannels, int leafSize)
+    {
+        checkArgument(leafSize > 0, "leafSize must be positive");
+        this.accumulatorFactory = requireNonNull(accumulatorFactory, "accumulatorFactory is null");
+        this.windowIndex = requireNonNull(windowIndex, "windowIndex is null");
+        this.argumentChannels = ImmutableList.copyOf(requireNonNull(argumentChannels, "argumentChannels is null"));
+        this.leafSize = leafSize;
+        this.leafCount = windowIndex.size() / leafSize;
+
+        int capacity = 1;
+        while (capacity < leafCount) {
+            capacity <<= 1;
+        }
+        this.capacity = capacity;
+        this.nodes = new Block[capacity * 2];
+        this.retainedSizeInBytes = sizeOfObjectArray(nodes.length);
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+
+    /**
+     * Adds the rows in the range [start, end] of the partition to the accumulator.
+     */
+    public void aggregate(Accumulator accumulator, int start, int end)
+    {
+        checkArgument(start >= 0 && end < windowIndex.size() && start <= end, "invalid range [%s, %s]", start, end);
+
+        int firstLeaf = (start + leafSize - 1) / leafSize;
+        int lastLeaf = Math.min((end + 1) / leafSize, leafCount) - 1;
+        if (firstLeaf > lastLeaf) {
+            accumulator.addInput(windowIndex, argumentChannels, start, end);
+            return;
+        }
+
+        int firstCoveredRow = firstLeaf * leafSize;
+        int lastCoveredRow = (lastLeaf + 1) * leafSize - 1;
+        if (start < firstCoveredRow) {
+            accumulator.addInput(windowIndex, argumentChannels, start, firstCoveredRow - 1);
+        }
+        combine(accumulator, 1, 0, capacity - 1, firstLeaf, lastLeaf);
+        if (lastCoveredRow < end) {
+            accumulator.addInput(windowIndex, argumentChannels, lastCoveredRow + 1, end);
+        }
+    }
+
+    private void combine(Accumulator accumulator, int node, int nodeFirstLeaf, int nodeLastLeaf, int firstLeaf, int lastLeaf)
+    {
+        if (lastLeaf < nodeFirstLeaf || nodeLastLeaf < firstLeaf) {
+            return;
+        }
+        if (firstLeaf <= nodeFirstLeaf && nodeLastLeaf <= lastLeaf) {
+            accumulator.addIntermediate(getNode(node, nodeFirstLeaf, nodeLastLeaf));
+            return;
+        }
+        int middle = (nodeFirstLeaf + nodeLastLeaf) >>> 1;
+        combine(accumulator, node * 2, nodeFirstLeaf, middle, firstLeaf, lastLeaf);
+        combine(accumulator, node * 2 + 1, middle + 1, nodeLastLeaf, firstLeaf, lastLeaf);
+    }
+
+    private Block getNode(int node, int nodeFirstLeaf, int nodeLastLeaf)
+    {
+        Block block = nodes[node];
+        if (block != null) {
+            return block;
+        }
+
+        // updateMemory callback is used by distinct and ordering accumulators only
+        Accumulator accumulator = accumulatorFactory.createAccumulator(UpdateMemory.NOOP);
+        if (nodeFirstLeaf == nodeLastLeaf) {
+            accumulator.addInput(windowIndex, argumentChannels, nodeFirstLeaf * leafSize, (nodeFirstLeaf + 1) * leafSize - 1);
+        }
+        else {
+            int middle = (nodeFirstLeaf + nodeLastLeaf) >>> 1;
+            accumulator.addIntermediate(getNode(node * 2, nodeFirstLeaf, middle));
+            accumulator.addIntermediate(getNode(node * 2 + 1, middle + 1, nodeLastLeaf));
+        }
+
+        BlockBuilder blockBuilder = accumulator.getIntermediateType().createBlockBuilder(null, 1);
+        accumulator.evaluateIntermediate(blockBuilder);
+        block = blockBuilder.build();
+        nodes[node] = block;
+        retainedSizeInBytes += block.getRetainedSizeInBytes();
+        return block;
+    }
+}
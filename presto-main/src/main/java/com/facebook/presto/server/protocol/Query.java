@@ -22,6 +22,7 @@ import com.facebook.presto.client.QueryResults;
 import com.facebook.presto.client.StatementStats;
 import com.facebook.presto.common.ErrorCode;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.common.transaction.TransactionId;
 import com.facebook.presto.common.type.BooleanType;
@@ -79,10 +80,14 @@ import static com.facebook.presto.SystemSessionProperties.getQueryRetryMaxExecut
 import static com.facebook.presto.SystemSessionProperties.getTargetResultSize;
 import static com.facebook.presto.SystemSessionProperties.isExchangeChecksumEnabled;
 import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.execution.QueryState.FAILED;
 import static com.facebook.presto.execution.QueryState.WAITING_FOR_PREREQUISITES;
+import static com.facebook.presto.execution.buffer.ExchangeCompressionCodec.LZ4;
+import static com.facebook.presto.execution.buffer.ExchangeCompressionCodec.fromPageCodecMarkers;
 import static com.facebook.presto.server.protocol.QueryResourceUtil.toStatementStats;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
 import static com.facebook.presto.util.Failures.toFailure;
 import static com.google.common.base.MoreObjects.firstNonNull;
@@ -256,6 +261,11 @@ class Query
         return tracer.get();
     }
 
+    public boolean isLegacyTimestamp()
+    {
+        return session.getSqlFunctionProperties().isLegacyTimestamp();
+    }
+
     public synchronized Optional<String> getSetCatalog()
     {
         return setCatalog;
@@ -448,6 +458,7 @@ class Query
         // the pages will be lost.
         Iterable<List<Object>> data = null;
         List<String> binaryData = null;
+        SerializedPage firstBinaryPage = null;
         try {
             long rows = 0;
             long bytes = 0;
@@ -459,7 +470,11 @@ class Query
                     if (serializedPage == null) {
                         break;
                     }
+                    serializedPage = toClientPage(serializedPage);
 
+                    if (firstBinaryPage == null) {
+                        firstBinaryPage = serializedPage;
+                    }
                     rows += serializedPage.getPositionCount();
                     bytes += serializedPage.getSizeInBytes();
 
@@ -506,13 +521,21 @@ class Query
 
         // TODO: figure out a better way to do this
         // grab the update count for non-queries
-        if ((data != null) && (queryInfo.getUpdateType() != null) && (updateCount == null) &&
+        if ((queryInfo.getUpdateType() != null) && (updateCount == null) &&
                 (columns.size() == 1) && (columns.get(0).getType().equals(StandardTypes.BIGINT))) {
-            Iterator<List<Object>> iterator = data.iterator();
-            if (iterator.hasNext()) {
-                Number number = (Number) iterator.next().get(0);
-                if (number != null) {
-                    updateCount = number.longValue();
+            if (data != null) {
+                Iterator<List<Object>> iterator = data.iterator();
+                if (iterator.hasNext()) {
+                    Number number = (Number) iterator.next().get(0);
+                    if (number != null) {
+                        updateCount = number.longValue();
+                    }
+                }
+            }
+            else if (firstBinaryPage != null) {
+                Block block = serde.deserialize(firstBinaryPage).getBlock(0);
+                if (block.getPositionCount() > 0 && !block.isNull(0)) {
+                    updateCount = BIGINT.getLong(block, 0);
                 }
             }
         }
@@ -628,6 +651,18 @@ class Query
         return Futures.transformAsync(queryManager.getStateChange(queryId, currentState), this::queryDoneFuture, directExecutor());
     }
 
+    /**
+     * Clients only decompress LZ4 pages, so pages compressed with another exchange codec are re-serialized.
+     */
+    private SerializedPage toClientPage(SerializedPage serializedPage)
+    {
+        byte markers = serializedPage.getPageCodecMarkers();
+        if (!COMPRESSED.isSet(markers) || fromPageCodecMarkers(markers) == LZ4) {
+            return serializedPage;
+        }
+        return serde.serialize(serde.deserialize(serializedPage));
+    }
+
     private synchronized URI createNextResultsUri(String scheme, UriInfo uriInfo, long nextToken, boolean binaryResults)
     {
         UriBuilder uri = uriInfo.getBaseUriBuilder()
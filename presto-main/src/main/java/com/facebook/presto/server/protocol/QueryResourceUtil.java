@@ -59,6 +59,7 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_ADDED_SESSION_FUNC
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLEAR_SESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLEAR_TRANSACTION_ID;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_DEALLOCATED_PREPARE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_LEGACY_TIMESTAMP;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PREFIX_URL;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_REMOVED_SESSION_FUNCTION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SET_CATALOG;
@@ -133,6 +134,11 @@ public final class QueryResourceUtil
             response.encoding("identity");
         }
 
+        // binary results carry raw time and timestamp values which the client decodes according to the query session
+        if (queryResults.getBinaryData() != null) {
+            response.header(PRESTO_LEGACY_TIMESTAMP, query.isLegacyTimestamp());
+        }
+
         // add added session functions
         for (Map.Entry<SqlFunctionId, SqlInvokedFunction> entry : query.getAddedSessionFunctions().entrySet()) {
             response.header(PRESTO_ADDED_SESSION_FUNCTION, format(
@@ -18,6 +18,8 @@ import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.configuration.DefunctConfig;
 import com.facebook.airlift.configuration.LegacyConfig;
 import com.facebook.presto.common.function.OperatorType;
+import com.facebook.presto.execution.buffer.ExchangeCompressionCodec;
+import com.facebook.presto.geospatial.rtree.Flatbush;
 import com.facebook.presto.operator.aggregation.arrayagg.ArrayAggGroupImplementation;
 import com.facebook.presto.operator.aggregation.histogram.HistogramGroupImplementation;
 import com.facebook.presto.operator.aggregation.multimapagg.MultimapAggGroupImplementation;
@@ -46,6 +48,7 @@ import static com.facebook.presto.sql.analyzer.FeaturesConfig.TaskSpillingStrate
 import static com.facebook.presto.sql.analyzer.RegexLibrary.JONI;
 import static com.facebook.presto.sql.tree.CreateView.Security.DEFINER;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.Objects.requireNonNull;
@@ -85,6 +88,8 @@ public class FeaturesConfig
     private double maxFailedTaskPercentage = 0.3;
     private int concurrentLifespansPerTask;
     private boolean spatialJoinsEnabled = true;
+    private Flatbush.Packing spatialJoinIndexPacking = Flatbush.Packing.HILBERT;
+    private boolean spatialJoinParallelIndexBuildEnabled = true;
     private boolean fastInequalityJoins = true;
     private TaskSpillingStrategy taskSpillingStrategy = ORDER_BY_CREATE_TIME;
     private boolean queryLimitSpillEnabled;
@@ -118,6 +123,8 @@ public class FeaturesConfig
     private boolean pushTableWriteThroughUnion = true;
     private boolean exchangeCompressionEnabled;
     private boolean exchangeChecksumEnabled;
+    private ExchangeCompressionCodec exchangeCompressionCodec = ExchangeCompressionCodec.LZ4;
+    private boolean exchangeAdaptiveCompressionEnabled;
     private boolean legacyArrayAgg;
     private boolean reduceAggForComplexTypesEnabled = true;
     private boolean legacyLogFunction;
@@ -130,6 +137,7 @@ public class FeaturesConfig
     private boolean optimizeMixedDistinctAggregations;
     private boolean forceSingleNodeOutput = true;
     private boolean pagesIndexEagerCompactionEnabled;
+    private boolean pagesIndexNormalizedKeySortEnabled;
     private boolean distributedSort = true;
     private boolean optimizeJoinsWithEmptySources;
     private boolean logFormattedQueryEnabled;
@@ -191,6 +199,7 @@ public class FeaturesConfig
     private int dynamicFilteringMaxPerDriverRowCount = 100;
     private DataSize dynamicFilteringMaxPerDriverSize = new DataSize(10, KILOBYTE);
     private int dynamicFilteringRangeRowLimitPerDriver;
+    private DataSize dynamicFilteringBloomFilterSize = new DataSize(0, BYTE);
 
     private boolean fragmentResultCachingEnabled;
 
@@ -214,9 +223,12 @@ public class FeaturesConfig
     private boolean listBuiltInFunctionsOnly = true;
     private boolean experimentalFunctionsEnabled;
     private boolean optimizeCommonSubExpressions = true;
+    private boolean adaptiveFilterReorderingEnabled;
     private boolean preferDistributedUnion = true;
     private boolean optimizeNullsInJoin;
     private boolean optimizePayloadJoins;
+    private boolean joinBuildOutputByReferenceEnabled;
+    private boolean flatGroupedTopNEnabled = true;
     private boolean pushdownDereferenceEnabled;
     private boolean inlineSqlFunctions = true;
     private boolean checkAccessControlOnUtilizedColumnsOnly;
@@ -227,6 +239,7 @@ public class FeaturesConfig
     private boolean spoolingOutputBufferEnabled;
     private DataSize spoolingOutputBufferThreshold = new DataSize(8, MEGABYTE);
     private String spoolingOutputBufferTempStorage = "local";
+    private boolean partitionedSpoolingOutputBufferEnabled;
 
     private String warnOnNoTableLayoutFilter = "";
 
@@ -780,6 +793,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public Flatbush.Packing getSpatialJoinIndexPacking()
+    {
+        return spatialJoinIndexPacking;
+    }
+
+    @Config("spatial-join-index-packing")
+    @ConfigDescription("How geometries are grouped into the leaves of the spatial join index (HILBERT or SORT_TILE_RECURSIVE)")
+    public FeaturesConfig setSpatialJoinIndexPacking(Flatbush.Packing spatialJoinIndexPacking)
+    {
+        this.spatialJoinIndexPacking = spatialJoinIndexPacking;
+        return this;
+    }
+
+    public boolean isSpatialJoinParallelIndexBuildEnabled()
+    {
+        return spatialJoinParallelIndexBuildEnabled;
+    }
+
+    @Config("spatial-join-parallel-index-build-enabled")
+    @ConfigDescription("Deserialize and prepare the build side geometries of a spatial join in parallel")
+    public FeaturesConfig setSpatialJoinParallelIndexBuildEnabled(boolean spatialJoinParallelIndexBuildEnabled)
+    {
+        this.spatialJoinParallelIndexBuildEnabled = spatialJoinParallelIndexBuildEnabled;
+        return this;
+    }
+
     @Config("fast-inequality-joins")
     @ConfigDescription("Use faster handling of inequality joins if it is possible")
     public FeaturesConfig setFastInequalityJoins(boolean fastInequalityJoins)
@@ -1711,6 +1750,20 @@ public class FeaturesConfig
         return this;
     }
 
+    @MaxDataSize("64MB")
+    public DataSize getDynamicFilteringBloomFilterSize()
+    {
+        return dynamicFilteringBloomFilterSize;
+    }
+
+    @Config("dynamic-filtering-bloom-filter-size")
+    @ConfigDescription("Size of the Bloom filter collected per build-side driver and join key for dynamic filtering, 0 to disable Bloom filters")
+    public FeaturesConfig setDynamicFilteringBloomFilterSize(DataSize dynamicFilteringBloomFilterSize)
+    {
+        this.dynamicFilteringBloomFilterSize = dynamicFilteringBloomFilterSize;
+        return this;
+    }
+
     public boolean isFragmentResultCachingEnabled()
     {
         return fragmentResultCachingEnabled;
@@ -1761,6 +1814,33 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public ExchangeCompressionCodec getExchangeCompressionCodec()
+    {
+        return exchangeCompressionCodec;
+    }
+
+    @Config("exchange.compression-codec")
+    @ConfigDescription("Codec used to compress exchange pages when exchange compression is enabled")
+    public FeaturesConfig setExchangeCompressionCodec(ExchangeCompressionCodec exchangeCompressionCodec)
+    {
+        this.exchangeCompressionCodec = exchangeCompressionCodec;
+        return this;
+    }
+
+    public boolean isExchangeAdaptiveCompressionEnabled()
+    {
+        return exchangeAdaptiveCompressionEnabled;
+    }
+
+    @Config("exchange.adaptive-compression-enabled")
+    @ConfigDescription("Stop compressing exchange pages that do not shrink, and only sample them periodically")
+    public FeaturesConfig setExchangeAdaptiveCompressionEnabled(boolean exchangeAdaptiveCompressionEnabled)
+    {
+        this.exchangeAdaptiveCompressionEnabled = exchangeAdaptiveCompressionEnabled;
+        return this;
+    }
+
     public boolean isEnableIntermediateAggregations()
     {
         return enableIntermediateAggregations;
@@ -1821,6 +1901,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isPagesIndexNormalizedKeySortEnabled()
+    {
+        return pagesIndexNormalizedKeySortEnabled;
+    }
+
+    @Config("pages-index.normalized-key-sort-enabled")
+    @ConfigDescription("Sort pages indexes on normalized keys with a radix sort instead of with a comparator")
+    public FeaturesConfig setPagesIndexNormalizedKeySortEnabled(boolean pagesIndexNormalizedKeySortEnabled)
+    {
+        this.pagesIndexNormalizedKeySortEnabled = pagesIndexNormalizedKeySortEnabled;
+        return this;
+    }
+
     @MaxDataSize("1MB")
     public DataSize getFilterAndProjectMinOutputPageSize()
     {
@@ -2097,6 +2190,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isAdaptiveFilterReorderingEnabled()
+    {
+        return adaptiveFilterReorderingEnabled;
+    }
+
+    @Config("adaptive-filter-reordering-enabled")
+    @ConfigDescription("Compile the conjuncts of a filter separately and reorder them at runtime by measured selectivity and cost")
+    public FeaturesConfig setAdaptiveFilterReorderingEnabled(boolean adaptiveFilterReorderingEnabled)
+    {
+        this.adaptiveFilterReorderingEnabled = adaptiveFilterReorderingEnabled;
+        return this;
+    }
+
     public boolean isPreferDistributedUnion()
     {
         return preferDistributedUnion;
@@ -2133,6 +2239,32 @@ public class FeaturesConfig
         return optimizePayloadJoins;
     }
 
+    @Config("join-build-output-by-reference-enabled")
+    @ConfigDescription("Reference the build side rows of hash joins by address, and avoid copying them when the output can point to the build pages")
+    public FeaturesConfig setJoinBuildOutputByReferenceEnabled(boolean joinBuildOutputByReferenceEnabled)
+    {
+        this.joinBuildOutputByReferenceEnabled = joinBuildOutputByReferenceEnabled;
+        return this;
+    }
+
+    public boolean isJoinBuildOutputByReferenceEnabled()
+    {
+        return joinBuildOutputByReferenceEnabled;
+    }
+
+    @Config("flat-grouped-top-n-enabled")
+    @ConfigDescription("Keep the top N rows of each group of a top N row number in primitive arrays instead of in per row objects, when N is small")
+    public FeaturesConfig setFlatGroupedTopNEnabled(boolean flatGroupedTopNEnabled)
+    {
+        this.flatGroupedTopNEnabled = flatGroupedTopNEnabled;
+        return this;
+    }
+
+    public boolean isFlatGroupedTopNEnabled()
+    {
+        return flatGroupedTopNEnabled;
+    }
+
     public String getWarnOnNoTableLayoutFilter()
     {
         return warnOnNoTableLayoutFilter;
@@ -2291,6 +2423,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isPartitionedSpoolingOutputBufferEnabled()
+    {
+        return partitionedSpoolingOutputBufferEnabled;
+    }
+
+    @Config("partitioned-spooling-output-buffer-enabled")
+    @ConfigDescription("Spill pages of partitioned and arbitrary output buffers to temp storage once spooling-output-buffer-threshold is exceeded")
+    public FeaturesConfig setPartitionedSpoolingOutputBufferEnabled(boolean partitionedSpoolingOutputBufferEnabled)
+    {
+        this.partitionedSpoolingOutputBufferEnabled = partitionedSpoolingOutputBufferEnabled;
+        return this;
+    }
+
     public boolean isPrestoSparkAssignBucketToPartitionForPartitionedTableWriteEnabled()
     {
         return prestoSparkAssignBucketToPartitionForPartitionedTableWriteEnabled;
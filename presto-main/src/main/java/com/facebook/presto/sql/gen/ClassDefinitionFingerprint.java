@@ -0,0 +1,489 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.bytecode.ClassDefinition;
+import com.google.common.hash.Hasher;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.hash.Hashing.sha256;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.objectweb.asm.Opcodes.ASM9;
+
+/**
+ * Computes a hash of the bytecode a {@link ClassDefinition} generates, which is stable
+ * across processes. Generated class names are unique per process, so the name of the
+ * class itself is replaced by a placeholder. Classes that reference other generated
+ * classes have no fingerprint, since the names of those classes can not be replaced.
+ * <p>
+ * Call site bindings are referenced by id, so classes with the same fingerprint can be
+ * defined with the bindings of either of them.
+ */
+final class ClassDefinitionFingerprint
+{
+    private static final String GENERATED_CLASS_PACKAGE = "com/facebook/presto/$gen/";
+    private static final String GENERATED_CLASS_JAVA_PACKAGE = "com.facebook.presto.$gen.";
+    private static final String SELF = "$self";
+
+    private ClassDefinitionFingerprint() {}
+
+    public static Optional<String> fingerprint(ClassDefinition classDefinition, String salt)
+    {
+        FingerprintClassVisitor visitor = new FingerprintClassVisitor(classDefinition.getType().getClassName(), salt);
+        classDefinition.visit(visitor);
+        if (visitor.referencesOtherGeneratedClass) {
+            return Optional.empty();
+        }
+        return Optional.of(visitor.hasher.hash().toString());
+    }
+
+    private static class FingerprintClassVisitor
+            extends ClassVisitor
+    {
+        private final String internalName;
+        private final String javaName;
+        private final Hasher hasher = sha256().newHasher();
+        private final Map<Label, Integer> labels = new IdentityHashMap<>();
+        private boolean referencesOtherGeneratedClass;
+
+        public FingerprintClassVisitor(String internalName, String salt)
+        {
+            super(ASM9);
+            this.internalName = internalName;
+            this.javaName = internalName.replace('/', '.');
+            putString(salt);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces)
+        {
+            putTag("class");
+            hasher.putInt(version).putInt(access);
+            putString(name);
+            putString(signature);
+            putString(superName);
+            putStrings(interfaces);
+        }
+
+        @Override
+        public void visitSource(String source, String debug)
+        {
+            putTag("source");
+            putString(source);
+            putString(debug);
+        }
+
+        @Override
+        public void visitOuterClass(String owner, String name, String descriptor)
+        {
+            putTag("outerClass");
+            putString(owner);
+            putString(name);
+            putString(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible)
+        {
+            putTag("annotation");
+            putString(descriptor);
+            hasher.putBoolean(visible);
+            return new FingerprintAnnotationVisitor();
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access)
+        {
+            putTag("innerClass");
+            putString(name);
+            putString(outerName);
+            putString(innerName);
+            hasher.putInt(access);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value)
+        {
+            putTag("field");
+            hasher.putInt(access);
+            putString(name);
+            putString(descriptor);
+            putString(signature);
+            putValue(value);
+            return new FieldVisitor(ASM9)
+            {
+                @Override
+                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible)
+                {
+                    return FingerprintClassVisitor.this.visitAnnotation(descriptor, visible);
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions)
+        {
+            putTag("method");
+            hasher.putInt(access);
+            putString(name);
+            putString(descriptor);
+            putString(signature);
+            putStrings(exceptions);
+            return new FingerprintMethodVisitor();
+        }
+
+        private void putTag(String tag)
+        {
+            hasher.putString(tag, UTF_8);
+        }
+
+        private void putString(String value)
+        {
+            if (value == null) {
+                hasher.putInt(-1);
+                return;
+            }
+            String normalized = value.replace(internalName, SELF).replace(javaName, SELF);
+            if (normalized.contains(GENERATED_CLASS_PACKAGE) || normalized.contains(GENERATED_CLASS_JAVA_PACKAGE)) {
+                referencesOtherGeneratedClass = true;
+            }
+            hasher.putInt(normalized.length());
+            hasher.putString(normalized, UTF_8);
+        }
+
+        private void putStrings(String[] values)
+        {
+            if (values == null) {
+                hasher.putInt(-1);
+                return;
+            }
+            hasher.putInt(values.length);
+            for (String value : values) {
+                putString(value);
+            }
+        }
+
+        private void putLabel(Label label)
+        {
+            hasher.putInt(labels.computeIfAbsent(label, ignored -> labels.size()));
+        }
+
+        private void putValue(Object value)
+        {
+            if (value == null) {
+                putTag("null");
+            }
+            else if (value instanceof String) {
+                putTag("string");
+                putString((String) value);
+            }
+            else if (value instanceof Type) {
+                putTag("type");
+                putString(((Type) value).getDescriptor());
+            }
+            else if (value instanceof Handle) {
+                Handle handle = (Handle) value;
+                putTag("handle");
+                hasher.putInt(handle.getTag());
+                putString(handle.getOwner());
+                putString(handle.getName());
+                putString(handle.getDesc());
+                hasher.putBoolean(handle.isInterface());
+            }
+            else if (value instanceof ConstantDynamic) {
+                ConstantDynamic constant = (ConstantDynamic) value;
+                putTag("constantDynamic");
+                putString(constant.getName());
+                putString(constant.getDescriptor());
+                putValue(constant.getBootstrapMethod());
+                hasher.putInt(constant.getBootstrapMethodArgumentCount());
+                for (int i = 0; i < constant.getBootstrapMethodArgumentCount(); i++) {
+                    putValue(constant.getBootstrapMethodArgument(i));
+                }
+            }
+            else if (value instanceof Label) {
+                putTag("label");
+                putLabel((Label) value);
+            }
+            else {
+                // boxed primitives and arrays of primitives
+                putTag(value.getClass().getName());
+                putString(String.valueOf(value));
+            }
+        }
+
+        private class FingerprintAnnotationVisitor
+                extends AnnotationVisitor
+        {
+            public FingerprintAnnotationVisitor()
+            {
+                super(ASM9);
+            }
+
+            @Override
+            public void visit(String name, Object value)
+            {
+                putString(name);
+                putValue(value);
+            }
+
+            @Override
+            public void visitEnum(String name, String descriptor, String value)
+            {
+                putTag("enum");
+                putString(name);
+                putString(descriptor);
+                putString(value);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String name, String descriptor)
+            {
+                putTag("annotation");
+                putString(name);
+                putString(descriptor);
+                return this;
+            }
+
+            @Override
+            public AnnotationVisitor visitArray(String name)
+            {
+                putTag("array");
+                putString(name);
+                return this;
+            }
+
+            @Override
+            public void visitEnd()
+            {
+                putTag("end");
+            }
+        }
+
+        private class FingerprintMethodVisitor
+                extends MethodVisitor
+        {
+            public FingerprintMethodVisitor()
+            {
+                super(ASM9);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible)
+            {
+                return FingerprintClassVisitor.this.visitAnnotation(descriptor, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible)
+            {
+                hasher.putInt(parameter);
+                return FingerprintClassVisitor.this.visitAnnotation(descriptor, visible);
+            }
+
+            @Override
+            public void visitParameter(String name, int access)
+            {
+                putTag("parameter");
+                putString(name);
+                hasher.putInt(access);
+            }
+
+            @Override
+            public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack)
+            {
+                putTag("frame");
+                hasher.putInt(type);
+                hasher.putInt(numLocal);
+                for (int i = 0; i < numLocal; i++) {
+                    putValue(local[i]);
+                }
+                hasher.putInt(numStack);
+                for (int i = 0; i < numStack; i++) {
+                    putValue(stack[i]);
+                }
+            }
+
+            @Override
+            public void visitInsn(int opcode)
+            {
+                hasher.putInt(opcode);
+            }
+
+            @Override
+            public void visitIntInsn(int opcode, int operand)
+            {
+                hasher.putInt(opcode).putInt(operand);
+            }
+
+            @Override
+            public void visitVarInsn(int opcode, int var)
+            {
+                hasher.putInt(opcode).putInt(var);
+            }
+
+            @Override
+            public void visitTypeInsn(int opcode, String type)
+            {
+                hasher.putInt(opcode);
+                putString(type);
+            }
+
+            @Override
+            public void visitFieldInsn(int opcode, String owner, String name, String descriptor)
+            {
+                hasher.putInt(opcode);
+                putString(owner);
+                putString(name);
+                putString(descriptor);
+            }
+
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface)
+            {
+                hasher.putInt(opcode);
+                putString(owner);
+                putString(name);
+                putString(descriptor);
+                hasher.putBoolean(isInterface);
+            }
+
+            @Override
+            public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments)
+            {
+                putTag("invokeDynamic");
+                putString(name);
+                putString(descriptor);
+                putValue(bootstrapMethodHandle);
+                hasher.putInt(bootstrapMethodArguments.length);
+                for (Object argument : bootstrapMethodArguments) {
+                    putValue(argument);
+                }
+            }
+
+            @Override
+            public void visitJumpInsn(int opcode, Label label)
+            {
+                hasher.putInt(opcode);
+                putLabel(label);
+            }
+
+            @Override
+            public void visitLabel(Label label)
+            {
+                putTag("label");
+                putLabel(label);
+            }
+
+            @Override
+            public void visitLdcInsn(Object value)
+            {
+                putTag("ldc");
+                putValue(value);
+            }
+
+            @Override
+            public void visitIincInsn(int var, int increment)
+            {
+                putTag("iinc");
+                hasher.putInt(var).putInt(increment);
+            }
+
+            @Override
+            public void visitTableSwitchInsn(int min, int max, Label defaultLabel, Label... labels)
+            {
+                putTag("tableSwitch");
+                hasher.putInt(min).putInt(max);
+                putLabel(defaultLabel);
+                for (Label label : labels) {
+                    putLabel(label);
+                }
+            }
+
+            @Override
+            public void visitLookupSwitchInsn(Label defaultLabel, int[] keys, Label[] labels)
+            {
+                putTag("lookupSwitch");
+                putLabel(defaultLabel);
+                hasher.putInt(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    hasher.putInt(keys[i]);
+                    putLabel(labels[i]);
+                }
+            }
+
+            @Override
+            public void visitMultiANewArrayInsn(String descriptor, int numDimensions)
+            {
+                putTag("multiANewArray");
+                putString(descriptor);
+                hasher.putInt(numDimensions);
+            }
+
+            @Override
+            public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
+            {
+                putTag("tryCatch");
+                putLabel(start);
+                putLabel(end);
+                putLabel(handler);
+                putString(type);
+            }
+
+            @Override
+            public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index)
+            {
+                putTag("localVariable");
+                putString(name);
+                putString(descriptor);
+                putString(signature);
+                putLabel(start);
+                putLabel(end);
+                hasher.putInt(index);
+            }
+
+            @Override
+            public void visitLineNumber(int line, Label start)
+            {
+                putTag("lineNumber");
+                hasher.putInt(line);
+                putLabel(start);
+            }
+
+            @Override
+            public void visitMaxs(int maxStack, int maxLocals)
+            {
+                putTag("maxs");
+                hasher.putInt(maxStack).putInt(maxLocals);
+            }
+
+            @Override
+            public void visitEnd()
+            {
+                putTag("end");
+            }
+        }
+    }
+}
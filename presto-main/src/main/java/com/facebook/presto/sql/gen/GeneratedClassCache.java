@@ -0,0 +1,423 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.stats.CounterStat;
+import com.facebook.airlift.stats.TimeStat;
+import com.facebook.presto.bytecode.ByteCodeTooLargeException;
+import com.facebook.presto.bytecode.ClassDefinition;
+import com.facebook.presto.bytecode.DynamicClassLoader;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.sql.planner.CompilerConfig;
+import com.facebook.presto.util.CompilerUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.objectweb.asm.ClassReader;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.inject.Inject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static com.facebook.presto.bytecode.ClassGenerator.classGenerator;
+import static com.facebook.presto.spi.StandardErrorCode.GENERATED_BYTECODE_TOO_LARGE;
+import static com.facebook.presto.util.CompilerUtils.ERROR_LARGE_BYTECODE;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Keeps the bytecode of generated classes on local disk, so that a restarted worker does
+ * not run the ASM class writer again for classes it already generated.
+ * <p>
+ * Generated classes reference their call site bindings (method handles of functions and
+ * constants) by id, and the bindings only exist in the process that built the class
+ * definition. The compilers therefore still build the {@link ClassDefinition}, and a cached
+ * class is defined with the bindings of the current process. The cache skips computing
+ * the stack map frames, writing and verifying the class file. Entries are keyed by a
+ * {@link ClassDefinitionFingerprint} of the class definition and the Presto version.
+ * <p>
+ * The directory is bounded by a maximum size. Reading a cached class refreshes the
+ * modification time of its file, and when the limit is exceeded the least recently used
+ * files are removed. Entries of previous Presto versions are never read again, so they
+ * are the first to go. The directory is also trimmed to the limit when the cache is created.
+ */
+public class GeneratedClassCache
+{
+    private static final Logger log = Logger.get(GeneratedClassCache.class);
+
+    private static final String CACHE_FILE_SUFFIX = ".class";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final int CACHE_FILE_VERSION = 1;
+    // eviction trims the directory below the maximum size, so that it does not run on every store
+    private static final double EVICTION_TARGET_RATIO = 0.75;
+
+    private final Optional<Path> directory;
+    private final long maxSizeInBytes;
+    private final String compilerVersion;
+    private final AtomicLong sizeInBytes = new AtomicLong();
+
+    private final CounterStat hits = new CounterStat();
+    private final CounterStat misses = new CounterStat();
+    private final CounterStat failures = new CounterStat();
+    private final CounterStat evictions = new CounterStat();
+    private final TimeStat generationTime = new TimeStat();
+    private final TimeStat loadTime = new TimeStat();
+    private final AtomicLong generationTimeSavedNanos = new AtomicLong();
+
+    @Inject
+    public GeneratedClassCache(CompilerConfig config)
+    {
+        this(
+                requireNonNull(config, "config is null").isGeneratedClassCacheEnabled() ? Optional.of(getDirectory(config)) : Optional.empty(),
+                config.getGeneratedClassCacheMaxSize().toBytes());
+    }
+
+    public GeneratedClassCache(Optional<Path> directory, long maxSizeInBytes)
+    {
+        checkArgument(maxSizeInBytes >= 0, "maxSizeInBytes is negative");
+        this.directory = requireNonNull(directory, "directory is null");
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.compilerVersion = getCompilerVersion();
+
+        if (directory.isPresent()) {
+            try {
+                Files.createDirectories(directory.get());
+            }
+            catch (IOException e) {
+                throw new IllegalArgumentException("Failed to create generated class cache directory: " + directory.get(), e);
+            }
+            // remove files left behind by a previous process, and trim the cache to the current size limit
+            deleteTemporaryFiles(directory.get());
+            evict(maxSizeInBytes);
+        }
+    }
+
+    public static GeneratedClassCache disabledGeneratedClassCache()
+    {
+        return new GeneratedClassCache(Optional.empty(), 0);
+    }
+
+    private static Path getDirectory(CompilerConfig config)
+    {
+        checkArgument(config.getGeneratedClassCacheDirectory() != null, "compiler.generated-class-cache-directory must be set when the generated class cache is enabled");
+        return config.getGeneratedClassCacheDirectory().toPath();
+    }
+
+    private static String getCompilerVersion()
+    {
+        String version = GeneratedClassCache.class.getPackage().getImplementationVersion();
+        return (version == null ? "unknown" : version) + ":" + System.getProperty("java.specification.version");
+    }
+
+    public <T> Class<? extends T> defineClass(ClassDefinition classDefinition, Class<T> superType, Map<Long, MethodHandle> callSiteBindings, ClassLoader parentClassLoader)
+    {
+        if (!directory.isPresent()) {
+            return CompilerUtils.defineClass(classDefinition, superType, callSiteBindings, parentClassLoader);
+        }
+
+        Optional<String> fingerprint = ClassDefinitionFingerprint.fingerprint(classDefinition, compilerVersion);
+        if (!fingerprint.isPresent()) {
+            return CompilerUtils.defineClass(classDefinition, superType, callSiteBindings, parentClassLoader);
+        }
+
+        Path file = directory.get().resolve(fingerprint.get() + CACHE_FILE_SUFFIX);
+        Optional<Class<? extends T>> cachedClass = loadCachedClass(file, superType, callSiteBindings, parentClassLoader);
+        if (cachedClass.isPresent()) {
+            return cachedClass.get();
+        }
+
+        misses.update(1);
+        long start = System.nanoTime();
+        Map<String, byte[]> bytecodes;
+        try {
+            bytecodes = classGenerator(parentClassLoader).generateBytecode(ImmutableList.of(classDefinition));
+        }
+        catch (ByteCodeTooLargeException byteCodeTooLargeException) {
+            throw new PrestoException(GENERATED_BYTECODE_TOO_LARGE, ERROR_LARGE_BYTECODE);
+        }
+        long generationNanos = System.nanoTime() - start;
+        generationTime.add(generationNanos, NANOSECONDS);
+
+        Map.Entry<String, byte[]> bytecode = getOnlyElement(bytecodes.entrySet());
+        store(file, bytecode.getValue(), generationNanos);
+
+        return classGenerator(new DynamicClassLoader(parentClassLoader, callSiteBindings))
+                .defineClasses(ImmutableMap.of(bytecode.getKey(), bytecode.getValue()))
+                .get(bytecode.getKey())
+                .asSubclass(superType);
+    }
+
+    private <T> Optional<Class<? extends T>> loadCachedClass(Path file, Class<T> superType, Map<Long, MethodHandle> callSiteBindings, ClassLoader parentClassLoader)
+    {
+        long start = System.nanoTime();
+        byte[] bytecode;
+        long generationNanos;
+        try (InputStream input = Files.newInputStream(file)) {
+            DataInputStream dataInput = new DataInputStream(input);
+            if (dataInput.readInt() != CACHE_FILE_VERSION) {
+                return Optional.empty();
+            }
+            generationNanos = dataInput.readLong();
+            bytecode = new byte[dataInput.readInt()];
+            dataInput.readFully(bytecode);
+        }
+        catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to read generated class cache file %s", file);
+            failures.update(1);
+            return Optional.empty();
+        }
+
+        Class<? extends T> clazz;
+        try {
+            // the class keeps the name it was generated with, which is unique within its own class loader
+            String className = new ClassReader(bytecode).getClassName().replace('/', '.');
+            clazz = classGenerator(new DynamicClassLoader(parentClassLoader, callSiteBindings))
+                    .defineClasses(ImmutableMap.of(className, bytecode))
+                    .get(className)
+                    .asSubclass(superType);
+        }
+        catch (RuntimeException | LinkageError e) {
+            log.warn(e, "Failed to define class from generated class cache file %s, removing it", file);
+            failures.update(1);
+            delete(file);
+            return Optional.empty();
+        }
+        touch(file);
+
+        long loadNanos = System.nanoTime() - start;
+        hits.update(1);
+        loadTime.add(loadNanos, NANOSECONDS);
+        generationTimeSavedNanos.addAndGet(Math.max(generationNanos - loadNanos, 0));
+        return Optional.of(clazz);
+    }
+
+    private void store(Path file, byte[] bytecode, long generationNanos)
+    {
+        long fileSize;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(bytecode.length + 16);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(CACHE_FILE_VERSION);
+            output.writeLong(generationNanos);
+            output.writeInt(bytecode.length);
+            output.write(bytecode);
+            output.flush();
+
+            // write to a temporary file first, so that concurrent readers never observe a partial file
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMPORARY_FILE_SUFFIX);
+            try {
+                Files.write(temporaryFile, bytes.toByteArray());
+                Files.move(temporaryFile, file, ATOMIC_MOVE);
+                fileSize = bytes.size();
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to write generated class cache file %s", file);
+            failures.update(1);
+            return;
+        }
+
+        // the size is recomputed from the directory on eviction, so a replaced file counted twice is harmless
+        if (sizeInBytes.addAndGet(fileSize) > maxSizeInBytes) {
+            evict((long) (maxSizeInBytes * EVICTION_TARGET_RATIO));
+        }
+    }
+
+    /**
+     * Removes the least recently used cache files until the cache is no larger than {@code targetSizeInBytes}.
+     */
+    private synchronized void evict(long targetSizeInBytes)
+    {
+        List<CacheFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory.get())) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!path.getFileName().toString().endsWith(CACHE_FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    files.add(new CacheFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+                catch (NoSuchFileException e) {
+                    // removed concurrently
+                }
+            }
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to list generated class cache directory %s", directory.get());
+            failures.update(1);
+            return;
+        }
+
+        long totalSize = files.stream().mapToLong(CacheFile::getSize).sum();
+        files.sort(comparingLong(CacheFile::getLastUsedMillis));
+        for (CacheFile file : files) {
+            if (totalSize <= targetSizeInBytes) {
+                break;
+            }
+            delete(file.getPath());
+            evictions.update(1);
+            totalSize -= file.getSize();
+        }
+        sizeInBytes.set(totalSize);
+    }
+
+    private static void deleteTemporaryFiles(Path directory)
+    {
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(TEMPORARY_FILE_SUFFIX))
+                    .forEach(GeneratedClassCache::delete);
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to list generated class cache directory %s", directory);
+        }
+    }
+
+    private static void touch(Path file)
+    {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException e) {
+            // the file may have been evicted concurrently, it only affects the eviction order
+        }
+    }
+
+    private static void delete(Path file)
+    {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete generated class cache file %s", file);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return directory.isPresent();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFailures()
+    {
+        return failures;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEvictions()
+    {
+        return evictions;
+    }
+
+    @Managed
+    public long getSizeInBytes()
+    {
+        return sizeInBytes.get();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getGenerationTime()
+    {
+        return generationTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getLoadTime()
+    {
+        return loadTime;
+    }
+
+    @Managed
+    public long getGenerationTimeSavedMillis()
+    {
+        return NANOSECONDS.toMillis(generationTimeSavedNanos.get());
+    }
+
+    private static class CacheFile
+    {
+        private final Path path;
+        private final long size;
+        private final long lastUsedMillis;
+
+        public CacheFile(Path path, long size, long lastUsedMillis)
+        {
+            this.path = requireNonNull(path, "path is null");
+            this.size = size;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+
+        public Path getPath()
+        {
+            return path;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public long getLastUsedMillis()
+        {
+            return lastUsedMillis;
+        }
+    }
+}
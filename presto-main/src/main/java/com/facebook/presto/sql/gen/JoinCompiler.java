@@ -79,13 +79,14 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.consta
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantLong;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantNull;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantTrue;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.equal;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.getStatic;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newInstance;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.notEqual;
 import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static com.facebook.presto.sql.gen.GeneratedClassCache.disabledGeneratedClassCache;
 import static com.facebook.presto.sql.gen.InputReferenceCompiler.generateInputReference;
 import static com.facebook.presto.sql.gen.SqlTypeBytecodeExpression.constantType;
-import static com.facebook.presto.util.CompilerUtils.defineClass;
 import static com.facebook.presto.util.CompilerUtils.makeClassName;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
@@ -94,6 +95,7 @@ public class JoinCompiler
 {
     private final FunctionAndTypeManager functionAndTypeManager;
     private final boolean groupByUsesEqualTo;
+    private final GeneratedClassCache generatedClassCache;
 
     private final LoadingCache<CacheKey, LookupSourceSupplierFactory> lookupSourceFactories = CacheBuilder.newBuilder()
             .recordStats()
@@ -112,11 +114,17 @@ public class JoinCompiler
         return compileLookupSourceFactory(types, joinChannels, sortChannel, Optional.empty());
     }
 
-    @Inject
     public JoinCompiler(Metadata metadata, FeaturesConfig config)
+    {
+        this(metadata, config, disabledGeneratedClassCache());
+    }
+
+    @Inject
+    public JoinCompiler(Metadata metadata, FeaturesConfig config, GeneratedClassCache generatedClassCache)
     {
         this.functionAndTypeManager = requireNonNull(metadata, "metadata is null").getFunctionAndTypeManager();
         this.groupByUsesEqualTo = requireNonNull(config, "config is null").isGroupByUsesEqualTo();
+        this.generatedClassCache = requireNonNull(generatedClassCache, "generatedClassCache is null");
     }
 
     @Managed
@@ -226,6 +234,7 @@ public class JoinCompiler
         generateGetChannelCountMethod(classDefinition, outputChannels.size());
         generateGetSizeInBytesMethod(classDefinition, sizeField);
         generateAppendToMethod(classDefinition, callSiteBinder, types, outputChannels, channelFields);
+        generateGetOutputChannelBlocksMethod(classDefinition, outputChannels, channelFields);
         generateHashPositionMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields, hashChannelField);
         generateHashRowMethod(classDefinition, callSiteBinder, joinChannelTypes);
         generateRowEqualsRowMethod(classDefinition, callSiteBinder, joinChannelTypes);
@@ -239,7 +248,7 @@ public class JoinCompiler
         generateCompareSortChannelPositionsMethod(classDefinition, callSiteBinder, types, channelFields, sortChannel);
         generateIsSortChannelPositionNull(classDefinition, channelFields, sortChannel);
 
-        return defineClass(classDefinition, PagesHashStrategy.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+        return generatedClassCache.defineClass(classDefinition, PagesHashStrategy.class, callSiteBinder.getBindings(), getClass().getClassLoader());
     }
 
     private static void generateConstructor(ClassDefinition classDefinition,
@@ -374,6 +383,28 @@ public class JoinCompiler
         appendToBody.ret();
     }
 
+    private static void generateGetOutputChannelBlocksMethod(ClassDefinition classDefinition, List<Integer> outputChannels, List<FieldDefinition> channelFields)
+    {
+        Parameter outputChannel = arg("outputChannel", int.class);
+        MethodDefinition getOutputChannelBlocksMethod = classDefinition.declareMethod(
+                a(PUBLIC),
+                "getOutputChannelBlocks",
+                type(List.class, Block.class),
+                outputChannel);
+
+        Variable thisVariable = getOutputChannelBlocksMethod.getThis();
+        BytecodeBlock body = getOutputChannelBlocksMethod.getBody();
+
+        for (int index = 0; index < outputChannels.size(); index++) {
+            body.comment("if (outputChannel == %s) return channel_%s;", index, outputChannels.get(index))
+                    .append(new IfStatement()
+                            .condition(equal(outputChannel, constantInt(index)))
+                            .ifTrue(thisVariable.getField(channelFields.get(outputChannels.get(index))).ret()));
+        }
+        body.append(newInstance(IndexOutOfBoundsException.class))
+                .throwObject();
+    }
+
     private static void generateIsPositionNull(ClassDefinition classDefinition, List<FieldDefinition> joinChannelFields)
     {
         Parameter blockIndex = arg("blockIndex", int.class);
@@ -32,6 +32,7 @@ import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.function.SqlFunctionProperties;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.operator.Work;
+import com.facebook.presto.operator.project.AdaptivePageFilter;
 import com.facebook.presto.operator.project.ConstantPageProjection;
 import com.facebook.presto.operator.project.GeneratedPageProjection;
 import com.facebook.presto.operator.project.InputChannels;
@@ -99,6 +100,7 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invoke
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.lessThan;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newArray;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.not;
+import static com.facebook.presto.expressions.LogicalRowExpressions.extractConjuncts;
 import static com.facebook.presto.operator.project.PageFieldsToInputParametersRewriter.rewritePageFieldsToInputParameters;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
 import static com.facebook.presto.sql.gen.BytecodeUtils.boxPrimitiveIfNecessary;
@@ -110,9 +112,9 @@ import static com.facebook.presto.sql.gen.CommonSubExpressionRewriter.CommonSubE
 import static com.facebook.presto.sql.gen.CommonSubExpressionRewriter.collectCSEByLevel;
 import static com.facebook.presto.sql.gen.CommonSubExpressionRewriter.getExpressionsPartitionedByCSE;
 import static com.facebook.presto.sql.gen.CommonSubExpressionRewriter.rewriteExpressionWithCSE;
+import static com.facebook.presto.sql.gen.GeneratedClassCache.disabledGeneratedClassCache;
 import static com.facebook.presto.sql.gen.LambdaBytecodeGenerator.generateMethodsForLambda;
 import static com.facebook.presto.sql.relational.Expressions.subExpressions;
-import static com.facebook.presto.util.CompilerUtils.defineClass;
 import static com.facebook.presto.util.CompilerUtils.makeClassName;
 import static com.facebook.presto.util.Reflection.constructorMethodHandle;
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -134,6 +136,7 @@ public class PageFunctionCompiler
 
     private final Metadata metadata;
     private final DeterminismEvaluator determinismEvaluator;
+    private final GeneratedClassCache generatedClassCache;
 
     private final LoadingCache<CacheKey, Supplier<PageProjection>> projectionCache;
     private final LoadingCache<CacheKey, Supplier<PageFilter>> filterCache;
@@ -141,16 +144,27 @@ public class PageFunctionCompiler
     private final CacheStatsMBean projectionCacheStats;
     private final CacheStatsMBean filterCacheStats;
 
-    @Inject
     public PageFunctionCompiler(Metadata metadata, CompilerConfig config)
     {
         this(metadata, requireNonNull(config, "config is null").getExpressionCacheSize());
     }
 
+    @Inject
+    public PageFunctionCompiler(Metadata metadata, CompilerConfig config, GeneratedClassCache generatedClassCache)
+    {
+        this(metadata, requireNonNull(config, "config is null").getExpressionCacheSize(), generatedClassCache);
+    }
+
     public PageFunctionCompiler(Metadata metadata, int expressionCacheSize)
+    {
+        this(metadata, expressionCacheSize, disabledGeneratedClassCache());
+    }
+
+    public PageFunctionCompiler(Metadata metadata, int expressionCacheSize, GeneratedClassCache generatedClassCache)
     {
         this.metadata = requireNonNull(metadata, "metadata is null");
         this.determinismEvaluator = new RowExpressionDeterminismEvaluator(metadata.getFunctionAndTypeManager());
+        this.generatedClassCache = requireNonNull(generatedClassCache, "generatedClassCache is null");
 
         if (expressionCacheSize > 0) {
             projectionCache = CacheBuilder.newBuilder()
@@ -333,7 +347,7 @@ public class PageFunctionCompiler
 
         Class<? extends Work> pageProjectionWorkClass;
         try {
-            pageProjectionWorkClass = defineClass(pageProjectionWorkDefinition, Work.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+            pageProjectionWorkClass = generatedClassCache.defineClass(pageProjectionWorkDefinition, Work.class, callSiteBinder.getBindings(), getClass().getClassLoader());
         }
         catch (PrestoException prestoException) {
             throw prestoException;
@@ -664,6 +678,31 @@ public class PageFunctionCompiler
         }
     }
 
+    /**
+     * Compiles every conjunct of a deterministic AND filter into a separate function and combines
+     * them in an {@link AdaptivePageFilter}, which reorders the conjuncts at runtime. Any other filter
+     * is compiled as a single function.
+     */
+    public Supplier<PageFilter> compileAdaptiveFilter(
+            SqlFunctionProperties sqlFunctionProperties,
+            Map<SqlFunctionId, SqlInvokedFunction> sessionFunctions,
+            RowExpression filter,
+            boolean isOptimizeCommonSubExpression,
+            Optional<String> classNameSuffix)
+    {
+        List<RowExpression> conjuncts = extractConjuncts(filter);
+        if (conjuncts.size() < 2 || !determinismEvaluator.isDeterministic(filter)) {
+            return compileFilter(sqlFunctionProperties, sessionFunctions, filter, isOptimizeCommonSubExpression, classNameSuffix);
+        }
+
+        List<Supplier<PageFilter>> conjunctFilters = conjuncts.stream()
+                .map(conjunct -> compileFilter(sqlFunctionProperties, sessionFunctions, conjunct, isOptimizeCommonSubExpression, classNameSuffix))
+                .collect(toImmutableList());
+        return () -> new AdaptivePageFilter(conjunctFilters.stream()
+                .map(Supplier::get)
+                .collect(toImmutableList()));
+    }
+
     private Supplier<PageFilter> compileFilterInternal(
             SqlFunctionProperties sqlFunctionProperties,
             Map<SqlFunctionId, SqlInvokedFunction> sessionFunctions,
@@ -687,7 +726,7 @@ public class PageFunctionCompiler
 
         Class<? extends PageFilter> functionClass;
         try {
-            functionClass = defineClass(classDefinition, PageFilter.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+            functionClass = generatedClassCache.defineClass(classDefinition, PageFilter.class, callSiteBinder.getBindings(), getClass().getClassLoader());
         }
         catch (PrestoException prestoException) {
             throw prestoException;
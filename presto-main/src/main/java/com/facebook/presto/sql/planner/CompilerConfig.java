@@ -17,8 +17,14 @@ import com.facebook.airlift.configuration.Config;
 import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.configuration.DefunctConfig;
 import com.facebook.presto.spi.function.Description;
+import io.airlift.units.DataSize;
 
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.io.File;
+
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 @DefunctConfig("compiler.interpreter-enabled")
 public class CompilerConfig
@@ -26,6 +32,9 @@ public class CompilerConfig
     private int expressionCacheSize = 10_000;
     private int leafNodeLimit = 10_000;
     private boolean leafNodeLimitEnabled;
+    private boolean generatedClassCacheEnabled;
+    private File generatedClassCacheDirectory;
+    private DataSize generatedClassCacheMaxSize = new DataSize(512, MEGABYTE);
 
     @Min(0)
     public int getExpressionCacheSize()
@@ -66,4 +75,44 @@ public class CompilerConfig
         this.leafNodeLimitEnabled = enabled;
         return this;
     }
+
+    public boolean isGeneratedClassCacheEnabled()
+    {
+        return generatedClassCacheEnabled;
+    }
+
+    @Config("compiler.generated-class-cache-enabled")
+    @ConfigDescription("Keep the bytecode of generated classes on local disk, and reuse it after a restart")
+    public CompilerConfig setGeneratedClassCacheEnabled(boolean generatedClassCacheEnabled)
+    {
+        this.generatedClassCacheEnabled = generatedClassCacheEnabled;
+        return this;
+    }
+
+    public File getGeneratedClassCacheDirectory()
+    {
+        return generatedClassCacheDirectory;
+    }
+
+    @Config("compiler.generated-class-cache-directory")
+    @ConfigDescription("Local directory of the generated class cache")
+    public CompilerConfig setGeneratedClassCacheDirectory(File generatedClassCacheDirectory)
+    {
+        this.generatedClassCacheDirectory = generatedClassCacheDirectory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getGeneratedClassCacheMaxSize()
+    {
+        return generatedClassCacheMaxSize;
+    }
+
+    @Config("compiler.generated-class-cache-max-size")
+    @ConfigDescription("Maximum size of the generated class cache directory, least recently used classes are removed beyond it")
+    public CompilerConfig setGeneratedClassCacheMaxSize(DataSize generatedClassCacheMaxSize)
+    {
+        this.generatedClassCacheMaxSize = generatedClassCacheMaxSize;
+        return this;
+    }
 }
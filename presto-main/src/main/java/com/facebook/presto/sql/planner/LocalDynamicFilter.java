@@ -13,29 +13,42 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.type.Type;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterExtractResult;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.BlockedBloomFilter;
 import com.facebook.presto.spi.plan.FilterNode;
 import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher;
 import com.facebook.presto.sql.planner.plan.AbstractJoinNode;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import static com.facebook.presto.common.function.OperatorType.EQUAL;
+import static com.facebook.presto.common.type.TypeUtils.writeNativeValue;
 import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Verify.verify;
 import static java.util.Objects.requireNonNull;
@@ -57,13 +70,30 @@ public class LocalDynamicFilter
     // The resulting predicates from each build-side partition.
     private final List<TupleDomain<String>> partitions;
 
+    private final SettableFuture<Map<VariableReferenceExpression, BlockedBloomFilter>> bloomFilterResultFuture;
+
+    // The union of the Bloom filters from each build-side partition which collected one.
+    private final Map<String, BlockedBloomFilter> bloomFilters = new HashMap<>();
+    // Dynamic filters without a Bloom filter in at least one partition which collected Bloom filters.
+    private final Set<String> missingBloomFilters = new HashSet<>();
+    private int bloomFilterPartitionCount;
+    // Accounts for the merged Bloom filters, which are held until the task is done once published.
+    private final LocalMemoryContext bloomFilterMemoryContext;
+
     public LocalDynamicFilter(Multimap<String, DynamicFilterPlaceholder> probeVariables, Map<String, Integer> buildChannels, int partitionCount)
+    {
+        this(probeVariables, buildChannels, partitionCount, newSimpleAggregatedMemoryContext().newLocalMemoryContext(LocalDynamicFilter.class.getSimpleName()));
+    }
+
+    public LocalDynamicFilter(Multimap<String, DynamicFilterPlaceholder> probeVariables, Map<String, Integer> buildChannels, int partitionCount, LocalMemoryContext bloomFilterMemoryContext)
     {
         this.probeVariables = requireNonNull(probeVariables, "probeVariables is null");
         this.buildChannels = requireNonNull(buildChannels, "buildChannels is null");
         verify(probeVariables.keySet().equals(buildChannels.keySet()), "probeVariables and buildChannels must have same keys");
 
         this.resultFuture = SettableFuture.create();
+        this.bloomFilterResultFuture = SettableFuture.create();
+        this.bloomFilterMemoryContext = requireNonNull(bloomFilterMemoryContext, "bloomFilterMemoryContext is null");
 
         this.partitionCount = partitionCount;
         this.partitions = new ArrayList<>(partitionCount);
@@ -79,10 +109,115 @@ public class LocalDynamicFilter
         if (partitions.size() == partitionCount) {
             // No more partitions are left to be processed.
             TupleDomain<VariableReferenceExpression> result = convertTupleDomain(TupleDomain.columnWiseUnion(partitions));
+            // the Bloom filters of a partition are provided before its predicate
+            verify(bloomFilterResultFuture.set(convertBloomFilters()), "dynamic filter Bloom filters are provided more than once");
+            partitions.clear();
             verify(resultFuture.set(result), "dynamic filter result is provided more than once");
         }
     }
 
+    private synchronized void addBloomFilters(Map<String, BlockedBloomFilter> partitionBloomFilters)
+    {
+        // Called concurrently by each DynamicFilterSourceOperator instance whose exact predicate became too large
+        // (when collection is over), before addPartition.
+        verify(bloomFilterPartitionCount < partitionCount);
+        bloomFilterPartitionCount++;
+        for (String filterId : buildChannels.keySet()) {
+            BlockedBloomFilter bloomFilter = partitionBloomFilters.get(filterId);
+            if (bloomFilter == null) {
+                missingBloomFilters.add(filterId);
+                bloomFilters.remove(filterId);
+            }
+            else if (!missingBloomFilters.contains(filterId)) {
+                bloomFilters.merge(filterId, bloomFilter, (left, right) -> {
+                    left.merge(right);
+                    return left;
+                });
+            }
+        }
+        updateBloomFilterMemoryUsage(bloomFilters.values());
+    }
+
+    private Map<VariableReferenceExpression, BlockedBloomFilter> convertBloomFilters()
+    {
+        if (bloomFilterPartitionCount == 0) {
+            // the exact predicates of all partitions are small enough, or Bloom filters are not collected
+            return ImmutableMap.of();
+        }
+        Map<VariableReferenceExpression, BlockedBloomFilter> result = new HashMap<>();
+        for (Map.Entry<String, BlockedBloomFilter> entry : bloomFilters.entrySet()) {
+            BlockedBloomFilter bloomFilter = entry.getValue();
+            // partitions which did not collect a Bloom filter provided their values through the predicate
+            if (!addDiscreteValues(bloomFilter, entry.getKey()) || bloomFilter.isSaturated()) {
+                continue;
+            }
+            // A Bloom filter can only tell which probe values are equal to a build value.
+            for (DynamicFilterPlaceholder placeholder : probeVariables.get(entry.getKey())) {
+                if (placeholder.getOperator() == EQUAL && placeholder.getInput().getType().equals(bloomFilter.getType())) {
+                    result.putIfAbsent((VariableReferenceExpression) placeholder.getInput(), bloomFilter);
+                }
+            }
+        }
+        bloomFilters.clear();
+        updateBloomFilterMemoryUsage(result.values());
+        return ImmutableMap.copyOf(result);
+    }
+
+    /**
+     * Adds the values of the partitions with a discrete predicate for the dynamic filter to the Bloom filter.
+     * Returns false if more partitions have a non discrete predicate than partitions collected a Bloom filter,
+     * in which case the Bloom filter does not cover all build-side values.
+     */
+    private boolean addDiscreteValues(BlockedBloomFilter bloomFilter, String filterId)
+    {
+        Type type = bloomFilter.getType();
+        int nonDiscretePartitions = 0;
+        for (TupleDomain<String> partition : partitions) {
+            if (partition.isNone()) {
+                continue;
+            }
+            Domain domain = partition.getDomains().get().get(filterId);
+            Optional<List<Object>> values = domain == null ? Optional.empty() : getDiscreteValues(domain);
+            if (!values.isPresent()) {
+                nonDiscretePartitions++;
+                continue;
+            }
+            BlockBuilder blockBuilder = type.createBlockBuilder(null, values.get().size());
+            for (Object value : values.get()) {
+                writeNativeValue(type, blockBuilder, value);
+            }
+            bloomFilter.addAll(blockBuilder.build());
+        }
+        return nonDiscretePartitions <= bloomFilterPartitionCount;
+    }
+
+    private static Optional<List<Object>> getDiscreteValues(Domain domain)
+    {
+        return domain.getValues().getValuesProcessor().transform(
+                ranges -> {
+                    ImmutableList.Builder<Object> values = ImmutableList.builder();
+                    for (Range range : ranges.getOrderedRanges()) {
+                        if (!range.isSingleValue()) {
+                            return Optional.empty();
+                        }
+                        values.add(range.getSingleValue());
+                    }
+                    return Optional.of(values.build());
+                },
+                discreteValues -> discreteValues.isWhiteList() ? Optional.of(ImmutableList.copyOf(discreteValues.getValues())) : Optional.empty(),
+                allOrNone -> allOrNone.isAll() ? Optional.empty() : Optional.of(ImmutableList.of()));
+    }
+
+    private void updateBloomFilterMemoryUsage(Collection<BlockedBloomFilter> retainedBloomFilters)
+    {
+        // a Bloom filter may be used for several probe variables
+        long retainedSizeInBytes = 0;
+        for (BlockedBloomFilter bloomFilter : ImmutableSet.copyOf(retainedBloomFilters)) {
+            retainedSizeInBytes += bloomFilter.getRetainedSizeInBytes();
+        }
+        bloomFilterMemoryContext.setBytes(retainedSizeInBytes);
+    }
+
     private TupleDomain<VariableReferenceExpression> convertTupleDomain(TupleDomain<String> result)
     {
         if (result.isNone()) {
@@ -103,6 +238,11 @@ public class LocalDynamicFilter
     }
 
     public static Optional<LocalDynamicFilter> create(AbstractJoinNode planNode, int partitionCount)
+    {
+        return create(planNode, partitionCount, newSimpleAggregatedMemoryContext().newLocalMemoryContext(LocalDynamicFilter.class.getSimpleName()));
+    }
+
+    public static Optional<LocalDynamicFilter> create(AbstractJoinNode planNode, int partitionCount, LocalMemoryContext bloomFilterMemoryContext)
     {
         Set<String> joinDynamicFilters = planNode.getDynamicFilters().keySet();
         List<FilterNode> filterNodes = PlanNodeSearcher
@@ -143,7 +283,7 @@ public class LocalDynamicFilter
         if (buildChannels.isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(new LocalDynamicFilter(probeVariables, buildChannels, partitionCount));
+        return Optional.of(new LocalDynamicFilter(probeVariables, buildChannels, partitionCount, bloomFilterMemoryContext));
     }
 
     public Map<String, Integer> getBuildChannels()
@@ -161,6 +301,19 @@ public class LocalDynamicFilter
         return this::addPartition;
     }
 
+    /**
+     * The Bloom filters of the dynamic filters with an equality comparison, when all build-side partitions collected one.
+     */
+    public ListenableFuture<Map<VariableReferenceExpression, BlockedBloomFilter>> getBloomFilterResultFuture()
+    {
+        return bloomFilterResultFuture;
+    }
+
+    public Consumer<Map<String, BlockedBloomFilter>> getBloomFilterConsumer()
+    {
+        return this::addBloomFilters;
+    }
+
     @Override
     public String toString()
     {
@@ -31,6 +31,7 @@ import com.facebook.presto.execution.FragmentResultCacheContext;
 import com.facebook.presto.execution.StageExecutionId;
 import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.execution.TaskMetadataContext;
+import com.facebook.presto.execution.buffer.ExchangeCompressionCodec;
 import com.facebook.presto.execution.buffer.OutputBuffer;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.execution.scheduler.ExecutionWriterTarget;
@@ -47,12 +48,14 @@ import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
 import com.facebook.presto.expressions.LogicalRowExpressions;
 import com.facebook.presto.index.IndexManager;
 import com.facebook.presto.memory.MemoryManagerConfig;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.metadata.AnalyzeTableHandle;
 import com.facebook.presto.metadata.ConnectorMetadataUpdaterManager;
 import com.facebook.presto.metadata.FunctionAndTypeManager;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.operator.AggregationOperator.AggregationOperatorFactory;
 import com.facebook.presto.operator.AssignUniqueIdOperator;
+import com.facebook.presto.operator.BlockedBloomFilter;
 import com.facebook.presto.operator.DeleteOperator.DeleteOperatorFactory;
 import com.facebook.presto.operator.DevNullOperator.DevNullOperatorFactory;
 import com.facebook.presto.operator.DriverFactory;
@@ -74,6 +77,9 @@ import com.facebook.presto.operator.LookupJoinOperators;
 import com.facebook.presto.operator.LookupOuterOperator.LookupOuterOperatorFactory;
 import com.facebook.presto.operator.LookupSourceFactory;
 import com.facebook.presto.operator.MarkDistinctOperator.MarkDistinctOperatorFactory;
+import com.facebook.presto.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import com.facebook.presto.operator.MergeJoinSource;
+import com.facebook.presto.operator.MergeJoinSourceOperator.MergeJoinSourceOperatorFactory;
 import com.facebook.presto.operator.MetadataDeleteOperator.MetadataDeleteOperatorFactory;
 import com.facebook.presto.operator.NestedLoopJoinBridge;
 import com.facebook.presto.operator.NestedLoopJoinPagesSupplier;
@@ -193,6 +199,7 @@ import com.facebook.presto.sql.planner.plan.IndexJoinNode;
 import com.facebook.presto.sql.planner.plan.IndexSourceNode;
 import com.facebook.presto.sql.planner.plan.InternalPlanVisitor;
 import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.MergeJoinNode;
 import com.facebook.presto.sql.planner.plan.MetadataDeleteNode;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
 import com.facebook.presto.sql.planner.plan.RowNumberNode;
@@ -254,9 +261,11 @@ import java.util.stream.IntStream;
 import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationRowsReductionRatioThreshold;
 import static com.facebook.presto.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringBloomFilterSize;
 import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxPerDriverRowCount;
 import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxPerDriverSize;
 import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringRangeRowLimitPerDriver;
+import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static com.facebook.presto.SystemSessionProperties.getIndexLoaderTimeout;
@@ -264,10 +273,12 @@ import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskPartitionedWriterCount;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
 import static com.facebook.presto.SystemSessionProperties.getTopNOperatorUnspillMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.isAdaptiveFilterReorderingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
 import static com.facebook.presto.SystemSessionProperties.isAggregationSpillEnabled;
 import static com.facebook.presto.SystemSessionProperties.isDistinctAggregationSpillEnabled;
 import static com.facebook.presto.SystemSessionProperties.isEnableDynamicFiltering;
+import static com.facebook.presto.SystemSessionProperties.isExchangeAdaptiveCompressionEnabled;
 import static com.facebook.presto.SystemSessionProperties.isExchangeChecksumEnabled;
 import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
 import static com.facebook.presto.SystemSessionProperties.isJoinSpillingEnabled;
@@ -280,6 +291,7 @@ import static com.facebook.presto.SystemSessionProperties.isQuickDistinctLimitEn
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
 import static com.facebook.presto.SystemSessionProperties.isTopNSpillEnabled;
 import static com.facebook.presto.SystemSessionProperties.isWindowSpillEnabled;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
 import static com.facebook.presto.common.type.TypeUtils.writeNativeValue;
@@ -314,6 +326,7 @@ import static com.facebook.presto.spi.plan.AggregationNode.Step.PARTIAL;
 import static com.facebook.presto.spi.plan.JoinDistributionType.REPLICATED;
 import static com.facebook.presto.spi.plan.JoinType.FULL;
 import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.spi.plan.JoinType.LEFT;
 import static com.facebook.presto.spi.plan.JoinType.RIGHT;
 import static com.facebook.presto.spi.plan.ProjectNode.Locality.LOCAL;
 import static com.facebook.presto.spi.plan.ProjectNode.Locality.REMOTE;
@@ -324,8 +337,10 @@ import static com.facebook.presto.sql.planner.RowExpressionInterpreter.rowExpres
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.COORDINATOR_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_PASSTHROUGH_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SCALED_WRITER_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
 import static com.facebook.presto.sql.planner.plan.AssignmentUtils.identityAssignments;
 import static com.facebook.presto.sql.relational.Expressions.constant;
 import static com.facebook.presto.sql.tree.SortItem.Ordering.ASCENDING;
@@ -347,11 +362,13 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.DiscreteDomain.integers;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Range.closedOpen;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.lang.String.format;
+import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.IntStream.range;
 
@@ -643,7 +660,11 @@ public class LocalExecutionPlanner
                                 outputTypes,
                                 pagePreprocessor,
                                 outputPartitioning,
-                                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), isExchangeChecksumEnabled(session))))
+                                new PagesSerdeFactory(
+                                        blockEncodingSerde,
+                                        isExchangeCompressionEnabled(session) ? getExchangeCompressionCodec(session) : ExchangeCompressionCodec.NONE,
+                                        isExchangeAdaptiveCompressionEnabled(session),
+                                        isExchangeChecksumEnabled(session))))
                         .build(),
                 context.getDriverInstanceCount(),
                 physicalOperation.getPipelineExecutionStrategy(),
@@ -761,6 +782,11 @@ public class LocalExecutionPlanner
             return taskContext.getSession();
         }
 
+        public TaskContext getTaskContext()
+        {
+            return taskContext;
+        }
+
         public StageExecutionId getStageExecutionId()
         {
             return taskContext.getTaskId().getStageExecutionId();
@@ -1301,7 +1327,9 @@ public class LocalExecutionPlanner
                     node.getLimit(),
                     hashChannel,
                     joinCompiler,
-                    node.getTimeoutMillis());
+                    node.getTimeoutMillis(),
+                    isDistinctAggregationSpillEnabled(context.getSession()),
+                    partitioningSpillerFactory);
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, source);
         }
 
@@ -1383,7 +1411,15 @@ public class LocalExecutionPlanner
 
             List<Integer> channels = getChannelsForVariables(node.getDistinctVariables(), source.getLayout());
             Optional<Integer> hashChannel = node.getHashVariable().map(variableChannelGetter(source));
-            MarkDistinctOperatorFactory operator = new MarkDistinctOperatorFactory(context.getNextOperatorId(), node.getId(), source.getTypes(), channels, hashChannel, joinCompiler);
+            MarkDistinctOperatorFactory operator = new MarkDistinctOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    source.getTypes(),
+                    channels,
+                    hashChannel,
+                    joinCompiler,
+                    isDistinctAggregationSpillEnabled(context.getSession()),
+                    partitioningSpillerFactory);
             return new PhysicalOperation(operator, makeLayout(node), context, source);
         }
 
@@ -1505,6 +1541,7 @@ public class LocalExecutionPlanner
 
             Optional<List<DynamicFilterPlaceholder>> dynamicFilters = extractDynamicFilterResult.map(DynamicFilterExtractResult::getDynamicConjuncts);
             Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier = Optional.empty();
+            Optional<Supplier<Map<Integer, BlockedBloomFilter>>> bloomFilterSupplier = Optional.empty();
             if (dynamicFilters.isPresent() && !dynamicFilters.get().isEmpty() && sourceNode instanceof TableScanNode) {
                 TableScanNode tableScanNode = (TableScanNode) sourceNode;
                 LocalDynamicFiltersCollector collector = context.getDynamicFiltersCollector();
@@ -1512,6 +1549,13 @@ public class LocalExecutionPlanner
                     TupleDomain<VariableReferenceExpression> predicate = collector.getPredicate();
                     return predicate.transform(tableScanNode.getAssignments()::get);
                 });
+                if (getDynamicFilteringBloomFilterSize(session).toBytes() > 0) {
+                    // the Bloom filters are applied to the scanned pages, whose layout is the source layout
+                    Map<VariableReferenceExpression, Integer> scanLayout = sourceLayout;
+                    bloomFilterSupplier = Optional.of(() -> collector.getBloomFilters().entrySet().stream()
+                            .filter(entry -> scanLayout.containsKey(entry.getKey()))
+                            .collect(toImmutableMap(entry -> scanLayout.get(entry.getKey()), Map.Entry::getValue, (left, right) -> left)));
+                }
             }
 
             // compiler uses inputs instead of variables, so rewrite the expressions first
@@ -1535,7 +1579,8 @@ public class LocalExecutionPlanner
                             projections,
                             isOptimizeCommonSubExpressions(session),
                             session.getSessionFunctions(),
-                            Optional.of(context.getStageExecutionId() + "_" + planNodeId));
+                            Optional.of(context.getStageExecutionId() + "_" + planNodeId),
+                            isAdaptiveFilterReorderingEnabled(session));
 
                     SourceOperatorFactory operatorFactory = new ScanFilterAndProjectOperatorFactory(
                             context.getNextOperatorId(),
@@ -1548,6 +1593,7 @@ public class LocalExecutionPlanner
                             columns,
                             projections.stream().map(RowExpression::getType).collect(toImmutableList()),
                             dynamicFilterSupplier,
+                            bloomFilterSupplier,
                             getFilterAndProjectMinOutputPageSize(session),
                             getFilterAndProjectMinOutputPageRowCount(session));
 
@@ -1560,7 +1606,8 @@ public class LocalExecutionPlanner
                             projections,
                             isOptimizeCommonSubExpressions(session),
                             session.getSessionFunctions(),
-                            Optional.of(context.getStageExecutionId() + "_" + planNodeId));
+                            Optional.of(context.getStageExecutionId() + "_" + planNodeId),
+                            isAdaptiveFilterReorderingEnabled(session));
 
                     OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(
                             context.getNextOperatorId(),
@@ -1957,6 +2004,175 @@ public class LocalExecutionPlanner
             }
         }
 
+        @Override
+        public PhysicalOperation visitMergeJoin(MergeJoinNode node, LocalExecutionPlanContext context)
+        {
+            checkArgument(node.getType() == INNER || node.getType() == LEFT, "Unsupported merge join type: %s", node.getType());
+            checkArgument(node.getType() == INNER || !node.getFilter().isPresent(), "Merge join filter is only supported for inner join");
+
+            List<VariableReferenceExpression> probeJoinVariables = Lists.transform(node.getCriteria(), EquiJoinClause::getLeft);
+            List<VariableReferenceExpression> buildJoinVariables = Lists.transform(node.getCriteria(), EquiJoinClause::getRight);
+
+            // Plan probe
+            PhysicalOperation probeSource = planSortedStream(node.getLeft(), probeJoinVariables, node.getId(), context);
+
+            // Plan build
+            LocalExecutionPlanContext buildContext = context.createSubContext();
+            PhysicalOperation buildSource = planSortedStream(node.getRight(), buildJoinVariables, node.getId(), buildContext);
+            checkState(
+                    probeSource.getPipelineExecutionStrategy() == buildSource.getPipelineExecutionStrategy(),
+                    "Both sides of a merge join are expected to have the same pipeline execution strategy");
+
+            List<Integer> probeJoinChannels = ImmutableList.copyOf(getChannelsForVariables(probeJoinVariables, probeSource.getLayout()));
+            List<Integer> buildJoinChannels = ImmutableList.copyOf(getChannelsForVariables(buildJoinVariables, buildSource.getLayout()));
+
+            // the join filter is evaluated on top of the join, so it needs all the columns of both sides
+            List<VariableReferenceExpression> joinOutputVariables = node.getFilter().isPresent() ?
+                    ImmutableList.<VariableReferenceExpression>builder()
+                            .addAll(node.getLeft().getOutputVariables())
+                            .addAll(node.getRight().getOutputVariables())
+                            .build() :
+                    node.getOutputVariables();
+            List<VariableReferenceExpression> probeOutputVariables = joinOutputVariables.stream()
+                    .filter(node.getLeft().getOutputVariables()::contains)
+                    .collect(toImmutableList());
+            List<VariableReferenceExpression> buildOutputVariables = joinOutputVariables.stream()
+                    .filter(node.getRight().getOutputVariables()::contains)
+                    .collect(toImmutableList());
+
+            boolean spillEnabled = isSpillEnabled(context.getSession()) && isJoinSpillingEnabled(context.getSession());
+            JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager = new JoinBridgeManager<>(
+                    false,
+                    probeSource.getPipelineExecutionStrategy(),
+                    buildSource.getPipelineExecutionStrategy(),
+                    MergeJoinSource::new,
+                    buildSource.getTypes());
+
+            context.addDriverFactory(
+                    buildContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(buildSource.getOperatorFactories())
+                            .add(new MergeJoinSourceOperatorFactory(buildContext.getNextOperatorId(), node.getId(), mergeJoinSourceManager))
+                            .build(),
+                    buildContext.getDriverInstanceCount(),
+                    buildSource.getPipelineExecutionStrategy(),
+                    Optional.empty());
+
+            OperatorFactory operatorFactory = new MergeJoinOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    mergeJoinSourceManager,
+                    node.getType(),
+                    probeSource.getTypes(),
+                    probeJoinChannels,
+                    ImmutableList.copyOf(getChannelsForVariables(probeOutputVariables, probeSource.getLayout())),
+                    buildSource.getTypes(),
+                    buildJoinChannels,
+                    ImmutableList.copyOf(getChannelsForVariables(buildOutputVariables, buildSource.getLayout())),
+                    spillEnabled,
+                    Optional.of(singleStreamSpillerFactory));
+
+            ImmutableMap.Builder<VariableReferenceExpression, Integer> outputMappings = ImmutableMap.builder();
+            List<VariableReferenceExpression> outputVariables = ImmutableList.<VariableReferenceExpression>builder()
+                    .addAll(probeOutputVariables)
+                    .addAll(buildOutputVariables)
+                    .build();
+            for (int i = 0; i < outputVariables.size(); i++) {
+                outputMappings.put(outputVariables.get(i), i);
+            }
+            PhysicalOperation mergeJoin = new PhysicalOperation(operatorFactory, outputMappings.build(), context, probeSource);
+
+            if (!node.getFilter().isPresent()) {
+                return mergeJoin;
+            }
+
+            RowExpression filterExpression = bindChannels(node.getFilter().get(), mergeJoin.getLayout());
+            List<RowExpression> projections = node.getOutputVariables().stream()
+                    .map(variable -> bindChannels(variable, mergeJoin.getLayout()))
+                    .collect(toImmutableList());
+            Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(
+                    session.getSqlFunctionProperties(),
+                    Optional.of(filterExpression),
+                    projections,
+                    isOptimizeCommonSubExpressions(session),
+                    session.getSessionFunctions(),
+                    Optional.of(context.getStageExecutionId() + "_" + node.getId()),
+                    isAdaptiveFilterReorderingEnabled(session));
+            OperatorFactory filterOperatorFactory = new FilterAndProjectOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    pageProcessor,
+                    projections.stream().map(RowExpression::getType).collect(toImmutableList()),
+                    getFilterAndProjectMinOutputPageSize(session),
+                    getFilterAndProjectMinOutputPageRowCount(session));
+
+            ImmutableMap.Builder<VariableReferenceExpression, Integer> filteredOutputMappings = ImmutableMap.builder();
+            for (int i = 0; i < node.getOutputVariables().size(); i++) {
+                filteredOutputMappings.put(node.getOutputVariables().get(i), i);
+            }
+            return new PhysicalOperation(filterOperatorFactory, filteredOutputMappings.build(), context, mergeJoin);
+        }
+
+        /**
+         * The merge join operators expect each side as a single stream sorted on the join keys. A side that
+         * scans sorted bucketed splits is fed straight into the join, as every split of a lifespan is read by
+         * its own driver and is already sorted. A side that runs with several drivers behind a local exchange
+         * produces one sorted run per driver, so the runs are merged on the join keys into a single driver.
+         */
+        private PhysicalOperation planSortedStream(PlanNode node, List<VariableReferenceExpression> sortVariables, PlanNodeId planNodeId, LocalExecutionPlanContext context)
+        {
+            if (!searchFrom(node).where(planNode -> planNode instanceof ExchangeNode || planNode instanceof RemoteSourceNode).matches()) {
+                return node.accept(this, context);
+            }
+
+            // local merge source must have a single driver
+            context.setDriverInstanceCount(1);
+
+            LocalExecutionPlanContext subContext = context.createSubContext();
+            PhysicalOperation source = node.accept(this, subContext);
+            checkState(!subContext.isInputDriver() || subContext.getDriverInstanceCount().isPresent(), "Merge join side with an unknown number of drivers cannot be merged");
+
+            LocalExchangeFactory exchangeFactory = new LocalExchangeFactory(
+                    partitioningProviderManager,
+                    session,
+                    FIXED_PASSTHROUGH_DISTRIBUTION,
+                    subContext.getDriverInstanceCount().orElse(1),
+                    source.getTypes(),
+                    ImmutableList.of(),
+                    Optional.empty(),
+                    source.getPipelineExecutionStrategy(),
+                    maxLocalExchangeBufferSize);
+            context.addDriverFactory(
+                    subContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(source.getOperatorFactories())
+                            .add(new LocalExchangeSinkOperatorFactory(
+                                    exchangeFactory,
+                                    subContext.getNextOperatorId(),
+                                    planNodeId,
+                                    exchangeFactory.newSinkFactoryId(),
+                                    Function.identity()))
+                            .build(),
+                    subContext.getDriverInstanceCount(),
+                    source.getPipelineExecutionStrategy(),
+                    Optional.empty());
+            // the main driver is not an input... the exchange sources are the input for the plan
+            context.setInputDriver(false);
+
+            List<Integer> sortChannels = getChannelsForVariables(sortVariables, source.getLayout());
+            OperatorFactory operatorFactory = new LocalMergeSourceOperatorFactory(
+                    context.getNextOperatorId(),
+                    planNodeId,
+                    exchangeFactory,
+                    source.getTypes(),
+                    orderingCompiler,
+                    sortChannels,
+                    nCopies(sortChannels.size(), ASC_NULLS_FIRST));
+            return new PhysicalOperation(operatorFactory, source.getLayout(), context, source.getPipelineExecutionStrategy());
+        }
+
         @Override
         public PhysicalOperation visitSpatialJoin(SpatialJoinNode node, LocalExecutionPlanContext context)
         {
@@ -2483,7 +2699,9 @@ public class LocalExecutionPlanner
                     filterBuildChannels,
                     getDynamicFilteringMaxPerDriverRowCount(context.getSession()),
                     getDynamicFilteringMaxPerDriverSize(context.getSession()),
-                    getDynamicFilteringRangeRowLimitPerDriver(context.getSession()));
+                    getDynamicFilteringRangeRowLimitPerDriver(context.getSession()),
+                    dynamicFilter.getBloomFilterConsumer(),
+                    getDynamicFilteringBloomFilterSize(context.getSession()));
         }
 
         private Optional<LocalDynamicFilter> createDynamicFilter(PhysicalOperation buildSource, AbstractJoinNode node, LocalExecutionPlanContext context, int partitionCount)
@@ -2498,12 +2716,17 @@ public class LocalExecutionPlanner
                 throw new PrestoException(NOT_SUPPORTED, "Dynamic filtering cannot be used with grouped execution");
             }
             LocalDynamicFiltersCollector collector = context.getDynamicFiltersCollector();
+            // the merged Bloom filters are held by the collector until the task is done
+            LocalMemoryContext bloomFilterMemoryContext = context.getTaskContext().getTaskMemoryContext()
+                    .aggregateUserMemoryContext()
+                    .newLocalMemoryContext(LocalDynamicFilter.class.getSimpleName());
             return LocalDynamicFilter
-                    .create(node, partitionCount)
+                    .create(node, partitionCount, bloomFilterMemoryContext)
                     .map(filter -> {
                         // Intersect dynamic filters' predicates when they become ready,
                         // in order to support multiple join nodes in the same plan fragment.
                         addSuccessCallback(filter.getResultFuture(), collector::intersect);
+                        addSuccessCallback(filter.getBloomFilterResultFuture(), collector::addBloomFilters);
                         return filter;
                     });
         }
@@ -2642,6 +2865,7 @@ public class LocalExecutionPlanner
             Optional<Integer> buildHashChannel = node.getFilteringSourceHashVariable().map(variableChannelGetter(buildSource));
             Optional<Integer> probeHashChannel = node.getSourceHashVariable().map(variableChannelGetter(probeSource));
 
+            boolean spillEnabled = isSpillEnabled(context.getSession()) && isJoinSpillingEnabled(context.getSession()) && buildSource.getPipelineExecutionStrategy() == UNGROUPED_EXECUTION;
             SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(
                     buildContext.getNextOperatorId(),
                     node.getId(),
@@ -2649,7 +2873,9 @@ public class LocalExecutionPlanner
                     buildChannel,
                     buildHashChannel,
                     10_000,
-                    joinCompiler);
+                    joinCompiler,
+                    spillEnabled,
+                    partitioningSpillerFactory);
 
             ImmutableList.Builder<OperatorFactory> factoriesBuilder = ImmutableList.builder();
             factoriesBuilder.addAll(buildSource.getOperatorFactories());
@@ -2676,7 +2902,14 @@ public class LocalExecutionPlanner
                     .put(node.getSemiJoinOutput(), probeSource.getLayout().size())
                     .build();
 
-            HashSemiJoinOperatorFactory operator = new HashSemiJoinOperatorFactory(context.getNextOperatorId(), node.getId(), setProvider, probeSource.getTypes(), probeChannel, probeHashChannel);
+            HashSemiJoinOperatorFactory operator = new HashSemiJoinOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    setProvider,
+                    probeSource.getTypes(),
+                    probeChannel,
+                    probeHashChannel,
+                    partitioningSpillerFactory);
             return new PhysicalOperation(operator, outputMappings, context, probeSource);
         }
 
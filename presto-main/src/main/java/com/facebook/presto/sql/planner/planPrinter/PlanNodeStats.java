@@ -49,6 +49,8 @@ public class PlanNodeStats
     private final long planNodeJoinBuildKeyCount;
     private final long planNodeNullJoinProbeKeyCount;
     private final long planNodeJoinProbeKeyCount;
+    private final DataSize planNodeAllocation;
+    private final Map<String, Long> planNodeStackSamples;
 
     PlanNodeStats(
             PlanNodeId planNodeId,
@@ -64,7 +66,9 @@ public class PlanNodeStats
             long planNodeNullJoinBuildKeyCount,
             long planNodeJoinBuildKeyCount,
             long planNodeNullJoinProbeKeyCount,
-            long planNodeJoinProbeKeyCount)
+            long planNodeJoinProbeKeyCount,
+            DataSize planNodeAllocation,
+            Map<String, Long> planNodeStackSamples)
     {
         this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
 
@@ -82,6 +86,8 @@ public class PlanNodeStats
         this.planNodeJoinBuildKeyCount = planNodeJoinBuildKeyCount;
         this.planNodeNullJoinProbeKeyCount = planNodeNullJoinProbeKeyCount;
         this.planNodeJoinProbeKeyCount = planNodeJoinProbeKeyCount;
+        this.planNodeAllocation = requireNonNull(planNodeAllocation, "planNodeAllocation is null");
+        this.planNodeStackSamples = requireNonNull(planNodeStackSamples, "planNodeStackSamples is null");
     }
 
     private static double computedStdDev(double sumSquared, double sum, long n)
@@ -181,6 +187,20 @@ public class PlanNodeStats
         return planNodeJoinProbeKeyCount;
     }
 
+    public DataSize getPlanNodeAllocation()
+    {
+        return planNodeAllocation;
+    }
+
+    /**
+     * Number of stack samples taken while the operators of the plan node ran, by sampled frame.
+     * Samples are only taken for queries with operator profiling enabled.
+     */
+    public Map<String, Long> getPlanNodeStackSamples()
+    {
+        return planNodeStackSamples;
+    }
+
     @Override
     public PlanNodeStats mergeWith(PlanNodeStats other)
     {
@@ -198,6 +218,8 @@ public class PlanNodeStats
         long planNodeJoinBuildKeyCount = this.planNodeJoinBuildKeyCount + other.planNodeJoinBuildKeyCount;
         long planNodeNullJoinProbeKeyCount = this.planNodeNullJoinProbeKeyCount + other.planNodeNullJoinProbeKeyCount;
         long planNodeJoinProbeKeyCount = this.planNodeJoinProbeKeyCount + other.planNodeJoinProbeKeyCount;
+        DataSize planNodeAllocation = succinctBytes(this.planNodeAllocation.toBytes() + other.planNodeAllocation.toBytes());
+        Map<String, Long> planNodeStackSamples = mergeMaps(this.planNodeStackSamples, other.planNodeStackSamples, Long::sum);
 
         return new PlanNodeStats(
                 planNodeId,
@@ -210,6 +232,8 @@ public class PlanNodeStats
                 planNodeNullJoinBuildKeyCount,
                 planNodeJoinBuildKeyCount,
                 planNodeNullJoinProbeKeyCount,
-                planNodeJoinProbeKeyCount);
+                planNodeJoinProbeKeyCount,
+                planNodeAllocation,
+                planNodeStackSamples);
     }
 }
@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.sql.planner.planPrinter;
 
+import com.facebook.presto.common.RuntimeMetric;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.operator.HashCollisionsInfo;
@@ -31,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.facebook.presto.common.RuntimeMetricName.STACK_SAMPLE_METRIC_PREFIX;
 import static com.facebook.presto.util.MoreMaps.mergeMaps;
 import static com.google.common.collect.Iterables.getLast;
 import static com.google.common.collect.Lists.reverse;
@@ -84,6 +87,8 @@ public class PlanNodeStatsSummarizer
         Map<PlanNodeId, Long> planNodeJoinBuildKeyCount = new HashMap<>();
         Map<PlanNodeId, Long> planNodeNullJoinProbeKeyCount = new HashMap<>();
         Map<PlanNodeId, Long> planNodeJoinProbeKeyCount = new HashMap<>();
+        Map<PlanNodeId, Long> planNodeAllocationBytes = new HashMap<>();
+        Map<PlanNodeId, Map<String, Long>> planNodeStackSamples = new HashMap<>();
 
         Map<PlanNodeId, Map<String, OperatorInputStats>> operatorInputStats = new HashMap<>();
         Map<PlanNodeId, Map<String, OperatorHashCollisionsStats>> operatorHashCollisionsStats = new HashMap<>();
@@ -112,6 +117,14 @@ public class PlanNodeStatsSummarizer
                 long cpuMillis = operatorStats.getAddInputCpu().toMillis() + operatorStats.getGetOutputCpu().toMillis() + operatorStats.getFinishCpu().toMillis();
                 planNodeCpuMillis.merge(planNodeId, cpuMillis, Long::sum);
 
+                long allocationBytes = operatorStats.getAddInputAllocation().toBytes() + operatorStats.getGetOutputAllocation().toBytes() + operatorStats.getFinishAllocation().toBytes();
+                planNodeAllocationBytes.merge(planNodeId, allocationBytes, Long::sum);
+
+                Map<String, Long> stackSamples = getStackSamples(operatorStats.getRuntimeStats());
+                if (!stackSamples.isEmpty()) {
+                    planNodeStackSamples.merge(planNodeId, stackSamples, (map1, map2) -> mergeMaps(map1, map2, Long::sum));
+                }
+
                 // A pipeline like hash build before join might link to another "internal" pipelines which provide actual input for this plan node
                 if (operatorStats.getPlanNodeId().equals(inputPlanNode) && !pipelineStats.isInputPipeline()) {
                     continue;
@@ -218,6 +231,8 @@ public class PlanNodeStatsSummarizer
                         planNodeJoinBuildKeyCount.get(planNodeId),
                         planNodeNullJoinProbeKeyCount.get(planNodeId),
                         planNodeJoinProbeKeyCount.get(planNodeId),
+                        succinctDataSize(planNodeAllocationBytes.get(planNodeId), BYTE),
+                        planNodeStackSamples.getOrDefault(planNodeId, ImmutableMap.of()),
                         operatorHashCollisionsStats.get(planNodeId));
             }
             else if (windowNodeStats.containsKey(planNodeId)) {
@@ -236,6 +251,8 @@ public class PlanNodeStatsSummarizer
                         planNodeJoinBuildKeyCount.get(planNodeId),
                         planNodeNullJoinProbeKeyCount.get(planNodeId),
                         planNodeJoinProbeKeyCount.get(planNodeId),
+                        succinctDataSize(planNodeAllocationBytes.get(planNodeId), BYTE),
+                        planNodeStackSamples.getOrDefault(planNodeId, ImmutableMap.of()),
                         windowNodeStats.get(planNodeId));
             }
             else {
@@ -253,11 +270,24 @@ public class PlanNodeStatsSummarizer
                         planNodeNullJoinBuildKeyCount.get(planNodeId),
                         planNodeJoinBuildKeyCount.get(planNodeId),
                         planNodeNullJoinProbeKeyCount.get(planNodeId),
-                        planNodeJoinProbeKeyCount.get(planNodeId));
+                        planNodeJoinProbeKeyCount.get(planNodeId),
+                        succinctDataSize(planNodeAllocationBytes.get(planNodeId), BYTE),
+                        planNodeStackSamples.getOrDefault(planNodeId, ImmutableMap.of()));
             }
 
             stats.add(nodeStats);
         }
         return stats;
     }
+
+    private static Map<String, Long> getStackSamples(RuntimeStats runtimeStats)
+    {
+        ImmutableMap.Builder<String, Long> stackSamples = ImmutableMap.builder();
+        for (Map.Entry<String, RuntimeMetric> entry : runtimeStats.getMetrics().entrySet()) {
+            if (entry.getKey().startsWith(STACK_SAMPLE_METRIC_PREFIX)) {
+                stackSamples.put(entry.getKey().substring(STACK_SAMPLE_METRIC_PREFIX.length()), entry.getValue().getSum());
+            }
+        }
+        return stackSamples.build();
+    }
 }
@@ -41,6 +41,9 @@ import static java.util.stream.Collectors.toList;
 public class TextRenderer
         implements Renderer<String>
 {
+    private static final int MAX_STACK_FRAMES = 5;
+    private static final int MAX_VERBOSE_STACK_FRAMES = 20;
+
     private final boolean verbose;
     private final int level;
     private final boolean verboseOptimizerInfo;
@@ -134,6 +137,12 @@ public class TextRenderer
 
         output.append(format(", Output: %s (%s)%n", formatPositions(nodeStats.getPlanNodeOutputPositions()), nodeStats.getPlanNodeOutputDataSize().toString()));
 
+        if (nodeStats.getPlanNodeAllocation().toBytes() > 0) {
+            output.append(format("Allocated: %s%n", nodeStats.getPlanNodeAllocation()));
+        }
+
+        printStackSamples(output, nodeStats.getPlanNodeStackSamples());
+
         printDistributions(output, nodeStats);
 
         if (nodeStats instanceof WindowPlanNodeStats) {
@@ -143,6 +152,22 @@ public class TextRenderer
         return output.toString();
     }
 
+    private void printStackSamples(StringBuilder output, Map<String, Long> stackSamples)
+    {
+        if (stackSamples.isEmpty()) {
+            return;
+        }
+
+        long totalSamples = stackSamples.values().stream()
+                .mapToLong(Long::longValue)
+                .sum();
+        output.append(format(Locale.US, "Top frames (%,d samples):%n", totalSamples));
+        stackSamples.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(verbose ? MAX_VERBOSE_STACK_FRAMES : MAX_STACK_FRAMES)
+                .forEach(entry -> output.append(format("%s%s (%s%%)%n", indentString(1), entry.getKey(), formatDouble(100.0d * entry.getValue() / totalSamples))));
+    }
+
     private void printDistributions(StringBuilder output, PlanNodeStats stats)
     {
         Map<String, Double> inputAverages = stats.getOperatorInputPositionsAverages();
@@ -41,10 +41,13 @@ public class WindowPlanNodeStats
             long planNodeJoinBuildKeyCount,
             long planNodeNullJoinProbeKeyCount,
             long planNodeJoinProbeKeyCount,
+            DataSize planNodeAllocation,
+            Map<String, Long> planNodeStackSamples,
             WindowOperatorStats windowOperatorStats)
     {
         super(planNodeId, planNodeScheduledTime, planNodeCpuTime, planNodeInputPositions, planNodeInputDataSize, planNodeRawInputPositions, planNodeRawInputDataSize,
-                planNodeOutputPositions, planNodeOutputDataSize, operatorInputStats, planNodeNullJoinBuildKeyCount, planNodeJoinBuildKeyCount, planNodeNullJoinProbeKeyCount, planNodeJoinProbeKeyCount);
+                planNodeOutputPositions, planNodeOutputDataSize, operatorInputStats, planNodeNullJoinBuildKeyCount, planNodeJoinBuildKeyCount, planNodeNullJoinProbeKeyCount, planNodeJoinProbeKeyCount,
+                planNodeAllocation, planNodeStackSamples);
         this.windowOperatorStats = windowOperatorStats;
     }
 
@@ -74,6 +77,8 @@ public class WindowPlanNodeStats
                 merged.getPlanNodeJoinBuildKeyCount(),
                 merged.getPlanNodeNullJoinProbeKeyCount(),
                 merged.getPlanNodeJoinProbeKeyCount(),
+                merged.getPlanNodeAllocation(),
+                merged.getPlanNodeStackSamples(),
                 windowOperatorStats);
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.execution.OperatorStackSampler.getSampledFrame;
+import static org.testng.Assert.assertEquals;
+
+public class TestOperatorStackSampler
+{
+    @Test
+    public void testSampledFrame()
+    {
+        assertEquals(getSampledFrame(new StackTraceElement[0]), Optional.empty());
+
+        // the innermost frame outside of the JDK is sampled
+        assertEquals(
+                getSampledFrame(new StackTraceElement[] {
+                        frame("java.util.Arrays", "fill"),
+                        frame("sun.misc.Unsafe", "copyMemory"),
+                        frame("com.facebook.presto.operator.HashAggregationOperator", "addInput"),
+                        frame("com.facebook.presto.operator.Driver", "processInternal")}),
+                Optional.of("com.facebook.presto.operator.HashAggregationOperator.addInput"));
+
+        // stacks with only JDK frames fall back to the innermost frame
+        assertEquals(
+                getSampledFrame(new StackTraceElement[] {
+                        frame("java.lang.Object", "wait"),
+                        frame("java.lang.Thread", "run")}),
+                Optional.of("java.lang.Object.wait"));
+    }
+
+    @Test
+    public void testNoTasks()
+    {
+        OperatorStackSampler sampler = new OperatorStackSampler(ImmutableList::of, 10);
+        sampler.refreshProfiledTasks();
+        sampler.sample();
+        assertEquals(sampler.getSamples().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testSampleSkipsTaskLookup()
+    {
+        AtomicInteger lookups = new AtomicInteger();
+        OperatorStackSampler sampler = new OperatorStackSampler(() -> {
+            lookups.incrementAndGet();
+            return ImmutableList.of();
+        }, 10);
+
+        // tasks are only looked up on refresh, sampling without profiled tasks returns right away
+        sampler.sample();
+        assertEquals(lookups.get(), 0);
+        sampler.refreshProfiledTasks();
+        sampler.sample();
+        assertEquals(lookups.get(), 1);
+        assertEquals(sampler.getSamples().getTotalCount(), 0);
+    }
+
+    private static StackTraceElement frame(String className, String methodName)
+    {
+        return new StackTraceElement(className, methodName, null, -1);
+    }
+}
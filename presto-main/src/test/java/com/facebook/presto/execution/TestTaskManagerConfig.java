@@ -46,6 +46,7 @@ public class TestTaskManagerConfig
                 .setTaskCpuTimerEnabled(true)
                 .setPerOperatorAllocationTrackingEnabled(false)
                 .setTaskAllocationTrackingEnabled(false)
+                .setOperatorStackSamplingInterval(new Duration(10, TimeUnit.MILLISECONDS))
                 .setMaxWorkerThreads(Runtime.getRuntime().availableProcessors() * 2)
                 .setMinDrivers(Runtime.getRuntime().availableProcessors() * 2 * 2)
                 .setMinDriversPerTask(3)
@@ -93,6 +94,7 @@ public class TestTaskManagerConfig
                 .put("task.cpu-timer-enabled", "false")
                 .put("task.per-operator-allocation-tracking-enabled", "true")
                 .put("task.allocation-tracking-enabled", "true")
+                .put("task.operator-stack-sampling-interval", "50ms")
                 .put("task.max-index-memory", "512MB")
                 .put("task.share-index-loading", "true")
                 .put("task.max-partial-aggregation-memory", "32MB")
@@ -137,6 +139,7 @@ public class TestTaskManagerConfig
                 .setTaskCpuTimerEnabled(false)
                 .setPerOperatorAllocationTrackingEnabled(true)
                 .setTaskAllocationTrackingEnabled(true)
+                .setOperatorStackSamplingInterval(new Duration(50, TimeUnit.MILLISECONDS))
                 .setMaxIndexMemoryUsage(new DataSize(512, Unit.MEGABYTE))
                 .setShareIndexLoading(true)
                 .setMaxPartialAggregationMemoryUsage(new DataSize(32, Unit.MEGABYTE))
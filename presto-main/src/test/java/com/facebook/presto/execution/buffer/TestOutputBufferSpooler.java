@@ -0,0 +1,277 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.BigintType;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.execution.QueryIdGenerator;
+import com.facebook.presto.execution.StateMachine;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.memory.context.SimpleLocalMemoryContext;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.buffer.BufferState.OPEN;
+import static com.facebook.presto.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.MAX_WAIT;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.addPage;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.assertBufferResultEquals;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.createBufferResult;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.createPage;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.getBufferResult;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.sizeOfPages;
+import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.ARBITRARY;
+import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestOutputBufferSpooler
+{
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+
+    private static final DataSize THRESHOLD = sizeOfPages(3);
+    private static final DataSize MAX_BUFFER_SIZE = sizeOfPages(10);
+    private static final List<BigintType> TYPES = ImmutableList.of(BIGINT);
+    private static final OutputBufferId FIRST = new OutputBufferId(0);
+    private static final OutputBufferId SECOND = new OutputBufferId(1);
+
+    private static final QueryIdGenerator queryIdGenerator = new QueryIdGenerator();
+
+    private SpoolingOutputBufferFactory spoolingOutputBufferFactory;
+    private ScheduledExecutorService stateNotificationExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        stateNotificationExecutor = newScheduledThreadPool(5, daemonThreadsNamed("test-%s"));
+
+        FeaturesConfig featuresConfig = new FeaturesConfig()
+                .setSpoolingOutputBufferThreshold(THRESHOLD)
+                .setPartitionedSpoolingOutputBufferEnabled(true);
+        spoolingOutputBufferFactory = new SpoolingOutputBufferFactory(featuresConfig);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        if (stateNotificationExecutor != null) {
+            stateNotificationExecutor.shutdownNow();
+            stateNotificationExecutor = null;
+        }
+        spoolingOutputBufferFactory.shutdown();
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        SpoolingOutputBufferFactory factory = new SpoolingOutputBufferFactory(new FeaturesConfig());
+        try {
+            assertFalse(factory.createOutputBufferSpooler(new TaskId(queryIdGenerator.createNextQueryId().toString(), 0, 0, 0, 0)).isPresent());
+        }
+        finally {
+            try {
+                factory.shutdown();
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    public void testPartitionedSkewedPartition()
+    {
+        PartitionedOutputBuffer buffer = createPartitionedBuffer();
+
+        // twenty pages would block a non spooling buffer twice over
+        for (int i = 0; i < 20; i++) {
+            addPage(buffer, createPage(i), 0);
+        }
+        addPage(buffer, createPage(100), 1);
+        assertTrue(buffer.getMemoryManager().getBufferedBytes() < THRESHOLD.toBytes());
+        assertEquals(buffer.getInfo().getTotalBufferedPages(), 21);
+
+        buffer.setNoMorePages();
+
+        assertEquals(readAll(buffer, SECOND), 1);
+        assertPagesInOrder(buffer, FIRST, 20);
+
+        buffer.abort(FIRST);
+        buffer.abort(SECOND);
+        assertTrue(buffer.isFinished());
+        assertEquals(buffer.getMemoryManager().getBufferedBytes(), 0);
+    }
+
+    @Test
+    public void testPartitionedInterleavedReads()
+    {
+        PartitionedOutputBuffer buffer = createPartitionedBuffer();
+
+        int added = 0;
+        long sequenceId = 0;
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 4; i++) {
+                addPage(buffer, createPage(added++), 0);
+            }
+            BufferResult result = getNonEmptyResult(buffer, FIRST, sequenceId, sizeOfPages(2));
+            assertBufferResultEquals(TYPES, result, bufferResult(sequenceId, result.getSerializedPages().size()));
+            sequenceId = result.getNextToken();
+        }
+        buffer.setNoMorePages();
+
+        while (true) {
+            BufferResult result = getNonEmptyResult(buffer, FIRST, sequenceId, sizeOfPages(3));
+            if (result.isBufferComplete()) {
+                break;
+            }
+            assertBufferResultEquals(TYPES, result, bufferResult(sequenceId, result.getSerializedPages().size()));
+            sequenceId = result.getNextToken();
+        }
+        assertEquals(sequenceId, added);
+    }
+
+    @Test
+    public void testPartitionedDestroyWithSpilledPages()
+    {
+        PartitionedOutputBuffer buffer = createPartitionedBuffer();
+
+        for (int i = 0; i < 20; i++) {
+            buffer.enqueue(Lifespan.driverGroup(1), 0, ImmutableList.of(BufferTestUtils.PAGES_SERDE.serialize(createPage(i))));
+        }
+        buffer.setNoMorePagesForLifespan(Lifespan.driverGroup(1));
+        assertFalse(buffer.isFinishedForLifespan(Lifespan.driverGroup(1)));
+
+        buffer.destroy();
+        assertTrue(buffer.isFinished());
+        assertTrue(buffer.isFinishedForLifespan(Lifespan.driverGroup(1)));
+        assertEquals(buffer.getMemoryManager().getBufferedBytes(), 0);
+    }
+
+    @Test
+    public void testArbitrary()
+    {
+        ArbitraryOutputBuffer buffer = new ArbitraryOutputBuffer(
+                TASK_INSTANCE_ID,
+                new StateMachine<>("bufferState", stateNotificationExecutor, OPEN, TERMINAL_BUFFER_STATES),
+                MAX_BUFFER_SIZE,
+                () -> new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
+                stateNotificationExecutor,
+                createSpooler());
+        buffer.registerLifespanCompletionCallback(ignore -> {});
+
+        // no readers yet, all pages stay in the master buffer
+        for (int i = 0; i < 20; i++) {
+            addPage(buffer, createPage(i));
+        }
+        assertTrue(buffer.getMemoryManager().getBufferedBytes() < THRESHOLD.toBytes());
+
+        buffer.setOutputBuffers(createInitialEmptyOutputBuffers(ARBITRARY).withBuffer(FIRST, 0).withNoMoreBufferIds());
+        buffer.setNoMorePages();
+
+        assertPagesInOrder(buffer, FIRST, 20);
+        buffer.abort(FIRST);
+        assertTrue(buffer.isFinished());
+    }
+
+    private static void assertPagesInOrder(OutputBuffer buffer, OutputBufferId bufferId, int expectedPages)
+    {
+        long sequenceId = 0;
+        while (true) {
+            BufferResult result = getNonEmptyResult(buffer, bufferId, sequenceId, sizeOfPages(3));
+            if (result.isBufferComplete()) {
+                break;
+            }
+            assertBufferResultEquals(TYPES, result, bufferResult(sequenceId, result.getSerializedPages().size()));
+            sequenceId = result.getNextToken();
+        }
+        assertEquals(sequenceId, expectedPages);
+    }
+
+    private static int readAll(OutputBuffer buffer, OutputBufferId bufferId)
+    {
+        long sequenceId = 0;
+        while (true) {
+            BufferResult result = getNonEmptyResult(buffer, bufferId, sequenceId, sizeOfPages(3));
+            if (result.isBufferComplete()) {
+                return (int) sequenceId;
+            }
+            sequenceId = result.getNextToken();
+        }
+    }
+
+    /**
+     * Spilled pages are read back asynchronously, so a read can complete empty while the pages are loaded.
+     */
+    private static BufferResult getNonEmptyResult(OutputBuffer buffer, OutputBufferId bufferId, long sequenceId, DataSize maxSize)
+    {
+        for (int attempt = 0; attempt < 10; attempt++) {
+            BufferResult result = getBufferResult(buffer, bufferId, sequenceId, maxSize, MAX_WAIT);
+            if (!result.isEmpty() || result.isBufferComplete()) {
+                return result;
+            }
+        }
+        throw new AssertionError("No pages returned for sequence id " + sequenceId);
+    }
+
+    private PartitionedOutputBuffer createPartitionedBuffer()
+    {
+        PartitionedOutputBuffer buffer = new PartitionedOutputBuffer(
+                TASK_INSTANCE_ID,
+                new StateMachine<>("bufferState", stateNotificationExecutor, OPEN, TERMINAL_BUFFER_STATES),
+                createInitialEmptyOutputBuffers(PARTITIONED)
+                        .withBuffer(FIRST, 0)
+                        .withBuffer(SECOND, 1)
+                        .withNoMoreBufferIds(),
+                MAX_BUFFER_SIZE,
+                () -> new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test"),
+                stateNotificationExecutor,
+                createSpooler());
+        buffer.registerLifespanCompletionCallback(ignore -> {});
+        return buffer;
+    }
+
+    private Optional<OutputBufferSpooler> createSpooler()
+    {
+        Optional<OutputBufferSpooler> spooler = spoolingOutputBufferFactory.createOutputBufferSpooler(new TaskId(queryIdGenerator.createNextQueryId().toString(), 0, 0, 0, 0));
+        assertTrue(spooler.isPresent());
+        return spooler;
+    }
+
+    private static BufferResult bufferResult(long token, int pageCount)
+    {
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int i = 0; i < pageCount; i++) {
+            pages.add(createPage((int) token + i));
+        }
+        return createBufferResult(TASK_INSTANCE_ID, token, pages.build());
+    }
+}
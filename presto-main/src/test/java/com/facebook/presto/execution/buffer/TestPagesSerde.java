@@ -16,23 +16,35 @@ package com.facebook.presto.execution.buffer;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.BlockEncodingManager;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.spi.page.PageCompressor;
+import com.facebook.presto.spi.page.PageDecompressor;
 import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
 import com.google.common.collect.ImmutableList;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
 import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.Slice;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 import java.util.UUID;
 import java.util.stream.LongStream;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.readPages;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writePages;
+import static io.airlift.slice.Slices.wrappedBuffer;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -138,6 +150,142 @@ public class TestPagesSerde
         assertTrue(actualSize < expectedMaxSize, "Expected round trip size difference less than 20% of original page");
     }
 
+    @Test
+    public void testCompressionCodecs()
+    {
+        Page page = createCompressiblePage();
+        List<Type> types = ImmutableList.of(VARCHAR);
+        for (ExchangeCompressionCodec codec : ExchangeCompressionCodec.values()) {
+            SerializedPage serializedPage = new PagesSerdeFactory(new BlockEncodingManager(), codec, false, false).createPagesSerde().serialize(page);
+            assertEquals(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()), codec != ExchangeCompressionCodec.NONE);
+            assertEquals(ExchangeCompressionCodec.fromPageCodecMarkers(serializedPage.getPageCodecMarkers()), codec == ExchangeCompressionCodec.NONE ? ExchangeCompressionCodec.LZ4 : codec);
+
+            // pages are decompressed with the codec recorded in their markers, regardless of the codec of the reading serde
+            for (ExchangeCompressionCodec readerCodec : ExchangeCompressionCodec.values()) {
+                if (readerCodec == ExchangeCompressionCodec.NONE && codec != ExchangeCompressionCodec.NONE) {
+                    continue;
+                }
+                PagesSerde reader = new PagesSerdeFactory(new BlockEncodingManager(), readerCodec, false, false).createPagesSerde();
+                assertPageEquals(types, reader.deserialize(serializedPage), page);
+            }
+        }
+    }
+
+    @Test
+    public void testAdaptiveCompression()
+    {
+        CountingCompressor compressor = new CountingCompressor();
+        PagesSerde serde = new PagesSerde(
+                new BlockEncodingManager(),
+                Optional.of(compressor),
+                Optional.of(new Lz4PageDecompressor()),
+                Optional.empty(),
+                false,
+                true);
+
+        Random random = new Random(42);
+        List<Type> types = ImmutableList.of(VARBINARY);
+        for (int i = 0; i < 8; i++) {
+            Page page = createIncompressiblePage(random);
+            SerializedPage serializedPage = serde.serialize(page);
+            assertFalse(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()));
+            assertPageEquals(types, serde.deserialize(serializedPage), page);
+        }
+        assertEquals(compressor.getCompressedPages(), 8);
+
+        // compression is suspended for the next eight pages
+        for (int i = 0; i < 8; i++) {
+            serde.serialize(createIncompressiblePage(random));
+        }
+        assertEquals(compressor.getCompressedPages(), 8);
+
+        // a sample page is compressed, but since it did not shrink compression is suspended for sixteen pages
+        serde.serialize(createIncompressiblePage(random));
+        assertEquals(compressor.getCompressedPages(), 9);
+        for (int i = 0; i < 16; i++) {
+            serde.serialize(createIncompressiblePage(random));
+        }
+        assertEquals(compressor.getCompressedPages(), 9);
+
+        // once the sample page compresses, every page is compressed again
+        assertTrue(COMPRESSED.isSet(serde.serialize(createCompressiblePage()).getPageCodecMarkers()));
+        for (int i = 0; i < 8; i++) {
+            Page page = createIncompressiblePage(random);
+            assertPageEquals(types, serde.deserialize(serde.serialize(page)), page);
+        }
+        assertEquals(compressor.getCompressedPages(), 18);
+    }
+
+    private static Page createCompressiblePage()
+    {
+        BlockBuilder builder = VARCHAR.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            VARCHAR.writeString(builder, "value_" + (i % 10));
+        }
+        return new Page(builder.build());
+    }
+
+    private static Page createIncompressiblePage(Random random)
+    {
+        BlockBuilder builder = VARBINARY.createBlockBuilder(null, 100);
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = new byte[64];
+            random.nextBytes(bytes);
+            VARBINARY.writeSlice(builder, wrappedBuffer(bytes));
+        }
+        return new Page(builder.build());
+    }
+
+    private static class CountingCompressor
+            implements PageCompressor
+    {
+        private final Compressor compressor = ExchangeCompressionCodec.LZ4.createCompressor();
+        private int compressedPages;
+
+        @Override
+        public int maxCompressedLength(int uncompressedSize)
+        {
+            return compressor.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+        {
+            compressedPages++;
+            return compressor.compress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+        }
+
+        @Override
+        public void compress(ByteBuffer input, ByteBuffer output)
+        {
+            compressedPages++;
+            compressor.compress(input, output);
+        }
+
+        public int getCompressedPages()
+        {
+            return compressedPages;
+        }
+    }
+
+    private static class Lz4PageDecompressor
+            implements PageDecompressor
+    {
+        private final Decompressor decompressor = ExchangeCompressionCodec.LZ4.createDecompressor();
+
+        @Override
+        public int decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+        {
+            return decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+        }
+
+        @Override
+        public void decompress(ByteBuffer input, ByteBuffer output)
+        {
+            decompressor.decompress(input, output);
+        }
+    }
+
     private static int serializedSize(List<? extends Type> types, Page expectedPage)
     {
         PagesSerde serde = new TestingPagesSerdeFactory().createPagesSerde();
@@ -14,6 +14,7 @@
 package com.facebook.presto.geospatial;
 
 import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.operator.Driver;
@@ -56,6 +57,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.SPATIAL_JOIN_INDEX_PACKING;
+import static com.facebook.presto.SystemSessionProperties.SPATIAL_JOIN_PARALLEL_INDEX_BUILD_ENABLED;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
@@ -67,6 +70,7 @@ import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqual
 import static com.facebook.presto.sql.planner.plan.SpatialJoinNode.Type.INNER;
 import static com.facebook.presto.sql.planner.plan.SpatialJoinNode.Type.LEFT;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static java.lang.String.format;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
@@ -227,6 +231,34 @@ public class TestSpatialJoinOperator
         assertSpatialJoin(taskContext, LEFT, buildPages, probePages, expected);
     }
 
+    @Test
+    public void testSpatialJoinSortTileRecursiveParallelBuild()
+    {
+        Session session = Session.builder(TEST_SESSION)
+                .setSystemProperty(SPATIAL_JOIN_INDEX_PACKING, "SORT_TILE_RECURSIVE")
+                .setSystemProperty(SPATIAL_JOIN_PARALLEL_INDEX_BUILD_ENABLED, "true")
+                .build();
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, session);
+
+        // a grid of unit squares, large enough to be prepared in parallel, with a point in the middle of each square
+        int gridSize = 60;
+        RowPagesBuilder buildPages = rowPagesBuilder(ImmutableList.of(GEOMETRY, VARCHAR));
+        RowPagesBuilder probePages = rowPagesBuilder(ImmutableList.of(GEOMETRY, VARCHAR));
+        MaterializedResult.Builder expected = resultBuilder(taskContext.getSession(), ImmutableList.of(VARCHAR, VARCHAR));
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                String name = x + "_" + y;
+                buildPages.row(stGeometryFromText(Slices.utf8Slice(format("POLYGON ((%s %s, %s %s, %s %s, %s %s, %s %s))", x, y, x + 1, y, x + 1, y + 1, x, y + 1, x, y))), name);
+                probePages.row(stPoint(x + 0.5, y + 0.5), name);
+                expected.row(name, name);
+            }
+            buildPages.pageBreak();
+            probePages.pageBreak();
+        }
+
+        assertSpatialJoin(taskContext, INNER, buildPages, probePages, expected.build());
+    }
+
     private void assertSpatialJoin(TaskContext taskContext, Type joinType, RowPagesBuilder buildPages, RowPagesBuilder probePages, MaterializedResult expected)
     {
         DriverContext driverContext = taskContext.addPipelineContext(0, true, true, false).addDriverContext();
@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.sql.gen.JoinCompiler;
+import com.facebook.presto.testing.TestingTaskContext;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.FLAT_GROUPED_TOP_N_ENABLED;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.TopNRowNumberOperator.TopNRowNumberOperatorFactory;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares the object based and the flat grouped top N builders, as used by
+ * {@code row_number() OVER (PARTITION BY key ORDER BY value) <= topN}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(3)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkTopNRowNumberOperator
+{
+    private static final int TOTAL_POSITIONS = 2_000_000;
+    private static final int POSITIONS_PER_PAGE = 1024;
+
+    @State(Scope.Thread)
+    public static class BenchmarkContext
+    {
+        @Param({"true", "false"})
+        private String flatGroupedTopN = "true";
+
+        @Param({"1", "5", "32"})
+        private String topN = "5";
+
+        @Param({"1000", "1000000"})
+        private String groupCount = "1000";
+
+        private ExecutorService executor;
+        private ScheduledExecutorService scheduledExecutor;
+        private Session session;
+        private OperatorFactory operatorFactory;
+        private List<Page> pages;
+
+        @Setup
+        public void setup()
+        {
+            executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+            scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+
+            session = Session.builder(TEST_SESSION)
+                    .setSystemProperty(FLAT_GROUPED_TOP_N_ENABLED, flatGroupedTopN)
+                    .build();
+            pages = createInputPages(Integer.parseInt(groupCount));
+            operatorFactory = new TopNRowNumberOperatorFactory(
+                    0,
+                    new PlanNodeId("test"),
+                    ImmutableList.of(BIGINT, BIGINT),
+                    ImmutableList.of(0, 1),
+                    ImmutableList.of(0),
+                    ImmutableList.of(BIGINT),
+                    ImmutableList.of(1),
+                    ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                    Integer.parseInt(topN),
+                    false,
+                    Optional.empty(),
+                    10_000,
+                    0,
+                    new JoinCompiler(MetadataManager.createTestMetadataManager(), new FeaturesConfig()),
+                    null,
+                    false);
+        }
+
+        @TearDown
+        public void cleanup()
+        {
+            executor.shutdownNow();
+            scheduledExecutor.shutdownNow();
+        }
+
+        public TaskContext createTaskContext()
+        {
+            return TestingTaskContext.createTaskContext(executor, scheduledExecutor, session, new DataSize(4, GIGABYTE));
+        }
+
+        public OperatorFactory getOperatorFactory()
+        {
+            return operatorFactory;
+        }
+
+        public List<Page> getPages()
+        {
+            return pages;
+        }
+
+        private static List<Page> createInputPages(int groupCount)
+        {
+            Random random = new Random(42);
+            ImmutableList.Builder<Page> pages = ImmutableList.builder();
+            PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(BIGINT, BIGINT));
+            for (int i = 0; i < TOTAL_POSITIONS; i++) {
+                pageBuilder.declarePosition();
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(0), random.nextInt(groupCount));
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(1), random.nextLong());
+
+                if (pageBuilder.getPositionCount() == POSITIONS_PER_PAGE) {
+                    pages.add(pageBuilder.build());
+                    pageBuilder.reset();
+                }
+            }
+            if (!pageBuilder.isEmpty()) {
+                pages.add(pageBuilder.build());
+            }
+            return pages.build();
+        }
+    }
+
+    @Benchmark
+    public List<Page> topNRowNumber(BenchmarkContext context)
+    {
+        DriverContext driverContext = context.createTaskContext().addPipelineContext(0, true, true, false).addDriverContext();
+        Operator operator = context.getOperatorFactory().createOperator(driverContext);
+
+        Iterator<Page> input = context.getPages().iterator();
+        ImmutableList.Builder<Page> outputPages = ImmutableList.builder();
+
+        boolean finishing = false;
+        for (int loops = 0; !operator.isFinished() && loops < 10_000_000; loops++) {
+            if (operator.needsInput()) {
+                if (input.hasNext()) {
+                    operator.addInput(input.next());
+                }
+                else if (!finishing) {
+                    operator.finish();
+                    finishing = true;
+                }
+            }
+
+            Page outputPage = operator.getOutput();
+            if (outputPage != null) {
+                outputPages.add(outputPage);
+            }
+        }
+
+        return outputPages.build();
+    }
+
+    @Test
+    public void testBenchmark()
+    {
+        assertEquals(getOutputPositionCount("true"), getOutputPositionCount("false"));
+    }
+
+    private int getOutputPositionCount(String flatGroupedTopN)
+    {
+        BenchmarkContext context = new BenchmarkContext();
+        context.flatGroupedTopN = flatGroupedTopN;
+        context.setup();
+        try {
+            return topNRowNumber(context).stream()
+                    .mapToInt(Page::getPositionCount)
+                    .sum();
+        }
+        finally {
+            context.cleanup();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkTopNRowNumberOperator.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.block.Block;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBlockedBloomFilter
+{
+    @Test
+    public void testMightContain()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(BIGINT, 64 * 1024);
+        filter.addAll(createLongSequenceBlock(0, 1000));
+
+        Block added = createLongSequenceBlock(0, 1000);
+        for (int position = 0; position < added.getPositionCount(); position++) {
+            assertTrue(filter.mightContain(added, position));
+        }
+
+        Block notAdded = createLongSequenceBlock(1000, 101000);
+        int falsePositives = 0;
+        for (int position = 0; position < notAdded.getPositionCount(); position++) {
+            if (filter.mightContain(notAdded, position)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < notAdded.getPositionCount() / 100, "too many false positives: " + falsePositives);
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void testVariableWidth()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(VARCHAR, 1024);
+        filter.addAll(createStringsBlock("apple", "banana"));
+
+        Block block = createStringsBlock("apple", "banana", "cherry");
+        assertTrue(filter.mightContain(block, 0));
+        assertTrue(filter.mightContain(block, 1));
+        assertFalse(filter.mightContain(block, 2));
+    }
+
+    @Test
+    public void testNulls()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(BIGINT, 1024);
+        Block block = createLongsBlock(Arrays.asList(1L, null));
+        filter.addAll(block);
+
+        assertTrue(filter.mightContain(block, 0));
+        assertFalse(filter.mightContain(block, 1));
+    }
+
+    @Test
+    public void testMerge()
+    {
+        BlockedBloomFilter left = new BlockedBloomFilter(BIGINT, 4096);
+        left.addAll(createLongSequenceBlock(0, 100));
+        BlockedBloomFilter right = new BlockedBloomFilter(BIGINT, 4096);
+        right.addAll(createLongSequenceBlock(100, 200));
+
+        left.merge(right);
+        Block block = createLongSequenceBlock(0, 200);
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            assertTrue(left.mightContain(block, position));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Cannot merge filters of different sizes: .*")
+    public void testMergeDifferentSizes()
+    {
+        new BlockedBloomFilter(BIGINT, 1024).merge(new BlockedBloomFilter(BIGINT, 2048));
+    }
+
+    @Test
+    public void testSaturated()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(BIGINT, 1024);
+        assertEquals(filter.getSizeInBytes(), 1024);
+        filter.addAll(createLongSequenceBlock(0, 10_000));
+        assertTrue(filter.isSaturated());
+    }
+}
@@ -54,6 +54,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -73,6 +74,8 @@ import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.SystemSessionProperties.FRAGMENT_RESULT_CACHING_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.OPERATOR_PROFILING_ENABLED;
+import static com.facebook.presto.common.RuntimeMetricName.STACK_SAMPLE_METRIC_PREFIX;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.execution.FragmentResultCacheContext.createFragmentResultCacheContext;
@@ -89,6 +92,7 @@ import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -206,6 +210,37 @@ public class TestDriver
         }
     }
 
+    @Test
+    public void testOperatorProfiling()
+    {
+        DriverContext driverContext = createTaskContext(executor, scheduledExecutor, testSessionBuilder().setSystemProperty(OPERATOR_PROFILING_ENABLED, "true").build())
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+
+        List<Type> types = ImmutableList.of(VARCHAR, BIGINT, BIGINT);
+        ValuesOperator source = new ValuesOperator(driverContext.addOperatorContext(0, new PlanNodeId("test"), "values"), rowPagesBuilder(types)
+                .addSequencePage(10, 20, 30, 40)
+                .build());
+        List<Thread> processingThreads = new ArrayList<>();
+        PageConsumerOperator sink = new PageConsumerOperator(
+                driverContext.addOperatorContext(1, new PlanNodeId("test"), "sink"),
+                page -> processingThreads.add(driverContext.getProcessingThread()),
+                Function.identity());
+        Driver driver = Driver.createDriver(driverContext, source, sink);
+
+        // samples recorded before the first operation completes are attributed to the source
+        driverContext.recordStackSample("com.example.Frame.method");
+        driverContext.recordStackSample("com.example.Frame.method");
+
+        assertTrue(driver.processFor(new Duration(1, TimeUnit.SECONDS)).isDone());
+        assertTrue(driver.isFinished());
+        assertEquals(processingThreads, ImmutableList.of(Thread.currentThread()));
+        assertNull(driverContext.getProcessingThread());
+
+        assertEquals(source.getOperatorContext().getRuntimeStats().getMetric(STACK_SAMPLE_METRIC_PREFIX + "com.example.Frame.method").getSum(), 2);
+        assertNull(sink.getOperatorContext().getRuntimeStats().getMetric(STACK_SAMPLE_METRIC_PREFIX + "com.example.Frame.method"));
+    }
+
     @Test
     public void testAbruptFinish()
     {
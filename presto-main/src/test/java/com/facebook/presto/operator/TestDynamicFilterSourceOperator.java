@@ -32,6 +32,7 @@ import org.testng.annotations.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.IntStream;
@@ -69,6 +70,7 @@ import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static java.lang.Float.floatToRawIntBits;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestDynamicFilterSourceOperator
@@ -537,4 +539,60 @@ public class TestDynamicFilterSourceOperator
                         new Page(createLongSequenceBlock(0, maxPositionsCount + 1))),
                 ImmutableList.of(TupleDomain.all()));
     }
+
+    @Test
+    public void testCollectBloomFilterWhenTooLarge()
+    {
+        int maxPositionsCount = 10;
+        ImmutableList.Builder<Map<String, BlockedBloomFilter>> bloomFilters = ImmutableList.builder();
+        OperatorFactory operatorFactory = new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
+                0,
+                new PlanNodeId("PLAN_NODE_ID"),
+                this::consumePredicate,
+                ImmutableList.of(channel(0, BIGINT)),
+                maxPositionsCount,
+                new DataSize(10, KILOBYTE),
+                0,
+                bloomFilters::add,
+                new DataSize(1, KILOBYTE));
+        verifyPassthrough(createOperator(operatorFactory),
+                ImmutableList.of(BIGINT),
+                new Page(createLongSequenceBlock(0, maxPositionsCount)),
+                new Page(createLongSequenceBlock(maxPositionsCount, 10 * maxPositionsCount)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.all()));
+        List<Map<String, BlockedBloomFilter>> collected = bloomFilters.build();
+        assertEquals(collected.size(), 1);
+        BlockedBloomFilter bloomFilter = collected.get(0).get("0");
+        Block values = createLongSequenceBlock(0, 10 * maxPositionsCount);
+        for (int position = 0; position < values.getPositionCount(); position++) {
+            assertTrue(bloomFilter.mightContain(values, position));
+        }
+    }
+
+    @Test
+    public void testNoBloomFilterWhenSmall()
+    {
+        ImmutableList.Builder<Map<String, BlockedBloomFilter>> bloomFilters = ImmutableList.builder();
+        OperatorFactory operatorFactory = new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
+                0,
+                new PlanNodeId("PLAN_NODE_ID"),
+                this::consumePredicate,
+                ImmutableList.of(channel(0, BIGINT)),
+                10,
+                new DataSize(10, KILOBYTE),
+                0,
+                bloomFilters::add,
+                new DataSize(1, KILOBYTE));
+        verifyPassthrough(createOperator(operatorFactory),
+                ImmutableList.of(BIGINT),
+                new Page(createLongsBlock(1L, 2L, 3L)));
+        operatorFactory.noMoreOperators();
+
+        // the exact predicate is published without allocating Bloom filters
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "0", Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L, 3L))))));
+        assertEquals(bloomFilters.build(), ImmutableList.of());
+    }
 }
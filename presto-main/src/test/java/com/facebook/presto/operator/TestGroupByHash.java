@@ -38,12 +38,17 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
+import static com.facebook.presto.block.BlockAssertions.createDateSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createIntsBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
 import static com.facebook.presto.common.block.DictionaryId.randomDictionaryId;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
 import static com.facebook.presto.type.TypeUtils.getHashBlock;
@@ -233,6 +238,55 @@ public class TestGroupByHash
         assertTrue(groupByHash.contains(0, new Page(testValuesBlock, testStringValuesBlock, testHashBlock), hashChannels));
     }
 
+    @Test
+    public void testBatchedHashPositions()
+    {
+        Block longs = createLongsBlock(1L, null, 3L, 3L, -5L);
+        Block ints = createIntsBlock(null, 7, 7, 7, 0);
+        Block dates = createDateSequenceBlock(100, 105);
+        Block strings = createStringsBlock("a", "b", null, "b", "");
+        Page page = new Page(longs, ints, dates, strings);
+
+        List<List<Type>> typeLists = ImmutableList.of(
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(BIGINT, INTEGER),
+                ImmutableList.of(BIGINT, INTEGER, DATE),
+                ImmutableList.of(BIGINT, INTEGER, DATE, VARCHAR),
+                ImmutableList.of(DATE, VARCHAR));
+        List<int[]> channelLists = ImmutableList.of(new int[] {0}, new int[] {0, 1}, new int[] {0, 1, 2}, new int[] {0, 1, 2, 3}, new int[] {2, 3});
+        for (int i = 0; i < typeLists.size(); i++) {
+            InterpretedHashGenerator hashGenerator = new InterpretedHashGenerator(typeLists.get(i), channelLists.get(i));
+            long[] hashes = new long[page.getPositionCount()];
+            hashGenerator.hashPositions(page, page.getPositionCount(), hashes);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                assertEquals(hashes[position], hashGenerator.hashPosition(position, page));
+            }
+        }
+    }
+
+    @Test
+    public void testMultipleColumnsWithoutPrecomputedHash()
+    {
+        // enough distinct values to force several rehashes while the page is being processed
+        Block longs = createLongSequenceBlock(0, 10_000);
+        Block strings = createStringSequenceBlock(0, 10_000);
+        Page page = new Page(longs, strings);
+        GroupByHash groupByHash = createGroupByHash(TEST_SESSION, ImmutableList.of(BIGINT, VARCHAR), new int[] {0, 1}, Optional.empty(), 4, JOIN_COMPILER);
+
+        for (int tries = 0; tries < 2; tries++) {
+            Work<GroupByIdBlock> work = groupByHash.getGroupIds(page);
+            assertTrue(work.process());
+            GroupByIdBlock groupIds = work.getResult();
+            assertEquals(groupIds.getGroupCount(), 10_000);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                assertEquals(groupIds.getGroupId(position), position);
+            }
+        }
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            assertTrue(groupByHash.contains(position, page, new int[] {0, 1}));
+        }
+    }
+
     @Test
     public void testForceRehash()
     {
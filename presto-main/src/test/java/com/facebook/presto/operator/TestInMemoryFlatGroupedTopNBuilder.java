@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.TestingMemoryContext;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.sql.gen.JoinCompiler;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.operator.UpdateMemory.NOOP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestInMemoryFlatGroupedTopNBuilder
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, DOUBLE);
+
+    @DataProvider
+    public static Object[][] produceRowNumbers()
+    {
+        return new Object[][] {{true}, {false}};
+    }
+
+    @Test
+    public void testEmptyInput()
+    {
+        InMemoryFlatGroupedTopNBuilder groupedTopNBuilder = new InMemoryFlatGroupedTopNBuilder(
+                ImmutableList.of(BIGINT),
+                (left, leftPosition, right, rightPosition) -> {
+                    throw new UnsupportedOperationException();
+                },
+                5,
+                false,
+                new TestingMemoryContext(100L),
+                new NoChannelGroupByHash());
+
+        assertFalse(groupedTopNBuilder.buildResult().iterator().hasNext());
+    }
+
+    @Test(dataProvider = "produceRowNumbers")
+    public void testMultiGroupTopN(boolean produceRowNumbers)
+    {
+        List<Page> input = rowPagesBuilder(TYPES)
+                .row(1L, 0.3)
+                .row(2L, 0.2)
+                .row(3L, 0.9)
+                .row(3L, 0.1)
+                .pageBreak()
+                .row(1L, 0.4)
+                .pageBreak()
+                .row(1L, 0.5)
+                .row(1L, 0.6)
+                .row(4L, 0.6)
+                .row(2L, 0.8)
+                .row(2L, 0.7)
+                .pageBreak()
+                .row(2L, 0.9)
+                .build();
+
+        InMemoryFlatGroupedTopNBuilder groupedTopNBuilder = createBuilder(2, produceRowNumbers, createGroupByHash(NOOP));
+        long emptySize = groupedTopNBuilder.getEstimatedSizeInBytes();
+        for (Page page : input) {
+            assertTrue(groupedTopNBuilder.processPage(page).process());
+        }
+        // the first three pages are kept; the third one compacted to the two rows it contributes
+        List<Page> bufferedPages = groupedTopNBuilder.getBufferedPages();
+        assertEquals(bufferedPages.size(), 3);
+        assertEquals(bufferedPages.get(2).getPositionCount(), 2);
+        assertTrue(groupedTopNBuilder.getEstimatedSizeInBytes() > emptySize);
+
+        List<Page> output = ImmutableList.copyOf(groupedTopNBuilder.buildResult().iterator());
+        assertEquals(output.size(), 1);
+
+        Page expected = rowPagesBuilder(BIGINT, DOUBLE, BIGINT)
+                .row(1L, 0.3, 1)
+                .row(1L, 0.4, 2)
+                .row(2L, 0.2, 1)
+                .row(2L, 0.7, 2)
+                .row(3L, 0.1, 1)
+                .row(3L, 0.9, 2)
+                .row(4L, 0.6, 1)
+                .build()
+                .get(0);
+        if (produceRowNumbers) {
+            assertPageEquals(ImmutableList.of(BIGINT, DOUBLE, BIGINT), output.get(0), expected);
+        }
+        else {
+            assertPageEquals(TYPES, output.get(0), new Page(expected.getBlock(0), expected.getBlock(1)));
+        }
+        assertTrue(groupedTopNBuilder.getBufferedPages().isEmpty());
+    }
+
+    @Test(dataProvider = "produceRowNumbers")
+    public void testSingleGroupTopN(boolean produceRowNumbers)
+    {
+        List<Page> input = rowPagesBuilder(TYPES)
+                .row(1L, 0.3)
+                .row(2L, 0.2)
+                .row(3L, 0.9)
+                .row(3L, 0.1)
+                .pageBreak()
+                .row(1L, 0.4)
+                .pageBreak()
+                .row(1L, 0.5)
+                .row(1L, 0.6)
+                .row(4L, 0.6)
+                .row(2L, 0.8)
+                .row(2L, 0.7)
+                .pageBreak()
+                .row(2L, 0.9)
+                .build();
+
+        InMemoryFlatGroupedTopNBuilder groupedTopNBuilder = createBuilder(5, produceRowNumbers, new NoChannelGroupByHash());
+        for (Page page : input) {
+            assertTrue(groupedTopNBuilder.processPage(page).process());
+        }
+
+        List<Page> output = ImmutableList.copyOf(groupedTopNBuilder.buildResult().iterator());
+        assertEquals(output.size(), 1);
+
+        Page expected = rowPagesBuilder(BIGINT, DOUBLE, BIGINT)
+                .row(3L, 0.1, 1)
+                .row(2L, 0.2, 2)
+                .row(1L, 0.3, 3)
+                .row(1L, 0.4, 4)
+                .row(1L, 0.5, 5)
+                .build()
+                .get(0);
+        if (produceRowNumbers) {
+            assertPageEquals(ImmutableList.of(BIGINT, DOUBLE, BIGINT), output.get(0), expected);
+        }
+        else {
+            assertPageEquals(TYPES, output.get(0), new Page(expected.getBlock(0), expected.getBlock(1)));
+        }
+    }
+
+    @Test
+    public void testYield()
+    {
+        Page input = rowPagesBuilder(TYPES)
+                .row(1L, 0.3)
+                .row(1L, 0.2)
+                .row(1L, 0.9)
+                .row(1L, 0.1)
+                .build()
+                .get(0);
+
+        AtomicBoolean unblock = new AtomicBoolean();
+        InMemoryFlatGroupedTopNBuilder groupedTopNBuilder = createBuilder(5, false, createGroupByHash(unblock::get));
+
+        Work<?> work = groupedTopNBuilder.processPage(input);
+        assertFalse(work.process());
+        assertFalse(work.process());
+        unblock.set(true);
+        assertTrue(work.process());
+        List<Page> output = ImmutableList.copyOf(groupedTopNBuilder.buildResult().iterator());
+        assertEquals(output.size(), 1);
+
+        Page expected = rowPagesBuilder(TYPES)
+                .row(1L, 0.1)
+                .row(1L, 0.2)
+                .row(1L, 0.3)
+                .row(1L, 0.9)
+                .build()
+                .get(0);
+        assertPageEquals(TYPES, output.get(0), expected);
+    }
+
+    @Test
+    public void testAutoCompact()
+    {
+        List<Page> input = rowPagesBuilder(TYPES)
+                .row(1L, 0.8)
+                .row(2L, 0.7)
+                .row(3L, 0.9)
+                .row(3L, 0.2)
+                .row(3L, 0.2)
+                .row(3L, 0.2)
+                .row(3L, 0.2)
+                .pageBreak()
+                .row(3L, 0.8)
+                .pageBreak()
+                .row(2L, 0.6)
+                .row(3L, 0.1)
+                .pageBreak()
+                .row(1L, 0.7)
+                .pageBreak()
+                .row(1L, 0.6)
+                .build();
+
+        InMemoryFlatGroupedTopNBuilder groupedTopNBuilder = createBuilder(1, false, createGroupByHash(NOOP));
+
+        // the first page is compacted
+        assertTrue(groupedTopNBuilder.processPage(input.get(0)).process());
+        assertBufferedPages(groupedTopNBuilder, rowPagesBuilder(TYPES)
+                .row(1L, 0.8)
+                .row(2L, 0.7)
+                .row(3L, 0.2)
+                .build());
+
+        // the second page is not buffered
+        assertTrue(groupedTopNBuilder.processPage(input.get(1)).process());
+        assertEquals(groupedTopNBuilder.getBufferedPages().size(), 1);
+
+        // the third page triggers another compaction of the first page
+        assertTrue(groupedTopNBuilder.processPage(input.get(2)).process());
+        assertBufferedPages(groupedTopNBuilder, rowPagesBuilder(TYPES)
+                .row(1L, 0.8)
+                .pageBreak()
+                .row(2L, 0.6)
+                .row(3L, 0.1)
+                .build());
+
+        // the fourth page removes the first page, and leaves its slot empty
+        assertTrue(groupedTopNBuilder.processPage(input.get(3)).process());
+        assertBufferedPages(groupedTopNBuilder, rowPagesBuilder(TYPES)
+                .row(2L, 0.6)
+                .row(3L, 0.1)
+                .pageBreak()
+                .row(1L, 0.7)
+                .build());
+
+        // the fifth page removes the fourth page, and takes the slot of the first page
+        assertTrue(groupedTopNBuilder.processPage(input.get(4)).process());
+        assertBufferedPages(groupedTopNBuilder, rowPagesBuilder(TYPES)
+                .row(1L, 0.6)
+                .pageBreak()
+                .row(2L, 0.6)
+                .row(3L, 0.1)
+                .build());
+    }
+
+    @Test
+    public void testMatchesInMemoryGroupedTopNBuilder()
+    {
+        Random random = new Random(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(TYPES);
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            values.add((double) i);
+        }
+        Collections.shuffle(values, random);
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0 && i % 1000 == 0) {
+                rowPagesBuilder.pageBreak();
+            }
+            rowPagesBuilder.row((long) random.nextInt(3000), values.get(i));
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        for (int topN : new int[] {1, 3, InMemoryFlatGroupedTopNBuilder.MAX_TOP_N}) {
+            GroupedTopNBuilder expectedBuilder = new InMemoryGroupedTopNBuilder(
+                    TYPES,
+                    new SimplePageWithPositionComparator(TYPES, ImmutableList.of(1), ImmutableList.of(ASC_NULLS_LAST)),
+                    topN,
+                    true,
+                    new TestingMemoryContext(100L),
+                    createGroupByHash(NOOP));
+            InMemoryFlatGroupedTopNBuilder actualBuilder = createBuilder(topN, true, createGroupByHash(NOOP));
+            for (Page page : input) {
+                assertTrue(expectedBuilder.processPage(page).process());
+                assertTrue(actualBuilder.processPage(page).process());
+            }
+
+            List<Page> expected = ImmutableList.copyOf(expectedBuilder.buildResult().iterator());
+            List<Page> actual = ImmutableList.copyOf(actualBuilder.buildResult().iterator());
+            assertEquals(actual.size(), expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertPageEquals(ImmutableList.of(BIGINT, DOUBLE, BIGINT), actual.get(i), expected.get(i));
+            }
+            assertTrue(actualBuilder.getBufferedPages().isEmpty());
+        }
+    }
+
+    private static void assertBufferedPages(InMemoryFlatGroupedTopNBuilder groupedTopNBuilder, List<Page> expectedPages)
+    {
+        List<Page> bufferedPages = groupedTopNBuilder.getBufferedPages();
+        assertEquals(bufferedPages.size(), expectedPages.size());
+        for (int i = 0; i < expectedPages.size(); i++) {
+            assertPageEquals(TYPES, bufferedPages.get(i), expectedPages.get(i));
+        }
+    }
+
+    private static InMemoryFlatGroupedTopNBuilder createBuilder(int topN, boolean produceRowNumbers, GroupByHash groupByHash)
+    {
+        return new InMemoryFlatGroupedTopNBuilder(
+                TYPES,
+                new SimplePageWithPositionComparator(TYPES, ImmutableList.of(1), ImmutableList.of(ASC_NULLS_LAST)),
+                topN,
+                produceRowNumbers,
+                new TestingMemoryContext(100L),
+                groupByHash);
+    }
+
+    private static GroupByHash createGroupByHash(UpdateMemory updateMemory)
+    {
+        return GroupByHash.createGroupByHash(
+                ImmutableList.of(BIGINT),
+                Ints.toArray(ImmutableList.of(0)),
+                Optional.empty(),
+                1,
+                false,
+                new JoinCompiler(createTestMetadataManager(), new FeaturesConfig()),
+                updateMemory);
+    }
+}
@@ -18,6 +18,7 @@ import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
 import com.google.common.collect.ImmutableList;
@@ -26,7 +27,10 @@ import org.testng.annotations.Test;
 import java.util.List;
 import java.util.OptionalInt;
 
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -175,7 +179,90 @@ public class TestLookupJoinPageBuilder
         assertTrue(lookupJoinPageBuilder.isFull());
     }
 
-    private final class TestLookupSource
+    @Test
+    public void testReferenceBuildRows()
+    {
+        int entries = 100;
+        Page firstBuildPage = new Page(createLongSequenceBlock(0, entries));
+        Page secondBuildPage = new Page(createLongSequenceBlock(entries, 2 * entries));
+        Page probePage = new Page(createLongSequenceBlock(0, entries));
+        JoinProbeFactory joinProbeFactory = new JoinProbeFactory(new int[] {0}, ImmutableList.of(0), OptionalInt.empty());
+        LookupSource lookupSource = new TestAddressableLookupSource(ImmutableList.of(BIGINT), ImmutableList.of(firstBuildPage, secondBuildPage));
+        LookupJoinPageBuilder lookupJoinPageBuilder = new LookupJoinPageBuilder(ImmutableList.of(BIGINT), true);
+
+        // all build rows come from the same build page
+        JoinProbe probe = joinProbeFactory.createJoinProbe(probePage);
+        while (probe.advanceNextPosition()) {
+            lookupJoinPageBuilder.appendRow(probe, lookupSource, entries - 1 - probe.getPosition());
+        }
+        Page output = lookupJoinPageBuilder.build(probe);
+        assertEquals(output.getPositionCount(), entries);
+        assertTrue(output.getBlock(1) instanceof DictionaryBlock);
+        for (int i = 0; i < entries; i++) {
+            assertEquals(output.getBlock(0).getLong(i), i);
+            assertEquals(output.getBlock(1).getLong(i), entries - 1 - i);
+        }
+        lookupJoinPageBuilder.reset();
+
+        // build rows come from both build pages, or are null
+        probe = joinProbeFactory.createJoinProbe(probePage);
+        while (probe.advanceNextPosition()) {
+            int position = probe.getPosition();
+            if (position % 3 == 0) {
+                lookupJoinPageBuilder.appendNullForBuild(probe);
+            }
+            else {
+                lookupJoinPageBuilder.appendRow(probe, lookupSource, 2 * position);
+            }
+        }
+        output = lookupJoinPageBuilder.build(probe);
+        assertEquals(output.getPositionCount(), entries);
+        for (int i = 0; i < entries; i++) {
+            if (i % 3 == 0) {
+                assertTrue(output.getBlock(1).isNull(i));
+            }
+            else {
+                assertEquals(output.getBlock(1).getLong(i), 2 * i);
+            }
+        }
+        lookupJoinPageBuilder.reset();
+
+        // no build rows
+        probe = joinProbeFactory.createJoinProbe(probePage);
+        while (probe.advanceNextPosition()) {
+            lookupJoinPageBuilder.appendNullForBuild(probe);
+        }
+        output = lookupJoinPageBuilder.build(probe);
+        assertEquals(output.getPositionCount(), entries);
+        assertTrue(output.getBlock(1) instanceof RunLengthEncodedBlock);
+        assertTrue(output.getBlock(1).isNull(0));
+    }
+
+    @Test
+    public void testReferenceBuildRowsWithChangingLookupSource()
+    {
+        int entries = 10;
+        Page buildPage = new Page(createLongSequenceBlock(0, entries));
+        Page probePage = new Page(createLongSequenceBlock(0, entries));
+        JoinProbeFactory joinProbeFactory = new JoinProbeFactory(new int[] {0}, ImmutableList.of(0), OptionalInt.empty());
+        LookupSource firstLookupSource = new TestAddressableLookupSource(ImmutableList.of(BIGINT), ImmutableList.of(buildPage));
+        LookupSource secondLookupSource = new TestAddressableLookupSource(ImmutableList.of(BIGINT), ImmutableList.of(buildPage));
+        LookupJoinPageBuilder lookupJoinPageBuilder = new LookupJoinPageBuilder(ImmutableList.of(BIGINT), true);
+
+        // the rows referenced before the lookup source changes are copied
+        JoinProbe probe = joinProbeFactory.createJoinProbe(probePage);
+        while (probe.advanceNextPosition()) {
+            LookupSource lookupSource = probe.getPosition() < entries / 2 ? firstLookupSource : secondLookupSource;
+            lookupJoinPageBuilder.appendRow(probe, lookupSource, probe.getPosition());
+        }
+        Page output = lookupJoinPageBuilder.build(probe);
+        assertEquals(output.getPositionCount(), entries);
+        for (int i = 0; i < entries; i++) {
+            assertEquals(output.getBlock(1).getLong(i), i);
+        }
+    }
+
+    private class TestLookupSource
             implements LookupSource
     {
         private final List<Type> types;
@@ -254,4 +341,49 @@ public class TestLookupJoinPageBuilder
         {
         }
     }
+
+    private final class TestAddressableLookupSource
+            extends TestLookupSource
+    {
+        private final List<Type> types;
+        private final List<Page> pages;
+        private final int positionsPerPage;
+
+        public TestAddressableLookupSource(List<Type> types, List<Page> pages)
+        {
+            super(types, pages.get(0));
+            this.types = types;
+            this.pages = pages;
+            this.positionsPerPage = pages.get(0).getPositionCount();
+        }
+
+        @Override
+        public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
+        {
+            Page page = pages.get((int) position / positionsPerPage);
+            for (int i = 0; i < types.size(); i++) {
+                types.get(i).appendTo(page.getBlock(i), (int) position % positionsPerPage, pageBuilder.getBlockBuilder(i));
+            }
+        }
+
+        @Override
+        public boolean isOutputAddressable()
+        {
+            return true;
+        }
+
+        @Override
+        public long getOutputAddress(long position)
+        {
+            return encodeSyntheticAddress((int) position / positionsPerPage, (int) position % positionsPerPage);
+        }
+
+        @Override
+        public List<Block> getOutputBlocks(int outputChannel)
+        {
+            return pages.stream()
+                    .map(page -> page.getBlock(outputChannel))
+                    .collect(toImmutableList());
+        }
+    }
 }
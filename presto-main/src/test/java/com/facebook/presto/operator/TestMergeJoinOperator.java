@@ -0,0 +1,334 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import com.facebook.presto.operator.MergeJoinSourceOperator.MergeJoinSourceOperatorFactory;
+import com.facebook.presto.operator.ValuesOperator.ValuesOperatorFactory;
+import com.facebook.presto.spi.plan.JoinType;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.SingleStreamSpiller;
+import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.TestingTaskContext;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
+import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
+import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.spi.plan.JoinType.LEFT;
+import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.unmodifiableIterator;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestMergeJoinOperator
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, VARCHAR);
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testInnerJoin()
+            throws Exception
+    {
+        List<Page> buildPages = rowPagesBuilder(TYPES)
+                .row(1L, "b1")
+                .row(3L, "b3")
+                .pageBreak()
+                .row(4L, "b4")
+                .row(6L, "b6")
+                .build();
+        List<Page> probePages = rowPagesBuilder(TYPES)
+                .row(1L, "p1")
+                .row(2L, "p2")
+                .pageBreak()
+                .row(3L, "p3")
+                .row(6L, "p6")
+                .row(7L, "p7")
+                .build();
+
+        MaterializedResult expected = resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT, VARCHAR)
+                .row(1L, "p1", 1L, "b1")
+                .row(3L, "p3", 3L, "b3")
+                .row(6L, "p6", 6L, "b6")
+                .build();
+
+        assertMergeJoin(INNER, probePages, buildPages, expected, false, false);
+    }
+
+    @Test
+    public void testLeftJoinWithNulls()
+            throws Exception
+    {
+        List<Page> buildPages = rowPagesBuilder(TYPES)
+                .row(null, "bnull")
+                .row(2L, "b2")
+                .row(5L, "b5")
+                .build();
+        List<Page> probePages = rowPagesBuilder(TYPES)
+                .row(null, "pnull")
+                .row(1L, "p1")
+                .row(2L, "p2")
+                .row(3L, "p3")
+                .pageBreak()
+                .row(8L, "p8")
+                .build();
+
+        MaterializedResult expected = resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT, VARCHAR)
+                .row(null, "pnull", null, null)
+                .row(1L, "p1", null, null)
+                .row(2L, "p2", 2L, "b2")
+                .row(3L, "p3", null, null)
+                .row(8L, "p8", null, null)
+                .build();
+
+        assertMergeJoin(LEFT, probePages, buildPages, expected, false, false);
+    }
+
+    @Test
+    public void testEmptyBuild()
+            throws Exception
+    {
+        List<Page> probePages = rowPagesBuilder(TYPES)
+                .row(1L, "p1")
+                .row(2L, "p2")
+                .build();
+
+        MaterializedResult expected = resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT, VARCHAR)
+                .row(1L, "p1", null, null)
+                .row(2L, "p2", null, null)
+                .build();
+
+        assertMergeJoin(LEFT, probePages, ImmutableList.of(), expected, false, false);
+        assertMergeJoin(INNER, probePages, ImmutableList.of(), resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT, VARCHAR).build(), false, false);
+    }
+
+    @Test
+    public void testDuplicateKeyRunsAcrossPages()
+            throws Exception
+    {
+        testDuplicateKeyRunsAcrossPages(false);
+    }
+
+    @Test
+    public void testDuplicateKeyRunsAcrossPagesWithSpill()
+            throws Exception
+    {
+        testDuplicateKeyRunsAcrossPages(true);
+    }
+
+    private void testDuplicateKeyRunsAcrossPages(boolean spillEnabled)
+            throws Exception
+    {
+        // the run of key 2 spans three build pages and three probe pages
+        List<Page> buildPages = rowPagesBuilder(TYPES)
+                .row(1L, "b1")
+                .row(2L, "b2a")
+                .pageBreak()
+                .row(2L, "b2b")
+                .pageBreak()
+                .row(2L, "b2c")
+                .row(3L, "b3")
+                .build();
+        List<Page> probePages = rowPagesBuilder(TYPES)
+                .row(2L, "p2a")
+                .pageBreak()
+                .row(2L, "p2b")
+                .pageBreak()
+                .row(2L, "p2c")
+                .row(3L, "p3")
+                .build();
+
+        MaterializedResult.Builder expected = resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT, VARCHAR);
+        for (String probe : ImmutableList.of("p2a", "p2b", "p2c")) {
+            for (String build : ImmutableList.of("b2a", "b2b", "b2c")) {
+                expected.row(2L, probe, 2L, build);
+            }
+        }
+        expected.row(3L, "p3", 3L, "b3");
+
+        assertMergeJoin(INNER, probePages, buildPages, expected.build(), spillEnabled, true);
+    }
+
+    private void assertMergeJoin(JoinType joinType, List<Page> probePages, List<Page> buildPages, MaterializedResult expected, boolean spillEnabled, boolean ignoreOrder)
+            throws Exception
+    {
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, TEST_SESSION);
+        JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager = new JoinBridgeManager<>(
+                false,
+                UNGROUPED_EXECUTION,
+                UNGROUPED_EXECUTION,
+                MergeJoinSource::new,
+                TYPES);
+
+        // the probe factory has to be created before the join bridge is first used
+        MergeJoinOperatorFactory joinOperatorFactory = new MergeJoinOperatorFactory(
+                2,
+                new PlanNodeId("test"),
+                mergeJoinSourceManager,
+                joinType,
+                TYPES,
+                ImmutableList.of(0),
+                ImmutableList.of(0, 1),
+                TYPES,
+                ImmutableList.of(0),
+                ImmutableList.of(0, 1),
+                spillEnabled,
+                Optional.of(new SingleReadSpillerFactory()));
+
+        Future<?> build = startBuild(taskContext, mergeJoinSourceManager, buildPages);
+
+        DriverContext driverContext = taskContext.addPipelineContext(1, true, true, false).addDriverContext();
+        if (ignoreOrder) {
+            assertOperatorEqualsIgnoreOrder(joinOperatorFactory, driverContext, probePages, expected, spillEnabled);
+        }
+        else {
+            assertOperatorEquals(joinOperatorFactory, driverContext, probePages, expected, spillEnabled);
+        }
+
+        joinOperatorFactory.noMoreOperators(Lifespan.taskWide());
+        joinOperatorFactory.noMoreOperators();
+        build.get(10, SECONDS);
+        assertTrue(build.isDone());
+    }
+
+    private Future<?> startBuild(TaskContext taskContext, JoinBridgeManager<MergeJoinSource> mergeJoinSourceManager, List<Page> buildPages)
+    {
+        MergeJoinSourceOperatorFactory sourceOperatorFactory = new MergeJoinSourceOperatorFactory(1, new PlanNodeId("test"), mergeJoinSourceManager);
+        if (buildPages.isEmpty()) {
+            // no build driver is created when the build side has no splits
+            sourceOperatorFactory.noMoreOperators(Lifespan.taskWide());
+            sourceOperatorFactory.noMoreOperators();
+            return immediateFuture(null);
+        }
+
+        DriverContext driverContext = taskContext.addPipelineContext(0, true, true, false).addDriverContext();
+        ValuesOperatorFactory valuesOperatorFactory = new ValuesOperatorFactory(0, new PlanNodeId("test"), buildPages);
+        Driver driver = Driver.createDriver(
+                driverContext,
+                valuesOperatorFactory.createOperator(driverContext),
+                sourceOperatorFactory.createOperator(driverContext));
+        valuesOperatorFactory.noMoreOperators();
+        sourceOperatorFactory.noMoreOperators(Lifespan.taskWide());
+        sourceOperatorFactory.noMoreOperators();
+
+        return executor.submit(() -> {
+            while (!driver.isFinished()) {
+                getFutureValue(driver.process());
+            }
+        });
+    }
+
+    /**
+     * Mirrors the file based spiller, which allows the spilled pages to be read only once.
+     */
+    private static class SingleReadSpillerFactory
+            implements SingleStreamSpillerFactory
+    {
+        @Override
+        public SingleStreamSpiller create(List<Type> types, SpillContext spillContext, LocalMemoryContext memoryContext)
+        {
+            return new SingleStreamSpiller()
+            {
+                private final List<Page> spills = new ArrayList<>();
+                private boolean read;
+
+                @Override
+                public ListenableFuture<?> spill(Iterator<Page> pageIterator)
+                {
+                    checkState(!read, "Spilling no longer allowed");
+                    Iterators.addAll(spills, pageIterator);
+                    return immediateFuture(null);
+                }
+
+                @Override
+                public Iterator<Page> getSpilledPages()
+                {
+                    checkState(!read, "Repeated reads are disallowed");
+                    read = true;
+                    return unmodifiableIterator(spills.iterator());
+                }
+
+                @Override
+                public long getSpilledPagesInMemorySize()
+                {
+                    return spills.stream()
+                            .mapToLong(Page::getSizeInBytes)
+                            .sum();
+                }
+
+                @Override
+                public ListenableFuture<List<Page>> getAllSpilledPages()
+                {
+                    return immediateFuture(ImmutableList.copyOf(getSpilledPages()));
+                }
+
+                @Override
+                public void commit()
+                {
+                }
+
+                @Override
+                public void close()
+                {
+                }
+            };
+        }
+    }
+}
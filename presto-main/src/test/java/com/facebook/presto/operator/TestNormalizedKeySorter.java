@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.memory.context.MemoryReservationHandler;
+import com.facebook.presto.sql.gen.OrderingCompiler;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newRootAggregatedMemoryContext;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.type.IntervalDayTimeType.INTERVAL_DAY_TIME;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestNormalizedKeySorter
+{
+    private static final OrderingCompiler ORDERING_COMPILER = new OrderingCompiler();
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, INTEGER, DOUBLE, VARCHAR, BIGINT, INTERVAL_DAY_TIME);
+    private static final int ID_CHANNEL = 4;
+    private static final int POSITION_COUNT = 5000;
+
+    @Test
+    public void testFixedWidthChannels()
+    {
+        assertSorted(ImmutableList.of(0, 1), ImmutableList.of(ASC_NULLS_FIRST, DESC_NULLS_LAST));
+        assertSorted(ImmutableList.of(1, 0), ImmutableList.of(DESC_NULLS_FIRST, ASC_NULLS_LAST));
+        assertSorted(ImmutableList.of(2, 1), ImmutableList.of(ASC_NULLS_LAST, ASC_NULLS_FIRST));
+        assertSorted(ImmutableList.of(2), ImmutableList.of(DESC_NULLS_FIRST));
+    }
+
+    @Test
+    public void testVariableWidthChannel()
+    {
+        assertSorted(ImmutableList.of(3), ImmutableList.of(ASC_NULLS_FIRST));
+        assertSorted(ImmutableList.of(3, 0), ImmutableList.of(DESC_NULLS_LAST, ASC_NULLS_FIRST));
+        assertSorted(ImmutableList.of(1, 3, 2), ImmutableList.of(ASC_NULLS_LAST, ASC_NULLS_LAST, DESC_NULLS_FIRST));
+    }
+
+    @Test
+    public void testChannelWithoutEncoding()
+    {
+        assertSorted(ImmutableList.of(1, 5), ImmutableList.of(ASC_NULLS_FIRST, DESC_NULLS_LAST));
+        assertFalse(NormalizedKeySorter.create(
+                ImmutableList.of(INTERVAL_DAY_TIME),
+                ImmutableList.of(5),
+                ImmutableList.of(ASC_NULLS_FIRST),
+                ORDERING_COMPILER.compilePagesIndexOrdering(ImmutableList.of(INTERVAL_DAY_TIME), ImmutableList.of(5), ImmutableList.of(ASC_NULLS_FIRST))).isPresent());
+    }
+
+    @Test
+    public void testSortRange()
+    {
+        List<Integer> sortChannels = ImmutableList.of(0, 3);
+        List<SortOrder> sortOrders = ImmutableList.of(ASC_NULLS_LAST, ASC_NULLS_FIRST);
+        PagesIndex pagesIndex = createPagesIndex(new Random(1));
+        PagesIndexOrdering ordering = createOrdering(sortChannels, sortOrders);
+        List<Long> ids = getIds(pagesIndex);
+
+        createSorter(sortChannels, sortOrders, ordering).sort(pagesIndex, 1000, 4000, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"));
+
+        List<Long> sortedIds = getIds(pagesIndex);
+        assertEquals(sortedIds.subList(0, 1000), ids.subList(0, 1000));
+        assertEquals(sortedIds.subList(4000, POSITION_COUNT), ids.subList(4000, POSITION_COUNT));
+        assertEquals(sortedIds.stream().sorted().collect(toImmutableList()), ids.stream().sorted().collect(toImmutableList()));
+        for (int position = 1000; position < 3999; position++) {
+            assertTrue(ordering.getComparator().compareTo(pagesIndex, position, position + 1) <= 0, "not sorted at position " + position);
+        }
+    }
+
+    @Test
+    public void testReservationFailure()
+    {
+        MemoryReservationHandler reservationHandler = new MemoryReservationHandler()
+        {
+            @Override
+            public ListenableFuture<?> reserveMemory(String allocationTag, long delta, boolean enforceBroadcastMemoryLimit)
+            {
+                return immediateFuture(null);
+            }
+
+            @Override
+            public boolean tryReserveMemory(String allocationTag, long delta, boolean enforceBroadcastMemoryLimit)
+            {
+                return false;
+            }
+        };
+        // the comparator sorts the range when the keys do not fit
+        assertSorted(ImmutableList.of(0, 1), ImmutableList.of(ASC_NULLS_FIRST, DESC_NULLS_LAST), newRootAggregatedMemoryContext(reservationHandler, 0).newLocalMemoryContext("test"));
+    }
+
+    private static void assertSorted(List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        assertSorted(sortChannels, sortOrders, memoryContext);
+        // the keys are only reserved while sorting
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    private static void assertSorted(List<Integer> sortChannels, List<SortOrder> sortOrders, LocalMemoryContext memoryContext)
+    {
+        PagesIndex pagesIndex = createPagesIndex(new Random(42));
+        PagesIndexOrdering ordering = createOrdering(sortChannels, sortOrders);
+
+        createSorter(sortChannels, sortOrders, ordering).sort(pagesIndex, 0, pagesIndex.getPositionCount(), memoryContext);
+
+        assertEquals(pagesIndex.getPositionCount(), POSITION_COUNT);
+        for (int position = 0; position < POSITION_COUNT - 1; position++) {
+            assertTrue(ordering.getComparator().compareTo(pagesIndex, position, position + 1) <= 0, "not sorted at position " + position);
+        }
+        List<Long> ids = getIds(pagesIndex).stream().sorted().collect(toImmutableList());
+        for (int id = 0; id < POSITION_COUNT; id++) {
+            assertEquals((long) ids.get(id), id);
+        }
+    }
+
+    private static NormalizedKeySorter createSorter(List<Integer> sortChannels, List<SortOrder> sortOrders, PagesIndexOrdering ordering)
+    {
+        List<Type> sortTypes = sortChannels.stream().map(TYPES::get).collect(toImmutableList());
+        return NormalizedKeySorter.create(sortTypes, sortChannels, sortOrders, ordering).get();
+    }
+
+    private static PagesIndexOrdering createOrdering(List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        List<Type> sortTypes = sortChannels.stream().map(TYPES::get).collect(toImmutableList());
+        return ORDERING_COMPILER.compilePagesIndexOrdering(sortTypes, sortChannels, sortOrders);
+    }
+
+    private static List<Long> getIds(PagesIndex pagesIndex)
+    {
+        ImmutableList.Builder<Long> ids = ImmutableList.builder();
+        for (int position = 0; position < pagesIndex.getPositionCount(); position++) {
+            ids.add(pagesIndex.getLong(ID_CHANNEL, position));
+        }
+        return ids.build();
+    }
+
+    private static PagesIndex createPagesIndex(Random random)
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(TYPES, POSITION_COUNT);
+        double[] doubles = {-0.0, 0.0, Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -1.5, 1.5};
+        // common prefixes longer than the encoded prefix, and values that differ only in trailing zero bytes
+        Slice[] slices = {
+                utf8Slice(""),
+                utf8Slice("a"),
+                utf8Slice("a\0"),
+                utf8Slice("abcdefg"),
+                utf8Slice("abcdefgh"),
+                utf8Slice("abcdefgi"),
+                utf8Slice("abcdefghij"),
+                utf8Slice("b"),
+                wrappedBuffer(new byte[] {(byte) 0xFF})};
+        int id = 0;
+        for (int pageSize : new int[] {1000, 1, 2999, 1000}) {
+            BlockBuilder[] blockBuilders = new BlockBuilder[TYPES.size()];
+            for (int channel = 0; channel < TYPES.size(); channel++) {
+                blockBuilders[channel] = TYPES.get(channel).createBlockBuilder(null, pageSize);
+            }
+            for (int position = 0; position < pageSize; position++) {
+                appendNullable(random, blockBuilders[0], () -> BIGINT.writeLong(blockBuilders[0], random.nextBoolean() ? random.nextLong() : random.nextInt(10) - 5));
+                appendNullable(random, blockBuilders[1], () -> INTEGER.writeLong(blockBuilders[1], random.nextInt(7) - 3));
+                appendNullable(random, blockBuilders[2], () -> DOUBLE.writeDouble(blockBuilders[2], doubles[random.nextInt(doubles.length)]));
+                appendNullable(random, blockBuilders[3], () -> VARCHAR.writeSlice(blockBuilders[3], slices[random.nextInt(slices.length)]));
+                BIGINT.writeLong(blockBuilders[ID_CHANNEL], id++);
+                INTERVAL_DAY_TIME.writeLong(blockBuilders[5], random.nextInt(3));
+            }
+            Page page = new Page(pageSize, Arrays.stream(blockBuilders).map(BlockBuilder::build).toArray(Block[]::new));
+            pagesIndex.addPage(page);
+        }
+        return pagesIndex;
+    }
+
+    private static void appendNullable(Random random, BlockBuilder blockBuilder, Runnable appendValue)
+    {
+        if (random.nextInt(10) == 0) {
+            blockBuilder.appendNull();
+        }
+        else {
+            appendValue.run();
+        }
+    }
+}
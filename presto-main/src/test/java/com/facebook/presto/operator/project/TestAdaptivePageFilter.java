@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.project.AdaptivePageFilter.INITIAL_PROFILE_PAGES;
+import static com.facebook.presto.operator.project.AdaptivePageFilter.REORDER_INTERVAL_PAGES;
+import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+
+public class TestAdaptivePageFilter
+{
+    @Test
+    public void testInputChannels()
+    {
+        AdaptivePageFilter filter = new AdaptivePageFilter(ImmutableList.of(
+                new LongPredicateFilter(3, value -> true),
+                new LongPredicateFilter(1, value -> true),
+                new LongPredicateFilter(3, value -> true)));
+        assertEquals(filter.getInputChannels().getInputChannels(), ImmutableList.of(1, 3));
+        assertEquals(filter.isDeterministic(), true);
+    }
+
+    @Test
+    public void testResultDoesNotDependOnOrder()
+    {
+        AdaptivePageFilter filter = new AdaptivePageFilter(ImmutableList.of(
+                new LongPredicateFilter(0, value -> value < 50),
+                new LongPredicateFilter(1, value -> value % 2 == 0),
+                new LongPredicateFilter(0, value -> value % 3 == 0)));
+        int[] expected = IntStream.range(0, 100)
+                .filter(value -> value < 50 && value % 2 == 0 && value % 3 == 0)
+                .toArray();
+
+        Page page = createPage(0, 100);
+        for (int i = 0; i < INITIAL_PROFILE_PAGES + REORDER_INTERVAL_PAGES + 1; i++) {
+            assertPositions(filter.filter(SESSION.getSqlFunctionProperties(), page), expected);
+        }
+    }
+
+    @Test
+    public void testSelectiveConjunctMovesFirst()
+    {
+        // the first conjunct removes nothing, so the selective second conjunct should be evaluated first
+        AdaptivePageFilter filter = new AdaptivePageFilter(ImmutableList.of(
+                new LongPredicateFilter(0, value -> value >= 0),
+                new LongPredicateFilter(1, value -> value % 100 == 0)));
+        assertEquals(filter.getOrder(), new int[] {0, 1});
+
+        Page page = createPage(0, 1000);
+        for (int i = 0; i < INITIAL_PROFILE_PAGES; i++) {
+            assertPositions(filter.filter(SESSION.getSqlFunctionProperties(), page), new int[] {0, 100, 200, 300, 400, 500, 600, 700, 800, 900});
+        }
+        assertEquals(filter.getOrder(), new int[] {1, 0});
+        assertPositions(filter.filter(SESSION.getSqlFunctionProperties(), page), new int[] {0, 100, 200, 300, 400, 500, 600, 700, 800, 900});
+    }
+
+    @Test
+    public void testFailureRestoresPlannedOrder()
+    {
+        // the second conjunct fails on values removed by the first conjunct
+        AdaptivePageFilter filter = new AdaptivePageFilter(ImmutableList.of(
+                new LongPredicateFilter(0, value -> value < 50),
+                new LongPredicateFilter(0, value -> {
+                    if (value >= 90) {
+                        throw new IllegalArgumentException("value too large");
+                    }
+                    return value % 2 == 0;
+                })));
+
+        Page smallValues = createPage(0, 50);
+        for (int i = 0; i < INITIAL_PROFILE_PAGES; i++) {
+            filter.filter(SESSION.getSqlFunctionProperties(), smallValues);
+        }
+        assertEquals(filter.getOrder(), new int[] {1, 0});
+
+        Page allValues = createPage(0, 100);
+        int[] expected = IntStream.range(0, 50).filter(value -> value % 2 == 0).toArray();
+        assertPositions(filter.filter(SESSION.getSqlFunctionProperties(), allValues), expected);
+        assertEquals(filter.getOrder(), new int[] {0, 1});
+
+        // the filter no longer adapts
+        for (int i = 0; i < REORDER_INTERVAL_PAGES + 1; i++) {
+            filter.filter(SESSION.getSqlFunctionProperties(), smallValues);
+        }
+        assertEquals(filter.getOrder(), new int[] {0, 1});
+
+        // a failure in the planned order is reported
+        AdaptivePageFilter failingFilter = new AdaptivePageFilter(ImmutableList.of(
+                new LongPredicateFilter(0, value -> {
+                    throw new IllegalArgumentException("always fails");
+                }),
+                new LongPredicateFilter(0, value -> true)));
+        assertThrows(IllegalArgumentException.class, () -> failingFilter.filter(SESSION.getSqlFunctionProperties(), allValues));
+    }
+
+    @Test
+    public void testRuntimeStats()
+    {
+        AdaptivePageFilter filter = new AdaptivePageFilter(ImmutableList.of(
+                new LongPredicateFilter(0, value -> value >= 0),
+                new LongPredicateFilter(1, value -> value % 10 == 0)));
+
+        Page page = createPage(0, 100);
+        for (int i = 0; i < INITIAL_PROFILE_PAGES; i++) {
+            filter.filter(SESSION.getSqlFunctionProperties(), page);
+        }
+
+        RuntimeStats runtimeStats = new RuntimeStats();
+        filter.updateRuntimeStats(runtimeStats);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterConjunct0InputPositions").getSum(), INITIAL_PROFILE_PAGES * 100L);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterConjunct0OutputPositions").getSum(), INITIAL_PROFILE_PAGES * 100L);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterConjunct1InputPositions").getSum(), INITIAL_PROFILE_PAGES * 100L);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterConjunct1OutputPositions").getSum(), INITIAL_PROFILE_PAGES * 10L);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterConjunct0Order").getSum(), 1);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterConjunct1Order").getSum(), 0);
+        assertEquals(runtimeStats.getMetric("adaptiveFilterReorders").getSum(), 1);
+
+        // only the statistics gathered since the previous update are published
+        filter.filter(SESSION.getSqlFunctionProperties(), page);
+        RuntimeStats nextRuntimeStats = new RuntimeStats();
+        filter.updateRuntimeStats(nextRuntimeStats);
+        assertEquals(nextRuntimeStats.getMetric("adaptiveFilterConjunct1InputPositions").getSum(), 100);
+        assertEquals(nextRuntimeStats.getMetric("adaptiveFilterConjunct0InputPositions").getSum(), 10);
+        assertNull(nextRuntimeStats.getMetric("adaptiveFilterReorders"));
+    }
+
+    private static Page createPage(int start, int end)
+    {
+        return new Page(createLongSequenceBlock(start, end), createLongSequenceBlock(start, end));
+    }
+
+    private static void assertPositions(SelectedPositions selectedPositions, int[] expected)
+    {
+        int[] actual = new int[selectedPositions.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = selectedPositions.isList() ? selectedPositions.getPositions()[selectedPositions.getOffset() + i] : selectedPositions.getOffset() + i;
+        }
+        assertEquals(actual, expected);
+    }
+
+    private static class LongPredicateFilter
+            implements PageFilter
+    {
+        private final int channel;
+        private final LongPredicate predicate;
+
+        public LongPredicateFilter(int channel, LongPredicate predicate)
+        {
+            this.channel = channel;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean isDeterministic()
+        {
+            return true;
+        }
+
+        @Override
+        public InputChannels getInputChannels()
+        {
+            return new InputChannels(channel);
+        }
+
+        @Override
+        public SelectedPositions filter(SqlFunctionProperties properties, Page page)
+        {
+            Block block = page.getBlock(0);
+            boolean[] selected = new boolean[page.getPositionCount()];
+            for (int position = 0; position < selected.length; position++) {
+                selected[position] = predicate.test(BIGINT.getLong(block, position));
+            }
+            return PageFilter.positionsArrayToSelectedPositions(selected, selected.length);
+        }
+    }
+}
@@ -13,15 +13,28 @@
  */
 package com.facebook.presto.operator.window;
 
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.metadata.FunctionAndTypeManager;
+import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.spi.function.AggregationFunctionImplementation;
+import com.facebook.presto.spi.function.WindowIndex;
 import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.MaterializedRow;
+import com.google.common.collect.ImmutableList;
 import org.intellij.lang.annotations.Language;
 import org.testng.annotations.Test;
 
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestAggregateWindowFunction
         extends AbstractTestWindowFunction
@@ -530,4 +543,63 @@ public class TestAggregateWindowFunction
                         .row(null, null, null)
                         .build());
     }
+
+    @Test
+    public void testSlidingFrameOverLargePartition()
+    {
+        int rows = 2000;
+        int preceding = 200;
+        int following = 50;
+        MaterializedResult actual = queryRunner.execute("" +
+                "SELECT x, " +
+                "count(x) OVER (ORDER BY x ROWS BETWEEN " + preceding + " PRECEDING AND CURRENT ROW), " +
+                "avg(x) OVER (ORDER BY x ROWS BETWEEN " + preceding + " PRECEDING AND CURRENT ROW), " +
+                "sum(x) OVER (ORDER BY x ROWS BETWEEN " + preceding + " PRECEDING AND " + following + " FOLLOWING), " +
+                "min(x) OVER (ORDER BY x ROWS BETWEEN " + preceding + " PRECEDING AND " + following + " FOLLOWING), " +
+                "max(x) OVER (ORDER BY x ROWS BETWEEN " + preceding + " PRECEDING AND " + following + " PRECEDING) " +
+                "FROM UNNEST(sequence(1, " + rows + ")) t(x) " +
+                "ORDER BY x");
+
+        assertEquals(actual.getRowCount(), rows);
+        for (MaterializedRow row : actual.getMaterializedRows()) {
+            long x = (long) row.getField(0);
+            long first = Math.max(1, x - preceding);
+            long last = Math.min(rows, x + following);
+            assertEquals(row.getField(1), x - first + 1);
+            assertEquals(row.getField(2), (first + x) / 2.0);
+            assertEquals(row.getField(3), (first + last) * (last - first + 1) / 2);
+            assertEquals(row.getField(4), first);
+            assertEquals(row.getField(5), x - following >= 1 ? x - following : null);
+        }
+    }
+
+    @Test
+    public void testOversizedSegmentTreeIsReleased()
+    {
+        int rows = 1024;
+        FunctionAndTypeManager functionAndTypeManager = queryRunner.getMetadata().getFunctionAndTypeManager();
+        AggregationFunctionImplementation max = functionAndTypeManager.getAggregateFunctionImplementation(functionAndTypeManager.lookupFunction("max", fromTypes(BIGINT)));
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), rows);
+        pagesIndex.addPage(new Page(createLongSequenceBlock(0, rows)));
+        WindowIndex windowIndex = new PagesWindowIndex(pagesIndex, 0, rows);
+
+        // the limit leaves room for the empty tree, but not for the intermediate states of its nodes
+        AggregateWindowFunction function = new AggregateWindowFunction(max, ImmutableList.of(0), 1024);
+        function.reset(windowIndex);
+        BlockBuilder output = BIGINT.createBlockBuilder(null, 10);
+        for (int frameEnd = rows - 1; frameEnd >= rows - 10; frameEnd--) {
+            function.processRow(output, 0, 0, 0, frameEnd);
+            assertEquals(function.getEstimatedSizeInBytes(), 0);
+        }
+        Block block = output.build();
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            assertEquals(BIGINT.getLong(block, position), rows - 1 - position);
+        }
+
+        // below the limit the tree is kept for the rest of the partition
+        function = new AggregateWindowFunction(max, ImmutableList.of(0), Long.MAX_VALUE);
+        function.reset(windowIndex);
+        function.processRow(BIGINT.createBlockBuilder(null, 1), 0, 0, 0, rows - 1);
+        assertTrue(function.getEstimatedSizeInBytes() > 0);
+    }
 }
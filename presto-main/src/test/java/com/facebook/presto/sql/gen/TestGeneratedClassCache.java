@@ -0,0 +1,225 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.metadata.FunctionAndTypeManager;
+import com.facebook.presto.operator.DriverYieldSignal;
+import com.facebook.presto.operator.Work;
+import com.facebook.presto.operator.project.PageProjection;
+import com.facebook.presto.operator.project.SelectedPositions;
+import com.facebook.presto.spi.relation.CallExpression;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.facebook.presto.common.function.OperatorType.ADD;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.file.Files.createTempDirectory;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeneratedClassCache
+{
+    private static final long MAX_SIZE_IN_BYTES = 64 * 1024 * 1024;
+
+    private static final FunctionAndTypeManager FUNCTION_MANAGER = createTestMetadataManager().getFunctionAndTypeManager();
+
+    private static final CallExpression ADD_10_EXPRESSION = call(
+            ADD.name(),
+            FUNCTION_MANAGER.resolveOperator(ADD, fromTypes(BIGINT, BIGINT)),
+            BIGINT,
+            field(0, BIGINT),
+            constant(10L, BIGINT));
+
+    private static final CallExpression ADD_20_EXPRESSION = call(
+            ADD.name(),
+            FUNCTION_MANAGER.resolveOperator(ADD, fromTypes(BIGINT, BIGINT)),
+            BIGINT,
+            field(0, BIGINT),
+            constant(20L, BIGINT));
+
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = createTempDirectory("generated-class-cache");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        GeneratedClassCache cache = GeneratedClassCache.disabledGeneratedClassCache();
+        assertFalse(cache.isEnabled());
+
+        assertProjection(compileProjection(cache, ADD_10_EXPRESSION), 10);
+        assertEquals(cache.getHits().getTotalCount(), 0);
+        assertEquals(cache.getMisses().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testReuseAcrossCompilers()
+            throws IOException
+    {
+        // the first cache simulates the worker before a restart, the second one after it
+        GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), MAX_SIZE_IN_BYTES);
+        assertProjection(compileProjection(cache, ADD_10_EXPRESSION), 10);
+        assertEquals(cache.getHits().getTotalCount(), 0);
+        assertTrue(cache.getMisses().getTotalCount() > 0);
+        assertFalse(listCacheFiles().isEmpty());
+
+        GeneratedClassCache restartedCache = new GeneratedClassCache(Optional.of(directory), MAX_SIZE_IN_BYTES);
+        assertProjection(compileProjection(restartedCache, ADD_10_EXPRESSION), 10);
+        assertEquals(restartedCache.getHits().getTotalCount(), cache.getMisses().getTotalCount());
+        assertEquals(restartedCache.getMisses().getTotalCount(), 0);
+
+        // a different constant produces different bytecode and must not reuse the cached class
+        assertProjection(compileProjection(restartedCache, ADD_20_EXPRESSION), 20);
+        assertTrue(restartedCache.getMisses().getTotalCount() > 0);
+    }
+
+    @Test
+    public void testCorruptedFile()
+            throws IOException
+    {
+        GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), MAX_SIZE_IN_BYTES);
+        assertProjection(compileProjection(cache, ADD_10_EXPRESSION), 10);
+
+        List<Path> files = listCacheFiles();
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            Files.write(file, new byte[] {0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3, 1, 2, 3});
+        }
+
+        GeneratedClassCache restartedCache = new GeneratedClassCache(Optional.of(directory), MAX_SIZE_IN_BYTES);
+        assertProjection(compileProjection(restartedCache, ADD_10_EXPRESSION), 10);
+        assertEquals(restartedCache.getHits().getTotalCount(), 0);
+        assertEquals(restartedCache.getFailures().getTotalCount(), files.size());
+        assertEquals(restartedCache.getMisses().getTotalCount(), files.size());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed()
+            throws IOException
+    {
+        GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), MAX_SIZE_IN_BYTES);
+        assertProjection(compileProjection(cache, ADD_10_EXPRESSION), 10);
+        List<Path> add10Files = listCacheFiles();
+        long add10Size = sizeOf(add10Files);
+        for (Path file : add10Files) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - HOURS.toMillis(1)));
+        }
+
+        // the classes of the second expression exceed the limit, so the older classes of the first one are removed
+        GeneratedClassCache boundedCache = new GeneratedClassCache(Optional.of(directory), add10Size * 3 / 2);
+        assertEquals(boundedCache.getSizeInBytes(), add10Size);
+        assertProjection(compileProjection(boundedCache, ADD_20_EXPRESSION), 20);
+        assertEquals(boundedCache.getEvictions().getTotalCount(), add10Files.size());
+        List<Path> files = listCacheFiles();
+        assertFalse(files.isEmpty());
+        for (Path file : add10Files) {
+            assertFalse(files.contains(file));
+        }
+        assertEquals(boundedCache.getSizeInBytes(), sizeOf(files));
+    }
+
+    @Test
+    public void testTrimOnStartup()
+            throws IOException
+    {
+        GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), MAX_SIZE_IN_BYTES);
+        assertProjection(compileProjection(cache, ADD_10_EXPRESSION), 10);
+        Files.write(directory.resolve("leftover.class123.tmp"), new byte[] {1, 2, 3});
+        assertFalse(listCacheFiles().isEmpty());
+
+        GeneratedClassCache restartedCache = new GeneratedClassCache(Optional.of(directory), 0);
+        assertTrue(listCacheFiles().isEmpty());
+        assertEquals(restartedCache.getSizeInBytes(), 0);
+    }
+
+    private static PageProjection compileProjection(GeneratedClassCache cache, CallExpression expression)
+    {
+        PageFunctionCompiler functionCompiler = new PageFunctionCompiler(createTestMetadataManager(), 0, cache);
+        return functionCompiler.compileProjection(SESSION.getSqlFunctionProperties(), expression, Optional.empty()).get();
+    }
+
+    private static void assertProjection(PageProjection projection, long addend)
+    {
+        Page page = createLongBlockPage(0, 1, 2, 3, 4);
+        Work<List<Block>> work = projection.project(SESSION.getSqlFunctionProperties(), new DriverYieldSignal(), page, SelectedPositions.positionsRange(0, page.getPositionCount()));
+        assertTrue(work.process());
+        Block result = work.getResult().get(0);
+        assertEquals(result.getPositionCount(), page.getPositionCount());
+        for (int position = 0; position < result.getPositionCount(); position++) {
+            assertEquals(BIGINT.getLong(result, position), position + addend);
+        }
+    }
+
+    private List<Path> listCacheFiles()
+            throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(toImmutableList());
+        }
+    }
+
+    private static long sizeOf(List<Path> files)
+            throws IOException
+    {
+        long size = 0;
+        for (Path file : files) {
+            size += Files.size(file);
+        }
+        return size;
+    }
+
+    private static Page createLongBlockPage(long... values)
+    {
+        BlockBuilder builder = BIGINT.createFixedSizeBlockBuilder(values.length);
+        for (long value : values) {
+            BIGINT.writeLong(builder, value);
+        }
+        return new Page(builder.build());
+    }
+}
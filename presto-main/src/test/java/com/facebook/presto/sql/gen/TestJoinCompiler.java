@@ -44,6 +44,7 @@ import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.type.TypeUtils.hashPosition;
 import static com.facebook.presto.type.TypeUtils.positionEqualsPosition;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestJoinCompiler
@@ -197,6 +198,11 @@ public class TestJoinCompiler
 
         // verify channel count
         assertEquals(hashStrategy.getChannelCount(), outputChannels.size());
+        // verify output channel blocks
+        for (int outputChannel = 0; outputChannel < outputChannels.size(); outputChannel++) {
+            assertSame(hashStrategy.getOutputChannelBlocks(outputChannel), channels.get(outputChannels.get(outputChannel)));
+            assertSame(expectedHashStrategy.getOutputChannelBlocks(outputChannel), channels.get(outputChannels.get(outputChannel)));
+        }
         // verify size
         int instanceSize = ClassLayout.parseClass(hashStrategy.getClass()).instanceSize();
         long sizeInBytes = instanceSize + channels.stream()
@@ -14,13 +14,17 @@
 package com.facebook.presto.sql.planner;
 
 import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Map;
 
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class TestCompilerConfig
 {
@@ -30,7 +34,10 @@ public class TestCompilerConfig
         assertRecordedDefaults(recordDefaults(CompilerConfig.class)
                 .setExpressionCacheSize(10_000)
                 .setLeafNodeLimitEnabled(false)
-                .setLeafNodeLimit(10_000));
+                .setLeafNodeLimit(10_000)
+                .setGeneratedClassCacheEnabled(false)
+                .setGeneratedClassCacheDirectory(null)
+                .setGeneratedClassCacheMaxSize(new DataSize(512, MEGABYTE)));
     }
 
     @Test
@@ -40,12 +47,18 @@ public class TestCompilerConfig
                 .put("compiler.expression-cache-size", "52")
                 .put("planner.max-leaf-nodes-in-plan", "100")
                 .put("planner.leaf-node-limit-enabled", "true")
+                .put("compiler.generated-class-cache-enabled", "true")
+                .put("compiler.generated-class-cache-directory", "/tmp/presto/generated-classes")
+                .put("compiler.generated-class-cache-max-size", "1GB")
                 .build();
 
         CompilerConfig expected = new CompilerConfig()
                 .setExpressionCacheSize(52)
                 .setLeafNodeLimit(100)
-                .setLeafNodeLimitEnabled(true);
+                .setLeafNodeLimitEnabled(true)
+                .setGeneratedClassCacheEnabled(true)
+                .setGeneratedClassCacheDirectory(new File("/tmp/presto/generated-classes"))
+                .setGeneratedClassCacheMaxSize(new DataSize(1, GIGABYTE));
 
         assertFullMapping(properties, expected);
     }
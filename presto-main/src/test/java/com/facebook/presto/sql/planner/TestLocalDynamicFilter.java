@@ -15,9 +15,11 @@
 package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.operator.BlockedBloomFilter;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.Optimizer;
 import com.facebook.presto.sql.planner.assertions.BasePlanTest;
@@ -40,12 +42,14 @@ import java.util.function.Consumer;
 import static com.facebook.presto.SystemSessionProperties.ENABLE_DYNAMIC_FILTERING;
 import static com.facebook.presto.SystemSessionProperties.FORCE_SINGLE_NODE_OUTPUT;
 import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.common.function.OperatorType.EQUAL;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.testing.assertions.Assert.assertEquals;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestLocalDynamicFilter
         extends BasePlanTest
@@ -123,6 +127,82 @@ public class TestLocalDynamicFilter
                 new VariableReferenceExpression(Optional.empty(), "a", INTEGER), Domain.multipleValues(INTEGER, ImmutableList.of(10L, 20L)))));
     }
 
+    @Test
+    public void testMultiplePartitionsBloomFilters()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression variable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", variable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                2);
+        ListenableFuture<Map<VariableReferenceExpression, BlockedBloomFilter>> result = filter.getBloomFilterResultFuture();
+
+        BlockedBloomFilter first = new BlockedBloomFilter(BIGINT, 1024);
+        first.addAll(createLongsBlock(10L));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", first));
+        filter.getTupleDomainConsumer().accept(TupleDomain.all());
+        assertFalse(result.isDone());
+
+        BlockedBloomFilter second = new BlockedBloomFilter(BIGINT, 1024);
+        second.addAll(createLongsBlock(20L));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", second));
+        filter.getTupleDomainConsumer().accept(TupleDomain.all());
+
+        BlockedBloomFilter merged = result.get().get(variable);
+        Block values = createLongsBlock(10L, 20L, 30L);
+        assertTrue(merged.mightContain(values, 0));
+        assertTrue(merged.mightContain(values, 1));
+        assertFalse(merged.mightContain(values, 2));
+    }
+
+    @Test
+    public void testBloomFilterWithExactPartition()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression variable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", variable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                2);
+        ListenableFuture<Map<VariableReferenceExpression, BlockedBloomFilter>> result = filter.getBloomFilterResultFuture();
+
+        BlockedBloomFilter bloomFilter = new BlockedBloomFilter(BIGINT, 1024);
+        bloomFilter.addAll(createLongsBlock(10L));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", bloomFilter));
+        filter.getTupleDomainConsumer().accept(TupleDomain.all());
+        // the second partition is small enough for an exact predicate and provides no Bloom filter
+        filter.getTupleDomainConsumer().accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.multipleValues(BIGINT, ImmutableList.of(20L)))));
+
+        BlockedBloomFilter merged = result.get().get(variable);
+        Block values = createLongsBlock(10L, 20L, 30L);
+        assertTrue(merged.mightContain(values, 0));
+        assertTrue(merged.mightContain(values, 1));
+        assertFalse(merged.mightContain(values, 2));
+    }
+
+    @Test
+    public void testMissingBloomFilter()
+            throws ExecutionException, InterruptedException
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", new VariableReferenceExpression(Optional.empty(), "a", BIGINT), EQUAL)),
+                ImmutableMap.of("123", 0),
+                2);
+        ListenableFuture<Map<VariableReferenceExpression, BlockedBloomFilter>> result = filter.getBloomFilterResultFuture();
+
+        BlockedBloomFilter bloomFilter = new BlockedBloomFilter(BIGINT, 1024);
+        bloomFilter.addAll(createLongsBlock(10L));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", bloomFilter));
+        filter.getTupleDomainConsumer().accept(TupleDomain.all());
+        // the second partition is too large for its Bloom filter
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of());
+        filter.getTupleDomainConsumer().accept(TupleDomain.all());
+
+        assertEquals(result.get(), ImmutableMap.of());
+    }
+
     @Test
     public void testNone()
             throws ExecutionException, InterruptedException
@@ -54,6 +54,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.orc.AbstractOrcRecordReader.LinearProbeRangeFinder.createTinyStripesRangeFinder;
@@ -138,6 +139,7 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
             long splitLength,
             List<OrcType> types,
             Optional<OrcDecompressor> decompressor,
+            Supplier<Optional<OrcDecompressor>> decompressorFactory,
             Optional<EncryptionLibrary> encryptionLibrary,
             Map<Integer, Integer> dwrfEncryptionGroupMap,
             Map<Integer, Slice> columnToIntermediateKeyMap,
@@ -148,6 +150,8 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
             DataSize maxMergeDistance,
             DataSize tinyStripeThreshold,
             DataSize maxBlockSize,
+            Optional<StripeReadAheadOptions> stripeReadAheadOptions,
+            Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions,
             Map<String, Slice> userMetadata,
             OrcAggregatedMemoryContext systemMemoryUsage,
             Optional<OrcWriteValidation> writeValidation,
@@ -248,9 +252,25 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
         this.intermediateKeyMetadata = createIntermediateKeysMap(columnToIntermediateKeyMap, dwrfEncryptionGroupMap, orcDataSource.getId());
         checkPermissionsForEncryptedColumns(includedOrcColumns, dwrfEncryptionGroupMap, intermediateKeyMetadata);
 
+        // tiny stripes are already buffered by the caching data source, and encrypted stripes
+        // need the decryption keys of the stripe before their streams can be located
+        Optional<StripeReadAhead> stripeReadAhead = Optional.empty();
+        if (requireNonNull(stripeReadAheadOptions, "stripeReadAheadOptions is null").isPresent()
+                && !(orcDataSource instanceof CachingOrcDataSource)
+                && this.dwrfEncryptionGroupMap.isEmpty()) {
+            stripeReadAhead = Optional.of(new StripeReadAhead(stripeReadAheadOptions.get(), maxMergeDistance, systemMemoryUsage.newOrcAggregatedMemoryContext()));
+        }
+
+        // only files the engine considers cacheable are shared across queries, and uncompressed streams need no decompression
+        requireNonNull(decompressedStreamCacheOptions, "decompressedStreamCacheOptions is null");
+        if (!cacheable || !decompressor.isPresent()) {
+            decompressedStreamCacheOptions = Optional.empty();
+        }
+
         stripeReader = new StripeReader(
                 orcDataSource,
                 decompressor,
+                decompressorFactory,
                 types,
                 includedOrcColumns,
                 rowsInRowGroup,
@@ -262,7 +282,9 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
                 cacheable,
                 this.dwrfEncryptionGroupMap,
                 runtimeStats,
-                fileIntrospector);
+                fileIntrospector,
+                stripeReadAhead,
+                decompressedStreamCacheOptions);
 
         this.streamReaders = requireNonNull(streamReaders, "streamReaders is null");
         for (int columnId = 0; columnId < root.getFieldCount(); columnId++) {
@@ -503,6 +525,7 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
     {
         try (Closer closer = Closer.create()) {
             closer.register(orcDataSource);
+            closer.register(stripeReader::close);
             for (StreamReader column : streamReaders) {
                 if (column != null) {
                     closer.register(column::close);
@@ -668,6 +691,9 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
 
         SharedBuffer sharedDecompressionBuffer = new SharedBuffer(currentStripeSystemMemoryContext.newOrcLocalMemoryContext("sharedDecompressionBuffer"));
         Stripe stripe = stripeReader.readStripe(stripeInformation, currentStripeSystemMemoryContext, dwrfEncryptionInfo, sharedDecompressionBuffer);
+        if (currentStripe + 1 < stripes.size()) {
+            stripeReader.readAhead(stripes.get(currentStripe + 1));
+        }
         if (stripe != null) {
             for (StreamReader column : streamReaders) {
                 if (column != null) {
@@ -22,10 +22,12 @@ import io.airlift.units.DataSize;
 import java.util.OptionalInt;
 import java.util.Set;
 
+import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_BLOOM_FILTER_FPP;
 import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_MAX_COMPRESSION_BUFFER_SIZE;
 import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_MAX_FLATTENED_MAP_KEY_COUNT;
 import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_MAX_STRING_STATISTICS_LIMIT;
 import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_PRESERVE_DIRECT_ENCODING_STRIPE_COUNT;
+import static com.facebook.presto.orc.OrcWriterOptions.DEFAULT_ROW_GROUP_MAX_ROW_COUNT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.lang.Math.toIntExact;
@@ -46,6 +48,9 @@ public class ColumnWriterOptions
     private final Set<Integer> flattenedNodes;
     private final boolean mapStatisticsEnabled;
     private final int maxFlattenedMapKeyCount;
+    private final Set<Integer> bloomFilterNodes;
+    private final double bloomFilterFpp;
+    private final int rowGroupMaxRowCount;
 
     public ColumnWriterOptions(
             CompressionKind compressionKind,
@@ -60,9 +65,14 @@ public class ColumnWriterOptions
             CompressionBufferPool compressionBufferPool,
             Set<Integer> flattenedNodes,
             boolean mapStatisticsEnabled,
-            int maxFlattenedMapKeyCount)
+            int maxFlattenedMapKeyCount,
+            Set<Integer> bloomFilterNodes,
+            double bloomFilterFpp,
+            int rowGroupMaxRowCount)
     {
         checkArgument(maxFlattenedMapKeyCount > 0, "maxFlattenedMapKeyCount must be positive: %s", maxFlattenedMapKeyCount);
+        checkArgument(bloomFilterFpp > 0.0 && bloomFilterFpp < 1.0, "bloomFilterFpp must be between 0 and 1: %s", bloomFilterFpp);
+        checkArgument(rowGroupMaxRowCount > 0, "rowGroupMaxRowCount must be positive: %s", rowGroupMaxRowCount);
         requireNonNull(compressionMaxBufferSize, "compressionMaxBufferSize is null");
 
         this.compressionKind = requireNonNull(compressionKind, "compressionKind is null");
@@ -78,6 +88,9 @@ public class ColumnWriterOptions
         this.flattenedNodes = requireNonNull(flattenedNodes, "flattenedNodes is null");
         this.mapStatisticsEnabled = mapStatisticsEnabled;
         this.maxFlattenedMapKeyCount = maxFlattenedMapKeyCount;
+        this.bloomFilterNodes = requireNonNull(bloomFilterNodes, "bloomFilterNodes is null");
+        this.bloomFilterFpp = bloomFilterFpp;
+        this.rowGroupMaxRowCount = rowGroupMaxRowCount;
     }
 
     public CompressionKind getCompressionKind()
@@ -145,6 +158,21 @@ public class ColumnWriterOptions
         return maxFlattenedMapKeyCount;
     }
 
+    public Set<Integer> getBloomFilterNodes()
+    {
+        return bloomFilterNodes;
+    }
+
+    public double getBloomFilterFpp()
+    {
+        return bloomFilterFpp;
+    }
+
+    public int getRowGroupMaxRowCount()
+    {
+        return rowGroupMaxRowCount;
+    }
+
     /**
      * Create a copy of this ColumnWriterOptions, but disable string and integer dictionary encodings.
      */
@@ -171,7 +199,10 @@ public class ColumnWriterOptions
                 .setCompressionBufferPool(getCompressionBufferPool())
                 .setFlattenedNodes(getFlattenedNodes())
                 .setMapStatisticsEnabled(isMapStatisticsEnabled())
-                .setMaxFlattenedMapKeyCount(getMaxFlattenedMapKeyCount());
+                .setMaxFlattenedMapKeyCount(getMaxFlattenedMapKeyCount())
+                .setBloomFilterNodes(getBloomFilterNodes())
+                .setBloomFilterFpp(getBloomFilterFpp())
+                .setRowGroupMaxRowCount(getRowGroupMaxRowCount());
     }
 
     public static Builder builder()
@@ -194,6 +225,9 @@ public class ColumnWriterOptions
         private Set<Integer> flattenedNodes = ImmutableSet.of();
         private boolean mapStatisticsEnabled;
         private int maxFlattenedMapKeyCount = DEFAULT_MAX_FLATTENED_MAP_KEY_COUNT;
+        private Set<Integer> bloomFilterNodes = ImmutableSet.of();
+        private double bloomFilterFpp = DEFAULT_BLOOM_FILTER_FPP;
+        private int rowGroupMaxRowCount = DEFAULT_ROW_GROUP_MAX_ROW_COUNT;
 
         private Builder() {}
 
@@ -275,6 +309,24 @@ public class ColumnWriterOptions
             return this;
         }
 
+        public Builder setBloomFilterNodes(Set<Integer> bloomFilterNodes)
+        {
+            this.bloomFilterNodes = ImmutableSet.copyOf(bloomFilterNodes);
+            return this;
+        }
+
+        public Builder setBloomFilterFpp(double bloomFilterFpp)
+        {
+            this.bloomFilterFpp = bloomFilterFpp;
+            return this;
+        }
+
+        public Builder setRowGroupMaxRowCount(int rowGroupMaxRowCount)
+        {
+            this.rowGroupMaxRowCount = rowGroupMaxRowCount;
+            return this;
+        }
+
         public ColumnWriterOptions build()
         {
             return new ColumnWriterOptions(
@@ -290,7 +342,10 @@ public class ColumnWriterOptions
                     compressionBufferPool,
                     flattenedNodes,
                     mapStatisticsEnabled,
-                    maxFlattenedMapKeyCount);
+                    maxFlattenedMapKeyCount,
+                    bloomFilterNodes,
+                    bloomFilterFpp,
+                    rowGroupMaxRowCount);
         }
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.cache.DecompressedStreamCache;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+public class DecompressedStreamCacheOptions
+{
+    private final DecompressedStreamCache cache;
+    private final long fileModificationTime;
+
+    /**
+     * @param fileModificationTime part of the cache key, so streams of a file that was replaced at the same path are not reused
+     */
+    public DecompressedStreamCacheOptions(DecompressedStreamCache cache, long fileModificationTime)
+    {
+        this.cache = requireNonNull(cache, "cache is null");
+        this.fileModificationTime = fileModificationTime;
+    }
+
+    public DecompressedStreamCache getCache()
+    {
+        return cache;
+    }
+
+    public long getFileModificationTime()
+    {
+        return fileModificationTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("fileModificationTime", fileModificationTime)
+                .toString();
+    }
+}
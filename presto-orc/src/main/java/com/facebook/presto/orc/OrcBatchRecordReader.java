@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static com.facebook.presto.orc.StreamDescriptorFactory.createStreamDescriptor;
 
@@ -54,6 +55,7 @@ public class OrcBatchRecordReader
             long splitLength,
             List<OrcType> types,
             Optional<OrcDecompressor> decompressor,
+            Supplier<Optional<OrcDecompressor>> decompressorFactory,
             Optional<EncryptionLibrary> encryptionLibrary,
             Map<Integer, Integer> dwrfEncryptionGroupMap,
             Map<Integer, Slice> intermediateKeyMetadata,
@@ -90,6 +92,7 @@ public class OrcBatchRecordReader
                 splitLength,
                 types,
                 decompressor,
+                decompressorFactory,
                 encryptionLibrary,
                 dwrfEncryptionGroupMap,
                 intermediateKeyMetadata,
@@ -100,6 +103,8 @@ public class OrcBatchRecordReader
                 options.getMaxMergeDistance(),
                 options.getTinyStripeThreshold(),
                 options.getMaxBlockSize(),
+                options.getStripeReadAheadOptions(),
+                options.getDecompressedStreamCacheOptions(),
                 userMetadata,
                 systemMemoryUsage,
                 writeValidation,
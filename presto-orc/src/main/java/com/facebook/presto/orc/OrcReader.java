@@ -352,6 +352,7 @@ public class OrcReader
                 length,
                 footer.getTypes(),
                 decompressor,
+                this::createDecompressor,
                 encryptionLibrary,
                 dwrfEncryptionGroupMap,
                 columnsToIntermediateKeys,
@@ -405,6 +406,7 @@ public class OrcReader
                 length,
                 footer.getTypes(),
                 decompressor,
+                this::createDecompressor,
                 encryptionLibrary,
                 dwrfEncryptionGroupMap,
                 columnsToIntermediateKeys,
@@ -493,6 +495,11 @@ public class OrcReader
         return orcDataSource;
     }
 
+    private Optional<OrcDecompressor> createDecompressor()
+    {
+        return createOrcDecompressor(orcDataSource.getId(), compressionKind, bufferSize, orcReaderOptions.isOrcZstdJniDecompressionEnabled());
+    }
+
     public StripeFooter readStripeFooter(StripeInformation stripe)
             throws IOException
     {
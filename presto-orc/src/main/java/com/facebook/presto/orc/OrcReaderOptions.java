@@ -15,6 +15,8 @@ package com.facebook.presto.orc;
 
 import io.airlift.units.DataSize;
 
+import java.util.Optional;
+
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
 
@@ -33,6 +35,8 @@ public class OrcReaderOptions
      * lot of map statistics, so enable only if it's really needed.
      */
     private final boolean readMapStatistics;
+    private final Optional<StripeReadAheadOptions> stripeReadAheadOptions;
+    private final Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions;
 
     private OrcReaderOptions(
             DataSize maxMergeDistance,
@@ -41,7 +45,9 @@ public class OrcReaderOptions
             boolean zstdJniDecompressionEnabled,
             boolean mapNullKeysEnabled,
             boolean appendRowNumber,
-            boolean readMapStatistics)
+            boolean readMapStatistics,
+            Optional<StripeReadAheadOptions> stripeReadAheadOptions,
+            Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions)
     {
         this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
         this.maxBlockSize = requireNonNull(maxBlockSize, "maxBlockSize is null");
@@ -50,6 +56,8 @@ public class OrcReaderOptions
         this.mapNullKeysEnabled = mapNullKeysEnabled;
         this.appendRowNumber = appendRowNumber;
         this.readMapStatistics = readMapStatistics;
+        this.stripeReadAheadOptions = requireNonNull(stripeReadAheadOptions, "stripeReadAheadOptions is null");
+        this.decompressedStreamCacheOptions = requireNonNull(decompressedStreamCacheOptions, "decompressedStreamCacheOptions is null");
     }
 
     public DataSize getMaxMergeDistance()
@@ -87,6 +95,16 @@ public class OrcReaderOptions
         return readMapStatistics;
     }
 
+    public Optional<StripeReadAheadOptions> getStripeReadAheadOptions()
+    {
+        return stripeReadAheadOptions;
+    }
+
+    public Optional<DecompressedStreamCacheOptions> getDecompressedStreamCacheOptions()
+    {
+        return decompressedStreamCacheOptions;
+    }
+
     @Override
     public String toString()
     {
@@ -98,6 +116,8 @@ public class OrcReaderOptions
                 .add("mapNullKeysEnabled", mapNullKeysEnabled)
                 .add("appendRowNumber", appendRowNumber)
                 .add("readMapStatistics", readMapStatistics)
+                .add("stripeReadAheadOptions", stripeReadAheadOptions)
+                .add("decompressedStreamCacheOptions", decompressedStreamCacheOptions)
                 .toString();
     }
 
@@ -115,6 +135,8 @@ public class OrcReaderOptions
         private boolean mapNullKeysEnabled;
         private boolean appendRowNumber;
         private boolean readMapStatistics;
+        private Optional<StripeReadAheadOptions> stripeReadAheadOptions = Optional.empty();
+        private Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions = Optional.empty();
 
         private Builder() {}
 
@@ -160,6 +182,18 @@ public class OrcReaderOptions
             return this;
         }
 
+        public Builder withStripeReadAheadOptions(Optional<StripeReadAheadOptions> stripeReadAheadOptions)
+        {
+            this.stripeReadAheadOptions = requireNonNull(stripeReadAheadOptions, "stripeReadAheadOptions is null");
+            return this;
+        }
+
+        public Builder withDecompressedStreamCacheOptions(Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions)
+        {
+            this.decompressedStreamCacheOptions = requireNonNull(decompressedStreamCacheOptions, "decompressedStreamCacheOptions is null");
+            return this;
+        }
+
         public OrcReaderOptions build()
         {
             return new OrcReaderOptions(
@@ -169,7 +203,9 @@ public class OrcReaderOptions
                     zstdJniDecompressionEnabled,
                     mapNullKeysEnabled,
                     appendRowNumber,
-                    readMapStatistics);
+                    readMapStatistics,
+                    stripeReadAheadOptions,
+                    decompressedStreamCacheOptions);
         }
     }
 }
@@ -15,6 +15,8 @@ package com.facebook.presto.orc;
 
 import io.airlift.units.DataSize;
 
+import java.util.Optional;
+
 import static java.util.Objects.requireNonNull;
 
 public class OrcRecordReaderOptions
@@ -24,10 +26,12 @@ public class OrcRecordReaderOptions
     private final DataSize maxBlockSize;
     private final boolean mapNullKeysEnabled;
     private final boolean appendRowNumber;
+    private final Optional<StripeReadAheadOptions> stripeReadAheadOptions;
+    private final Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions;
 
     public OrcRecordReaderOptions(OrcReaderOptions options)
     {
-        this(options.getMaxMergeDistance(), options.getTinyStripeThreshold(), options.getMaxBlockSize(), options.mapNullKeysEnabled(), options.appendRowNumber());
+        this(options.getMaxMergeDistance(), options.getTinyStripeThreshold(), options.getMaxBlockSize(), options.mapNullKeysEnabled(), options.appendRowNumber(), options.getStripeReadAheadOptions(), options.getDecompressedStreamCacheOptions());
     }
 
     public OrcRecordReaderOptions(
@@ -36,12 +40,26 @@ public class OrcRecordReaderOptions
             DataSize maxBlockSize,
             boolean mapNullKeysEnabled,
             boolean appendRowNumber)
+    {
+        this(maxMergeDistance, tinyStripeThreshold, maxBlockSize, mapNullKeysEnabled, appendRowNumber, Optional.empty(), Optional.empty());
+    }
+
+    public OrcRecordReaderOptions(
+            DataSize maxMergeDistance,
+            DataSize tinyStripeThreshold,
+            DataSize maxBlockSize,
+            boolean mapNullKeysEnabled,
+            boolean appendRowNumber,
+            Optional<StripeReadAheadOptions> stripeReadAheadOptions,
+            Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions)
     {
         this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
         this.maxBlockSize = requireNonNull(maxBlockSize, "maxBlockSize is null");
         this.tinyStripeThreshold = requireNonNull(tinyStripeThreshold, "tinyStripeThreshold is null");
         this.mapNullKeysEnabled = mapNullKeysEnabled;
         this.appendRowNumber = appendRowNumber;
+        this.stripeReadAheadOptions = requireNonNull(stripeReadAheadOptions, "stripeReadAheadOptions is null");
+        this.decompressedStreamCacheOptions = requireNonNull(decompressedStreamCacheOptions, "decompressedStreamCacheOptions is null");
     }
 
     public DataSize getMaxMergeDistance()
@@ -68,4 +86,14 @@ public class OrcRecordReaderOptions
     {
         return appendRowNumber;
     }
+
+    public Optional<StripeReadAheadOptions> getStripeReadAheadOptions()
+    {
+        return stripeReadAheadOptions;
+    }
+
+    public Optional<DecompressedStreamCacheOptions> getDecompressedStreamCacheOptions()
+    {
+        return decompressedStreamCacheOptions;
+    }
 }
@@ -62,6 +62,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -172,6 +173,7 @@ public class OrcSelectiveRecordReader
             long length,
             List<OrcType> types,
             Optional<OrcDecompressor> decompressor,
+            Supplier<Optional<OrcDecompressor>> decompressorFactory,
             Optional<EncryptionLibrary> encryptionLibrary,
             Map<Integer, Integer> dwrfEncryptionGroupMap,
             Map<Integer, Slice> intermediateKeyMetadata,
@@ -213,6 +215,7 @@ public class OrcSelectiveRecordReader
                 length,
                 types,
                 decompressor,
+                decompressorFactory,
                 encryptionLibrary,
                 dwrfEncryptionGroupMap,
                 intermediateKeyMetadata,
@@ -223,6 +226,8 @@ public class OrcSelectiveRecordReader
                 options.getMaxMergeDistance(),
                 options.getTinyStripeThreshold(),
                 options.getMaxBlockSize(),
+                options.getStripeReadAheadOptions(),
+                options.getDecompressedStreamCacheOptions(),
                 userMetadata,
                 systemMemoryUsage,
                 writeValidation,
@@ -40,6 +40,7 @@ import com.facebook.presto.orc.stream.StreamDataOutput;
 import com.facebook.presto.orc.writer.ColumnWriter;
 import com.facebook.presto.orc.writer.CompressionBufferPool;
 import com.facebook.presto.orc.writer.CompressionBufferPool.LastUsedCompressionBufferPool;
+import com.facebook.presto.orc.writer.CompressionBufferPool.SharedCompressionBufferPool;
 import com.facebook.presto.orc.writer.DictionaryColumnWriter;
 import com.facebook.presto.orc.writer.StreamLayout;
 import com.google.common.annotations.VisibleForTesting;
@@ -72,6 +73,10 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -93,6 +98,7 @@ import static com.facebook.presto.orc.metadata.statistics.ColumnStatistics.merge
 import static com.facebook.presto.orc.writer.ColumnWriters.createColumnWriter;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
@@ -142,6 +148,7 @@ public class OrcWriter
     @Nullable
     private final OrcWriteValidation.OrcWriteValidationBuilder validationBuilder;
     private final CompressionBufferPool compressionBufferPool;
+    private final Optional<Executor> columnEncodingExecutor;
 
     private int stripeRowCount;
     private int rowGroupRowCount;
@@ -211,7 +218,15 @@ public class OrcWriter
         this.dataSink = requireNonNull(dataSink, "dataSink is null");
         this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
         this.orcEncoding = requireNonNull(orcEncoding, "orcEncoding is null");
-        this.compressionBufferPool = new LastUsedCompressionBufferPool();
+        // column writers of encrypted files share the data encryptors, which are not required to be thread safe
+        this.columnEncodingExecutor = requireNonNull(encryption, "encryption is null").isPresent() ? Optional.empty() : options.getColumnEncodingExecutor();
+        if (columnEncodingExecutor.isPresent()) {
+            // one buffer for every thread that may compress at the same time, including the writer thread
+            this.compressionBufferPool = new SharedCompressionBufferPool(options.getColumnEncodingParallelism() + 1);
+        }
+        else {
+            this.compressionBufferPool = new LastUsedCompressionBufferPool();
+        }
 
         requireNonNull(columnNames, "columnNames is null");
         requireNonNull(inputOrcTypes, "inputOrcTypes is null");
@@ -220,6 +235,8 @@ public class OrcWriter
 
         requireNonNull(compressionKind, "compressionKind is null");
         Set<Integer> flattenedNodes = mapColumnToNode(options.getFlattenedColumns(), orcTypes);
+        checkArgument(options.getBloomFilterColumns().isEmpty() || orcEncoding != DWRF, "DWRF does not support bloom filters");
+        Set<Integer> bloomFilterNodes = mapColumnToNode(options.getBloomFilterColumns(), orcTypes);
         this.columnWriterOptions = ColumnWriterOptions.builder()
                 .setCompressionKind(compressionKind)
                 .setCompressionLevel(options.getCompressionLevel())
@@ -234,6 +251,9 @@ public class OrcWriter
                 .setFlattenedNodes(flattenedNodes)
                 .setMapStatisticsEnabled(options.isMapStatisticsEnabled())
                 .setMaxFlattenedMapKeyCount(options.getMaxFlattenedMapKeyCount())
+                .setBloomFilterNodes(bloomFilterNodes)
+                .setBloomFilterFpp(options.getBloomFilterFpp())
+                .setRowGroupMaxRowCount(options.getRowGroupMaxRowCount())
                 .build();
         recordValidation(validation -> validation.setCompression(compressionKind));
         recordValidation(validation -> validation.setFlattenedNodes(flattenedNodes));
@@ -526,7 +546,68 @@ public class OrcWriter
             dictionaryCompressionOptimizer.finalOptimize(bufferedBytes);
         }
 
-        columnWriters.forEach(ColumnWriter::close);
+        if (columnEncodingExecutor.isPresent()) {
+            closeColumnWritersInParallel(columnEncodingExecutor.get());
+        }
+        else {
+            columnWriters.forEach(ColumnWriter::close);
+        }
+    }
+
+    /**
+     * Closing a column writer encodes and compresses its buffered data, e.g. writes out the
+     * dictionary, which is the CPU heavy part of flushing a stripe. Column writers do not share
+     * state besides the compression buffer pool, so they are closed on the executor while the
+     * writer thread closes the writers that have not been picked up yet. The streams are still
+     * collected in column order afterwards, so the file layout does not change.
+     */
+    private void closeColumnWritersInParallel(Executor executor)
+    {
+        List<FutureTask<?>> tasks = new ArrayList<>(columnWriters.size());
+        for (ColumnWriter columnWriter : columnWriters) {
+            FutureTask<?> task = new FutureTask<>(columnWriter::close, null);
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException ignored) {
+                // the writer thread closes the column writer below
+            }
+        }
+
+        // running a task that was already started or finished does nothing
+        tasks.forEach(FutureTask::run);
+
+        // wait for all column writers, even if one of them failed, so none is still being closed when this returns
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (FutureTask<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    else if (failure != e.getCause()) {
+                        failure.addSuppressed(e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throwIfUnchecked(failure);
+            throw new RuntimeException(failure);
+        }
     }
 
     /**
@@ -22,6 +22,7 @@ import io.airlift.units.DataSize;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import static com.facebook.presto.orc.metadata.DwrfStripeCacheMode.INDEX_AND_FOOTER;
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -47,6 +48,7 @@ public class OrcWriterOptions
     public static final boolean DEFAULT_INTEGER_DICTIONARY_ENCODING_ENABLED = false;
     public static final boolean DEFAULT_STRING_DICTIONARY_ENCODING_ENABLED = true;
     public static final boolean DEFAULT_STRING_DICTIONARY_SORTING_ENABLED = true;
+    public static final double DEFAULT_BLOOM_FILTER_FPP = 0.05;
 
     private final OrcWriterFlushPolicy flushPolicy;
     private final int rowGroupMaxRowCount;
@@ -76,6 +78,21 @@ public class OrcWriterOptions
      */
     private final Set<Integer> flattenedColumns;
 
+    /**
+     * Contains indexes of columns (not nodes!) for which writer should write row group bloom filters.
+     */
+    private final Set<Integer> bloomFilterColumns;
+    private final double bloomFilterFpp;
+
+    /**
+     * Executor used to encode and compress the column writers in parallel when a stripe is closed.
+     */
+    private final Optional<Executor> columnEncodingExecutor;
+    /**
+     * Maximum number of threads of the column encoding executor that run at the same time.
+     */
+    private final int columnEncodingParallelism;
+
     private OrcWriterOptions(
             OrcWriterFlushPolicy flushPolicy,
             int rowGroupMaxRowCount,
@@ -95,7 +112,11 @@ public class OrcWriterOptions
             int preserveDirectEncodingStripeCount,
             Set<Integer> flattenedColumns,
             boolean mapStatisticsEnabled,
-            int maxFlattenedMapKeyCount)
+            int maxFlattenedMapKeyCount,
+            Set<Integer> bloomFilterColumns,
+            double bloomFilterFpp,
+            Optional<Executor> columnEncodingExecutor,
+            int columnEncodingParallelism)
     {
         requireNonNull(flushPolicy, "flushPolicy is null");
         checkArgument(rowGroupMaxRowCount >= 1, "rowGroupMaxRowCount must be at least 1");
@@ -109,6 +130,10 @@ public class OrcWriterOptions
         requireNonNull(dwrfWriterOptions, "dwrfWriterOptions is null");
         requireNonNull(flattenedColumns, "flattenedColumns is null");
         checkArgument(maxFlattenedMapKeyCount > 0, "maxFlattenedMapKeyCount must be positive: %s", maxFlattenedMapKeyCount);
+        requireNonNull(bloomFilterColumns, "bloomFilterColumns is null");
+        checkArgument(bloomFilterFpp > 0.0 && bloomFilterFpp < 1.0, "bloomFilterFpp must be between 0 and 1: %s", bloomFilterFpp);
+        requireNonNull(columnEncodingExecutor, "columnEncodingExecutor is null");
+        checkArgument(columnEncodingParallelism > 0, "columnEncodingParallelism must be positive: %s", columnEncodingParallelism);
 
         this.flushPolicy = flushPolicy;
         this.rowGroupMaxRowCount = rowGroupMaxRowCount;
@@ -129,6 +154,10 @@ public class OrcWriterOptions
         this.flattenedColumns = flattenedColumns;
         this.mapStatisticsEnabled = mapStatisticsEnabled;
         this.maxFlattenedMapKeyCount = maxFlattenedMapKeyCount;
+        this.bloomFilterColumns = bloomFilterColumns;
+        this.bloomFilterFpp = bloomFilterFpp;
+        this.columnEncodingExecutor = columnEncodingExecutor;
+        this.columnEncodingParallelism = columnEncodingParallelism;
     }
 
     public OrcWriterFlushPolicy getFlushPolicy()
@@ -226,6 +255,26 @@ public class OrcWriterOptions
         return maxFlattenedMapKeyCount;
     }
 
+    public Set<Integer> getBloomFilterColumns()
+    {
+        return bloomFilterColumns;
+    }
+
+    public double getBloomFilterFpp()
+    {
+        return bloomFilterFpp;
+    }
+
+    public Optional<Executor> getColumnEncodingExecutor()
+    {
+        return columnEncodingExecutor;
+    }
+
+    public int getColumnEncodingParallelism()
+    {
+        return columnEncodingParallelism;
+    }
+
     @Override
     public String toString()
     {
@@ -249,6 +298,10 @@ public class OrcWriterOptions
                 .add("flattenedColumns", flattenedColumns)
                 .add("mapStatisticsEnabled", mapStatisticsEnabled)
                 .add("maxFlattenedMapKeyCount", maxFlattenedMapKeyCount)
+                .add("bloomFilterColumns", bloomFilterColumns)
+                .add("bloomFilterFpp", bloomFilterFpp)
+                .add("parallelColumnEncoding", columnEncodingExecutor.isPresent())
+                .add("columnEncodingParallelism", columnEncodingParallelism)
                 .toString();
     }
 
@@ -285,6 +338,10 @@ public class OrcWriterOptions
         private Set<Integer> flattenedColumns = ImmutableSet.of();
         private boolean mapStatisticsEnabled;
         private int maxFlattenedMapKeyCount = DEFAULT_MAX_FLATTENED_MAP_KEY_COUNT;
+        private Set<Integer> bloomFilterColumns = ImmutableSet.of();
+        private double bloomFilterFpp = DEFAULT_BLOOM_FILTER_FPP;
+        private Optional<Executor> columnEncodingExecutor = Optional.empty();
+        private int columnEncodingParallelism = 1;
 
         public Builder withFlushPolicy(OrcWriterFlushPolicy flushPolicy)
         {
@@ -414,6 +471,25 @@ public class OrcWriterOptions
             return this;
         }
 
+        public Builder withBloomFilterColumns(Set<Integer> bloomFilterColumns)
+        {
+            this.bloomFilterColumns = ImmutableSet.copyOf(bloomFilterColumns);
+            return this;
+        }
+
+        public Builder withBloomFilterFpp(double bloomFilterFpp)
+        {
+            this.bloomFilterFpp = bloomFilterFpp;
+            return this;
+        }
+
+        public Builder withColumnEncodingExecutor(Executor columnEncodingExecutor, int columnEncodingParallelism)
+        {
+            this.columnEncodingExecutor = Optional.of(requireNonNull(columnEncodingExecutor, "columnEncodingExecutor is null"));
+            this.columnEncodingParallelism = columnEncodingParallelism;
+            return this;
+        }
+
         public OrcWriterOptions build()
         {
             Optional<DwrfStripeCacheOptions> dwrfWriterOptions;
@@ -443,7 +519,11 @@ public class OrcWriterOptions
                     preserveDirectEncodingStripeCount,
                     flattenedColumns,
                     mapStatisticsEnabled,
-                    maxFlattenedMapKeyCount);
+                    maxFlattenedMapKeyCount,
+                    bloomFilterColumns,
+                    bloomFilterFpp,
+                    columnEncodingExecutor,
+                    columnEncodingParallelism);
         }
     }
 }
@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.metadata.StripeFooter;
+import com.facebook.presto.orc.metadata.StripeInformation;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import io.airlift.slice.Slice;
+import io.airlift.units.DataSize;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.orc.OrcDataSourceUtils.getDiskRangeSlice;
+import static com.facebook.presto.orc.OrcDataSourceUtils.mergeAdjacentDiskRanges;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads the footer and the selected data streams of the next stripe on a background
+ * executor while the current stripe is decoded, so that the reader does not stall on
+ * I/O at every stripe boundary. At most one stripe is read ahead at a time, and the
+ * buffered bytes are accounted in the reader memory context until the stripe is used.
+ */
+final class StripeReadAhead
+{
+    private final StripeReadAheadOptions options;
+    private final long maxReadAheadBytes;
+    private final DataSize maxMergeDistance;
+    private final OrcAggregatedMemoryContext systemMemoryUsage;
+
+    private Optional<PendingStripe> pendingStripe = Optional.empty();
+
+    public StripeReadAhead(StripeReadAheadOptions options, DataSize maxMergeDistance, OrcAggregatedMemoryContext systemMemoryUsage)
+    {
+        this.options = requireNonNull(options, "options is null");
+        this.maxReadAheadBytes = options.getMaxReadAheadSize().toBytes();
+        checkArgument(maxReadAheadBytes > 0, "maxReadAheadSize must be greater than zero");
+        this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
+        this.systemMemoryUsage = requireNonNull(systemMemoryUsage, "systemMemoryUsage is null");
+    }
+
+    /**
+     * Starts reading the specified stripe in the background, unless another stripe is already being read ahead.
+     */
+    public void schedule(StripeInformation stripe, StripeLoader loader)
+    {
+        if (pendingStripe.isPresent()) {
+            return;
+        }
+
+        OrcLocalMemoryContext memoryContext = systemMemoryUsage.newOrcLocalMemoryContext(StripeReadAhead.class.getSimpleName());
+        AtomicBoolean started = new AtomicBoolean();
+        ListenableFutureTask<ReadAheadStripe> task = ListenableFutureTask.create(() -> {
+            started.set(true);
+            return loader.load(memoryContext);
+        });
+        try {
+            options.getExecutor().execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            // read-ahead is an optimization, the stripe will be read when it is needed
+            memoryContext.close();
+            return;
+        }
+        pendingStripe = Optional.of(new PendingStripe(stripe.getOffset(), task, started, memoryContext));
+    }
+
+    /**
+     * Returns the read-ahead data of the specified stripe, waiting for the read to finish if necessary.
+     * Returns empty if the stripe was not read ahead or the read failed, in which case the caller reads
+     * the stripe itself.
+     */
+    public Optional<ReadAheadStripe> take(StripeInformation stripe)
+            throws IOException
+    {
+        if (!pendingStripe.isPresent()) {
+            return Optional.empty();
+        }
+        PendingStripe pending = pendingStripe.get();
+        pendingStripe = Optional.empty();
+
+        if (pending.getStripeOffset() != stripe.getOffset()) {
+            discard(pending);
+            options.getStats().recordReadAheadMiss();
+            return Optional.empty();
+        }
+
+        boolean done = pending.getFuture().isDone();
+        if (!done && !pending.isStarted()) {
+            // the read is still queued behind other readers, so waiting for it would be slower than reading now
+            discard(pending);
+            options.getStats().recordReadAheadMiss();
+            return Optional.empty();
+        }
+
+        ReadAheadStripe readAheadStripe;
+        try {
+            readAheadStripe = pending.getFuture().get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(pending);
+            throw new InterruptedIOException("Interrupted while waiting for stripe read-ahead");
+        }
+        catch (ExecutionException e) {
+            // the synchronous read reports the failure, if it is not transient
+            options.getStats().recordReadAheadMiss();
+            return Optional.empty();
+        }
+        finally {
+            // from here on the buffers are accounted by the streams of the stripe
+            pending.getMemoryContext().close();
+        }
+
+        if (done) {
+            options.getStats().recordReadAheadHit(readAheadStripe.getSizeInBytes());
+        }
+        else {
+            options.getStats().recordReadAheadMiss();
+        }
+        return Optional.of(readAheadStripe);
+    }
+
+    public void close()
+    {
+        pendingStripe.ifPresent(this::discard);
+        pendingStripe = Optional.empty();
+    }
+
+    /**
+     * Reads the disk ranges, which are relative to the stripe offset, into memory. Returns an empty map,
+     * if the ranges are too large to be read ahead.
+     */
+    public Map<StreamId, Slice> readDiskRanges(OrcDataSource orcDataSource, long stripeOffset, Map<StreamId, DiskRange> diskRanges, OrcLocalMemoryContext memoryContext)
+            throws IOException
+    {
+        List<DiskRange> mergedRanges = mergeAdjacentDiskRanges(diskRanges.values(), maxMergeDistance, new DataSize(maxReadAheadBytes, BYTE));
+        long totalBytes = 0;
+        for (DiskRange mergedRange : mergedRanges) {
+            totalBytes += mergedRange.getLength();
+        }
+        if (totalBytes > maxReadAheadBytes) {
+            return ImmutableMap.of();
+        }
+        memoryContext.setBytes(totalBytes);
+
+        Map<DiskRange, byte[]> buffers = new LinkedHashMap<>();
+        for (DiskRange mergedRange : mergedRanges) {
+            byte[] buffer = new byte[mergedRange.getLength()];
+            orcDataSource.readFully(stripeOffset + mergedRange.getOffset(), buffer);
+            buffers.put(mergedRange, buffer);
+        }
+
+        ImmutableMap.Builder<StreamId, Slice> slices = ImmutableMap.builder();
+        for (Entry<StreamId, DiskRange> entry : diskRanges.entrySet()) {
+            slices.put(entry.getKey(), getDiskRangeSlice(entry.getValue(), buffers));
+        }
+        return slices.build();
+    }
+
+    private void discard(PendingStripe pending)
+    {
+        ListenableFutureTask<ReadAheadStripe> future = pending.getFuture();
+        future.cancel(false);
+        // the memory is released once the read has stopped
+        future.addListener(pending.getMemoryContext()::close, directExecutor());
+        if (future.isDone() && !future.isCancelled()) {
+            try {
+                options.getStats().recordReadAheadWasted(future.get().getSizeInBytes());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException ignored) {
+            }
+        }
+    }
+
+    interface StripeLoader
+    {
+        ReadAheadStripe load(OrcLocalMemoryContext memoryContext)
+                throws IOException;
+    }
+
+    static class ReadAheadStripe
+    {
+        private final StripeFooter stripeFooter;
+        private final Map<StreamId, Slice> dataStreams;
+        private final long sizeInBytes;
+
+        public ReadAheadStripe(StripeFooter stripeFooter, Map<StreamId, Slice> dataStreams)
+        {
+            this.stripeFooter = requireNonNull(stripeFooter, "stripeFooter is null");
+            this.dataStreams = ImmutableMap.copyOf(requireNonNull(dataStreams, "dataStreams is null"));
+            long sizeInBytes = 0;
+            for (Slice slice : dataStreams.values()) {
+                sizeInBytes += slice.length();
+            }
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public StripeFooter getStripeFooter()
+        {
+            return stripeFooter;
+        }
+
+        public Map<StreamId, Slice> getDataStreams()
+        {
+            return dataStreams;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+
+    private static class PendingStripe
+    {
+        private final long stripeOffset;
+        private final ListenableFutureTask<ReadAheadStripe> future;
+        private final AtomicBoolean started;
+        private final OrcLocalMemoryContext memoryContext;
+
+        public PendingStripe(long stripeOffset, ListenableFutureTask<ReadAheadStripe> future, AtomicBoolean started, OrcLocalMemoryContext memoryContext)
+        {
+            this.stripeOffset = stripeOffset;
+            this.future = requireNonNull(future, "future is null");
+            this.started = requireNonNull(started, "started is null");
+            this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        }
+
+        public long getStripeOffset()
+        {
+            return stripeOffset;
+        }
+
+        public ListenableFutureTask<ReadAheadStripe> getFuture()
+        {
+            return future;
+        }
+
+        public boolean isStarted()
+        {
+            return started.get();
+        }
+
+        public OrcLocalMemoryContext getMemoryContext()
+        {
+            return memoryContext;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import io.airlift.units.DataSize;
+
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+public class StripeReadAheadOptions
+{
+    private final Executor executor;
+    private final DataSize maxReadAheadSize;
+    private final StripeReadAheadStats stats;
+
+    /**
+     * @param executor executor for the read-ahead I/O; the data source must support concurrent positional reads
+     * @param maxReadAheadSize stripes whose selected data streams are larger than this are not read ahead
+     */
+    public StripeReadAheadOptions(Executor executor, DataSize maxReadAheadSize, StripeReadAheadStats stats)
+    {
+        this.executor = requireNonNull(executor, "executor is null");
+        this.maxReadAheadSize = requireNonNull(maxReadAheadSize, "maxReadAheadSize is null");
+        this.stats = requireNonNull(stats, "stats is null");
+    }
+
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    public DataSize getMaxReadAheadSize()
+    {
+        return maxReadAheadSize;
+    }
+
+    public StripeReadAheadStats getStats()
+    {
+        return stats;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("maxReadAheadSize", maxReadAheadSize)
+                .toString();
+    }
+}
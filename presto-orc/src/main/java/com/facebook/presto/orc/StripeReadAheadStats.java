@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+public interface StripeReadAheadStats
+{
+    StripeReadAheadStats NOOP_STRIPE_READ_AHEAD_STATS = new StripeReadAheadStats()
+    {
+        @Override
+        public void recordReadAheadHit(long bytes) {}
+
+        @Override
+        public void recordReadAheadMiss() {}
+
+        @Override
+        public void recordReadAheadWasted(long bytes) {}
+    };
+
+    /**
+     * The stripe was read ahead and the read had completed by the time the stripe was needed.
+     */
+    void recordReadAheadHit(long bytes);
+
+    /**
+     * The reader had to wait for, or redo, the read of a stripe that was scheduled for read-ahead.
+     */
+    void recordReadAheadMiss();
+
+    /**
+     * Bytes that were read ahead, but were discarded without being used.
+     */
+    void recordReadAheadWasted(long bytes);
+}
@@ -14,6 +14,10 @@
 package com.facebook.presto.orc;
 
 import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.orc.StripeReadAhead.ReadAheadStripe;
+import com.facebook.presto.orc.cache.DecompressedStreamCache;
+import com.facebook.presto.orc.cache.DecompressedStreamCache.CachedStream;
+import com.facebook.presto.orc.cache.DecompressedStreamCache.StreamKey;
 import com.facebook.presto.orc.checkpoint.InvalidCheckpointException;
 import com.facebook.presto.orc.checkpoint.StreamCheckpoint;
 import com.facebook.presto.orc.metadata.ColumnEncoding;
@@ -31,6 +35,7 @@ import com.facebook.presto.orc.metadata.StripeFooter;
 import com.facebook.presto.orc.metadata.StripeInformation;
 import com.facebook.presto.orc.metadata.statistics.ColumnStatistics;
 import com.facebook.presto.orc.metadata.statistics.HiveBloomFilter;
+import com.facebook.presto.orc.stream.DecompressedChunkList;
 import com.facebook.presto.orc.stream.InputStreamSource;
 import com.facebook.presto.orc.stream.InputStreamSources;
 import com.facebook.presto.orc.stream.OrcInputStream;
@@ -60,7 +65,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.function.Supplier;
 
+import static com.facebook.presto.orc.NoopOrcAggregatedMemoryContext.NOOP_ORC_AGGREGATED_MEMORY_CONTEXT;
 import static com.facebook.presto.orc.NoopOrcLocalMemoryContext.NOOP_ORC_LOCAL_MEMORY_CONTEXT;
 import static com.facebook.presto.orc.checkpoint.Checkpoints.getDictionaryStreamCheckpoint;
 import static com.facebook.presto.orc.checkpoint.Checkpoints.getStreamCheckpoints;
@@ -70,6 +77,7 @@ import static com.facebook.presto.orc.metadata.DwrfMetadataReader.toStripeEncryp
 import static com.facebook.presto.orc.metadata.OrcType.OrcTypeKind.STRUCT;
 import static com.facebook.presto.orc.metadata.Stream.StreamArea.INDEX;
 import static com.facebook.presto.orc.metadata.Stream.StreamKind.BLOOM_FILTER;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.BLOOM_FILTER_UTF8;
 import static com.facebook.presto.orc.metadata.Stream.StreamKind.DICTIONARY_DATA;
 import static com.facebook.presto.orc.metadata.Stream.StreamKind.LENGTH;
 import static com.facebook.presto.orc.metadata.Stream.StreamKind.ROW_INDEX;
@@ -87,6 +95,8 @@ public class StripeReader
 {
     private final OrcDataSource orcDataSource;
     private final Optional<OrcDecompressor> decompressor;
+    // decompressors are not thread-safe, so every read-ahead gets its own
+    private final Supplier<Optional<OrcDecompressor>> decompressorFactory;
     private final List<OrcType> types;
     private final HiveWriterVersion hiveWriterVersion;
     private final Set<Integer> includedOrcColumns;
@@ -99,10 +109,15 @@ public class StripeReader
     private final Multimap<Integer, Integer> dwrfEncryptionGroupColumns;
     private final RuntimeStats runtimeStats;
     private final Optional<OrcFileIntrospector> fileIntrospector;
+    private final Optional<StripeReadAhead> stripeReadAhead;
+    private final Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions;
+    // cached streams read by the current stripe, released when the next stripe is read
+    private final List<CachedStream> pinnedStreams = new ArrayList<>();
 
     public StripeReader(
             OrcDataSource orcDataSource,
             Optional<OrcDecompressor> decompressor,
+            Supplier<Optional<OrcDecompressor>> decompressorFactory,
             List<OrcType> types,
             Set<Integer> includedOrcColumns,
             int rowsInRowGroup,
@@ -114,10 +129,13 @@ public class StripeReader
             boolean cacheable,
             Map<Integer, Integer> dwrfEncryptionGroupMap,
             RuntimeStats runtimeStats,
-            Optional<OrcFileIntrospector> fileIntrospector)
+            Optional<OrcFileIntrospector> fileIntrospector,
+            Optional<StripeReadAhead> stripeReadAhead,
+            Optional<DecompressedStreamCacheOptions> decompressedStreamCacheOptions)
     {
         this.orcDataSource = requireNonNull(orcDataSource, "orcDataSource is null");
         this.decompressor = requireNonNull(decompressor, "decompressor is null");
+        this.decompressorFactory = requireNonNull(decompressorFactory, "decompressorFactory is null");
         this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
         this.includedOrcColumns = requireNonNull(includedOrcColumns, "includedColumns is null");
         this.rowsInRowGroup = rowsInRowGroup;
@@ -130,6 +148,8 @@ public class StripeReader
         this.dwrfEncryptionGroupColumns = invertEncryptionGroupMap(requireNonNull(dwrfEncryptionGroupMap, "dwrfEncryptionGroupMap is null"));
         this.runtimeStats = requireNonNull(runtimeStats, "runtimeStats is null");
         this.fileIntrospector = requireNonNull(fileIntrospector, "fileIntrospector is null");
+        this.stripeReadAhead = requireNonNull(stripeReadAhead, "stripeReadAhead is null");
+        this.decompressedStreamCacheOptions = requireNonNull(decompressedStreamCacheOptions, "decompressedStreamCacheOptions is null");
     }
 
     private Multimap<Integer, Integer> invertEncryptionGroupMap(Map<Integer, Integer> dwrfEncryptionGroupMap)
@@ -155,8 +175,17 @@ public class StripeReader
     {
         StripeId stripeId = new StripeId(orcDataSource.getId(), stripe.getOffset());
 
+        // the streams of the previous stripe are no longer read
+        releasePinnedStreams();
+
+        Optional<ReadAheadStripe> readAheadStripe = Optional.empty();
+        if (stripeReadAhead.isPresent()) {
+            readAheadStripe = stripeReadAhead.get().take(stripe);
+        }
+        Map<StreamId, Slice> readAheadStreams = readAheadStripe.map(ReadAheadStripe::getDataStreams).orElse(ImmutableMap.of());
+
         // read the stripe footer
-        StripeFooter stripeFooter = readStripeFooter(stripeId, stripe, systemMemoryUsage);
+        StripeFooter stripeFooter = readAheadStripe.isPresent() ? readAheadStripe.get().getStripeFooter() : readStripeFooter(stripeId, stripe, systemMemoryUsage);
         fileIntrospector.ifPresent(introspector -> introspector.onStripeFooter(stripe, stripeFooter));
 
         // get streams for selected columns
@@ -189,7 +218,7 @@ public class StripeReader
             diskRanges = Maps.filterKeys(diskRanges, Predicates.in(includedStreams.keySet()));
 
             // read the file regions
-            Map<StreamId, OrcInputStream> streamsData = readDiskRanges(stripeId, diskRanges, systemMemoryUsage, decryptors, sharedDecompressionBuffer);
+            Map<StreamId, OrcInputStream> streamsData = readDiskRanges(stripeId, diskRanges, readAheadStreams, systemMemoryUsage, decryptors, sharedDecompressionBuffer);
 
             // read the row index for each column
             Map<StreamId, List<RowGroupIndex>> columnIndexes = readColumnIndexes(includedStreams, streamsData, stripeId);
@@ -248,7 +277,7 @@ public class StripeReader
         ImmutableMap<StreamId, DiskRange> diskRanges = diskRangesBuilder.build();
 
         // read the file regions
-        Map<StreamId, OrcInputStream> streamsData = readDiskRanges(stripeId, diskRanges, systemMemoryUsage, decryptors, sharedDecompressionBuffer);
+        Map<StreamId, OrcInputStream> streamsData = readDiskRanges(stripeId, diskRanges, readAheadStreams, systemMemoryUsage, decryptors, sharedDecompressionBuffer);
 
         long totalBytes = 0;
         ImmutableMap.Builder<StreamId, List<RowGroupIndex>> columnIndexes = ImmutableMap.builder();
@@ -287,6 +316,45 @@ public class StripeReader
         return new Stripe(stripe.getNumberOfRows(), columnEncodings, ImmutableList.of(rowGroup), dictionaryStreamSources);
     }
 
+    /**
+     * Starts reading the footer and the data streams of the stripe in the background, if read-ahead is enabled.
+     * Index streams are left to the stripe metadata source, which may serve them from a cache.
+     */
+    public void readAhead(StripeInformation stripe)
+    {
+        if (!stripeReadAhead.isPresent()) {
+            return;
+        }
+        StripeReadAhead readAhead = stripeReadAhead.get();
+        readAhead.schedule(stripe, memoryContext -> {
+            StripeId stripeId = new StripeId(orcDataSource.getId(), stripe.getOffset());
+            // the read-ahead runs concurrently with the reader thread, which keeps using the shared decompressor
+            StripeFooter stripeFooter = readStripeFooter(stripeId, stripe, decompressorFactory.get(), NOOP_ORC_AGGREGATED_MEMORY_CONTEXT);
+
+            Map<StreamId, Stream> includedStreams = new HashMap<>();
+            addIncludedStreams(stripeFooter.getColumnEncodings(), stripeFooter.getStreams(), includedStreams);
+            Map<StreamId, DiskRange> dataRanges = Maps.filterKeys(
+                    getDiskRanges(ImmutableList.of(stripeFooter.getStreams())),
+                    streamId -> includedStreams.containsKey(streamId) && !isIndexStream(includedStreams.get(streamId)));
+
+            return new ReadAheadStripe(stripeFooter, readAhead.readDiskRanges(orcDataSource, stripe.getOffset(), dataRanges, memoryContext));
+        });
+    }
+
+    public void close()
+    {
+        stripeReadAhead.ifPresent(StripeReadAhead::close);
+        releasePinnedStreams();
+    }
+
+    private void releasePinnedStreams()
+    {
+        for (CachedStream stream : pinnedStreams) {
+            stream.release();
+        }
+        pinnedStreams.clear();
+    }
+
     private StripeEncryptionGroup getStripeEncryptionGroup(DwrfDataEncryptor decryptor, Slice encryptedGroup, Collection<Integer> columns, OrcAggregatedMemoryContext systemMemoryUsage)
             throws IOException
     {
@@ -336,6 +404,7 @@ public class StripeReader
     private Map<StreamId, OrcInputStream> readDiskRanges(
             StripeId stripeId,
             Map<StreamId, DiskRange> diskRanges,
+            Map<StreamId, Slice> readAheadStreams,
             OrcAggregatedMemoryContext systemMemoryUsage,
             Optional<DwrfEncryptionInfo> decryptors,
             SharedBuffer sharedDecompressionBuffer)
@@ -345,13 +414,82 @@ public class StripeReader
         // Note: this code does not use the Java 8 stream APIs to avoid any extra object allocation
         //
 
+        // streams found in the decompressed stream cache are not read at all
+        Map<StreamId, CachedStream> cachedStreams = ImmutableMap.of();
+        if (decompressedStreamCacheOptions.isPresent()) {
+            DecompressedStreamCache cache = decompressedStreamCacheOptions.get().getCache();
+            cachedStreams = new HashMap<>();
+            ImmutableMap.Builder<StreamId, DiskRange> uncachedRangesBuilder = ImmutableMap.builder();
+            for (Entry<StreamId, DiskRange> entry : diskRanges.entrySet()) {
+                if (isDecompressedStreamCacheable(entry.getKey(), decryptors)) {
+                    Optional<CachedStream> cachedStream = cache.get(createStreamKey(stripeId, entry.getKey()));
+                    if (cachedStream.isPresent()) {
+                        pinnedStreams.add(cachedStream.get());
+                        cachedStreams.put(entry.getKey(), cachedStream.get());
+                        continue;
+                    }
+                }
+                uncachedRangesBuilder.put(entry);
+            }
+            diskRanges = uncachedRangesBuilder.build();
+        }
+
         // read ranges
-        Map<StreamId, OrcDataSourceInput> streamsData = stripeMetadataSource.getInputs(orcDataSource, stripeId, diskRanges, cacheable);
+        Map<StreamId, OrcDataSourceInput> streamsData;
+        if (readAheadStreams.isEmpty()) {
+            streamsData = stripeMetadataSource.getInputs(orcDataSource, stripeId, diskRanges, cacheable);
+        }
+        else {
+            // streams that were read ahead are served from memory, the rest come from the metadata source
+            ImmutableMap.Builder<StreamId, OrcDataSourceInput> inputsBuilder = ImmutableMap.builder();
+            ImmutableMap.Builder<StreamId, DiskRange> remainingRangesBuilder = ImmutableMap.builder();
+            for (Entry<StreamId, DiskRange> entry : diskRanges.entrySet()) {
+                Slice slice = readAheadStreams.get(entry.getKey());
+                if (slice != null) {
+                    inputsBuilder.put(entry.getKey(), new OrcDataSourceInput(slice.getInput(), slice.length()));
+                }
+                else {
+                    remainingRangesBuilder.put(entry);
+                }
+            }
+            inputsBuilder.putAll(stripeMetadataSource.getInputs(orcDataSource, stripeId, remainingRangesBuilder.build(), cacheable));
+            streamsData = inputsBuilder.build();
+        }
 
         // transform streams to OrcInputStream
         ImmutableMap.Builder<StreamId, OrcInputStream> streamsBuilder = ImmutableMap.builder();
+        for (Entry<StreamId, CachedStream> entry : cachedStreams.entrySet()) {
+            streamsBuilder.put(entry.getKey(), new OrcInputStream(orcDataSource.getId(), sharedDecompressionBuffer, entry.getValue(), systemMemoryUsage));
+        }
         for (Entry<StreamId, OrcDataSourceInput> entry : streamsData.entrySet()) {
             OrcDataSourceInput sourceInput = entry.getValue();
+            if (decompressedStreamCacheOptions.isPresent() && isDecompressedStreamCacheable(entry.getKey(), decryptors)) {
+                DecompressedStreamCache cache = decompressedStreamCacheOptions.get().getCache();
+                StreamKey streamKey = createStreamKey(stripeId, entry.getKey());
+                if (cache.isAdmissible(streamKey)) {
+                    // the stream is requested repeatedly, so decompress all of it once and share it with later readers
+                    DecompressedChunkList chunks;
+                    // the compressed input and the decompressed copy are charged to the reader until the copy is admitted
+                    OrcAggregatedMemoryContext admissionMemoryUsage = systemMemoryUsage.newOrcAggregatedMemoryContext();
+                    try {
+                        chunks = new OrcInputStream(
+                                orcDataSource.getId(),
+                                sharedDecompressionBuffer,
+                                sourceInput.getInput(),
+                                decompressor,
+                                Optional.empty(),
+                                admissionMemoryUsage,
+                                sourceInput.getRetainedSizeInBytes())
+                                .decompressAllChunks();
+                        cache.put(streamKey, chunks);
+                    }
+                    finally {
+                        admissionMemoryUsage.close();
+                    }
+                    streamsBuilder.put(entry.getKey(), new OrcInputStream(orcDataSource.getId(), sharedDecompressionBuffer, chunks, systemMemoryUsage));
+                    continue;
+                }
+            }
             Optional<DwrfDataEncryptor> dwrfDecryptor = createDwrfDecryptor(entry.getKey(), decryptors);
             streamsBuilder.put(entry.getKey(), new OrcInputStream(
                     orcDataSource.getId(),
@@ -365,6 +503,17 @@ public class StripeReader
         return streamsBuilder.build();
     }
 
+    private boolean isDecompressedStreamCacheable(StreamId streamId, Optional<DwrfEncryptionInfo> decryptors)
+    {
+        // index streams are cached by the stripe metadata source, and decrypted data must not outlive the query
+        return streamId.getStreamKind().getStreamArea() != INDEX && !createDwrfDecryptor(streamId, decryptors).isPresent();
+    }
+
+    private StreamKey createStreamKey(StripeId stripeId, StreamId streamId)
+    {
+        return new StreamKey(stripeId.getSourceId(), decompressedStreamCacheOptions.get().getFileModificationTime(), stripeId.getOffset(), streamId);
+    }
+
     private Optional<DwrfDataEncryptor> createDwrfDecryptor(StreamId id, Optional<DwrfEncryptionInfo> decryptors)
     {
         if (!decryptors.isPresent()) {
@@ -479,6 +628,12 @@ public class StripeReader
 
     public StripeFooter readStripeFooter(StripeId stripeId, StripeInformation stripe, OrcAggregatedMemoryContext systemMemoryUsage)
             throws IOException
+    {
+        return readStripeFooter(stripeId, stripe, decompressor, systemMemoryUsage);
+    }
+
+    private StripeFooter readStripeFooter(StripeId stripeId, StripeInformation stripe, Optional<OrcDecompressor> decompressor, OrcAggregatedMemoryContext systemMemoryUsage)
+            throws IOException
     {
         long footerOffset = stripe.getOffset() + stripe.getIndexLength() + stripe.getDataLength();
         int footerLength = toIntExact(stripe.getFooterLength());
@@ -509,11 +664,12 @@ public class StripeReader
         ImmutableMap.Builder<Integer, List<HiveBloomFilter>> bloomFilters = ImmutableMap.builder();
         for (Entry<StreamId, Stream> entry : streams.entrySet()) {
             Stream stream = entry.getValue();
-            if (stream.getStreamKind() == BLOOM_FILTER) {
+            // prefer the UTF-8 bloom filter, which hashes strings by their UTF-8 bytes, when a column has both
+            if (stream.getStreamKind() == BLOOM_FILTER_UTF8 ||
+                    (stream.getStreamKind() == BLOOM_FILTER && !streams.containsKey(new StreamId(entry.getKey().getColumn(), entry.getKey().getSequence(), BLOOM_FILTER_UTF8)))) {
                 OrcInputStream inputStream = streamsData.get(entry.getKey());
                 bloomFilters.put(entry.getKey().getColumn(), metadataReader.readBloomFilterIndexes(inputStream));
             }
-            // TODO: add support for BLOOM_FILTER_UTF8
         }
         return bloomFilters.build();
     }
@@ -0,0 +1,544 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.cache;
+
+import com.facebook.airlift.stats.CounterStat;
+import com.facebook.presto.orc.OrcDataSourceId;
+import com.facebook.presto.orc.StreamId;
+import com.facebook.presto.orc.stream.DecompressedChunkList;
+import com.facebook.presto.orc.stream.DecompressedChunks;
+import com.google.common.annotations.VisibleForTesting;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.units.DataSize.succinctBytes;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Worker-wide cache of decompressed ORC data streams, so that queries over hot tables do not
+ * decompress the same streams again.
+ * <p>
+ * The data lives off-heap in large direct arenas that are split into fixed size pages. The memory is
+ * bounded by the configured size and is not accounted to any query memory pool. Instead, the configured
+ * size is reserved for the life of the worker from a budget of half the direct memory of the JVM
+ * (-XX:MaxDirectMemorySize, which defaults to the maximum heap size), so readers, exchanges and other
+ * users of direct memory keep the rest. Every catalog creates its own cache, and the caches of all
+ * catalogs share that budget. Temporary copies made while admitting a stream are charged to the
+ * reader that makes them.
+ * <p>
+ * Admission is frequency based: a count-min sketch estimates how often each stream has been requested,
+ * a stream is only cached on its second request, and it only displaces streams that were requested less
+ * often than itself. Victims are chosen in least recently used order. Streams handed out to readers are
+ * pinned until released and are never evicted while pinned.
+ */
+@ThreadSafe
+public class DecompressedStreamCache
+{
+    @VisibleForTesting
+    static final int PAGE_SIZE = 16 * 1024;
+    private static final int MAX_ARENA_SIZE = 64 * 1024 * 1024;
+    private static final double MAX_DIRECT_MEMORY_FRACTION = 0.5;
+    private static final DirectMemoryBudget WORKER_DIRECT_MEMORY_BUDGET = new DirectMemoryBudget(getMaxDirectMemory());
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final long[] SKETCH_SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final int MAX_FREQUENCY = 15;
+    private static final int MIN_ADMISSION_FREQUENCY = 2;
+
+    private final int totalPages;
+    // every arena holds this many pages, except for the last one, which holds the remaining pages
+    private final int pagesPerArena;
+    private final int sketchMask;
+    private final int sketchResetThreshold;
+
+    @GuardedBy("this")
+    private final List<Slice> arenas = new ArrayList<>();
+    @GuardedBy("this")
+    private final IntArrayList freePages = new IntArrayList();
+    // access ordered, so iteration starts at the least recently used stream
+    @GuardedBy("this")
+    private final LinkedHashMap<StreamKey, CachedStream> streams = new LinkedHashMap<>(16, 0.75f, true);
+    @GuardedBy("this")
+    private final byte[] frequencies;
+    @GuardedBy("this")
+    private int frequencyAdditions;
+    @GuardedBy("this")
+    private long cachedBytes;
+
+    private final CounterStat hits = new CounterStat();
+    private final CounterStat misses = new CounterStat();
+    private final CounterStat hitBytes = new CounterStat();
+    private final CounterStat evictions = new CounterStat();
+    private final CounterStat rejections = new CounterStat();
+
+    public DecompressedStreamCache(DataSize maxSize)
+    {
+        this(maxSize, WORKER_DIRECT_MEMORY_BUDGET, MAX_ARENA_SIZE);
+    }
+
+    @VisibleForTesting
+    DecompressedStreamCache(DataSize maxSize, DirectMemoryBudget directMemoryBudget, int maxArenaSize)
+    {
+        requireNonNull(maxSize, "maxSize is null");
+        requireNonNull(directMemoryBudget, "directMemoryBudget is null");
+        this.totalPages = toIntExact(maxSize.toBytes() / PAGE_SIZE);
+        checkArgument(totalPages > 0, "maxSize must be at least %s bytes", PAGE_SIZE);
+        checkArgument(maxArenaSize >= PAGE_SIZE, "maxArenaSize must be at least %s bytes", PAGE_SIZE);
+        this.pagesPerArena = min(totalPages, maxArenaSize / PAGE_SIZE);
+        directMemoryBudget.reserve(maxSize.toBytes());
+
+        // streams are usually larger than a page, so the page count bounds the number of cached streams
+        int sketchWidth = Integer.highestOneBit(Math.max(totalPages, 1024) - 1) << 1;
+        this.sketchMask = sketchWidth - 1;
+        this.sketchResetThreshold = sketchWidth * 10;
+        this.frequencies = new byte[sketchWidth * SKETCH_DEPTH];
+    }
+
+    /**
+     * Returns the stream pinned if it is cached. The caller must release the stream once it is no longer read.
+     */
+    public Optional<CachedStream> get(StreamKey key)
+    {
+        requireNonNull(key, "key is null");
+        CachedStream stream;
+        synchronized (this) {
+            incrementFrequency(key);
+            stream = streams.get(key);
+            if (stream != null) {
+                stream.pinCount++;
+            }
+        }
+        if (stream == null) {
+            misses.update(1);
+            return Optional.empty();
+        }
+        hits.update(1);
+        hitBytes.update(stream.getDataLength());
+        return Optional.of(stream);
+    }
+
+    /**
+     * Returns true if a stream that was just missed is requested often enough to be worth decompressing
+     * eagerly and adding to the cache.
+     */
+    public synchronized boolean isAdmissible(StreamKey key)
+    {
+        return estimateFrequency(key) >= MIN_ADMISSION_FREQUENCY;
+    }
+
+    /**
+     * Copies the decompressed stream into the cache, unless there is not enough space for it that can
+     * be freed by evicting less frequently requested streams.
+     */
+    public void put(StreamKey key, DecompressedChunkList chunks)
+    {
+        requireNonNull(key, "key is null");
+        requireNonNull(chunks, "chunks is null");
+        Slice data = chunks.getData();
+        int pageCount = (data.length() + PAGE_SIZE - 1) / PAGE_SIZE;
+
+        int[] pageIds;
+        Slice[] pages;
+        synchronized (this) {
+            if (streams.containsKey(key) || !reservePages(key, pageCount)) {
+                rejections.update(1);
+                return;
+            }
+            pageIds = new int[pageCount];
+            pages = new Slice[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                pageIds[i] = freePages.popInt();
+                pages[i] = getPage(pageIds[i]);
+            }
+        }
+
+        // the pages are owned by this thread until the stream is published, so copy outside of the lock
+        for (int i = 0; i < pageCount; i++) {
+            int offset = i * PAGE_SIZE;
+            pages[i].setBytes(0, data, offset, min(PAGE_SIZE, data.length() - offset));
+        }
+
+        int chunkCount = chunks.getChunkCount();
+        int[] compressedOffsets = new int[chunkCount];
+        int[] chunkOffsets = new int[chunkCount + 1];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            compressedOffsets[chunk] = chunks.getCompressedOffset(chunk);
+            chunkOffsets[chunk] = chunks.getChunkOffset(chunk);
+        }
+        chunkOffsets[chunkCount] = data.length();
+        CachedStream stream = new CachedStream(key, compressedOffsets, chunkOffsets, chunks.getCompressedLength(), pageIds, pages);
+
+        synchronized (this) {
+            if (streams.containsKey(key)) {
+                // another reader cached the same stream concurrently
+                freePages(pageIds);
+                return;
+            }
+            streams.put(key, stream);
+            cachedBytes += data.length();
+        }
+    }
+
+    public synchronized void release(CachedStream stream)
+    {
+        checkState(stream.pinCount > 0, "stream is not pinned");
+        stream.pinCount--;
+    }
+
+    @Managed
+    public synchronized long getCachedBytes()
+    {
+        return cachedBytes;
+    }
+
+    @Managed
+    public synchronized long getAllocatedBytes()
+    {
+        long allocatedBytes = 0;
+        for (Slice arena : arenas) {
+            allocatedBytes += arena.length();
+        }
+        return allocatedBytes;
+    }
+
+    @Managed
+    public synchronized int getStreamCount()
+    {
+        return streams.size();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHitBytes()
+    {
+        return hitBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEvictions()
+    {
+        return evictions;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejections()
+    {
+        return rejections;
+    }
+
+    private static long getMaxDirectMemory()
+    {
+        // zero means the option is not set, in which case the JVM allows as much direct memory as heap
+        long maxDirectMemory = Long.parseLong(ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption("MaxDirectMemorySize").getValue());
+        return maxDirectMemory > 0 ? maxDirectMemory : Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Direct memory available to the decompressed stream caches of all catalogs.
+     */
+    @VisibleForTesting
+    @ThreadSafe
+    static class DirectMemoryBudget
+    {
+        private final long maxDirectMemory;
+        @GuardedBy("this")
+        private long reservedBytes;
+
+        DirectMemoryBudget(long maxDirectMemory)
+        {
+            this.maxDirectMemory = maxDirectMemory;
+        }
+
+        synchronized void reserve(long bytes)
+        {
+            checkArgument(
+                    reservedBytes + bytes <= maxDirectMemory * MAX_DIRECT_MEMORY_FRACTION,
+                    "maxSize %s with the %s of the other decompressed stream caches exceeds half of the maximum direct memory of %s",
+                    succinctBytes(bytes),
+                    succinctBytes(reservedBytes),
+                    succinctBytes(maxDirectMemory));
+            reservedBytes += bytes;
+        }
+    }
+
+    @GuardedBy("this")
+    private boolean reservePages(StreamKey key, int pageCount)
+    {
+        while (freePages.size() < pageCount && arenas.size() * pagesPerArena < totalPages) {
+            int firstPage = arenas.size() * pagesPerArena;
+            int arenaPages = min(pagesPerArena, totalPages - firstPage);
+            arenas.add(Slices.allocateDirect(arenaPages * PAGE_SIZE));
+            for (int page = firstPage + arenaPages - 1; page >= firstPage; page--) {
+                freePages.add(page);
+            }
+        }
+        if (freePages.size() >= pageCount) {
+            return true;
+        }
+
+        // collect least recently used victims, but only admit the new stream if it is requested more often than all of them
+        int frequency = estimateFrequency(key);
+        int freedPages = freePages.size();
+        List<CachedStream> victims = new ArrayList<>();
+        for (CachedStream victim : streams.values()) {
+            if (freedPages >= pageCount) {
+                break;
+            }
+            if (victim.pinCount > 0) {
+                continue;
+            }
+            if (estimateFrequency(victim.key) >= frequency) {
+                return false;
+            }
+            victims.add(victim);
+            freedPages += victim.pageIds.length;
+        }
+        if (freedPages < pageCount) {
+            return false;
+        }
+
+        for (CachedStream victim : victims) {
+            streams.remove(victim.key);
+            cachedBytes -= victim.getDataLength();
+            freePages(victim.pageIds);
+        }
+        evictions.update(victims.size());
+        return true;
+    }
+
+    @GuardedBy("this")
+    private void freePages(int[] pageIds)
+    {
+        for (int pageId : pageIds) {
+            freePages.add(pageId);
+        }
+    }
+
+    @GuardedBy("this")
+    private Slice getPage(int pageId)
+    {
+        return arenas.get(pageId / pagesPerArena).slice((pageId % pagesPerArena) * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @GuardedBy("this")
+    private void incrementFrequency(StreamKey key)
+    {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            int index = sketchIndex(hash, row);
+            if (frequencies[index] < MAX_FREQUENCY) {
+                frequencies[index]++;
+                added = true;
+            }
+        }
+        if (added) {
+            frequencyAdditions++;
+            if (frequencyAdditions >= sketchResetThreshold) {
+                // age all counters, so streams that were hot a long time ago do not stay hot forever
+                for (int i = 0; i < frequencies.length; i++) {
+                    frequencies[i] >>>= 1;
+                }
+                frequencyAdditions /= 2;
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private int estimateFrequency(StreamKey key)
+    {
+        int hash = key.hashCode();
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            frequency = min(frequency, frequencies[sketchIndex(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private int sketchIndex(int hash, int row)
+    {
+        long value = (hash + SKETCH_SEEDS[row]) * SKETCH_SEEDS[row];
+        value += value >>> 32;
+        return row * (sketchMask + 1) + ((int) value & sketchMask);
+    }
+
+    /**
+     * A cached stream, valid to read until it is released.
+     */
+    public final class CachedStream
+            implements DecompressedChunks
+    {
+        private final StreamKey key;
+        private final int[] compressedOffsets;
+        private final int[] chunkOffsets;
+        private final int compressedLength;
+        private final int[] pageIds;
+        private final Slice[] pages;
+
+        @GuardedBy("DecompressedStreamCache.this")
+        private int pinCount;
+
+        private CachedStream(StreamKey key, int[] compressedOffsets, int[] chunkOffsets, int compressedLength, int[] pageIds, Slice[] pages)
+        {
+            this.key = key;
+            this.compressedOffsets = compressedOffsets;
+            this.chunkOffsets = chunkOffsets;
+            this.compressedLength = compressedLength;
+            this.pageIds = pageIds;
+            this.pages = pages;
+        }
+
+        @Override
+        public int getChunkCount()
+        {
+            return compressedOffsets.length;
+        }
+
+        @Override
+        public int getCompressedOffset(int chunk)
+        {
+            return compressedOffsets[chunk];
+        }
+
+        @Override
+        public int getCompressedLength()
+        {
+            return compressedLength;
+        }
+
+        @Override
+        public int getChunkLength(int chunk)
+        {
+            return chunkOffsets[chunk + 1] - chunkOffsets[chunk];
+        }
+
+        @Override
+        public void readChunk(int chunk, byte[] target)
+        {
+            int offset = chunkOffsets[chunk];
+            int remaining = getChunkLength(chunk);
+            int targetOffset = 0;
+            while (remaining > 0) {
+                int pageOffset = offset % PAGE_SIZE;
+                int length = min(remaining, PAGE_SIZE - pageOffset);
+                pages[offset / PAGE_SIZE].getBytes(pageOffset, target, targetOffset, length);
+                offset += length;
+                targetOffset += length;
+                remaining -= length;
+            }
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            // the data is accounted by the cache
+            return 0;
+        }
+
+        public void release()
+        {
+            DecompressedStreamCache.this.release(this);
+        }
+
+        private int getDataLength()
+        {
+            return chunkOffsets[chunkOffsets.length - 1];
+        }
+    }
+
+    public static class StreamKey
+    {
+        private final OrcDataSourceId sourceId;
+        private final long modificationTime;
+        private final long stripeOffset;
+        private final StreamId streamId;
+
+        public StreamKey(OrcDataSourceId sourceId, long modificationTime, long stripeOffset, StreamId streamId)
+        {
+            this.sourceId = requireNonNull(sourceId, "sourceId is null");
+            this.modificationTime = modificationTime;
+            this.stripeOffset = stripeOffset;
+            this.streamId = requireNonNull(streamId, "streamId is null");
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StreamKey that = (StreamKey) o;
+            return modificationTime == that.modificationTime &&
+                    stripeOffset == that.stripeOffset &&
+                    Objects.equals(sourceId, that.sourceId) &&
+                    Objects.equals(streamId, that.streamId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(sourceId, modificationTime, stripeOffset, streamId);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("sourceId", sourceId)
+                    .add("modificationTime", modificationTime)
+                    .add("stripeOffset", stripeOffset)
+                    .add("streamId", streamId)
+                    .toString();
+        }
+    }
+}
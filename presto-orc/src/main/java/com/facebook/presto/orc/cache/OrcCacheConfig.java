@@ -41,6 +41,9 @@ public class OrcCacheConfig
     private DataSize rowGroupIndexCacheSize = new DataSize(0, BYTE);
     private Duration rowGroupIndexCacheTtlSinceLastAccess = new Duration(0, SECONDS);
 
+    private boolean decompressedStreamCacheEnabled;
+    private DataSize decompressedStreamCacheSize = new DataSize(256, MEGABYTE);
+
     private boolean dwrfStripeCacheEnabled = true;
     private DataSize expectedFileTailSize = new DataSize(EXPECTED_FOOTER_SIZE_IN_BYTES, BYTE);
 
@@ -194,6 +197,33 @@ public class OrcCacheConfig
         return this;
     }
 
+    public boolean isDecompressedStreamCacheEnabled()
+    {
+        return decompressedStreamCacheEnabled;
+    }
+
+    @Config("orc.decompressed-stream-cache-enabled")
+    @ConfigDescription("Enable off-heap cache for decompressed data streams of frequently read files")
+    public OrcCacheConfig setDecompressedStreamCacheEnabled(boolean decompressedStreamCacheEnabled)
+    {
+        this.decompressedStreamCacheEnabled = decompressedStreamCacheEnabled;
+        return this;
+    }
+
+    @MinDataSize("1MB")
+    public DataSize getDecompressedStreamCacheSize()
+    {
+        return decompressedStreamCacheSize;
+    }
+
+    @Config("orc.decompressed-stream-cache-size")
+    @ConfigDescription("Size of the off-heap decompressed data stream cache of this catalog. The caches of all catalogs together may use at most half of the maximum direct memory of the JVM")
+    public OrcCacheConfig setDecompressedStreamCacheSize(DataSize decompressedStreamCacheSize)
+    {
+        this.decompressedStreamCacheSize = decompressedStreamCacheSize;
+        return this;
+    }
+
     public boolean isDwrfStripeCacheEnabled()
     {
         return dwrfStripeCacheEnabled;
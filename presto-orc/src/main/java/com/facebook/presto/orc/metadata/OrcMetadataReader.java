@@ -245,11 +245,28 @@ public class OrcMetadataReader
         List<OrcProto.BloomFilter> bloomFilterList = bloomFilter.getBloomFilterList();
         ImmutableList.Builder<HiveBloomFilter> builder = ImmutableList.builder();
         for (OrcProto.BloomFilter orcBloomFilter : bloomFilterList) {
-            builder.add(new HiveBloomFilter(orcBloomFilter.getBitsetList(), orcBloomFilter.getBitsetCount() * 64, orcBloomFilter.getNumHashFunctions()));
+            if (orcBloomFilter.hasUtf8Bitset()) {
+                List<Long> bitset = toUtf8Bitset(orcBloomFilter.getUtf8Bitset());
+                builder.add(new HiveBloomFilter(bitset, bitset.size() * 64, orcBloomFilter.getNumHashFunctions()));
+            }
+            else {
+                builder.add(new HiveBloomFilter(orcBloomFilter.getBitsetList(), orcBloomFilter.getBitsetCount() * 64, orcBloomFilter.getNumHashFunctions()));
+            }
         }
         return builder.build();
     }
 
+    private static List<Long> toUtf8Bitset(ByteString utf8Bitset)
+    {
+        // the UTF-8 bloom filter stores the bit set as little endian longs
+        Slice slice = Slices.wrappedBuffer(utf8Bitset.toByteArray());
+        ImmutableList.Builder<Long> bitset = ImmutableList.builder();
+        for (int offset = 0; offset + Long.BYTES <= slice.length(); offset += Long.BYTES) {
+            bitset.add(slice.getLong(offset));
+        }
+        return bitset.build();
+    }
+
     private static RowGroupIndex toRowGroupIndex(HiveWriterVersion hiveWriterVersion, RowIndexEntry rowIndexEntry, HiveBloomFilter bloomFilter)
     {
         List<Long> positionsList = rowIndexEntry.getPositionsList();
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.stream;
+
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decompressed chunks of a stream held on heap, in the order they appear in the compressed stream.
+ */
+public final class DecompressedChunkList
+        implements DecompressedChunks
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(DecompressedChunkList.class).instanceSize();
+
+    private final int[] compressedOffsets;
+    // start of each chunk in the data, followed by the total data length
+    private final int[] chunkOffsets;
+    private final int compressedLength;
+    private final Slice data;
+
+    private DecompressedChunkList(int[] compressedOffsets, int[] chunkOffsets, int compressedLength, Slice data)
+    {
+        this.compressedOffsets = requireNonNull(compressedOffsets, "compressedOffsets is null");
+        this.chunkOffsets = requireNonNull(chunkOffsets, "chunkOffsets is null");
+        checkArgument(chunkOffsets.length == compressedOffsets.length + 1, "chunkOffsets must have one more entry than compressedOffsets");
+        this.compressedLength = compressedLength;
+        this.data = requireNonNull(data, "data is null");
+    }
+
+    public static Builder builder(int compressedLength)
+    {
+        return new Builder(compressedLength);
+    }
+
+    @Override
+    public int getChunkCount()
+    {
+        return compressedOffsets.length;
+    }
+
+    @Override
+    public int getCompressedOffset(int chunk)
+    {
+        return compressedOffsets[chunk];
+    }
+
+    @Override
+    public int getCompressedLength()
+    {
+        return compressedLength;
+    }
+
+    @Override
+    public int getChunkLength(int chunk)
+    {
+        return chunkOffsets[chunk + 1] - chunkOffsets[chunk];
+    }
+
+    @Override
+    public void readChunk(int chunk, byte[] target)
+    {
+        data.getBytes(chunkOffsets[chunk], target, 0, getChunkLength(chunk));
+    }
+
+    /**
+     * Returns the decompressed bytes of all chunks.
+     */
+    public Slice getData()
+    {
+        return data;
+    }
+
+    public int getChunkOffset(int chunk)
+    {
+        return chunkOffsets[chunk];
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(compressedOffsets) + sizeOf(chunkOffsets) + data.getRetainedSize();
+    }
+
+    public static class Builder
+    {
+        private final int compressedLength;
+        private final IntArrayList compressedOffsets = new IntArrayList();
+        private final IntArrayList chunkOffsets = new IntArrayList();
+        private final DynamicSliceOutput data;
+
+        private Builder(int compressedLength)
+        {
+            this.compressedLength = compressedLength;
+            this.data = new DynamicSliceOutput(compressedLength);
+        }
+
+        public Builder addChunk(int compressedOffset, byte[] buffer, int offset, int length)
+        {
+            checkArgument(compressedOffsets.isEmpty() || compressedOffset > compressedOffsets.getInt(compressedOffsets.size() - 1), "chunks must be added in order");
+            compressedOffsets.add(compressedOffset);
+            chunkOffsets.add(data.size());
+            data.writeBytes(buffer, offset, length);
+            return this;
+        }
+
+        public long getRetainedSizeInBytes()
+        {
+            return sizeOf(compressedOffsets.elements()) + sizeOf(chunkOffsets.elements()) + data.getRetainedSize();
+        }
+
+        public DecompressedChunkList build()
+        {
+            chunkOffsets.add(data.size());
+            return new DecompressedChunkList(compressedOffsets.toIntArray(), chunkOffsets.toIntArray(), compressedLength, data.slice());
+        }
+    }
+}
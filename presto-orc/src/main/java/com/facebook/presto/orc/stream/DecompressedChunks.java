@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.stream;
+
+/**
+ * The already decompressed chunks of a compressed stream. Each chunk is addressed by the
+ * offset of its header in the compressed stream, so checkpoints recorded in the row group
+ * indexes can be used unchanged.
+ */
+public interface DecompressedChunks
+{
+    int getChunkCount();
+
+    /**
+     * Offset of the chunk in the compressed stream. Offsets are increasing.
+     */
+    int getCompressedOffset(int chunk);
+
+    /**
+     * Length of the compressed stream, which is the position after the last chunk.
+     */
+    int getCompressedLength();
+
+    int getChunkLength(int chunk);
+
+    /**
+     * Copies the decompressed bytes of the chunk to the beginning of the target array.
+     */
+    void readChunk(int chunk, byte[] target);
+
+    /**
+     * Memory retained by the chunks that should be accounted to the reader.
+     */
+    long getRetainedSizeInBytes();
+}
@@ -34,6 +34,7 @@ import static com.facebook.presto.orc.checkpoint.InputStreamCheckpoint.decodeCom
 import static com.facebook.presto.orc.checkpoint.InputStreamCheckpoint.decodeDecompressedOffset;
 import static com.facebook.presto.orc.stream.LongDecode.zigzagDecode;
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_FLOAT;
 import static io.airlift.slice.SizeOf.SIZE_OF_INT;
@@ -60,11 +61,13 @@ public final class OrcInputStream
     private final long compressedSliceInputRetainedSizeInBytes;
     private final Optional<OrcDecompressor> decompressor;
     private final Optional<DwrfDataEncryptor> dwrfDecryptor;
+    private final Optional<DecompressedChunks> decompressedChunks;
     private final OrcLocalMemoryContext memoryUsage;
     // Temporary memory for reading a float or double at buffer boundary.
     private final byte[] temporaryBuffer = new byte[SIZE_OF_DOUBLE];
 
     private int currentCompressedBlockOffset;
+    private int nextChunk;
 
     private byte[] buffer;
     private int position;
@@ -87,6 +90,7 @@ public final class OrcInputStream
 
         this.decompressor = requireNonNull(decompressor, "decompressor is null");
         this.dwrfDecryptor = requireNonNull(dwrfDecryptor, "dwrfDecryptor is null");
+        this.decompressedChunks = Optional.empty();
 
         // memory reserved in the systemMemoryContext is never release and instead it is
         // expected that the context itself will be destroyed at the end of the read
@@ -112,6 +116,32 @@ public final class OrcInputStream
         memoryUsage.setBytes(getRetainedSizeInBytes());
     }
 
+    /**
+     * Creates a stream over chunks that were already decompressed, e.g. by a previous reader of the same file.
+     * Checkpoints are interpreted exactly as for the compressed stream the chunks came from.
+     */
+    public OrcInputStream(
+            OrcDataSourceId orcDataSourceId,
+            SharedBuffer sharedDecompressionBuffer,
+            DecompressedChunks decompressedChunks,
+            OrcAggregatedMemoryContext systemMemoryContext)
+    {
+        this.orcDataSourceId = requireNonNull(orcDataSourceId, "orcDataSource is null");
+        this.sharedDecompressionBuffer = requireNonNull(sharedDecompressionBuffer, "sharedDecompressionBuffer is null");
+        this.decompressedChunks = Optional.of(requireNonNull(decompressedChunks, "decompressedChunks is null"));
+        this.decompressor = Optional.empty();
+        this.dwrfDecryptor = Optional.empty();
+
+        requireNonNull(systemMemoryContext, "systemMemoryContext is null");
+        this.memoryUsage = systemMemoryContext.newOrcLocalMemoryContext(OrcInputStream.class.getSimpleName());
+
+        this.compressedSliceInput = EMPTY_SLICE.getInput();
+        this.compressedSliceInputRetainedSizeInBytes = decompressedChunks.getRetainedSizeInBytes();
+        this.buffer = new byte[0];
+
+        memoryUsage.setBytes(getRetainedSizeInBytes());
+    }
+
     @Override
     public void close()
     {
@@ -201,7 +231,7 @@ public final class OrcInputStream
     {
         // if the decompressed buffer is empty, return a checkpoint starting at the next block
         if (buffer == null || (position == 0 && available() == 0)) {
-            return createInputStreamCheckpoint(toIntExact(compressedSliceInput.position()), 0);
+            return createInputStreamCheckpoint(getNextCompressedBlockOffset(), 0);
         }
         // otherwise return a checkpoint at the last compressed block read and the current position in the buffer
         // If we have uncompressed data uncompressedOffset is not included in the offset.
@@ -215,10 +245,15 @@ public final class OrcInputStream
         int decompressedOffset = decodeDecompressedOffset(checkpoint);
         boolean discardedBuffer;
         if (compressedBlockOffset != currentCompressedBlockOffset) {
-            if (!decompressor.isPresent() && !dwrfDecryptor.isPresent()) {
+            if (!decompressor.isPresent() && !dwrfDecryptor.isPresent() && !decompressedChunks.isPresent()) {
                 throw new OrcCorruptionException(orcDataSourceId, "Reset stream has a block offset but stream is not compressed or encrypted");
             }
-            compressedSliceInput.setPosition(compressedBlockOffset);
+            if (decompressedChunks.isPresent()) {
+                nextChunk = findChunk(decompressedChunks.get(), compressedBlockOffset);
+            }
+            else {
+                compressedSliceInput.setPosition(compressedBlockOffset);
+            }
             buffer = new byte[0];
             memoryUsage.setBytes(getRetainedSizeInBytes());
             position = 0;
@@ -447,10 +482,92 @@ public final class OrcInputStream
         return -1;
     }
 
+    /**
+     * Decompresses all chunks of a compressed stream that has not been read yet. The stream is exhausted afterwards.
+     * The decompressed chunks are accounted to the memory context of this stream until the context is closed.
+     */
+    public DecompressedChunkList decompressAllChunks()
+            throws IOException
+    {
+        checkState(decompressor.isPresent() && compressedSliceInput.position() == 0 && length == 0, "stream is not compressed or has already been read");
+        DecompressedChunkList.Builder builder = DecompressedChunkList.builder(toIntExact(compressedSliceInput.length()));
+        while (true) {
+            advance();
+            if (buffer == null) {
+                return builder.build();
+            }
+            builder.addChunk(currentCompressedBlockOffset, buffer, position, length - position);
+            position = length;
+            memoryUsage.setBytes(getRetainedSizeInBytes() + builder.getRetainedSizeInBytes());
+        }
+    }
+
+    private int getNextCompressedBlockOffset()
+    {
+        if (decompressedChunks.isPresent()) {
+            DecompressedChunks chunks = decompressedChunks.get();
+            return nextChunk < chunks.getChunkCount() ? chunks.getCompressedOffset(nextChunk) : chunks.getCompressedLength();
+        }
+        return toIntExact(compressedSliceInput.position());
+    }
+
+    private int findChunk(DecompressedChunks chunks, int compressedBlockOffset)
+            throws OrcCorruptionException
+    {
+        if (compressedBlockOffset == chunks.getCompressedLength()) {
+            return chunks.getChunkCount();
+        }
+        int low = 0;
+        int high = chunks.getChunkCount() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = chunks.getCompressedOffset(middle);
+            if (offset < compressedBlockOffset) {
+                low = middle + 1;
+            }
+            else if (offset > compressedBlockOffset) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        throw new OrcCorruptionException(orcDataSourceId, "Checkpoint block offset %s does not point to the start of a compressed block", compressedBlockOffset);
+    }
+
+    private void advanceDecompressedChunk()
+    {
+        DecompressedChunks chunks = decompressedChunks.get();
+        if (nextChunk >= chunks.getChunkCount()) {
+            buffer = null;
+            position = 0;
+            length = 0;
+            uncompressedOffset = 0;
+            memoryUsage.setBytes(getRetainedSizeInBytes());
+            return;
+        }
+
+        currentCompressedBlockOffset = chunks.getCompressedOffset(nextChunk);
+        int chunkLength = chunks.getChunkLength(nextChunk);
+        buffer = ensureCapacity(buffer, chunkLength);
+        chunks.readChunk(nextChunk, buffer);
+        nextChunk++;
+
+        length = chunkLength;
+        position = 0;
+        uncompressedOffset = 0;
+        memoryUsage.setBytes(getRetainedSizeInBytes());
+    }
+
     // This comes from the Apache Hive ORC code
     private void advance()
             throws IOException
     {
+        if (decompressedChunks.isPresent()) {
+            advanceDecompressedChunk();
+            return;
+        }
+
         if (compressedSliceInput == null || compressedSliceInput.remaining() == 0) {
             buffer = null;
             position = 0;
@@ -520,7 +637,7 @@ public final class OrcInputStream
     {
         return toStringHelper(this)
                 .add("source", orcDataSourceId)
-                .add("compressedOffset", compressedSliceInput.position())
+                .add("compressedOffset", getNextCompressedBlockOffset())
                 .add("uncompressedOffset", buffer == null ? null : position)
                 .add("decompressor", decompressor.map(Object::toString).orElse("none"))
                 .add("decryptor", dwrfDecryptor.map(Object::toString).orElse("none"))
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.writer;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.orc.ColumnWriterOptions;
+import com.facebook.presto.orc.metadata.CompressedMetadataWriter;
+import com.facebook.presto.orc.metadata.Stream;
+import com.facebook.presto.orc.metadata.statistics.BloomFilter;
+import com.facebook.presto.orc.stream.StreamDataOutput;
+import io.airlift.slice.Slice;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.BLOOM_FILTER_UTF8;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds a bloom filter for every row group of a column. The bloom filters are written
+ * as a BLOOM_FILTER_UTF8 index stream, which lets readers skip row groups that cannot
+ * contain the values of an equality or IN predicate.
+ */
+public class BloomFilterBuilder
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BloomFilterBuilder.class).instanceSize();
+
+    private final long expectedEntries;
+    private final double fpp;
+    private final List<BloomFilter> rowGroupBloomFilters = new ArrayList<>();
+
+    private BloomFilter bloomFilter;
+    private long rowGroupBloomFiltersRetainedSizeInBytes;
+
+    private BloomFilterBuilder(long expectedEntries, double fpp)
+    {
+        this.expectedEntries = expectedEntries;
+        this.fpp = fpp;
+        this.bloomFilter = new BloomFilter(expectedEntries, fpp);
+    }
+
+    public static Optional<BloomFilterBuilder> createBloomFilterBuilder(int column, ColumnWriterOptions columnWriterOptions)
+    {
+        requireNonNull(columnWriterOptions, "columnWriterOptions is null");
+        if (!columnWriterOptions.getBloomFilterNodes().contains(column)) {
+            return Optional.empty();
+        }
+        return Optional.of(new BloomFilterBuilder(columnWriterOptions.getRowGroupMaxRowCount(), columnWriterOptions.getBloomFilterFpp()));
+    }
+
+    public void addLong(long value)
+    {
+        bloomFilter.addLong(value);
+    }
+
+    public void addSlice(Block block, int position)
+    {
+        Slice slice = block.getSlice(position, 0, block.getSliceLength(position));
+        if (slice.hasByteArray()) {
+            bloomFilter.addBytes(slice.byteArray(), slice.byteArrayOffset(), slice.length());
+        }
+        else {
+            bloomFilter.add(slice.getBytes());
+        }
+    }
+
+    public void finishRowGroup()
+    {
+        rowGroupBloomFilters.add(bloomFilter);
+        rowGroupBloomFiltersRetainedSizeInBytes += sizeOf(bloomFilter.getBitSet());
+        bloomFilter = new BloomFilter(expectedEntries, fpp);
+    }
+
+    public StreamDataOutput getIndexStream(int column, int sequence, CompressedMetadataWriter metadataWriter, int rowGroupCount)
+            throws IOException
+    {
+        checkState(rowGroupBloomFilters.size() == rowGroupCount, "Expected %s row group bloom filters, but found %s", rowGroupCount, rowGroupBloomFilters.size());
+        Slice slice = metadataWriter.writeBloomFilters(rowGroupBloomFilters);
+        Stream stream = new Stream(column, sequence, BLOOM_FILTER_UTF8, slice.length(), false);
+        return new StreamDataOutput(slice, stream);
+    }
+
+    public long getRetainedBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(bloomFilter.getBitSet()) + rowGroupBloomFiltersRetainedSizeInBytes;
+    }
+
+    public void reset()
+    {
+        rowGroupBloomFilters.clear();
+        rowGroupBloomFiltersRetainedSizeInBytes = 0;
+        bloomFilter.reset();
+    }
+}
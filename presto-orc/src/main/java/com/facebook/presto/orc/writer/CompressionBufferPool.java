@@ -15,8 +15,14 @@ package com.facebook.presto.orc.writer;
 
 import org.openjdk.jol.info.ClassLayout;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static java.util.Objects.requireNonNull;
 
@@ -59,4 +65,58 @@ public interface CompressionBufferPool
             return INSTANCE_SIZE + sizeOf(lastUsed);
         }
     }
+
+    /**
+     * Pool shared by column writers that compress concurrently. Keeps at most
+     * {@code maxPooledBuffers} buffers, which is enough for every concurrently
+     * compressing column writer to reuse a buffer.
+     */
+    @ThreadSafe
+    class SharedCompressionBufferPool
+            implements CompressionBufferPool
+    {
+        private static final int INSTANCE_SIZE = ClassLayout.parseClass(SharedCompressionBufferPool.class).instanceSize();
+
+        private final int maxPooledBuffers;
+        @GuardedBy("this")
+        private final Deque<byte[]> buffers = new ArrayDeque<>();
+        @GuardedBy("this")
+        private long pooledBytes;
+
+        public SharedCompressionBufferPool(int maxPooledBuffers)
+        {
+            checkArgument(maxPooledBuffers > 0, "maxPooledBuffers must be positive");
+            this.maxPooledBuffers = maxPooledBuffers;
+        }
+
+        @Override
+        public synchronized byte[] checkOut(int length)
+        {
+            // buffers are checked in most recently used first, so look at the top of the stack only
+            byte[] buffer = buffers.peekFirst();
+            if (buffer == null || buffer.length < length) {
+                return new byte[length];
+            }
+            buffers.removeFirst();
+            pooledBytes -= sizeOf(buffer);
+            return buffer;
+        }
+
+        @Override
+        public synchronized void checkIn(byte[] buffer)
+        {
+            requireNonNull(buffer, "buffer is null");
+            if (buffers.size() == maxPooledBuffers) {
+                pooledBytes -= sizeOf(buffers.removeLast());
+            }
+            buffers.addFirst(buffer);
+            pooledBytes += sizeOf(buffer);
+        }
+
+        @Override
+        public synchronized long getRetainedBytes()
+        {
+            return INSTANCE_SIZE + pooledBytes;
+        }
+    }
 }
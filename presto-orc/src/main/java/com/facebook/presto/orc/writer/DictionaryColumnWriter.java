@@ -47,6 +47,7 @@ import static com.facebook.presto.common.array.Arrays.ensureCapacity;
 import static com.facebook.presto.orc.DictionaryCompressionOptimizer.estimateIndexBytesPerValue;
 import static com.facebook.presto.orc.metadata.CompressionKind.NONE;
 import static com.facebook.presto.orc.stream.LongOutputStream.createDataOutputStream;
+import static com.facebook.presto.orc.writer.BloomFilterBuilder.createBloomFilterBuilder;
 import static com.facebook.presto.orc.writer.ColumnWriterUtils.buildRowGroupIndexes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -69,6 +70,7 @@ public abstract class DictionaryColumnWriter
     protected final Optional<DwrfDataEncryptor> dwrfEncryptor;
     protected final OrcEncoding orcEncoding;
     protected final MetadataWriter metadataWriter;
+    protected final Optional<BloomFilterBuilder> bloomFilterBuilder;
     protected long rawSize;
 
     private final CompressedMetadataWriter compressedMetadataWriter;
@@ -110,6 +112,7 @@ public abstract class DictionaryColumnWriter
         this.dataStream = createDataOutputStream(columnWriterOptions, dwrfEncryptor, orcEncoding);
         this.presentStream = new PresentOutputStream(columnWriterOptions, dwrfEncryptor);
         this.metadataWriter = requireNonNull(metadataWriter, "metadataWriter is null");
+        this.bloomFilterBuilder = createBloomFilterBuilder(column, columnWriterOptions);
         this.rowGroupIndexes = new int[EXPECTED_ROW_GROUP_SEGMENT_SIZE];
     }
 
@@ -372,6 +375,7 @@ public abstract class DictionaryColumnWriter
         }
 
         ColumnStatistics statistics = createColumnStatistics();
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::finishRowGroup);
         rowGroupBuilder.addIndexes(getDictionaryEntries() - 1, rowGroupIndexes, rowGroupOffset);
         DictionaryRowGroup rowGroup = rowGroupBuilder.build(statistics);
         rowGroups.add(rowGroup);
@@ -484,6 +488,11 @@ public abstract class DictionaryColumnWriter
         List<RowGroupIndex> rowGroupIndexes = buildRowGroupIndexes(compressed, rowGroupColumnStatistics, prependCheckpoints, presentStream, dataStream);
         Slice slice = compressedMetadataWriter.writeRowIndexes(rowGroupIndexes);
         Stream stream = new Stream(column, sequence, StreamKind.ROW_INDEX, slice.length(), false);
+        if (bloomFilterBuilder.isPresent()) {
+            return ImmutableList.of(
+                    new StreamDataOutput(slice, stream),
+                    bloomFilterBuilder.get().getIndexStream(column, sequence, compressedMetadataWriter, rowGroups.size()));
+        }
         return ImmutableList.of(new StreamDataOutput(slice, stream));
     }
 
@@ -529,7 +538,8 @@ public abstract class DictionaryColumnWriter
                 dataStream.getRetainedBytes() +
                 presentStream.getRetainedBytes() +
                 getRetainedDictionaryBytes() +
-                rowGroupRetainedSizeInBytes;
+                rowGroupRetainedSizeInBytes +
+                bloomFilterBuilder.map(BloomFilterBuilder::getRetainedBytes).orElse(0L);
     }
 
     private void resetRowGroups()
@@ -538,6 +548,8 @@ public abstract class DictionaryColumnWriter
         rowGroupBuilder.reset();
         rowGroupRetainedSizeInBytes = 0;
         rowGroupOffset = 0;
+        // the direct writer rebuilds the bloom filters when the rows are converted
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::reset);
     }
 
     @Override
@@ -50,6 +50,7 @@ import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind
 import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind.DIRECT_V2;
 import static com.facebook.presto.orc.metadata.CompressionKind.NONE;
 import static com.facebook.presto.orc.metadata.Stream.StreamKind.DATA;
+import static com.facebook.presto.orc.writer.BloomFilterBuilder.createBloomFilterBuilder;
 import static com.facebook.presto.orc.writer.ColumnWriterUtils.buildRowGroupIndexes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -66,6 +67,7 @@ public class LongColumnWriter
     private final boolean compressed;
     private final ColumnEncoding columnEncoding;
     private final LongOutputStream dataStream;
+    private final Optional<BloomFilterBuilder> bloomFilterBuilder;
 
     private final List<ColumnStatistics> rowGroupColumnStatistics = new ArrayList<>();
     private final CompressedMetadataWriter metadataWriter;
@@ -108,6 +110,7 @@ public class LongColumnWriter
             this.dataStream = new LongOutputStreamV2(columnWriterOptions, true, DATA);
         }
         this.presentStream = new PresentOutputStream(columnWriterOptions, dwrfEncryptor);
+        this.bloomFilterBuilder = createBloomFilterBuilder(column, columnWriterOptions);
         this.metadataWriter = new CompressedMetadataWriter(metadataWriter, columnWriterOptions, dwrfEncryptor);
         this.statisticsBuilderSupplier = requireNonNull(statisticsBuilderSupplier, "statisticsBuilderSupplier is null");
         this.statisticsBuilder = statisticsBuilderSupplier.get();
@@ -173,6 +176,9 @@ public class LongColumnWriter
     {
         dataStream.writeLong(value);
         statisticsBuilder.addValue(value);
+        if (bloomFilterBuilder.isPresent()) {
+            bloomFilterBuilder.get().addLong(value);
+        }
     }
 
     @Override
@@ -183,6 +189,7 @@ public class LongColumnWriter
         rowGroupColumnStatistics.add(statistics);
         columnStatisticsRetainedSizeInBytes += statistics.getRetainedSizeInBytes();
         statisticsBuilder = statisticsBuilderSupplier.get();
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::finishRowGroup);
         return ImmutableMap.of(column, statistics);
     }
 
@@ -210,6 +217,11 @@ public class LongColumnWriter
         List<RowGroupIndex> rowGroupIndexes = buildRowGroupIndexes(compressed, rowGroupColumnStatistics, prependCheckpoints, presentStream, dataStream);
         Slice slice = metadataWriter.writeRowIndexes(rowGroupIndexes);
         Stream stream = new Stream(column, sequence, StreamKind.ROW_INDEX, slice.length(), false);
+        if (bloomFilterBuilder.isPresent()) {
+            return ImmutableList.of(
+                    new StreamDataOutput(slice, stream),
+                    bloomFilterBuilder.get().getIndexStream(column, sequence, metadataWriter, rowGroupColumnStatistics.size()));
+        }
         return ImmutableList.of(new StreamDataOutput(slice, stream));
     }
 
@@ -233,7 +245,8 @@ public class LongColumnWriter
     @Override
     public long getRetainedBytes()
     {
-        return INSTANCE_SIZE + dataStream.getRetainedBytes() + presentStream.getRetainedBytes() + columnStatisticsRetainedSizeInBytes;
+        long bloomFilterRetainedBytes = bloomFilterBuilder.map(BloomFilterBuilder::getRetainedBytes).orElse(0L);
+        return INSTANCE_SIZE + dataStream.getRetainedBytes() + presentStream.getRetainedBytes() + columnStatisticsRetainedSizeInBytes + bloomFilterRetainedBytes;
     }
 
     @Override
@@ -245,5 +258,6 @@ public class LongColumnWriter
         rowGroupColumnStatistics.clear();
         columnStatisticsRetainedSizeInBytes = 0;
         statisticsBuilder = statisticsBuilderSupplier.get();
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::reset);
     }
 }
@@ -156,6 +156,9 @@ public class LongDictionaryColumnWriter
             if (!block.isNull(position)) {
                 long value = type.getLong(block, position);
                 statisticsBuilder.addValue(value);
+                if (bloomFilterBuilder.isPresent()) {
+                    bloomFilterBuilder.get().addLong(value);
+                }
                 rowGroupIndexes[rowGroupOffset++] = dictionary.putIfAbsent(value);
                 nonNullValueCount++;
             }
@@ -173,6 +173,9 @@ public class SliceDictionaryColumnWriter
             if (!block.isNull(position)) {
                 rowGroupIndexes[rowGroupOffset++] = dictionary.putIfAbsent(block, position);
                 statisticsBuilder.addValue(block, position);
+                if (bloomFilterBuilder.isPresent()) {
+                    bloomFilterBuilder.get().addSlice(block, position);
+                }
                 rawBytes += block.getSliceLength(position);
                 nonNullValueCount++;
             }
@@ -49,6 +49,7 @@ import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind
 import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind.DIRECT_V2;
 import static com.facebook.presto.orc.metadata.CompressionKind.NONE;
 import static com.facebook.presto.orc.stream.LongOutputStream.createLengthOutputStream;
+import static com.facebook.presto.orc.writer.BloomFilterBuilder.createBloomFilterBuilder;
 import static com.facebook.presto.orc.writer.ColumnWriterUtils.buildRowGroupIndexes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -64,6 +65,7 @@ public class SliceDirectColumnWriter
     private final ColumnEncoding columnEncoding;
     private final LongOutputStream lengthStream;
     private final ByteArrayOutputStream dataStream;
+    private final Optional<BloomFilterBuilder> bloomFilterBuilder;
     private final CompressedMetadataWriter metadataWriter;
 
     private final List<ColumnStatistics> rowGroupColumnStatistics = new ArrayList<>();
@@ -98,6 +100,7 @@ public class SliceDirectColumnWriter
         this.lengthStream = createLengthOutputStream(columnWriterOptions, dwrfEncryptor, orcEncoding);
         this.dataStream = new ByteArrayOutputStream(columnWriterOptions, dwrfEncryptor);
         this.presentStream = new PresentOutputStream(columnWriterOptions, dwrfEncryptor);
+        this.bloomFilterBuilder = createBloomFilterBuilder(column, columnWriterOptions);
         this.metadataWriter = new CompressedMetadataWriter(metadataWriter, columnWriterOptions, dwrfEncryptor);
         this.statisticsBuilderSupplier = statisticsBuilderSupplier;
         statisticsBuilder = statisticsBuilderSupplier.get();
@@ -172,6 +175,9 @@ public class SliceDirectColumnWriter
         lengthStream.writeLong(length);
         dataStream.writeBlockPosition(block, position, 0, length);
         statisticsBuilder.addValue(block, position);
+        if (bloomFilterBuilder.isPresent()) {
+            bloomFilterBuilder.get().addSlice(block, position);
+        }
         return length;
     }
 
@@ -185,6 +191,7 @@ public class SliceDirectColumnWriter
         columnStatisticsRetainedSizeInBytes += statistics.getRetainedSizeInBytes();
 
         statisticsBuilder = statisticsBuilderSupplier.get();
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::finishRowGroup);
         return ImmutableMap.of(column, statistics);
     }
 
@@ -214,6 +221,11 @@ public class SliceDirectColumnWriter
         List<RowGroupIndex> rowGroupIndexes = buildRowGroupIndexes(compressed, rowGroupColumnStatistics, prependCheckpoints, presentStream, dataStream, lengthStream);
         Slice slice = metadataWriter.writeRowIndexes(rowGroupIndexes);
         Stream stream = new Stream(column, sequence, StreamKind.ROW_INDEX, slice.length(), false);
+        if (bloomFilterBuilder.isPresent()) {
+            return ImmutableList.of(
+                    new StreamDataOutput(slice, stream),
+                    bloomFilterBuilder.get().getIndexStream(column, sequence, metadataWriter, rowGroupColumnStatistics.size()));
+        }
         return ImmutableList.of(new StreamDataOutput(slice, stream));
     }
 
@@ -238,7 +250,8 @@ public class SliceDirectColumnWriter
     @Override
     public long getRetainedBytes()
     {
-        return INSTANCE_SIZE + lengthStream.getRetainedBytes() + dataStream.getRetainedBytes() + presentStream.getRetainedBytes() + columnStatisticsRetainedSizeInBytes;
+        long bloomFilterRetainedBytes = bloomFilterBuilder.map(BloomFilterBuilder::getRetainedBytes).orElse(0L);
+        return INSTANCE_SIZE + lengthStream.getRetainedBytes() + dataStream.getRetainedBytes() + presentStream.getRetainedBytes() + columnStatisticsRetainedSizeInBytes + bloomFilterRetainedBytes;
     }
 
     @Override
@@ -252,5 +265,6 @@ public class SliceDirectColumnWriter
         rowGroupColumnStatistics.clear();
         columnStatisticsRetainedSizeInBytes = 0;
         statisticsBuilder = statisticsBuilderSupplier.get();
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::reset);
     }
 }
@@ -1658,7 +1658,20 @@ public class OrcTester
         OrcWriterOptions orcWriterOptions = OrcWriterOptions.builder()
                 .withFlattenedColumns(flattenedColumns)
                 .build();
+        writeOrcColumnsPresto(outputFile, format, compression, dwrfWriterEncryption, types, values, stats, orcWriterOptions);
+    }
 
+    public static void writeOrcColumnsPresto(
+            File outputFile,
+            Format format,
+            CompressionKind compression,
+            Optional<DwrfWriterEncryption> dwrfWriterEncryption,
+            List<Type> types,
+            List<List<?>> values,
+            WriterStats stats,
+            OrcWriterOptions orcWriterOptions)
+            throws Exception
+    {
         OrcWriter writer = createOrcWriter(outputFile, format.orcEncoding, compression, dwrfWriterEncryption, types, orcWriterOptions, stats);
 
         Block[] blocks = new Block[types.size()];
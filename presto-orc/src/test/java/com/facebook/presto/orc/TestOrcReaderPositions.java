@@ -16,9 +16,11 @@ package com.facebook.presto.orc;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.LongArrayBlock;
 import com.facebook.presto.common.function.SqlFunctionProperties;
 import com.facebook.presto.common.predicate.FilterFunction;
 import com.facebook.presto.common.relation.Predicate;
+import com.facebook.presto.orc.cache.DecompressedStreamCache;
 import com.facebook.presto.orc.cache.StorageOrcFileTailSource;
 import com.facebook.presto.orc.metadata.CompressionKind;
 import com.facebook.presto.orc.metadata.Footer;
@@ -52,25 +54,33 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.LongStream;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.orc.DwrfEncryptionProvider.NO_ENCRYPTION;
+import static com.facebook.presto.orc.NoOpOrcWriterStats.NOOP_WRITER_STATS;
 import static com.facebook.presto.orc.NoopOrcAggregatedMemoryContext.NOOP_ORC_AGGREGATED_MEMORY_CONTEXT;
 import static com.facebook.presto.orc.OrcEncoding.ORC;
 import static com.facebook.presto.orc.OrcReader.BATCH_SIZE_GROWTH_FACTOR;
 import static com.facebook.presto.orc.OrcReader.INITIAL_BATCH_SIZE;
 import static com.facebook.presto.orc.OrcReader.MAX_BATCH_SIZE;
 import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
+import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
 import static com.facebook.presto.orc.OrcTester.MAX_BLOCK_SIZE;
 import static com.facebook.presto.orc.OrcTester.createCustomOrcRecordReader;
 import static com.facebook.presto.orc.OrcTester.createCustomOrcSelectiveRecordReader;
+import static com.facebook.presto.orc.OrcTester.createOrcWriter;
 import static com.facebook.presto.orc.OrcTester.createOrcRecordWriter;
 import static com.facebook.presto.orc.OrcTester.createSettableStructObjectInspector;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.Math.min;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.apache.hadoop.hive.ql.io.orc.CompressionKind.SNAPPY;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -147,6 +157,122 @@ public class TestOrcReaderPositions
         }
     }
 
+    @Test
+    public void testStripeReadAhead()
+            throws Exception
+    {
+        try (TempFile tempFile = new TempFile()) {
+            createMultiStripeFile(tempFile.getFile());
+
+            // the read-ahead runs on the calling thread, so every stripe after the first is ready when it is needed
+            CountingStripeReadAheadStats stats = new CountingStripeReadAheadStats();
+            try (OrcBatchRecordReader reader = createStripeReadAheadRecordReader(tempFile, stats, directExecutor())) {
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(reader.nextBatch(), 20);
+                    assertCurrentBatch(reader, i);
+                }
+                assertEquals(reader.nextBatch(), -1);
+            }
+            assertEquals(stats.hits, 4);
+            assertEquals(stats.misses, 0);
+            assertTrue(stats.hitBytes > 0);
+            assertEquals(stats.wastedBytes, 0);
+
+            // closing the reader discards the stripe that was read ahead
+            stats = new CountingStripeReadAheadStats();
+            try (OrcBatchRecordReader reader = createStripeReadAheadRecordReader(tempFile, stats, directExecutor())) {
+                assertEquals(reader.nextBatch(), 20);
+                assertCurrentBatch(reader, 0);
+            }
+            assertEquals(stats.hits, 0);
+            assertTrue(stats.wastedBytes > 0);
+        }
+    }
+
+    @Test
+    public void testDecompressedStreamCache()
+            throws Exception
+    {
+        try (TempFile tempFile = new TempFile()) {
+            // create single stripe compressed file with multiple row groups
+            int rowCount = 142_000;
+            createSequentialFile(tempFile.getFile(), rowCount, CompressionKind.ZLIB);
+
+            // test reading two row groups from middle of file
+            OrcPredicate predicate = (numberOfRows, statisticsByColumnIndex) -> {
+                if (numberOfRows == rowCount) {
+                    return true;
+                }
+                IntegerStatistics stats = statisticsByColumnIndex.get(0).getIntegerStatistics();
+                return (stats.getMin() == 50_000) || (stats.getMin() == 60_000);
+            };
+
+            // streams are cached by the second read and served from the cache by the third
+            DecompressedStreamCache cache = new DecompressedStreamCache(new DataSize(1, MEGABYTE));
+            for (int read = 0; read < 3; read++) {
+                try (OrcBatchRecordReader reader = createDecompressedStreamCacheRecordReader(tempFile, predicate, cache)) {
+                    long position = 50_000;
+                    while (true) {
+                        int batchSize = reader.nextBatch();
+                        if (batchSize == -1) {
+                            break;
+                        }
+
+                        Block block = reader.readBlock(0);
+                        for (int i = 0; i < batchSize; i++) {
+                            assertEquals(BIGINT.getLong(block, i), position + i);
+                        }
+                        position += batchSize;
+                    }
+                    assertEquals(position, 70_000);
+                }
+                if (read == 0) {
+                    assertEquals(cache.getStreamCount(), 0);
+                }
+            }
+            assertTrue(cache.getStreamCount() > 0);
+            assertEquals(cache.getHits().getTotalCount(), cache.getStreamCount());
+        }
+    }
+
+    @Test
+    public void testStripeReadAheadWithZstd()
+            throws Exception
+    {
+        int stripeCount = 20;
+        int rowsPerStripe = 1000;
+        // stripe footers are decompressed by the read-ahead thread while the reader decompresses the current stripe
+        ExecutorService executor = newCachedThreadPool();
+        try (TempFile tempFile = new TempFile()) {
+            OrcWriterOptions writerOptions = OrcWriterOptions.builder()
+                    .withFlushPolicy(DefaultOrcWriterFlushPolicy.builder().withStripeMaxRowCount(rowsPerStripe).build())
+                    .build();
+            OrcWriter writer = createOrcWriter(tempFile.getFile(), ORC, CompressionKind.ZSTD, Optional.empty(), ImmutableList.of(BIGINT), writerOptions, NOOP_WRITER_STATS);
+            for (int stripe = 0; stripe < stripeCount; stripe++) {
+                long[] values = LongStream.range(stripe * rowsPerStripe, (stripe + 1) * rowsPerStripe).toArray();
+                writer.write(new Page(new LongArrayBlock(rowsPerStripe, Optional.empty(), values)));
+            }
+            writer.close();
+
+            CountingStripeReadAheadStats stats = new CountingStripeReadAheadStats();
+            long rowCount = 0;
+            try (OrcBatchRecordReader reader = createStripeReadAheadRecordReader(tempFile, stats, executor)) {
+                for (int batchSize = reader.nextBatch(); batchSize >= 0; batchSize = reader.nextBatch()) {
+                    Block block = reader.readBlock(0);
+                    for (int position = 0; position < batchSize; position++) {
+                        assertEquals(BIGINT.getLong(block, position), rowCount);
+                        rowCount++;
+                    }
+                }
+            }
+            assertEquals(rowCount, stripeCount * rowsPerStripe);
+            assertEquals(stats.hits + stats.misses, stripeCount - 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testCompleteFileWithAppendRowNumber()
             throws Exception
@@ -575,6 +701,81 @@ public class TestOrcReaderPositions
         }
     }
 
+    private static OrcBatchRecordReader createStripeReadAheadRecordReader(TempFile tempFile, StripeReadAheadStats stats, Executor executor)
+            throws IOException
+    {
+        OrcDataSource orcDataSource = new FileOrcDataSource(tempFile.getFile(), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), true);
+        OrcReader orcReader = new OrcReader(
+                orcDataSource,
+                ORC,
+                new StorageOrcFileTailSource(),
+                new StorageStripeMetadataSource(),
+                NOOP_ORC_AGGREGATED_MEMORY_CONTEXT,
+                OrcReaderOptions.builder()
+                        .withMaxMergeDistance(new DataSize(1, MEGABYTE))
+                        // stripes below the tiny stripe threshold are buffered instead of read ahead
+                        .withTinyStripeThreshold(new DataSize(0, MEGABYTE))
+                        .withMaxBlockSize(MAX_BLOCK_SIZE)
+                        .withStripeReadAheadOptions(Optional.of(new StripeReadAheadOptions(executor, new DataSize(1, MEGABYTE), stats)))
+                        .build(),
+                false,
+                NO_ENCRYPTION,
+                DwrfKeyProvider.EMPTY,
+                new RuntimeStats());
+        return orcReader.createBatchRecordReader(ImmutableMap.of(0, BIGINT), OrcPredicate.TRUE, HIVE_STORAGE_TIME_ZONE, new TestingHiveOrcAggregatedMemoryContext(), MAX_BATCH_SIZE);
+    }
+
+    private static OrcBatchRecordReader createDecompressedStreamCacheRecordReader(TempFile tempFile, OrcPredicate predicate, DecompressedStreamCache cache)
+            throws IOException
+    {
+        OrcDataSource orcDataSource = new FileOrcDataSource(tempFile.getFile(), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), true);
+        OrcReader orcReader = new OrcReader(
+                orcDataSource,
+                ORC,
+                new StorageOrcFileTailSource(),
+                new StorageStripeMetadataSource(),
+                NOOP_ORC_AGGREGATED_MEMORY_CONTEXT,
+                OrcReaderOptions.builder()
+                        .withMaxMergeDistance(new DataSize(1, MEGABYTE))
+                        .withTinyStripeThreshold(new DataSize(1, MEGABYTE))
+                        .withMaxBlockSize(MAX_BLOCK_SIZE)
+                        .withDecompressedStreamCacheOptions(Optional.of(new DecompressedStreamCacheOptions(cache, tempFile.getFile().lastModified())))
+                        .build(),
+                true,
+                NO_ENCRYPTION,
+                DwrfKeyProvider.EMPTY,
+                new RuntimeStats());
+        return orcReader.createBatchRecordReader(ImmutableMap.of(0, BIGINT), predicate, HIVE_STORAGE_TIME_ZONE, new TestingHiveOrcAggregatedMemoryContext(), MAX_BATCH_SIZE);
+    }
+
+    private static class CountingStripeReadAheadStats
+            implements StripeReadAheadStats
+    {
+        private long hits;
+        private long misses;
+        private long hitBytes;
+        private long wastedBytes;
+
+        @Override
+        public void recordReadAheadHit(long bytes)
+        {
+            hits++;
+            hitBytes += bytes;
+        }
+
+        @Override
+        public void recordReadAheadMiss()
+        {
+            misses++;
+        }
+
+        @Override
+        public void recordReadAheadWasted(long bytes)
+        {
+            wastedBytes += bytes;
+        }
+    }
+
     // write 5 stripes of 20 values each: (0,3,6,..,57), (60,..,117), .., (..297)
     private static void createMultiStripeFile(File file)
             throws IOException, ReflectiveOperationException, SerDeException
@@ -629,7 +830,13 @@ public class TestOrcReaderPositions
     private static void createSequentialFile(File file, int count)
             throws IOException, SerDeException
     {
-        FileSinkOperator.RecordWriter writer = createOrcRecordWriter(file, ORC_12, CompressionKind.NONE, BIGINT);
+        createSequentialFile(file, count, CompressionKind.NONE);
+    }
+
+    private static void createSequentialFile(File file, int count, CompressionKind compression)
+            throws IOException, SerDeException
+    {
+        FileSinkOperator.RecordWriter writer = createOrcRecordWriter(file, ORC_12, compression, BIGINT);
 
         Serializer serde = new OrcSerde();
         SettableStructObjectInspector objectInspector = createSettableStructObjectInspector("test", BIGINT);
@@ -33,6 +33,7 @@ import io.airlift.units.DataSize;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Comparator;
@@ -41,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -59,6 +61,7 @@ import static com.facebook.presto.orc.metadata.CompressionKind.NONE;
 import static com.facebook.presto.orc.metadata.CompressionKind.ZLIB;
 import static com.facebook.presto.orc.metadata.CompressionKind.ZSTD;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 
@@ -179,6 +182,67 @@ public class TestOrcWriter
         }
     }
 
+    @Test(dataProvider = "compressionLevels")
+    public void testParallelColumnEncoding(OrcEncoding encoding, CompressionKind kind, OptionalInt level)
+            throws IOException
+    {
+        ExecutorService executor = newFixedThreadPool(3);
+        try {
+            OrcWriterOptions.Builder options = OrcWriterOptions.builder()
+                    .withFlushPolicy(DefaultOrcWriterFlushPolicy.builder()
+                            .withStripeMinSize(new DataSize(0, MEGABYTE))
+                            .withStripeMaxSize(new DataSize(32, MEGABYTE))
+                            .withStripeMaxRowCount(ORC_STRIPE_SIZE)
+                            .build())
+                    .withRowGroupMaxRowCount(ORC_ROW_GROUP_SIZE)
+                    .withDictionaryMaxMemory(new DataSize(32, MEGABYTE))
+                    .withCompressionLevel(level);
+            byte[] expected = writeVarcharColumns(encoding, kind, options.build());
+            byte[] actual = writeVarcharColumns(encoding, kind, options.withColumnEncodingExecutor(executor, 3).build());
+
+            // the file must not depend on which thread encoded a column
+            assertEquals(actual, expected);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] writeVarcharColumns(OrcEncoding encoding, CompressionKind kind, OrcWriterOptions orcWriterOptions)
+            throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OrcWriter writer = new OrcWriter(
+                new OutputStreamDataSink(output),
+                ImmutableList.of("test1", "test2", "test3", "test4", "test5"),
+                ImmutableList.of(VARCHAR, VARCHAR, VARCHAR, VARCHAR, VARCHAR),
+                encoding,
+                kind,
+                Optional.empty(),
+                NO_ENCRYPTION,
+                orcWriterOptions,
+                ImmutableMap.of(),
+                HIVE_STORAGE_TIME_ZONE,
+                true,
+                OrcWriteValidationMode.BOTH,
+                NOOP_WRITER_STATS);
+
+        // a low and a high cardinality column per encoding, spread over several stripes
+        int entries = 100_000;
+        Block[] blocks = new Block[5];
+        for (int column = 0; column < blocks.length; column++) {
+            BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, entries);
+            for (int i = 0; i < entries; i++) {
+                VARCHAR.writeSlice(blockBuilder, Slices.utf8Slice("value" + (i % (column == 0 ? entries : 10 * (column + 1)))));
+            }
+            blocks[column] = blockBuilder.build();
+        }
+
+        writer.write(new Page(blocks));
+        writer.close();
+        return output.toByteArray();
+    }
+
     @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Dummy exception from mocked instance")
     public void testVerifyNoIllegalStateException()
             throws IOException
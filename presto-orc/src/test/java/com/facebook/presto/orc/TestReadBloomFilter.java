@@ -20,6 +20,7 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.orc.cache.StorageOrcFileTailSource;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
@@ -42,6 +43,7 @@ import static com.facebook.presto.orc.OrcReader.MAX_BATCH_SIZE;
 import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
 import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
 import static com.facebook.presto.orc.OrcTester.writeOrcColumnHive;
+import static com.facebook.presto.orc.OrcTester.writeOrcColumnsPresto;
 import static com.facebook.presto.orc.TupleDomainOrcPredicate.ColumnReference;
 import static com.facebook.presto.orc.metadata.CompressionKind.SNAPPY;
 import static com.google.common.collect.Iterables.cycle;
@@ -72,13 +74,50 @@ public class TestReadBloomFilter
         // Bloom filters are not supported for DECIMAL, FLOAT, DATE, TIMESTAMP, and CHAR
     }
 
+    @Test
+    public void testPrestoWriter()
+            throws Exception
+    {
+        for (boolean stringDictionaryEncodingEnabled : ImmutableList.of(true, false)) {
+            OrcWriterOptions writerOptions = OrcWriterOptions.builder()
+                    .withBloomFilterColumns(ImmutableSet.of(0))
+                    .withStringDictionaryEncodingEnabled(stringDictionaryEncodingEnabled)
+                    .build();
+            TempFileWriter writer = (tempFile, type, values) -> writeOrcColumnsPresto(
+                    tempFile.getFile(),
+                    ORC_12,
+                    SNAPPY,
+                    Optional.empty(),
+                    ImmutableList.of(type),
+                    ImmutableList.of(values),
+                    new NoOpOrcWriterStats(),
+                    writerOptions);
+
+            testType(SMALLINT, ImmutableList.of(1L, 5000L, 10_000L), 5000L, 7777L, writer);
+            testType(INTEGER, ImmutableList.of(1L, 500_000L, 1_000_000L), 500_000L, 777_777L, writer);
+            testType(BIGINT, ImmutableList.of(1L, 500_000L, 1_000_000L), 500_000L, 777_777L, writer);
+            testType(VARCHAR, ImmutableList.of("a", "o", "z"), utf8Slice("o"), utf8Slice("w"), writer);
+            testType(VARBINARY,
+                    ImmutableList.of(new SqlVarbinary("a".getBytes(UTF_8)), new SqlVarbinary("o".getBytes(UTF_8)), new SqlVarbinary("z".getBytes(UTF_8))),
+                    utf8Slice("o"),
+                    utf8Slice("w"),
+                    writer);
+        }
+    }
+
     private static <T> void testType(Type type, List<T> uniqueValues, T inBloomFilter, T notInBloomFilter)
             throws Exception
+    {
+        testType(type, uniqueValues, inBloomFilter, notInBloomFilter, (tempFile, writeType, values) -> writeOrcColumnHive(tempFile.getFile(), ORC_12, SNAPPY, writeType, values));
+    }
+
+    private static <T> void testType(Type type, List<T> uniqueValues, T inBloomFilter, T notInBloomFilter, TempFileWriter writer)
+            throws Exception
     {
         List<T> writeValues = newArrayList(limit(cycle(uniqueValues), 30_000));
 
         try (TempFile tempFile = new TempFile()) {
-            writeOrcColumnHive(tempFile.getFile(), ORC_12, SNAPPY, type, writeValues);
+            writer.write(tempFile, type, writeValues);
 
             // no predicate
             try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.empty(), true)) {
@@ -133,6 +172,12 @@ public class TestReadBloomFilter
         return orcReader.createBatchRecordReader(ImmutableMap.of(0, type), predicate, HIVE_STORAGE_TIME_ZONE, new TestingHiveOrcAggregatedMemoryContext(), MAX_BATCH_SIZE);
     }
 
+    private interface TempFileWriter
+    {
+        void write(TempFile tempFile, Type type, List<?> values)
+                throws Exception;
+    }
+
     private static <T> TupleDomainOrcPredicate<String> makeOrcPredicate(Type type, T value, boolean bloomFilterEnabled)
     {
         return new TupleDomainOrcPredicate<>(
@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.cache;
+
+import com.facebook.presto.orc.OrcDataSourceId;
+import com.facebook.presto.orc.StreamId;
+import com.facebook.presto.orc.cache.DecompressedStreamCache.CachedStream;
+import com.facebook.presto.orc.cache.DecompressedStreamCache.DirectMemoryBudget;
+import com.facebook.presto.orc.cache.DecompressedStreamCache.StreamKey;
+import com.facebook.presto.orc.stream.DecompressedChunkList;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.facebook.presto.orc.cache.DecompressedStreamCache.PAGE_SIZE;
+import static com.facebook.presto.orc.metadata.Stream.StreamKind.DATA;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestDecompressedStreamCache
+{
+    private static final OrcDataSourceId SOURCE_ID = new OrcDataSourceId("test");
+
+    @Test
+    public void testAdmissionAndRead()
+    {
+        DecompressedStreamCache cache = new DecompressedStreamCache(new DataSize(4 * PAGE_SIZE, BYTE));
+        StreamKey key = streamKey(0);
+
+        // a stream is only admitted once it has been requested before
+        assertFalse(cache.get(key).isPresent());
+        assertFalse(cache.isAdmissible(key));
+        assertFalse(cache.get(key).isPresent());
+        assertTrue(cache.isAdmissible(key));
+
+        // two chunks, the second one crossing a page boundary
+        byte[] first = filledArray(100, 1);
+        byte[] second = filledArray(PAGE_SIZE, 2);
+        cache.put(key, DecompressedChunkList.builder(1000)
+                .addChunk(0, first, 0, first.length)
+                .addChunk(400, second, 0, second.length)
+                .build());
+        assertEquals(cache.getStreamCount(), 1);
+        assertEquals(cache.getCachedBytes(), first.length + second.length);
+
+        Optional<CachedStream> cachedStream = cache.get(key);
+        assertTrue(cachedStream.isPresent());
+        CachedStream stream = cachedStream.get();
+        assertEquals(stream.getChunkCount(), 2);
+        assertEquals(stream.getCompressedOffset(0), 0);
+        assertEquals(stream.getCompressedOffset(1), 400);
+        assertEquals(stream.getCompressedLength(), 1000);
+        assertEquals(stream.getRetainedSizeInBytes(), 0);
+
+        byte[] buffer = new byte[PAGE_SIZE];
+        stream.readChunk(0, buffer);
+        assertEquals(Arrays.copyOf(buffer, stream.getChunkLength(0)), first);
+        stream.readChunk(1, buffer);
+        assertEquals(Arrays.copyOf(buffer, stream.getChunkLength(1)), second);
+        stream.release();
+
+        assertEquals(cache.getHits().getTotalCount(), 1);
+        assertEquals(cache.getMisses().getTotalCount(), 2);
+    }
+
+    @Test
+    public void testFrequencyBasedEviction()
+    {
+        DecompressedStreamCache cache = new DecompressedStreamCache(new DataSize(4 * PAGE_SIZE, BYTE));
+        StreamKey hotKey = streamKey(0);
+        StreamKey coldKey = streamKey(1);
+        StreamKey hotterKey = streamKey(2);
+
+        requestTimes(cache, hotKey, 3);
+        cache.put(hotKey, createChunks(2 * PAGE_SIZE));
+
+        // a stream requested less often than the resident one does not displace it
+        requestTimes(cache, coldKey, 2);
+        cache.put(coldKey, createChunks(3 * PAGE_SIZE));
+        assertEquals(cache.getRejections().getTotalCount(), 1);
+        assertEquals(cache.getStreamCount(), 1);
+
+        // pinned streams are never evicted
+        CachedStream pinned = cache.get(hotKey).get();
+        requestTimes(cache, hotterKey, 6);
+        cache.put(hotterKey, createChunks(3 * PAGE_SIZE));
+        assertEquals(cache.getRejections().getTotalCount(), 2);
+
+        // once released, a more frequently requested stream displaces it
+        pinned.release();
+        cache.put(hotterKey, createChunks(3 * PAGE_SIZE));
+        assertEquals(cache.getEvictions().getTotalCount(), 1);
+        assertEquals(cache.getStreamCount(), 1);
+        assertEquals(cache.getCachedBytes(), 3 * PAGE_SIZE);
+        assertFalse(cache.get(hotKey).isPresent());
+        cache.get(hotterKey).get().release();
+    }
+
+    @Test
+    public void testPartialLastArena()
+    {
+        // the size is not a multiple of the arena size, so the last arena holds the remaining two pages
+        DecompressedStreamCache cache = new DecompressedStreamCache(new DataSize(10 * PAGE_SIZE, BYTE), new DirectMemoryBudget(Long.MAX_VALUE), 4 * PAGE_SIZE);
+        for (int column = 0; column < 5; column++) {
+            StreamKey key = streamKey(column);
+            requestTimes(cache, key, 2);
+            cache.put(key, createChunks(2 * PAGE_SIZE));
+        }
+        assertEquals(cache.getStreamCount(), 5);
+        assertEquals(cache.getCachedBytes(), 10 * PAGE_SIZE);
+        assertEquals(cache.getAllocatedBytes(), 10 * PAGE_SIZE);
+        assertEquals(cache.getRejections().getTotalCount(), 0);
+        assertEquals(cache.getEvictions().getTotalCount(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "maxSize 3MB with the 0B of the other decompressed stream caches exceeds half of the maximum direct memory of 4MB")
+    public void testExceedsDirectMemoryBudget()
+    {
+        new DecompressedStreamCache(new DataSize(3, MEGABYTE), new DirectMemoryBudget(new DataSize(4, MEGABYTE).toBytes()), 4 * PAGE_SIZE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "maxSize 1.50MB with the 1.50MB of the other decompressed stream caches exceeds half of the maximum direct memory of 4MB")
+    public void testCachesShareDirectMemoryBudget()
+    {
+        // every catalog has its own cache, but all of them draw from the same budget
+        DirectMemoryBudget budget = new DirectMemoryBudget(new DataSize(4, MEGABYTE).toBytes());
+        new DecompressedStreamCache(new DataSize(1.5, MEGABYTE), budget, 4 * PAGE_SIZE);
+        new DecompressedStreamCache(new DataSize(1.5, MEGABYTE), budget, 4 * PAGE_SIZE);
+    }
+
+    private static void requestTimes(DecompressedStreamCache cache, StreamKey key, int times)
+    {
+        for (int i = 0; i < times; i++) {
+            cache.get(key).ifPresent(CachedStream::release);
+        }
+    }
+
+    private static StreamKey streamKey(int column)
+    {
+        return new StreamKey(SOURCE_ID, 1234, 3, new StreamId(column, 0, DATA));
+    }
+
+    private static DecompressedChunkList createChunks(int length)
+    {
+        byte[] data = filledArray(length, 7);
+        return DecompressedChunkList.builder(length / 2)
+                .addChunk(0, data, 0, data.length)
+                .build();
+    }
+
+    private static byte[] filledArray(int length, int value)
+    {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+}
@@ -25,6 +25,10 @@ import com.facebook.presto.parquet.batchreader.Int64FlatBatchReader;
 import com.facebook.presto.parquet.batchreader.Int64NestedBatchReader;
 import com.facebook.presto.parquet.batchreader.Int64TimestampMicrosFlatBatchReader;
 import com.facebook.presto.parquet.batchreader.Int64TimestampMicrosNestedBatchReader;
+import com.facebook.presto.parquet.batchreader.LongDecimalFlatBatchReader;
+import com.facebook.presto.parquet.batchreader.LongDecimalNestedBatchReader;
+import com.facebook.presto.parquet.batchreader.ShortDecimalFlatBatchReader;
+import com.facebook.presto.parquet.batchreader.ShortDecimalNestedBatchReader;
 import com.facebook.presto.parquet.batchreader.TimestampFlatBatchReader;
 import com.facebook.presto.parquet.batchreader.TimestampNestedBatchReader;
 import com.facebook.presto.parquet.reader.AbstractColumnReader;
@@ -44,9 +48,10 @@ import com.facebook.presto.spi.PrestoException;
 import java.util.Optional;
 
 import static com.facebook.presto.parquet.ParquetTypeUtils.createDecimalType;
+import static com.facebook.presto.parquet.ParquetTypeUtils.isDecimalType;
+import static com.facebook.presto.parquet.ParquetTypeUtils.isShortDecimalType;
 import static com.facebook.presto.parquet.ParquetTypeUtils.isTimeStampMicrosType;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
-import static org.apache.parquet.schema.OriginalType.DECIMAL;
 import static org.apache.parquet.schema.OriginalType.TIMESTAMP_MICROS;
 import static org.apache.parquet.schema.OriginalType.TIME_MICROS;
 
@@ -58,9 +63,14 @@ public class ColumnReaderFactory
 
     public static ColumnReader createReader(RichColumnDescriptor descriptor, boolean batchReadEnabled)
     {
-        // decimal is not supported in batch readers
-        if (batchReadEnabled && descriptor.getPrimitiveType().getOriginalType() != DECIMAL) {
+        if (batchReadEnabled) {
             final boolean isNested = descriptor.getPath().length > 1;
+            if (isDecimalType(descriptor)) {
+                if (isShortDecimalType(descriptor)) {
+                    return isNested ? new ShortDecimalNestedBatchReader(descriptor) : new ShortDecimalFlatBatchReader(descriptor);
+                }
+                return isNested ? new LongDecimalNestedBatchReader(descriptor) : new LongDecimalFlatBatchReader(descriptor);
+            }
             switch (descriptor.getPrimitiveType().getPrimitiveTypeName()) {
                 case BOOLEAN:
                     return isNested ? new BooleanNestedBatchReader(descriptor) : new BooleanFlatBatchReader(descriptor);
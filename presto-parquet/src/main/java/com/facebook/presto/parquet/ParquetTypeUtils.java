@@ -37,6 +37,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
+import static com.facebook.presto.common.type.Decimals.MAX_SHORT_PRECISION;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.util.stream.Collectors.joining;
@@ -335,4 +336,14 @@ public final class ParquetTypeUtils
     {
         return TIMESTAMP_MICROS.equals(descriptor.getPrimitiveType().getOriginalType());
     }
+
+    public static boolean isDecimalType(ColumnDescriptor descriptor)
+    {
+        return DECIMAL.equals(descriptor.getPrimitiveType().getOriginalType());
+    }
+
+    public static boolean isShortDecimalType(ColumnDescriptor descriptor)
+    {
+        return isDecimalType(descriptor) && descriptor.getPrimitiveType().getDecimalMetadata().getPrecision() <= MAX_SHORT_PRECISION;
+    }
 }
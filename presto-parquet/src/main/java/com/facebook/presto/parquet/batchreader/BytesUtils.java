@@ -15,6 +15,8 @@ package com.facebook.presto.parquet.batchreader;
 
 public class BytesUtils
 {
+    private static final long SIGN_LONG_MASK = 1L << 63;
+
     private BytesUtils()
     {
     }
@@ -50,6 +52,48 @@ public class BytesUtils
                 ((long) (ch0 & 255) << 0);
     }
 
+    /**
+     * Decodes a big-endian two's complement unscaled decimal value that fits in a long.
+     */
+    public static long getShortDecimalValue(byte[] byteBuffer, int offset, int length)
+    {
+        if (length == 0) {
+            return 0;
+        }
+        long value = byteBuffer[offset];
+        for (int i = offset + 1; i < offset + length; i++) {
+            value = (value << 8) | (byteBuffer[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a big-endian two's complement unscaled decimal value of up to 16 bytes into
+     * {@code values[index]} (low bits) and {@code values[index + 1]} (high bits and sign)
+     * in the sign-magnitude layout of {@link com.facebook.presto.common.block.Int128ArrayBlock}.
+     */
+    public static void getLongDecimalValue(byte[] byteBuffer, int offset, int length, long[] values, int index)
+    {
+        long high = 0;
+        long low = 0;
+        if (length > 0) {
+            low = byteBuffer[offset];
+            high = low >> 63;
+            for (int i = offset + 1; i < offset + length; i++) {
+                high = (high << 8) | (low >>> 56);
+                low = (low << 8) | (byteBuffer[i] & 0xFF);
+            }
+        }
+
+        if (high < 0) {
+            low = ~low + 1;
+            high = ~high + (low == 0 ? 1 : 0);
+            high |= SIGN_LONG_MASK;
+        }
+        values[index] = low;
+        values[index + 1] = high;
+    }
+
     public static void unpack8Values(byte inByte, byte[] out, int outPos)
     {
         out[0 + outPos] = (byte) (inByte & 1);
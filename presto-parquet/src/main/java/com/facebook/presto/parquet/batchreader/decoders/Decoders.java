@@ -18,23 +18,33 @@ import com.facebook.presto.parquet.DataPageV1;
 import com.facebook.presto.parquet.DataPageV2;
 import com.facebook.presto.parquet.ParquetEncoding;
 import com.facebook.presto.parquet.RichColumnDescriptor;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.Int32ValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.Int64ValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.delta.BinaryDeltaValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.delta.Int32DeltaBinaryPackedValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.delta.Int64DeltaBinaryPackedValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.delta.Int64TimestampMicrosDeltaBinaryPackedValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.delta.LongDecimalDeltaValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.delta.ShortDecimalDeltaValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.BinaryPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.BooleanPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.Int32PlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.Int64PlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.Int64TimestampMicrosPlainValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.plain.LongDecimalPlainValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.plain.ShortDecimalPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.TimestampPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.BinaryRLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.BooleanRLEValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.Int32RLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.Int64RLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.Int64TimestampMicrosRLEDictionaryValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.rle.LongDecimalRLEDictionaryValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.rle.ShortDecimalRLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.TimestampRLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.dictionary.BinaryBatchDictionary;
+import com.facebook.presto.parquet.batchreader.dictionary.LongDecimalBatchDictionary;
+import com.facebook.presto.parquet.batchreader.dictionary.ShortDecimalBatchDictionary;
 import com.facebook.presto.parquet.batchreader.dictionary.TimestampDictionary;
 import com.facebook.presto.parquet.dictionary.Dictionary;
 import com.facebook.presto.parquet.dictionary.IntegerDictionary;
@@ -61,6 +71,8 @@ import static com.facebook.presto.parquet.ParquetEncoding.RLE_DICTIONARY;
 import static com.facebook.presto.parquet.ParquetErrorCode.PARQUET_IO_READ_ERROR;
 import static com.facebook.presto.parquet.ParquetErrorCode.PARQUET_UNSUPPORTED_COLUMN_TYPE;
 import static com.facebook.presto.parquet.ParquetErrorCode.PARQUET_UNSUPPORTED_ENCODING;
+import static com.facebook.presto.parquet.ParquetTypeUtils.isDecimalType;
+import static com.facebook.presto.parquet.ParquetTypeUtils.isShortDecimalType;
 import static com.facebook.presto.parquet.ParquetTypeUtils.isTimeStampMicrosType;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
@@ -68,6 +80,7 @@ import static org.apache.parquet.bytes.BytesUtils.getWidthFromMaxInt;
 import static org.apache.parquet.bytes.BytesUtils.readIntLittleEndian;
 import static org.apache.parquet.bytes.BytesUtils.readIntLittleEndianOnOneByte;
 import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BOOLEAN;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY;
 
 public class Decoders
 {
@@ -90,6 +103,62 @@ public class Decoders
 
     private static final ValuesDecoder createValuesDecoder(ColumnDescriptor columnDescriptor, Dictionary dictionary, int valueCount, ParquetEncoding encoding, byte[] buffer, int offset, int length)
             throws IOException
+    {
+        if (isDecimalType(columnDescriptor)) {
+            return createDecimalValuesDecoder(columnDescriptor, dictionary, valueCount, encoding, buffer, offset, length);
+        }
+        return createPrimitiveValuesDecoder(columnDescriptor, dictionary, valueCount, encoding, buffer, offset, length);
+    }
+
+    private static final ValuesDecoder createDecimalValuesDecoder(ColumnDescriptor columnDescriptor, Dictionary dictionary, int valueCount, ParquetEncoding encoding, byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        final PrimitiveTypeName type = columnDescriptor.getPrimitiveType().getPrimitiveTypeName();
+        switch (type) {
+            case INT32:
+                // unscaled values are stored as plain integers, so any of the integer decoders can be used
+                return new Int32ShortDecimalValuesDecoder((Int32ValuesDecoder) createPrimitiveValuesDecoder(columnDescriptor, dictionary, valueCount, encoding, buffer, offset, length));
+            case INT64:
+                return new Int64ShortDecimalValuesDecoder((Int64ValuesDecoder) createPrimitiveValuesDecoder(columnDescriptor, dictionary, valueCount, encoding, buffer, offset, length));
+            case BINARY:
+            case FIXED_LEN_BYTE_ARRAY:
+                break;
+            default:
+                throw new PrestoException(PARQUET_UNSUPPORTED_COLUMN_TYPE, format("Column: %s, Encoding: %s", columnDescriptor, encoding));
+        }
+
+        final boolean isShortDecimal = isShortDecimalType(columnDescriptor);
+        // BINARY values are prefixed with their length
+        final int typeLength = type == FIXED_LEN_BYTE_ARRAY ? columnDescriptor.getPrimitiveType().getTypeLength() : 0;
+
+        if (encoding == PLAIN) {
+            if (isShortDecimal) {
+                return new ShortDecimalPlainValuesDecoder(buffer, offset, length, typeLength);
+            }
+            return new LongDecimalPlainValuesDecoder(buffer, offset, length, typeLength);
+        }
+
+        if (encoding == RLE_DICTIONARY || encoding == PLAIN_DICTIONARY) {
+            InputStream inputStream = ByteBufferInputStream.wrap(ByteBuffer.wrap(buffer, offset, length));
+            int bitWidth = readIntLittleEndianOnOneByte(inputStream);
+            if (isShortDecimal) {
+                return new ShortDecimalRLEDictionaryValuesDecoder(bitWidth, inputStream, (ShortDecimalBatchDictionary) dictionary);
+            }
+            return new LongDecimalRLEDictionaryValuesDecoder(bitWidth, inputStream, (LongDecimalBatchDictionary) dictionary);
+        }
+
+        if (encoding == DELTA_BYTE_ARRAY || encoding == DELTA_LENGTH_BYTE_ARRAY) {
+            ByteBufferInputStream inputStream = ByteBufferInputStream.wrap(ByteBuffer.wrap(buffer, offset, length));
+            if (isShortDecimal) {
+                return new ShortDecimalDeltaValuesDecoder(encoding, valueCount, inputStream);
+            }
+            return new LongDecimalDeltaValuesDecoder(encoding, valueCount, inputStream);
+        }
+        throw new PrestoException(PARQUET_UNSUPPORTED_ENCODING, format("Column: %s, Encoding: %s", columnDescriptor, encoding));
+    }
+
+    private static final ValuesDecoder createPrimitiveValuesDecoder(ColumnDescriptor columnDescriptor, Dictionary dictionary, int valueCount, ParquetEncoding encoding, byte[] buffer, int offset, int length)
+            throws IOException
     {
         final PrimitiveTypeName type = columnDescriptor.getPrimitiveType().getPrimitiveTypeName();
 
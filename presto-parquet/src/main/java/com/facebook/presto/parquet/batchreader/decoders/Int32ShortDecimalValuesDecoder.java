@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.batchreader.decoders;
+
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.Int32ValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.ShortDecimalValuesDecoder;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.io.IOException;
+
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads INT32 backed decimals using any of the INT32 values decoders.
+ */
+public class Int32ShortDecimalValuesDecoder
+        implements ShortDecimalValuesDecoder
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(Int32ShortDecimalValuesDecoder.class).instanceSize();
+
+    private final Int32ValuesDecoder delegate;
+
+    private int[] buffer = new int[0];
+
+    public Int32ShortDecimalValuesDecoder(Int32ValuesDecoder delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public void readNext(long[] values, int offset, int length)
+            throws IOException
+    {
+        if (buffer.length < length) {
+            buffer = new int[length];
+        }
+        delegate.readNext(buffer, 0, length);
+        for (int i = 0; i < length; i++) {
+            values[offset + i] = buffer[i];
+        }
+    }
+
+    @Override
+    public void skip(int length)
+            throws IOException
+    {
+        delegate.skip(length);
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + delegate.getRetainedSizeInBytes() + sizeOf(buffer);
+    }
+}
@@ -82,5 +82,32 @@ public interface ValuesDecoder
         void skip(int length);
     }
 
+    interface ShortDecimalValuesDecoder
+            extends ValuesDecoder
+    {
+        /**
+         * Reads the unscaled values of {@code length} decimals into {@code values[offset, offset + length)}.
+         */
+        void readNext(long[] values, int offset, int length)
+                throws IOException;
+
+        void skip(int length)
+                throws IOException;
+    }
+
+    interface LongDecimalValuesDecoder
+            extends ValuesDecoder
+    {
+        /**
+         * Reads the unscaled values of {@code length} decimals into {@code values[2 * offset, 2 * (offset + length))}
+         * using the two longs per value layout of {@link com.facebook.presto.common.block.Int128ArrayBlock}.
+         */
+        void readNext(long[] values, int offset, int length)
+                throws IOException;
+
+        void skip(int length)
+                throws IOException;
+    }
+
     public long getRetainedSizeInBytes();
 }
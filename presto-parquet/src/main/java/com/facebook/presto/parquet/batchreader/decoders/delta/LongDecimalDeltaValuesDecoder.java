@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.batchreader.decoders.delta;
+
+import com.facebook.presto.parquet.ParquetEncoding;
+import com.facebook.presto.parquet.batchreader.BytesUtils;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.LongDecimalValuesDecoder;
+import org.apache.parquet.bytes.ByteBufferInputStream;
+import org.apache.parquet.column.values.ValuesReader;
+import org.apache.parquet.column.values.deltalengthbytearray.DeltaLengthByteArrayValuesReader;
+import org.apache.parquet.column.values.deltastrings.DeltaByteArrayReader;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.io.IOException;
+
+import static com.facebook.presto.parquet.ParquetEncoding.DELTA_BYTE_ARRAY;
+import static com.facebook.presto.parquet.ParquetEncoding.DELTA_LENGTH_BYTE_ARRAY;
+
+/**
+ * Note: like {@link BinaryDeltaValuesDecoder}, this wraps the decoder provided by the Parquet library
+ * and converts the decoded bytes to decimal values.
+ */
+public class LongDecimalDeltaValuesDecoder
+        implements LongDecimalValuesDecoder
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(LongDecimalDeltaValuesDecoder.class).instanceSize();
+
+    private final ValuesReader innerReader;
+
+    public LongDecimalDeltaValuesDecoder(ParquetEncoding encoding, int valueCount, ByteBufferInputStream bufferInputStream)
+            throws IOException
+    {
+        if (encoding == DELTA_BYTE_ARRAY) {
+            innerReader = new DeltaByteArrayReader();
+        }
+        else if (encoding == DELTA_LENGTH_BYTE_ARRAY) {
+            innerReader = new DeltaLengthByteArrayValuesReader();
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+        innerReader.initFromPage(valueCount, bufferInputStream);
+    }
+
+    @Override
+    public void readNext(long[] values, int offset, int length)
+            throws IOException
+    {
+        int endOffset = offset + length;
+        for (int i = offset; i < endOffset; i++) {
+            byte[] bytes = innerReader.readBytes().getBytes();
+            BytesUtils.getLongDecimalValue(bytes, 0, bytes.length, values, 2 * i);
+        }
+    }
+
+    @Override
+    public void skip(int length)
+            throws IOException
+    {
+        while (length > 0) {
+            innerReader.skip();
+            length--;
+        }
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        // Not counting valuesReader since it's in another library.
+        return INSTANCE_SIZE;
+    }
+}
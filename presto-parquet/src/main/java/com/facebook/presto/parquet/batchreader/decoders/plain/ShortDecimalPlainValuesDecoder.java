@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.batchreader.decoders.plain;
+
+import com.facebook.presto.parquet.batchreader.BytesUtils;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.ShortDecimalValuesDecoder;
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+
+/**
+ * Decodes BINARY and FIXED_LEN_BYTE_ARRAY backed decimals that fit in a long.
+ */
+public class ShortDecimalPlainValuesDecoder
+        implements ShortDecimalValuesDecoder
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(ShortDecimalPlainValuesDecoder.class).instanceSize();
+
+    private final byte[] byteBuffer;
+    private final int bufferEnd;
+    // length of the FIXED_LEN_BYTE_ARRAY values, or 0 for BINARY values which are prefixed with their length
+    private final int typeLength;
+
+    private int bufferOffset;
+
+    public ShortDecimalPlainValuesDecoder(byte[] byteBuffer, int bufferOffset, int length, int typeLength)
+    {
+        checkArgument(typeLength >= 0, "invalid type length %s", typeLength);
+        this.byteBuffer = byteBuffer;
+        this.bufferOffset = bufferOffset;
+        this.bufferEnd = bufferOffset + length;
+        this.typeLength = typeLength;
+    }
+
+    @Override
+    public void readNext(long[] values, int offset, int length)
+    {
+        checkArgument(length >= 0 && offset >= 0, "invalid read request: offset %s, length %s", offset, length);
+
+        final int endOffset = offset + length;
+        final byte[] localByteBuffer = byteBuffer;
+        int localBufferOffset = bufferOffset;
+
+        if (typeLength > 0) {
+            checkArgument(localBufferOffset + length * typeLength <= bufferEnd, "End of stream: invalid read request");
+            final int localTypeLength = typeLength;
+            while (offset < endOffset) {
+                values[offset++] = BytesUtils.getShortDecimalValue(localByteBuffer, localBufferOffset, localTypeLength);
+                localBufferOffset += localTypeLength;
+            }
+        }
+        else {
+            while (offset < endOffset) {
+                checkArgument(localBufferOffset + 4 <= bufferEnd, "End of stream: invalid read request");
+                int valueLength = BytesUtils.getInt(localByteBuffer, localBufferOffset);
+                localBufferOffset += 4;
+                checkArgument(localBufferOffset + valueLength <= bufferEnd, "End of stream: invalid read request");
+                values[offset++] = BytesUtils.getShortDecimalValue(localByteBuffer, localBufferOffset, valueLength);
+                localBufferOffset += valueLength;
+            }
+        }
+
+        bufferOffset = localBufferOffset;
+    }
+
+    @Override
+    public void skip(int length)
+    {
+        checkArgument(length >= 0, "invalid length %s", length);
+        if (typeLength > 0) {
+            checkArgument(bufferOffset + length * typeLength <= bufferEnd, "End of stream: invalid read request");
+            bufferOffset += length * typeLength;
+            return;
+        }
+
+        int localBufferOffset = bufferOffset;
+        for (int i = 0; i < length; i++) {
+            checkArgument(localBufferOffset + 4 <= bufferEnd, "End of stream: invalid read request");
+            localBufferOffset += 4 + BytesUtils.getInt(byteBuffer, localBufferOffset);
+        }
+        checkArgument(localBufferOffset <= bufferEnd, "End of stream: invalid read request");
+        bufferOffset = localBufferOffset;
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(byteBuffer);
+    }
+}
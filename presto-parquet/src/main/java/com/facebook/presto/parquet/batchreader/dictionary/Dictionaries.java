@@ -20,8 +20,13 @@ import com.facebook.presto.parquet.dictionary.LongDictionary;
 import com.facebook.presto.spi.PrestoException;
 import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.io.ParquetDecodingException;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
 
 import static com.facebook.presto.parquet.ParquetErrorCode.PARQUET_UNSUPPORTED_ENCODING;
+import static com.facebook.presto.parquet.ParquetTypeUtils.isDecimalType;
+import static com.facebook.presto.parquet.ParquetTypeUtils.isShortDecimalType;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY;
 
 public class Dictionaries
 {
@@ -32,7 +37,17 @@ public class Dictionaries
     public static Dictionary createDictionary(ColumnDescriptor columnDescriptor, DictionaryPage dictionaryPage)
     {
         try {
-            switch (columnDescriptor.getPrimitiveType().getPrimitiveTypeName()) {
+            PrimitiveTypeName type = columnDescriptor.getPrimitiveType().getPrimitiveTypeName();
+            if (isDecimalType(columnDescriptor) && (type == BINARY || type == FIXED_LEN_BYTE_ARRAY)) {
+                // BINARY values are prefixed with their length
+                int typeLength = type == FIXED_LEN_BYTE_ARRAY ? columnDescriptor.getPrimitiveType().getTypeLength() : 0;
+                if (isShortDecimalType(columnDescriptor)) {
+                    return new ShortDecimalBatchDictionary(dictionaryPage, typeLength);
+                }
+                return new LongDecimalBatchDictionary(dictionaryPage, typeLength);
+            }
+
+            switch (type) {
                 case INT32:
                 case FLOAT:
                     return new IntegerDictionary(dictionaryPage);
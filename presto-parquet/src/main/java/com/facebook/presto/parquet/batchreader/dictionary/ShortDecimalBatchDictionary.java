@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.batchreader.dictionary;
+
+import com.facebook.presto.parquet.DictionaryPage;
+import com.facebook.presto.parquet.batchreader.decoders.plain.ShortDecimalPlainValuesDecoder;
+import com.facebook.presto.parquet.dictionary.Dictionary;
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Dictionary of BINARY or FIXED_LEN_BYTE_ARRAY backed decimals that fit in a long, decoded once per column chunk.
+ */
+public class ShortDecimalBatchDictionary
+        extends Dictionary
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(ShortDecimalBatchDictionary.class).instanceSize();
+
+    private final long[] dictionary;
+
+    public ShortDecimalBatchDictionary(DictionaryPage dictionaryPage, int typeLength)
+    {
+        super(dictionaryPage.getEncoding());
+        requireNonNull(dictionaryPage, "dictionaryPage is null");
+        checkArgument(dictionaryPage.getDictionarySize() >= 0, "Dictionary size should be greater than or equal zero");
+
+        byte[] pageBuffer = requireNonNull(dictionaryPage.getSlice(), "dictionary slice is null").getBytes();
+        long[] dictionary = new long[dictionaryPage.getDictionarySize()];
+        new ShortDecimalPlainValuesDecoder(pageBuffer, 0, pageBuffer.length, typeLength).readNext(dictionary, 0, dictionary.length);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public long decodeToLong(int id)
+    {
+        return dictionary[id];
+    }
+
+    @Override
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(dictionary);
+    }
+}
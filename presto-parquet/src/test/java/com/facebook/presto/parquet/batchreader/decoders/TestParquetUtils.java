@@ -21,14 +21,17 @@ import org.apache.parquet.bytes.HeapByteBufferAllocator;
 import org.apache.parquet.column.values.ValuesWriter;
 import org.apache.parquet.column.values.bitpacking.ByteBitPackingValuesWriter;
 import org.apache.parquet.column.values.bitpacking.Packer;
+import org.apache.parquet.column.values.plain.FixedLenByteArrayPlainValuesWriter;
 import org.apache.parquet.column.values.plain.PlainValuesWriter;
 import org.apache.parquet.column.values.rle.RunLengthBitPackingHybridEncoder;
 import org.apache.parquet.io.api.Binary;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -156,6 +159,45 @@ public class TestParquetUtils
         }
     }
 
+    /**
+     * Writes random unscaled decimal values of up to {@code maxBits} bits (sign excluded) as big-endian two's complement bytes,
+     * as FIXED_LEN_BYTE_ARRAY values of {@code typeLength} bytes or as BINARY values when {@code typeLength} is 0.
+     */
+    public static byte[] generateDecimalValuesPage(int valueCount, int typeLength, int maxBits, Random random, List<Object> addedValues)
+    {
+        checkArgument(typeLength == 0 || maxBits < typeLength * 8, "values of %s bits do not fit in %s bytes", maxBits, typeLength);
+        ValuesWriter writer;
+        if (typeLength > 0) {
+            writer = new FixedLenByteArrayPlainValuesWriter(typeLength, 20, 1024 * 1000, new HeapByteBufferAllocator());
+        }
+        else {
+            writer = new PlainValuesWriter(20, 1024 * 1000, new HeapByteBufferAllocator());
+        }
+
+        for (int i = 0; i < valueCount; i++) {
+            BigInteger value = new BigInteger(random.nextInt(maxBits + 1), random);
+            if (random.nextBoolean()) {
+                value = value.negate();
+            }
+            byte[] bytes = value.toByteArray();
+            if (typeLength > 0) {
+                byte[] fixedLengthBytes = new byte[typeLength];
+                Arrays.fill(fixedLengthBytes, 0, typeLength - bytes.length, (byte) (value.signum() < 0 ? -1 : 0));
+                System.arraycopy(bytes, 0, fixedLengthBytes, typeLength - bytes.length, bytes.length);
+                bytes = fixedLengthBytes;
+            }
+            writer.writeBytes(Binary.fromConstantByteArray(bytes));
+            addedValues.add(value);
+        }
+
+        try {
+            return writer.getBytes().toByteArray();
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static byte[] generateDictionaryIdPage2048(int maxValue, Random random, List<Integer> addedValues)
     {
         RunLengthBitPackingHybridEncoder encoder = getDictionaryDataPageEncoder(maxValue);
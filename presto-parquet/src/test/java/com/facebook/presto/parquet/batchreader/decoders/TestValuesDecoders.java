@@ -19,20 +19,28 @@ import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.BooleanVal
 import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.Int32ValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.Int64TimestampMicrosValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.Int64ValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.LongDecimalValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.ShortDecimalValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.TimestampValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.BinaryPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.BooleanPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.Int32PlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.Int64PlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.Int64TimestampMicrosPlainValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.plain.LongDecimalPlainValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.plain.ShortDecimalPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.plain.TimestampPlainValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.BinaryRLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.BooleanRLEValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.Int32RLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.Int64RLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.Int64TimestampMicrosRLEDictionaryValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.rle.LongDecimalRLEDictionaryValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.rle.ShortDecimalRLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.rle.TimestampRLEDictionaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.dictionary.BinaryBatchDictionary;
+import com.facebook.presto.parquet.batchreader.dictionary.LongDecimalBatchDictionary;
+import com.facebook.presto.parquet.batchreader.dictionary.ShortDecimalBatchDictionary;
 import com.facebook.presto.parquet.batchreader.dictionary.TimestampDictionary;
 import com.facebook.presto.parquet.dictionary.IntegerDictionary;
 import com.facebook.presto.parquet.dictionary.LongDictionary;
@@ -41,6 +49,7 @@ import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -48,7 +57,10 @@ import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
 
+import static com.facebook.presto.common.type.UnscaledDecimal128Arithmetic.unscaledDecimal;
+import static com.facebook.presto.common.type.UnscaledDecimal128Arithmetic.unscaledDecimalToBigInteger;
 import static com.facebook.presto.parquet.ParquetEncoding.PLAIN_DICTIONARY;
+import static com.facebook.presto.parquet.batchreader.decoders.TestParquetUtils.generateDecimalValuesPage;
 import static com.facebook.presto.parquet.batchreader.decoders.TestParquetUtils.generateDictionaryIdPage2048;
 import static com.facebook.presto.parquet.batchreader.decoders.TestParquetUtils.generatePlainValuesPage;
 import static java.lang.Math.min;
@@ -118,6 +130,26 @@ public class TestValuesDecoders
         return new BooleanRLEValuesDecoder(ByteBuffer.wrap(pageBytes));
     }
 
+    private static ShortDecimalValuesDecoder shortDecimalPlain(byte[] pageBytes, int typeLength)
+    {
+        return new ShortDecimalPlainValuesDecoder(pageBytes, 0, pageBytes.length, typeLength);
+    }
+
+    private static ShortDecimalValuesDecoder shortDecimalDictionary(byte[] pageBytes, int dictionarySize, ShortDecimalBatchDictionary dictionary)
+    {
+        return new ShortDecimalRLEDictionaryValuesDecoder(getWidthFromMaxInt(dictionarySize), new ByteArrayInputStream(pageBytes), dictionary);
+    }
+
+    private static LongDecimalValuesDecoder longDecimalPlain(byte[] pageBytes, int typeLength)
+    {
+        return new LongDecimalPlainValuesDecoder(pageBytes, 0, pageBytes.length, typeLength);
+    }
+
+    private static LongDecimalValuesDecoder longDecimalDictionary(byte[] pageBytes, int dictionarySize, LongDecimalBatchDictionary dictionary)
+    {
+        return new LongDecimalRLEDictionaryValuesDecoder(getWidthFromMaxInt(dictionarySize), new ByteArrayInputStream(pageBytes), dictionary);
+    }
+
     private static void int32BatchReadWithSkipHelper(int batchSize, int skipSize, int valueCount, Int32ValuesDecoder decoder, List<Object> expectedValues)
             throws IOException
     {
@@ -258,6 +290,54 @@ public class TestValuesDecoders
         }
     }
 
+    private static void shortDecimalBatchReadWithSkipHelper(int batchSize, int skipSize, int valueCount, ShortDecimalValuesDecoder decoder, List<Object> expectedValues)
+            throws IOException
+    {
+        long[] actualValues = new long[valueCount];
+        int inputOffset = 0;
+        int outputOffset = 0;
+        while (inputOffset < valueCount) {
+            int readBatchSize = min(batchSize, valueCount - inputOffset);
+            decoder.readNext(actualValues, outputOffset, readBatchSize);
+
+            for (int i = 0; i < readBatchSize; i++) {
+                assertEquals(actualValues[outputOffset + i], ((BigInteger) expectedValues.get(inputOffset + i)).longValueExact());
+            }
+
+            inputOffset += readBatchSize;
+            outputOffset += readBatchSize;
+
+            int skipBatchSize = min(skipSize, valueCount - inputOffset);
+            decoder.skip(skipBatchSize);
+            inputOffset += skipBatchSize;
+        }
+    }
+
+    private static void longDecimalBatchReadWithSkipHelper(int batchSize, int skipSize, int valueCount, LongDecimalValuesDecoder decoder, List<Object> expectedValues)
+            throws IOException
+    {
+        long[] actualValues = new long[2 * valueCount];
+        int inputOffset = 0;
+        int outputOffset = 0;
+        while (inputOffset < valueCount) {
+            int readBatchSize = min(batchSize, valueCount - inputOffset);
+            decoder.readNext(actualValues, outputOffset, readBatchSize);
+
+            for (int i = 0; i < readBatchSize; i++) {
+                int index = 2 * (outputOffset + i);
+                BigInteger actual = unscaledDecimalToBigInteger(unscaledDecimal(Slices.wrappedLongArray(actualValues[index], actualValues[index + 1])));
+                assertEquals(actual, expectedValues.get(inputOffset + i));
+            }
+
+            inputOffset += readBatchSize;
+            outputOffset += readBatchSize;
+
+            int skipBatchSize = min(skipSize, valueCount - inputOffset);
+            decoder.skip(skipBatchSize);
+            inputOffset += skipBatchSize;
+        }
+    }
+
     @Test
     public void testInt32Plain()
             throws IOException
@@ -515,4 +595,106 @@ public class TestValuesDecoders
         booleanBatchReadWithSkipHelper(89, 29, valueCount, booleanRLE(dataPage), expectedValues);
         booleanBatchReadWithSkipHelper(1024, 1024, valueCount, booleanRLE(dataPage), expectedValues);
     }
+
+    @Test
+    public void testShortDecimalPlain()
+            throws IOException
+    {
+        int valueCount = 2048;
+        for (int typeLength : new int[] {0, 5, 8}) {
+            List<Object> expectedValues = new ArrayList<>();
+            byte[] pageBytes = generateDecimalValuesPage(valueCount, typeLength, 39, new Random(71), expectedValues);
+
+            shortDecimalBatchReadWithSkipHelper(valueCount, 0, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+            shortDecimalBatchReadWithSkipHelper(29, 0, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+            shortDecimalBatchReadWithSkipHelper(89, 0, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+            shortDecimalBatchReadWithSkipHelper(1024, 0, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+
+            shortDecimalBatchReadWithSkipHelper(256, 29, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+            shortDecimalBatchReadWithSkipHelper(89, 29, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+            shortDecimalBatchReadWithSkipHelper(1024, 1024, valueCount, shortDecimalPlain(pageBytes, typeLength), expectedValues);
+        }
+    }
+
+    @Test
+    public void testShortDecimalRLEDictionary()
+            throws IOException
+    {
+        Random random = new Random(73);
+        int valueCount = 2048;
+        int dictionarySize = 29;
+        int typeLength = 8;
+        List<Object> dictionary = new ArrayList<>();
+        List<Integer> dictionaryIds = new ArrayList<>();
+
+        byte[] dictionaryPage = generateDecimalValuesPage(dictionarySize, typeLength, 63, random, dictionary);
+        byte[] dataPage = generateDictionaryIdPage2048(dictionarySize - 1, random, dictionaryIds);
+
+        List<Object> expectedValues = new ArrayList<>();
+        for (Integer dictionaryId : dictionaryIds) {
+            expectedValues.add(dictionary.get(dictionaryId));
+        }
+
+        ShortDecimalBatchDictionary shortDecimalDictionary = new ShortDecimalBatchDictionary(new DictionaryPage(Slices.wrappedBuffer(dictionaryPage), dictionarySize, PLAIN_DICTIONARY), typeLength);
+
+        shortDecimalBatchReadWithSkipHelper(valueCount, 0, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+        shortDecimalBatchReadWithSkipHelper(29, 0, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+        shortDecimalBatchReadWithSkipHelper(89, 0, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+        shortDecimalBatchReadWithSkipHelper(1024, 0, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+
+        shortDecimalBatchReadWithSkipHelper(256, 29, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+        shortDecimalBatchReadWithSkipHelper(89, 29, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+        shortDecimalBatchReadWithSkipHelper(1024, 1024, valueCount, shortDecimalDictionary(dataPage, dictionarySize, shortDecimalDictionary), expectedValues);
+    }
+
+    @Test
+    public void testLongDecimalPlain()
+            throws IOException
+    {
+        int valueCount = 2048;
+        for (int typeLength : new int[] {0, 9, 16}) {
+            List<Object> expectedValues = new ArrayList<>();
+            byte[] pageBytes = generateDecimalValuesPage(valueCount, typeLength, 70, new Random(79), expectedValues);
+
+            longDecimalBatchReadWithSkipHelper(valueCount, 0, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+            longDecimalBatchReadWithSkipHelper(29, 0, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+            longDecimalBatchReadWithSkipHelper(89, 0, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+            longDecimalBatchReadWithSkipHelper(1024, 0, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+
+            longDecimalBatchReadWithSkipHelper(256, 29, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+            longDecimalBatchReadWithSkipHelper(89, 29, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+            longDecimalBatchReadWithSkipHelper(1024, 1024, valueCount, longDecimalPlain(pageBytes, typeLength), expectedValues);
+        }
+    }
+
+    @Test
+    public void testLongDecimalRLEDictionary()
+            throws IOException
+    {
+        Random random = new Random(97);
+        int valueCount = 2048;
+        int dictionarySize = 29;
+        int typeLength = 16;
+        List<Object> dictionary = new ArrayList<>();
+        List<Integer> dictionaryIds = new ArrayList<>();
+
+        byte[] dictionaryPage = generateDecimalValuesPage(dictionarySize, typeLength, 126, random, dictionary);
+        byte[] dataPage = generateDictionaryIdPage2048(dictionarySize - 1, random, dictionaryIds);
+
+        List<Object> expectedValues = new ArrayList<>();
+        for (Integer dictionaryId : dictionaryIds) {
+            expectedValues.add(dictionary.get(dictionaryId));
+        }
+
+        LongDecimalBatchDictionary longDecimalDictionary = new LongDecimalBatchDictionary(new DictionaryPage(Slices.wrappedBuffer(dictionaryPage), dictionarySize, PLAIN_DICTIONARY), typeLength);
+
+        longDecimalBatchReadWithSkipHelper(valueCount, 0, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+        longDecimalBatchReadWithSkipHelper(29, 0, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+        longDecimalBatchReadWithSkipHelper(89, 0, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+        longDecimalBatchReadWithSkipHelper(1024, 0, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+
+        longDecimalBatchReadWithSkipHelper(256, 29, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+        longDecimalBatchReadWithSkipHelper(89, 29, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+        longDecimalBatchReadWithSkipHelper(1024, 1024, valueCount, longDecimalDictionary(dataPage, dictionarySize, longDecimalDictionary), expectedValues);
+    }
 }
@@ -54,6 +54,8 @@ import java.util.zip.DeflaterInputStream;
 import java.util.zip.InflaterOutputStream;
 
 import static com.facebook.presto.common.block.BlockUtil.compactArray;
+import static com.facebook.presto.spi.page.PageCodecMarker.SNAPPY;
+import static com.facebook.presto.spi.page.PageCodecMarker.toSummaryString;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Throwables.propagateIfPossible;
 import static com.google.common.io.ByteStreams.toByteArray;
@@ -210,6 +212,16 @@ public class PrestoSparkUtils
                 int written = decompress(input.array(), inputOffset, input.remaining(), output.array(), outputOffset, output.remaining());
                 ((Buffer) output).position(output.position() + written);
             }
+
+            @Override
+            public void decompress(byte pageCodecMarkers, ByteBuffer input, ByteBuffer output)
+            {
+                // pages compressed by this serde carry no codec marker, exchange pages may be marked as ZSTD
+                if (SNAPPY.isSet(pageCodecMarkers)) {
+                    throw new IllegalArgumentException("Unsupported page codec markers " + toSummaryString(pageCodecMarkers) + ", only ZSTD compressed pages can be decompressed");
+                }
+                decompress(input, output);
+            }
         };
     }
 
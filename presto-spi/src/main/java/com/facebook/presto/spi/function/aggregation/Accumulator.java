@@ -33,6 +33,17 @@ public interface Accumulator
 
     void addInput(WindowIndex index, List<Integer> channels, int startPosition, int endPosition);
 
+    /**
+     * Removes the rows in the range [startPosition, endPosition] that were previously added
+     * with {@link #addInput(WindowIndex, List, int, int)}.
+     *
+     * @return false if this accumulator does not support removing input, in which case the state is left unchanged
+     */
+    default boolean removeInput(WindowIndex index, List<Integer> channels, int startPosition, int endPosition)
+    {
+        return false;
+    }
+
     void addIntermediate(Block block);
 
     void evaluateIntermediate(BlockBuilder blockBuilder);
@@ -26,7 +26,10 @@ public enum PageCodecMarker
 {
     COMPRESSED(1),
     ENCRYPTED(2),
-    CHECKSUMMED(3);
+    CHECKSUMMED(3),
+    // Codec of a COMPRESSED page. Compressed pages without a codec marker are LZ4 compressed.
+    ZSTD(4),
+    SNAPPY(5);
 
     private final int mask;
 
@@ -28,4 +28,14 @@ public interface PageCompressor
             int maxOutputLength);
 
     void compress(ByteBuffer input, ByteBuffer output);
+
+    /**
+     * Marks the codec used by this compressor on a compressed page, so that the page
+     * can be decompressed by a {@link PageDecompressor} that supports several codecs.
+     * Compressed pages without a codec marker are LZ4 compressed.
+     */
+    default byte setCodecMarker(byte pageCodecMarkers)
+    {
+        return pageCodecMarkers;
+    }
 }
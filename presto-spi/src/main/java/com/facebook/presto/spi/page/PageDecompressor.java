@@ -26,4 +26,13 @@ public interface PageDecompressor
             int maxOutputLength);
 
     void decompress(ByteBuffer input, ByteBuffer output);
+
+    /**
+     * Decompresses a page given its {@link PageCodecMarker}s, which allows an
+     * implementation to pick the codec the page was compressed with.
+     */
+    default void decompress(byte pageCodecMarkers, ByteBuffer input, ByteBuffer output)
+    {
+        decompress(input, output);
+    }
 }
@@ -42,21 +42,44 @@ import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 public class PagesSerde
 {
     private static final double MINIMUM_COMPRESSION_RATIO = 0.8;
+    // with adaptive compression, compression is suspended after this many consecutive pages that did not compress
+    private static final int ADAPTIVE_INCOMPRESSIBLE_PAGES = 8;
+    private static final int ADAPTIVE_MAX_SKIPPED_PAGES = 1024;
 
     private final BlockEncodingSerde blockEncodingSerde;
     private final Optional<PageCompressor> compressor;
     private final Optional<PageDecompressor> decompressor;
     private final Optional<SpillCipher> spillCipher;
     private final boolean checksumEnabled;
+    private final boolean adaptiveCompression;
 
     private byte[] compressionBuffer;
 
+    private int incompressiblePages;
+    private int skippedPagesInterval = ADAPTIVE_INCOMPRESSIBLE_PAGES;
+    private int pagesToSkip;
+
     public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<PageCompressor> compressor, Optional<PageDecompressor> decompressor, Optional<SpillCipher> spillCipher)
     {
         this(blockEncodingSerde, compressor, decompressor, spillCipher, false);
     }
 
     public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<PageCompressor> compressor, Optional<PageDecompressor> decompressor, Optional<SpillCipher> spillCipher, boolean checksumEnabled)
+    {
+        this(blockEncodingSerde, compressor, decompressor, spillCipher, checksumEnabled, false);
+    }
+
+    /**
+     * @param adaptiveCompression when set, pages are sent uncompressed after a run of pages that did not compress,
+     * and compression is retried on a single page after an exponentially growing number of skipped pages
+     */
+    public PagesSerde(
+            BlockEncodingSerde blockEncodingSerde,
+            Optional<PageCompressor> compressor,
+            Optional<PageDecompressor> decompressor,
+            Optional<SpillCipher> spillCipher,
+            boolean checksumEnabled,
+            boolean adaptiveCompression)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         checkArgument(compressor.isPresent() == decompressor.isPresent(), "compressor and decompressor must both be present or both be absent");
@@ -65,6 +88,7 @@ public class PagesSerde
         this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
         checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
         this.checksumEnabled = checksumEnabled;
+        this.adaptiveCompression = adaptiveCompression;
     }
 
     public SerializedPage serialize(Page page)
@@ -98,7 +122,7 @@ public class PagesSerde
             int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
             ByteBuffer decompressionBuffer = ByteBuffer.allocate(uncompressedSize);
 
-            decompressor.get().decompress(slice.toByteBuffer(), decompressionBuffer);
+            decompressor.get().decompress(serializedPage.getPageCodecMarkers(), slice.toByteBuffer(), decompressionBuffer);
             ((Buffer) decompressionBuffer).flip();
             checkState(decompressionBuffer.remaining() == uncompressedSize, "page size changed after decompression into decompressionBuffer");
 
@@ -123,7 +147,7 @@ public class PagesSerde
         int uncompressedSize = slice.length();
         byte markers = PageCodecMarker.none();
 
-        if (compressor.isPresent()) {
+        if (compressor.isPresent() && shouldCompress()) {
             int maxCompressedSize = compressor.get().maxCompressedLength(uncompressedSize);
             compressionBuffer = ensureCapacity(compressionBuffer, maxCompressedSize);
             int compressedSize = compressor.get().compress(
@@ -134,10 +158,12 @@ public class PagesSerde
                     0,
                     maxCompressedSize);
 
-            if (compressedSize / (double) uncompressedSize <= MINIMUM_COMPRESSION_RATIO) {
+            boolean compressed = compressedSize / (double) uncompressedSize <= MINIMUM_COMPRESSION_RATIO;
+            if (compressed) {
                 slice = Slices.copyOf(Slices.wrappedBuffer(compressionBuffer, 0, compressedSize));
-                markers = COMPRESSED.set(markers);
+                markers = compressor.get().setCodecMarker(COMPRESSED.set(markers));
             }
+            recordCompressionResult(compressed);
         }
 
         if (spillCipher.isPresent()) {
@@ -157,6 +183,34 @@ public class PagesSerde
         return new SerializedPage(slice, markers, positionCount, uncompressedSize, checksum);
     }
 
+    private boolean shouldCompress()
+    {
+        if (pagesToSkip == 0) {
+            return true;
+        }
+        pagesToSkip--;
+        return false;
+    }
+
+    private void recordCompressionResult(boolean compressed)
+    {
+        if (!adaptiveCompression) {
+            return;
+        }
+        if (compressed) {
+            incompressiblePages = 0;
+            skippedPagesInterval = ADAPTIVE_INCOMPRESSIBLE_PAGES;
+            return;
+        }
+        incompressiblePages++;
+        if (incompressiblePages >= ADAPTIVE_INCOMPRESSIBLE_PAGES) {
+            // a single incompressible sample page suspends compression again, for twice as long
+            pagesToSkip = skippedPagesInterval;
+            skippedPagesInterval = Math.min(skippedPagesInterval * 2, ADAPTIVE_MAX_SKIPPED_PAGES);
+            incompressiblePages = ADAPTIVE_INCOMPRESSIBLE_PAGES - 1;
+        }
+    }
+
     private static void checkArgument(boolean condition, String message)
     {
         if (!condition) {